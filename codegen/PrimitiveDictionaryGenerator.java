@@ -0,0 +1,135 @@
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+/**
+ * Генерирует словари без упаковки (IntIntDictionary, LongIntDictionary, ...) из PrimitiveDictionary.template
+ * Запуск из корня репозитория: java codegen/PrimitiveDictionaryGenerator.java [каталог, по умолчанию main/java]
+ * В шаблоне ${имя} заменяется на значение переменной, а строки //#if флаг, //#else, //#end
+ *   оставляют или выкидывают строки между ними; флаги -- primitiveKey, objectKey, primitiveValue, objectValue
+ */
+public class PrimitiveDictionaryGenerator {
+    private static final Path TEMPLATE = Path.of("codegen", "PrimitiveDictionary.template");
+
+    private static Map<String, String> primitiveKey(String key, String boxed, String emptyFill) {
+        Map<String, String> variables = new HashMap<>();
+        variables.put("primitiveKey", "");
+        variables.put("key", key);
+        variables.put("K", key);
+        variables.put("keyArgument", key);
+        variables.put("Key", boxed);
+        variables.put("slotCount", "capacity + 1");
+        variables.put("hash", "Hashing.mix(key)");
+        variables.put("empty", "0");
+        variables.put("emptyFill", emptyFill);
+        variables.put("keyEquals", "current == key");
+        variables.put("castKey", "");
+        return variables;
+    }
+
+    private static Map<String, String> objectKey() {
+        Map<String, String> variables = new HashMap<>();
+        variables.put("objectKey", "");
+        variables.put("key", "Object");
+        variables.put("K", "K");
+        variables.put("keyArgument", "Object");
+        variables.put("Key", "K");
+        variables.put("slotCount", "capacity");
+        variables.put("hash", "Hashing.mix(key.hashCode())");
+        variables.put("empty", "null");
+        variables.put("emptyFill", "null");
+        variables.put("keyEquals", "current == key || current.equals(key)");
+        variables.put("castKey", "(K) ");
+        return variables;
+    }
+
+    private static Map<String, String> primitiveValue(Map<String, String> variables, String value, String boxed) {
+        variables.put("primitiveValue", "");
+        variables.put("value", value);
+        variables.put("V", value);
+        variables.put("Value", boxed);
+        variables.put("ValueSuffix", boxed.equals("Integer") ? "Int" : boxed);
+        return variables;
+    }
+
+    private static Map<String, String> objectValue(Map<String, String> variables) {
+        variables.put("objectValue", "");
+        variables.put("value", "Object");
+        variables.put("V", "V");
+        variables.put("Value", "V");
+        return variables;
+    }
+
+    private static Map<String, String> named(Map<String, String> variables, String name, String typeParameter) {
+        variables.put("Name", name);
+        variables.put("typeParameter", typeParameter);
+        return variables;
+    }
+
+    private static List<Map<String, String>> dictionaries() {
+        return List.of(
+                named(primitiveValue(primitiveKey("int", "Integer", "0"), "int", "Integer"),
+                        "IntIntDictionary", ""),
+                named(primitiveValue(primitiveKey("long", "Long", "0L"), "int", "Integer"),
+                        "LongIntDictionary", ""),
+                named(primitiveValue(primitiveKey("long", "Long", "0L"), "long", "Long"),
+                        "LongLongDictionary", ""),
+                named(objectValue(primitiveKey("long", "Long", "0L")),
+                        "LongObjectDictionary", "<V>"),
+                named(primitiveValue(objectKey(), "int", "Integer"),
+                        "ObjectIntDictionary", "<K>"));
+    }
+
+    static String generate(List<String> template, Map<String, String> variables) {
+        StringBuilder result = new StringBuilder();
+        // на вершине стека -- выводятся ли сейчас строки
+        Deque<Boolean> enabled = new ArrayDeque<>();
+        enabled.push(true);
+        for (String line : template) {
+            String directive = line.strip();
+            if (directive.startsWith("//#if ")) {
+                boolean parent = enabled.peek();
+                enabled.push(parent && variables.containsKey(directive.substring("//#if ".length())));
+            } else if (directive.equals("//#else")) {
+                boolean current = enabled.pop();
+                enabled.push(enabled.peek() && !current);
+            } else if (directive.equals("//#end")) {
+                enabled.pop();
+            } else if (enabled.peek()) {
+                result.append(substitute(line, variables)).append('\n');
+            }
+        }
+        if (enabled.size() != 1) {
+            throw new IllegalStateException("Unbalanced //#if in template");
+        }
+        return result.toString();
+    }
+
+    private static String substitute(String line, Map<String, String> variables) {
+        StringBuilder result = new StringBuilder();
+        int from = 0;
+        int start;
+        while ((start = line.indexOf("${", from)) >= 0) {
+            int end = line.indexOf('}', start);
+            String value = variables.get(line.substring(start + 2, end));
+            if (value == null) {
+                throw new IllegalStateException("Unknown template variable: " + line.substring(start, end + 1));
+            }
+            result.append(line, from, start).append(value);
+            from = end + 1;
+        }
+        return result.append(line.substring(from)).toString();
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path directory = Path.of(args.length > 0 ? args[0] : "main/java");
+        List<String> template = Files.readAllLines(TEMPLATE, StandardCharsets.UTF_8);
+        for (Map<String, String> variables : dictionaries()) {
+            Path file = directory.resolve(variables.get("Name") + ".java");
+            Files.writeString(file, generate(template, variables), StandardCharsets.UTF_8);
+            System.out.println(file);
+        }
+    }
+}
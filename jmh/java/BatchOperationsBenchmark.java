@@ -0,0 +1,87 @@
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пакетные операции DictionaryImpl против поэлементных: putAll() с одним ростом таблицы против put() с удвоениями,
+ *   getAll() с обходом корзин по порядку против get() в случайном порядке,
+ *   parallelCopyOf() против последовательной загрузки
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class BatchOperationsBenchmark {
+    private static final int BATCH_SIZE = 1 << 12;
+
+    @Param({"INTEGER", "STRING"})
+    public BenchmarkKeys keyType;
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    private Map<Object, Object> source;
+    private List<Map.Entry<Object, Object>> entries;
+    private DictionaryImpl<Object, Object> dictionary;
+    private Object[] batch;
+    private Object[] out;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Object[] keys = keyType.generate(0, size, 1);
+        source = new HashMap<>();
+        entries = new ArrayList<>(size);
+        for (Object key : keys) {
+            source.put(key, key);
+            entries.add(Map.entry(key, key));
+        }
+        dictionary = DictionaryImpl.parallelCopyOf(entries);
+        int[] order = keyType.accessOrder(size, BATCH_SIZE, 3);
+        batch = new Object[BATCH_SIZE];
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            batch[i] = keys[order[i]];
+        }
+        out = new Object[BATCH_SIZE];
+    }
+
+    @Benchmark
+    public Map<Object, Object> putOneByOne() {
+        DictionaryImpl<Object, Object> d = new DictionaryImpl<>();
+        for (Map.Entry<Object, Object> entry : entries) {
+            d.put(entry.getKey(), entry.getValue());
+        }
+        return d;
+    }
+
+    @Benchmark
+    public Map<Object, Object> putAll() {
+        DictionaryImpl<Object, Object> d = new DictionaryImpl<>();
+        d.putAll(source);
+        return d;
+    }
+
+    @Benchmark
+    public Map<Object, Object> parallelCopyOf() {
+        return DictionaryImpl.parallelCopyOf(entries);
+    }
+
+    @Benchmark
+    public Object[] getOneByOne() {
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            out[i] = dictionary.get(batch[i]);
+        }
+        return out;
+    }
+
+    @Benchmark
+    public Object[] getAll() {
+        dictionary.getAll(batch, out);
+        return out;
+    }
+}
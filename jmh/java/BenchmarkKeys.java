@@ -0,0 +1,91 @@
+import java.util.Random;
+
+/**
+ * Наборы ключей для бенчмарков
+ */
+public enum BenchmarkKeys {
+    // подряд идущие Integer
+    INTEGER,
+    // строки длиной около 16 символов
+    STRING,
+    // Integer, запросы к которым распределены по Ципфу: немногие горячие ключи получают большинство обращений
+    ZIPF,
+    // разные ключи с одинаковым hashCode() -- атака на хеш-таблицу
+    SAME_HASH;
+
+    // для SAME_HASH таблицы со списками в корзинах работают за O(n) на операцию, больше ключей не брать
+    public static final int MAX_SAME_HASH_KEYS = 10_000;
+
+    /**
+     * Ключ с одинаковым для всех хешем, сравнение по id
+     */
+    public static final class SameHashKey implements Comparable<SameHashKey> {
+        private final int id;
+
+        public SameHashKey(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof SameHashKey && ((SameHashKey) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 42;
+        }
+
+        @Override
+        public int compareTo(SameHashKey o) {
+            return Integer.compare(id, o.id);
+        }
+    }
+
+    public int limitSize(int size) {
+        return this == SAME_HASH ? Math.min(size, MAX_SAME_HASH_KEYS) : size;
+    }
+
+    /**
+     * count разных ключей с номерами from, from + 1, ...; ключи с разными номерами не равны
+     */
+    public Object[] generate(int from, int count, long seed) {
+        Object[] keys = new Object[count];
+        Random random = new Random(seed);
+        for (int i = 0; i < count; i++) {
+            int id = from + i;
+            switch (this) {
+                case STRING:
+                    keys[i] = Long.toString(random.nextLong() & Long.MAX_VALUE, 36) + "#" + id;
+                    break;
+                case SAME_HASH:
+                    keys[i] = new SameHashKey(id);
+                    break;
+                default:
+                    keys[i] = id;
+            }
+        }
+        return keys;
+    }
+
+    /**
+     * Последовательность из count индексов в keys, в которой будут идти обращения
+     */
+    public int[] accessOrder(int keysCount, int count, long seed) {
+        Random random = new Random(seed);
+        int[] order = new int[count];
+        if (this != ZIPF) {
+            for (int i = 0; i < count; i++) {
+                order[i] = random.nextInt(keysCount);
+            }
+            return order;
+        }
+        // обратная функция распределения Ципфа с s = 1 по приближению через гармонические числа
+        double harmonic = Math.log(keysCount) + 0.5772156649;
+        for (int i = 0; i < count; i++) {
+            double rank = Math.exp(random.nextDouble() * harmonic - 0.5772156649);
+            order[i] = (int) Math.min(keysCount - 1, Math.max(0, rank - 1));
+        }
+        return order;
+    }
+}
@@ -0,0 +1,66 @@
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Задержка get/put, когда все ключи -- разные строки с одинаковым hashCode()
+ * С корзинами-деревьями время операции должно расти как log(attackSize), а не линейно
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CollisionAttackBenchmark {
+    @Param({"DICTIONARY_IMPL", "HASH_MAP"})
+    public DictionaryBenchmark.Implementation implementation;
+
+    // сколько ключей с одинаковым хешем, степень двойки
+    @Param({"16", "256", "4096", "65536"})
+    public int attackSize;
+
+    private Map<Object, Object> dictionary;
+    private String[] keys;
+    private int position;
+
+    // "Aa" и "BB" имеют один и тот же хеш, поэтому любые их склейки одной длины тоже
+    static String[] sameHashStrings(int count) {
+        int bits = Integer.numberOfTrailingZeros(count);
+        String[] strings = new String[count];
+        for (int mask = 0; mask < count; mask++) {
+            StringBuilder builder = new StringBuilder();
+            for (int bit = 0; bit < bits; bit++) {
+                builder.append((mask >> bit & 1) == 0 ? "Aa" : "BB");
+            }
+            strings[mask] = builder.toString();
+        }
+        return strings;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = sameHashStrings(attackSize);
+        dictionary = implementation.create(0.75, 128);
+        for (String key : keys) {
+            dictionary.put(key, key);
+        }
+    }
+
+    private String nextKey() {
+        position = (position + 7919) & (attackSize - 1);
+        return keys[position];
+    }
+
+    @Benchmark
+    public Object getUnderAttack() {
+        return dictionary.get(nextKey());
+    }
+
+    @Benchmark
+    public Object putUnderAttack() {
+        String key = nextKey();
+        return dictionary.put(key, key);
+    }
+}
@@ -0,0 +1,163 @@
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Пропускная способность основных операций всех реализаций Dictionary и java.util.HashMap для сравнения
+ * Пример запуска с замером выделения памяти (как собрать бенчмарки -- в README):
+ *   java -cp ... org.openjdk.jmh.Main DictionaryBenchmark -p size=1000,1000000 -prof gc
+ * Размеры до 10M помещаются в кучу 8 ГБ; для больших нужна куча побольше: -jvmArgsAppend -Xmx32g
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class DictionaryBenchmark {
+    private static final int ACCESS_ORDER_SIZE = 1 << 16;
+
+    public enum Implementation {
+        DICTIONARY_IMPL,
+        OPEN_ADDRESSING,
+        CONCURRENT,
+        // базовая линия
+        HASH_MAP;
+
+        public <K, V> Map<K, V> create(double loadFactor, int capacity) {
+            switch (this) {
+                case DICTIONARY_IMPL:
+                    return new DictionaryImpl<>(loadFactor, capacity);
+                case OPEN_ADDRESSING:
+                    return new OpenAddressingDictionary<>(loadFactor, capacity);
+                case CONCURRENT:
+                    return new ConcurrentDictionary<>(loadFactor, capacity);
+                default:
+                    return new HashMap<>(capacity, (float) loadFactor);
+            }
+        }
+    }
+
+    @Param({"DICTIONARY_IMPL", "OPEN_ADDRESSING", "CONCURRENT", "HASH_MAP"})
+    public Implementation implementation;
+
+    @Param({"0.5", "0.75"})
+    public double loadFactor;
+
+    @Param({"16", "128"})
+    public int initialCapacity;
+
+    @Param({"INTEGER", "STRING", "ZIPF", "SAME_HASH"})
+    public BenchmarkKeys keyType;
+
+    // для SAME_HASH ограничивается BenchmarkKeys.MAX_SAME_HASH_KEYS
+    @Param({"1000", "100000", "10000000"})
+    public int size;
+
+    private Map<Object, Object> dictionary;
+    private Object[] keys;
+    private Object[] missingKeys;
+    private int[] accessOrder;
+    private int position;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int count = keyType.limitSize(size);
+        keys = keyType.generate(0, count, 1);
+        missingKeys = keyType.generate(count, Math.min(count, ACCESS_ORDER_SIZE), 2);
+        accessOrder = keyType.accessOrder(count, ACCESS_ORDER_SIZE, 3);
+        dictionary = implementation.create(loadFactor, initialCapacity);
+        for (Object key : keys) {
+            dictionary.put(key, key);
+        }
+    }
+
+    /**
+     * Вторая таблица со всеми ключами нужна только mergeCount(), остальные бенчмарки её не строят
+     */
+    @State(Scope.Benchmark)
+    public static class Counters {
+        private Map<Object, Integer> counters;
+
+        @Setup(Level.Trial)
+        public void setUp(DictionaryBenchmark benchmark) {
+            counters = benchmark.implementation.create(benchmark.loadFactor, benchmark.initialCapacity);
+            for (Object key : benchmark.keys) {
+                counters.put(key, 0);
+            }
+        }
+    }
+
+    private int nextIndex() {
+        return accessOrder[position++ & (ACCESS_ORDER_SIZE - 1)];
+    }
+
+    @Benchmark
+    public Object getHit() {
+        return dictionary.get(keys[nextIndex()]);
+    }
+
+    @Benchmark
+    public Object getMiss() {
+        return dictionary.get(missingKeys[nextIndex() % missingKeys.length]);
+    }
+
+    @Benchmark
+    public Object putExisting() {
+        Object key = keys[nextIndex()];
+        return dictionary.put(key, key);
+    }
+
+    // вставка нового ключа и его удаление: размер таблицы не меняется между вызовами
+    @Benchmark
+    public Object putRemove() {
+        Object key = missingKeys[nextIndex() % missingKeys.length];
+        dictionary.put(key, key);
+        return dictionary.remove(key);
+    }
+
+    // счётчик по ключу: чтение, изменение и запись за один вызов
+    @Benchmark
+    public Object mergeCount(Counters counters) {
+        return counters.counters.merge(keys[nextIndex()], 1, Integer::sum);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void iterate(Blackhole blackhole) {
+        for (Map.Entry<Object, Object> entry : dictionary.entrySet()) {
+            blackhole.consume(entry.getValue());
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public void forEach(Blackhole blackhole) {
+        dictionary.forEach((key, value) -> blackhole.consume(value));
+    }
+
+    // Spliterator должен делиться поровну, иначе параллельный обход не быстрее последовательного
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public long parallelStream() {
+        return dictionary.values().parallelStream().mapToLong(Object::hashCode).sum();
+    }
+
+    // заполнение с initialCapacity до size: все рехеширования по пути
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Map<Object, Object> fillWithResize() {
+        Map<Object, Object> filled = implementation.create(loadFactor, initialCapacity);
+        for (Object key : keys) {
+            filled.put(key, key);
+        }
+        return filled;
+    }
+}
@@ -0,0 +1,54 @@
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Задержка и пропускная способность put() у DurableDictionary из нескольких потоков в зависимости от окна group commit
+ * Окно 0 сбрасывает журнал сразу, большие окна копят записи потоков на один fsync
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class DurableDictionaryBenchmark {
+    private static final int KEY_COUNT = 1 << 16;
+
+    @Param({"0", "100", "1000"})
+    public int commitWindowMicros;
+
+    private Path directory;
+    private DurableDictionary<Integer, Integer> dictionary;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("durable-benchmark");
+        dictionary = DurableDictionary.open(directory, Serializer.INTEGER, Serializer.INTEGER,
+                commitWindowMicros, TimeUnit.MICROSECONDS, 64L << 20);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        dictionary.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public Integer put() {
+        int i = counter.getAndIncrement();
+        return dictionary.put(i & (KEY_COUNT - 1), i);
+    }
+}
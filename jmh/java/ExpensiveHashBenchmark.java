@@ -0,0 +1,85 @@
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Заполнение с рехешированием и поиск по составным ключам, у которых hashCode() и equals() дорогие
+ * Хеши хранятся в элементах таблицы, поэтому при resize() hashCode() ключей не вызывается
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ExpensiveHashBenchmark {
+    /**
+     * Составной ключ, который каждый раз заново считает хеш по всем полям
+     */
+    public static final class CompositeKey {
+        private final long[] parts;
+
+        public CompositeKey(long[] parts) {
+            this.parts = parts;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CompositeKey && Arrays.equals(parts, ((CompositeKey) o).parts);
+        }
+
+        @Override
+        public int hashCode() {
+            return Arrays.hashCode(parts);
+        }
+    }
+
+    @Param({"DICTIONARY_IMPL", "OPEN_ADDRESSING", "HASH_MAP"})
+    public DictionaryBenchmark.Implementation implementation;
+
+    @Param({"100000", "1000000"})
+    public int size;
+
+    // сколько long в ключе
+    @Param({"4", "64"})
+    public int keyLength;
+
+    private CompositeKey[] keys;
+    private Map<Object, Object> dictionary;
+    private int position;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = new CompositeKey[size];
+        for (int i = 0; i < size; i++) {
+            long[] parts = new long[keyLength];
+            Arrays.fill(parts, 31L * i);
+            parts[keyLength - 1] = i;
+            keys[i] = new CompositeKey(parts);
+        }
+        dictionary = implementation.create(0.75, 16);
+        for (CompositeKey key : keys) {
+            dictionary.put(key, key);
+        }
+    }
+
+    // от начальной ёмкости 16: около log2(size / 12) рехеширований
+    @Benchmark
+    public Map<Object, Object> fillWithResize() {
+        Map<Object, Object> filled = implementation.create(0.75, 16);
+        for (CompositeKey key : keys) {
+            filled.put(key, key);
+        }
+        return filled;
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public Object getHit() {
+        position = (position + 1) % size;
+        return dictionary.get(keys[position]);
+    }
+}
@@ -0,0 +1,84 @@
+import org.openjdk.jmh.annotations.*;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск в неизменяемом FrozenDictionary против DictionaryImpl и HashMap с теми же данными,
+ *   а также цена построения совершенной хеш-функции
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class FrozenDictionaryBenchmark {
+    private static final int ACCESS_ORDER_SIZE = 1 << 16;
+
+    public enum Implementation {
+        FROZEN,
+        DICTIONARY_IMPL,
+        HASH_MAP
+    }
+
+    @Param({"FROZEN", "DICTIONARY_IMPL", "HASH_MAP"})
+    public Implementation implementation;
+
+    @Param({"INTEGER", "STRING"})
+    public BenchmarkKeys keyType;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private Map<Object, Object> source;
+    private Map<Object, Object> dictionary;
+    private Object[] keys;
+    private Object[] missingKeys;
+    private int[] accessOrder;
+    private int position;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = keyType.generate(0, size, 1);
+        missingKeys = keyType.generate(size, Math.min(size, ACCESS_ORDER_SIZE), 2);
+        accessOrder = keyType.accessOrder(size, ACCESS_ORDER_SIZE, 3);
+        source = new HashMap<>();
+        for (Object key : keys) {
+            source.put(key, key);
+        }
+        switch (implementation) {
+            case FROZEN:
+                dictionary = FrozenDictionary.copyOf(source);
+                break;
+            case DICTIONARY_IMPL:
+                dictionary = new DictionaryImpl<>();
+                dictionary.putAll(source);
+                break;
+            default:
+                dictionary = new HashMap<>(source);
+        }
+    }
+
+    private int nextIndex() {
+        return accessOrder[position++ & (ACCESS_ORDER_SIZE - 1)];
+    }
+
+    @Benchmark
+    public Object getHit() {
+        return dictionary.get(keys[nextIndex()]);
+    }
+
+    @Benchmark
+    public Object getMiss() {
+        return dictionary.get(missingKeys[nextIndex() % missingKeys.length]);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public Map<Object, Object> build() {
+        return FrozenDictionary.copyOf(source);
+    }
+}
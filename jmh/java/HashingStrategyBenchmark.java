@@ -0,0 +1,105 @@
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Поиск токенов из общего буфера разбора: ключ -- кусок буфера
+ * Без стратегии на каждый поиск создаётся String или обёртка ByteBuffer, со стратегией HashingStrategy.BYTES
+ *   или HashingStrategy.CHARS DictionaryImpl ищет прямо по куску буфера
+ * Создаваемые объекты видны с профилировщиком -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HashingStrategyBenchmark {
+    private static final int TOKEN_COUNT = 1 << 12;
+
+    @Param({"1000", "100000"})
+    public int size;
+
+    private byte[] bytes;
+    private String chars;
+    private int[] offsets;
+    private int[] lengths;
+    private DictionaryImpl<byte[], Integer> byBytes;
+    private DictionaryImpl<CharSequence, Integer> byChars;
+    private Map<String, Integer> byString;
+    private Map<ByteBuffer, Integer> byBuffer;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        byBytes = new DictionaryImpl<>(HashingStrategy.BYTES);
+        byChars = new DictionaryImpl<>(HashingStrategy.CHARS);
+        byString = new HashMap<>();
+        byBuffer = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            String key = "token" + i;
+            byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+            byBytes.put(keyBytes, i);
+            byChars.put(key, i);
+            byString.put(key, i);
+            byBuffer.put(ByteBuffer.wrap(keyBytes), i);
+        }
+        // буфер разбора: токены через пробел, часть из них в словаре отсутствует
+        Random random = new Random(25);
+        StringBuilder buffer = new StringBuilder();
+        offsets = new int[TOKEN_COUNT];
+        lengths = new int[TOKEN_COUNT];
+        for (int i = 0; i < TOKEN_COUNT; i++) {
+            offsets[i] = buffer.length();
+            buffer.append("token").append(random.nextInt(size + size / 4));
+            lengths[i] = buffer.length() - offsets[i];
+            buffer.append(' ');
+        }
+        chars = buffer.toString();
+        bytes = chars.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    @Benchmark
+    public int bytesSlice() {
+        int sum = 0;
+        for (int i = 0; i < TOKEN_COUNT; i++) {
+            Integer value = byBytes.get(bytes, offsets[i], lengths[i]);
+            sum += value == null ? 0 : value;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int bytesWrapped() {
+        int sum = 0;
+        for (int i = 0; i < TOKEN_COUNT; i++) {
+            Integer value = byBuffer.get(ByteBuffer.wrap(bytes, offsets[i], lengths[i]));
+            sum += value == null ? 0 : value;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int charsSlice() {
+        int sum = 0;
+        for (int i = 0; i < TOKEN_COUNT; i++) {
+            Integer value = byChars.get(chars, offsets[i], offsets[i] + lengths[i]);
+            sum += value == null ? 0 : value;
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int charsSubstring() {
+        int sum = 0;
+        for (int i = 0; i < TOKEN_COUNT; i++) {
+            Integer value = byString.get(chars.substring(offsets[i], offsets[i] + lengths[i]));
+            sum += value == null ? 0 : value;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,73 @@
+import org.openjdk.jmh.annotations.*;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Обход entrySet(): DictionaryImpl проходит таблицу, LinkedDictionary -- список элементов
+ * remaining -- доля ключей, оставшихся после удаления; таблица DictionaryImpl создана через withExpectedSize()
+ *   и поэтому не уменьшается, так что при малых долях её обход стоит O(ёмкости), а обход списка -- O(size())
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class LinkedDictionaryBenchmark {
+    @Param({"INTEGER", "STRING"})
+    public BenchmarkKeys keyType;
+
+    @Param({"1000000"})
+    public int size;
+
+    @Param({"1.0", "0.1", "0.01"})
+    public double remaining;
+
+    private DictionaryImpl<Object, Object> dictionary;
+    private LinkedDictionary<Object, Object> linked;
+    private LinkedHashMap<Object, Object> linkedHashMap;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Object[] keys = keyType.generate(0, size, 1);
+        dictionary = DictionaryImpl.withExpectedSize(size);
+        linked = new LinkedDictionary<>();
+        linkedHashMap = new LinkedHashMap<>();
+        for (Object key : keys) {
+            dictionary.put(key, key);
+            linked.put(key, key);
+            linkedHashMap.put(key, key);
+        }
+        int kept = (int) (size * remaining);
+        for (int i = kept; i < size; i++) {
+            dictionary.remove(keys[i]);
+            linked.remove(keys[i]);
+            linkedHashMap.remove(keys[i]);
+        }
+    }
+
+    private static int iterate(Map<Object, Object> map) {
+        int sum = 0;
+        for (Map.Entry<Object, Object> entry : map.entrySet()) {
+            sum += System.identityHashCode(entry.getValue());
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public int dictionaryImpl() {
+        return iterate(dictionary);
+    }
+
+    @Benchmark
+    public int linkedDictionary() {
+        return iterate(linked);
+    }
+
+    @Benchmark
+    public int linkedHashMap() {
+        return iterate(linkedHashMap);
+    }
+}
@@ -0,0 +1,77 @@
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Строковые ключи и значения byte[] вне кучи против DictionaryImpl: цена поиска с десериализацией значения
+ *   и записи в арену; размер кучи одинаковый, на больших словарях DictionaryImpl нагружает сборщик мусора
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g", "-XX:MaxDirectMemorySize=4g"})
+public class OffHeapDictionaryBenchmark {
+    private static final int ACCESS_ORDER_SIZE = 1 << 16;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    @Param({"16", "256"})
+    public int valueSize;
+
+    private OffHeapDictionary<String, byte[]> offHeap;
+    private DictionaryImpl<String, byte[]> dictionary;
+    private String[] keys;
+    private byte[] value;
+    private int[] accessOrder;
+    private int position;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Object[] generated = BenchmarkKeys.STRING.generate(0, size, 1);
+        keys = new String[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = (String) generated[i];
+        }
+        accessOrder = BenchmarkKeys.STRING.accessOrder(size, ACCESS_ORDER_SIZE, 3);
+        value = new byte[valueSize];
+        offHeap = new OffHeapDictionary<>(Serializer.STRING, Serializer.BYTES);
+        dictionary = new DictionaryImpl<>();
+        for (String key : keys) {
+            offHeap.put(key, value);
+            dictionary.put(key, value);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        offHeap.close();
+    }
+
+    private int nextIndex() {
+        return accessOrder[position++ & (ACCESS_ORDER_SIZE - 1)];
+    }
+
+    @Benchmark
+    public byte[] offHeapGetHit() {
+        return offHeap.get(keys[nextIndex()]);
+    }
+
+    @Benchmark
+    public byte[] dictionaryImplGetHit() {
+        return dictionary.get(keys[nextIndex()]);
+    }
+
+    // перезапись существующего ключа: новая запись в арене, старая становится мусором до сжатия
+    @Benchmark
+    public byte[] offHeapPut() {
+        return offHeap.put(keys[nextIndex()], value);
+    }
+
+    @Benchmark
+    public byte[] dictionaryImplPut() {
+        return dictionary.put(keys[nextIndex()], value);
+    }
+}
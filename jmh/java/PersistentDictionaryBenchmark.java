@@ -0,0 +1,74 @@
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Снимок для читателей с последующим изменением: snapshot() у PersistentDictionary
+ *   против полной копии DictionaryImpl, а также цена поиска в префиксном дереве
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class PersistentDictionaryBenchmark {
+    private static final int ACCESS_ORDER_SIZE = 1 << 16;
+
+    @Param({"INTEGER", "STRING"})
+    public BenchmarkKeys keyType;
+
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private PersistentDictionary<Object, Object> persistent;
+    private DictionaryImpl<Object, Object> dictionary;
+    private Object[] keys;
+    private int[] accessOrder;
+    private int position;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = keyType.generate(0, size, 1);
+        accessOrder = keyType.accessOrder(size, ACCESS_ORDER_SIZE, 3);
+        persistent = new PersistentDictionary<>();
+        dictionary = new DictionaryImpl<>();
+        for (Object key : keys) {
+            persistent.put(key, key);
+            dictionary.put(key, key);
+        }
+    }
+
+    private int nextIndex() {
+        return accessOrder[position++ & (ACCESS_ORDER_SIZE - 1)];
+    }
+
+    // снимок и одна запись после него: запись копирует путь от корня
+    @Benchmark
+    public Map<Object, Object> snapshotThenPut() {
+        Map<Object, Object> snapshot = persistent.snapshot();
+        Object key = keys[nextIndex()];
+        persistent.put(key, key);
+        return snapshot;
+    }
+
+    @Benchmark
+    public Map<Object, Object> copyThenPut() {
+        Map<Object, Object> copy = DictionaryImpl.withExpectedSize(dictionary.size());
+        copy.putAll(dictionary);
+        Object key = keys[nextIndex()];
+        dictionary.put(key, key);
+        return copy;
+    }
+
+    @Benchmark
+    public Object persistentGetHit() {
+        return persistent.get(keys[nextIndex()]);
+    }
+
+    @Benchmark
+    public Object dictionaryImplGetHit() {
+        return dictionary.get(keys[nextIndex()]);
+    }
+}
@@ -0,0 +1,60 @@
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Маленькие словари, которые живут недолго: создать, положить size элементов и выбросить
+ * Основная цена здесь -- выделение памяти под таблицу, поэтому запускать стоит с -prof gc:
+ *   java -cp ... org.openjdk.jmh.Main ShortLivedDictionaryBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShortLivedDictionaryBenchmark {
+    private static final double LOAD_FACTOR = 0.75;
+
+    @Param({"DICTIONARY_IMPL", "OPEN_ADDRESSING", "HASH_MAP"})
+    public DictionaryBenchmark.Implementation implementation;
+
+    // ёмкость по умолчанию у DictionaryImpl -- 128
+    @Param({"16", "128"})
+    public int initialCapacity;
+
+    @Param({"0", "1", "4", "16", "64"})
+    public int size;
+
+    private Integer[] keys;
+    private Map<Integer, Integer> reused;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        keys = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            keys[i] = i * 31;
+        }
+        reused = implementation.create(LOAD_FACTOR, initialCapacity);
+    }
+
+    @Benchmark
+    public Map<Integer, Integer> createFillDiscard() {
+        Map<Integer, Integer> dictionary = implementation.create(LOAD_FACTOR, initialCapacity);
+        for (Integer key : keys) {
+            dictionary.put(key, key);
+        }
+        return dictionary;
+    }
+
+    // тот же цикл, но один словарь очищается и заполняется заново
+    @Benchmark
+    public Map<Integer, Integer> clearAndRefill() {
+        reused.clear();
+        for (Integer key : keys) {
+            reused.put(key, key);
+        }
+        return reused;
+    }
+}
@@ -0,0 +1,64 @@
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Холодный старт: восстановление словаря повторными put() против отображения снимка DictionarySnapshot
+ * После загрузки делается проход по всем ключам, чтобы в сравнение попало и чтение страниц файла
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = {"-Xms8g", "-Xmx8g"})
+public class SnapshotLoadBenchmark {
+    @Param({"100000", "1000000", "10000000"})
+    public int size;
+
+    private String[] keys;
+    private Path path;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        keys = new String[size];
+        DictionaryImpl<String, Long> dictionary = DictionaryImpl.withExpectedSize(size);
+        for (int i = 0; i < size; i++) {
+            keys[i] = "key" + i;
+            dictionary.put(keys[i], (long) i);
+        }
+        path = Files.createTempFile("dictionary", ".snapshot");
+        DictionarySnapshot.write(dictionary, path, Serializer.STRING, Serializer.LONG);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(path);
+    }
+
+    private long readAll(Map<String, Long> dictionary) {
+        long sum = 0;
+        for (String key : keys) {
+            sum += dictionary.get(key);
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public long replayPuts() {
+        Map<String, Long> dictionary = new DictionaryImpl<>();
+        for (int i = 0; i < keys.length; i++) {
+            dictionary.put(keys[i], (long) i);
+        }
+        return readAll(dictionary);
+    }
+
+    @Benchmark
+    public long loadMapped() throws IOException {
+        return readAll(DictionarySnapshot.load(path, Serializer.STRING, Serializer.LONG));
+    }
+}
@@ -0,0 +1,75 @@
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * TieredDictionary, в памяти которого помещается только часть ключей: поиск отсутствующего ключа
+ *   (отсекается фильтрами Блума), поиск по всем ключам с чтением с диска и запись со сбросом сегментов
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g"})
+public class TieredDictionaryBenchmark {
+    private static final int ACCESS_ORDER_SIZE = 1 << 16;
+
+    @Param({"1000000"})
+    public int size;
+
+    // бюджет кучи в мегабайтах
+    @Param({"8", "64"})
+    public int maxHeapMegabytes;
+
+    private Path directory;
+    private TieredDictionary<Integer, Integer> dictionary;
+    private int[] accessOrder;
+    private int position;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("tiered-benchmark");
+        dictionary = new TieredDictionary<>(directory, Serializer.INTEGER, Serializer.INTEGER,
+                (long) maxHeapMegabytes << 20);
+        for (int i = 0; i < size; i++) {
+            dictionary.put(i, i);
+        }
+        accessOrder = BenchmarkKeys.INTEGER.accessOrder(size, ACCESS_ORDER_SIZE, 3);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        dictionary.close();
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    private int nextIndex() {
+        return accessOrder[position++ & (ACCESS_ORDER_SIZE - 1)];
+    }
+
+    @Benchmark
+    public Integer getMiss() {
+        return dictionary.get(size + nextIndex());
+    }
+
+    @Benchmark
+    public Integer getHit() {
+        return dictionary.get(nextIndex());
+    }
+
+    @Benchmark
+    public Integer put() {
+        int key = nextIndex();
+        return dictionary.put(key, key);
+    }
+}
@@ -0,0 +1,41 @@
+/**
+ * Фильтр Блума по hashCode() ключей: mightContain() ложно отвечает true с вероятностью около 1%,
+ *   но никогда не отвечает false для добавленного ключа
+ * На ключ BITS_PER_KEY бит и HASH_COUNT проб; пробы берутся двойным хешированием из одного 64-битного хеша
+ */
+final class BloomFilter {
+    private static final int BITS_PER_KEY = 10;
+    private static final int HASH_COUNT = 7;
+
+    private final long[] bits;
+    private final long bitCount;
+
+    BloomFilter(int expectedSize) {
+        long wanted = Math.max(64, (long) expectedSize * BITS_PER_KEY);
+        bits = new long[(int) Math.min((wanted + 63) >>> 6, 1 << 26)];
+        bitCount = (long) bits.length << 6;
+    }
+
+    void add(Object key) {
+        long hash = Hashing.mix64(key.hashCode());
+        int first = (int) hash;
+        int second = (int) (hash >>> 32);
+        for (int i = 0; i < HASH_COUNT; i++) {
+            long bit = ((first + i * second) & 0xFFFFFFFFL) % bitCount;
+            bits[(int) (bit >>> 6)] |= 1L << bit;
+        }
+    }
+
+    boolean mightContain(Object key) {
+        long hash = Hashing.mix64(key.hashCode());
+        int first = (int) hash;
+        int second = (int) (hash >>> 32);
+        for (int i = 0; i < HASH_COUNT; i++) {
+            long bit = ((first + i * second) & 0xFFFFFFFFL) % bitCount;
+            if ((bits[(int) (bit >>> 6)] & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
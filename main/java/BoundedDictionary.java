@@ -0,0 +1,592 @@
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.ToIntBiFunction;
+
+/**
+ * Словарь-кеш ограниченного размера: после put() суммарный вес элементов не больше maximumWeight,
+ *   лишние элементы вытесняются выбранной политикой за O(1) на вставку
+ * Вес элемента по умолчанию 1, то есть ограничивается количество элементов
+ * Обращением к элементу считаются только get() и put(); containsKey() и обход видов
+ *   keySet(), values(), entrySet() порядок вытеснения не меняют
+ */
+public class BoundedDictionary<K, V> extends AbstractMap<K, V> implements Dictionary<K, V> {
+    public enum EvictionPolicy {
+        // вытесняется элемент, к которому дольше всех не обращались
+        LRU,
+        // «часы»: стрелка обходит элементы по кругу и вытесняет первый, к которому не обращались
+        //   с прошлого прохода; обращение только ставит бит, без перестановки в списке
+        CLOCK,
+        // небольшое LRU-окно для новых элементов и сегментированный LRU для основной части;
+        //   вышедший из окна элемент попадает в основную часть, только если по FrequencySketch
+        //   к нему обращались чаще, чем к тому, кого он вытеснит
+        W_TINY_LFU
+    }
+
+    private final DictionaryImpl<K, Node<K, V>> index = new DictionaryImpl<>();
+    private final long maximumWeight;
+    private final ToIntBiFunction<? super K, ? super V> weigher;
+    private final Policy<K, V> policy;
+    private final BiConsumer<? super K, ? super V> evictionListener;
+    private long totalWeight = 0;
+    private long hitCount = 0;
+    private long missCount = 0;
+    private long evictionCount = 0;
+    private long evictionWeight = 0;
+
+    private static final class Node<K, V> {
+        final K key;
+        V value;
+        int weight;
+        Node<K, V> prev;
+        Node<K, V> next;
+        // список, в котором сейчас лежит элемент
+        NodeList<K, V> list;
+        // для CLOCK: было обращение с прошлого прохода стрелки
+        boolean referenced;
+
+        Node(K key, V value, int weight) {
+            this.key = key;
+            this.value = value;
+            this.weight = weight;
+        }
+    }
+
+    // пара из обхода entrySet(): setValue() меняет значение и вес элемента, но обращением не считается
+    private final class MapEntry extends AbstractMap.SimpleEntry<K, V> {
+        private final Node<K, V> node;
+
+        MapEntry(Node<K, V> node) {
+            super(node.key, node.value);
+            this.node = node;
+        }
+
+        @Override
+        public V setValue(V value) {
+            super.setValue(value);
+            V previous = setNodeValue(node, value);
+            evict();
+            return previous;
+        }
+    }
+
+    /**
+     * Двусвязный кольцевой список со сторожем, от старых элементов к новым
+     */
+    private static final class NodeList<K, V> {
+        final Node<K, V> sentinel = new Node<>(null, null, 0);
+        long weight = 0;
+
+        NodeList() {
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+        }
+
+        boolean isEmpty() {
+            return sentinel.next == sentinel;
+        }
+
+        // null, если список пуст
+        Node<K, V> first() {
+            return isEmpty() ? null : sentinel.next;
+        }
+
+        void addLast(Node<K, V> node) {
+            addBefore(sentinel, node);
+        }
+
+        void addBefore(Node<K, V> next, Node<K, V> node) {
+            node.prev = next.prev;
+            node.next = next;
+            next.prev.next = node;
+            next.prev = node;
+            node.list = this;
+            weight += node.weight;
+        }
+
+        void remove(Node<K, V> node) {
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+            node.list = null;
+            weight -= node.weight;
+        }
+
+        void moveToLast(Node<K, V> node) {
+            remove(node);
+            addLast(node);
+        }
+
+        void clear() {
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+            weight = 0;
+        }
+    }
+
+    private interface Policy<K, V> {
+        void onInsert(Node<K, V> node);
+
+        void onAccess(Node<K, V> node);
+
+        void onRemove(Node<K, V> node);
+
+        // элемент, который нужно вытеснить следующим; словарь не пуст
+        Node<K, V> selectVictim();
+
+        void clear();
+    }
+
+    private static final class LruPolicy<K, V> implements Policy<K, V> {
+        private final NodeList<K, V> queue = new NodeList<>();
+
+        @Override
+        public void onInsert(Node<K, V> node) {
+            queue.addLast(node);
+        }
+
+        @Override
+        public void onAccess(Node<K, V> node) {
+            queue.moveToLast(node);
+        }
+
+        @Override
+        public void onRemove(Node<K, V> node) {
+            queue.remove(node);
+        }
+
+        @Override
+        public Node<K, V> selectVictim() {
+            return queue.first();
+        }
+
+        @Override
+        public void clear() {
+            queue.clear();
+        }
+    }
+
+    private static final class ClockPolicy<K, V> implements Policy<K, V> {
+        private final NodeList<K, V> ring = new NodeList<>();
+        // следующий элемент, который проверит стрелка; null, если элементов нет
+        private Node<K, V> hand;
+
+        private Node<K, V> following(Node<K, V> node) {
+            return node.next == ring.sentinel ? ring.sentinel.next : node.next;
+        }
+
+        // новый элемент встаёт прямо перед стрелкой и будет проверен последним;
+        //   вставка -- тоже обращение, иначе при горячих остальных вытеснялся бы сам новый элемент
+        @Override
+        public void onInsert(Node<K, V> node) {
+            node.referenced = true;
+            if (hand == null) {
+                ring.addLast(node);
+                hand = node;
+            } else {
+                ring.addBefore(hand, node);
+            }
+        }
+
+        @Override
+        public void onAccess(Node<K, V> node) {
+            node.referenced = true;
+        }
+
+        @Override
+        public void onRemove(Node<K, V> node) {
+            if (hand == node) {
+                hand = node.next == node.prev ? null : following(node);
+            }
+            ring.remove(node);
+        }
+
+        // каждый бит снимается не больше одного раза на обращение, поэтому в среднем O(1)
+        @Override
+        public Node<K, V> selectVictim() {
+            while (hand.referenced) {
+                hand.referenced = false;
+                hand = following(hand);
+            }
+            return hand;
+        }
+
+        @Override
+        public void clear() {
+            ring.clear();
+            hand = null;
+        }
+    }
+
+    private static final class WindowTinyLfuPolicy<K, V> implements Policy<K, V> {
+        private static final double WINDOW_RATIO = 0.01;
+        private static final double PROTECTED_RATIO = 0.8;
+        // начальная ширина FrequencySketch, дальше она растёт вместе с количеством элементов
+        private static final int INITIAL_SKETCH_SIZE = 1024;
+
+        private final long windowMaximum;
+        private final long protectedMaximum;
+        private final FrequencySketch sketch;
+        // новые элементы
+        private final NodeList<K, V> window = new NodeList<>();
+        // основная часть: элементы, к которым после попадания в неё ещё не обращались
+        private final NodeList<K, V> probation = new NodeList<>();
+        // основная часть: элементы, к которым обращались повторно
+        private final NodeList<K, V> protectedQueue = new NodeList<>();
+        // последний элемент, вышедший из окна в probation и ещё не прошедший отбор
+        private Node<K, V> candidate;
+        private int size = 0;
+
+        WindowTinyLfuPolicy(long maximumWeight) {
+            windowMaximum = Math.max(1, (long) (maximumWeight * WINDOW_RATIO));
+            protectedMaximum = (long) ((maximumWeight - windowMaximum) * PROTECTED_RATIO);
+            sketch = new FrequencySketch((int) Math.min(maximumWeight, INITIAL_SKETCH_SIZE));
+        }
+
+        @Override
+        public void onInsert(Node<K, V> node) {
+            sketch.ensureCapacity(++size);
+            sketch.increment(node.key);
+            window.addLast(node);
+        }
+
+        @Override
+        public void onAccess(Node<K, V> node) {
+            sketch.increment(node.key);
+            if (node.list == probation) {
+                if (node == candidate) {
+                    candidate = null;
+                }
+                probation.remove(node);
+                protectedQueue.addLast(node);
+                while (protectedQueue.weight > protectedMaximum && protectedQueue.first() != node) {
+                    var demoted = protectedQueue.first();
+                    protectedQueue.remove(demoted);
+                    probation.addLast(demoted);
+                }
+            } else {
+                node.list.moveToLast(node);
+            }
+        }
+
+        @Override
+        public void onRemove(Node<K, V> node) {
+            if (node == candidate) {
+                candidate = null;
+            }
+            node.list.remove(node);
+            size--;
+        }
+
+        @Override
+        public Node<K, V> selectVictim() {
+            while (window.weight > windowMaximum && !window.isEmpty()) {
+                candidate = window.first();
+                window.remove(candidate);
+                probation.addLast(candidate);
+            }
+            Node<K, V> victim = probation.first();
+            if (victim == null) {
+                victim = protectedQueue.isEmpty() ? window.first() : protectedQueue.first();
+            }
+            if (candidate == null || candidate == victim) {
+                return victim;
+            }
+            // кандидат остаётся, только если он популярнее самого старого элемента основной части
+            if (sketch.frequency(candidate.key) > sketch.frequency(victim.key)) {
+                candidate = null;
+                return victim;
+            }
+            return candidate;
+        }
+
+        @Override
+        public void clear() {
+            window.clear();
+            probation.clear();
+            protectedQueue.clear();
+            candidate = null;
+            size = 0;
+        }
+    }
+
+    /**
+     * Не больше maximumSize элементов, политика W_TINY_LFU
+     */
+    public BoundedDictionary(int maximumSize) {
+        this(maximumSize, EvictionPolicy.W_TINY_LFU);
+    }
+
+    public BoundedDictionary(int maximumSize, EvictionPolicy evictionPolicy) {
+        this(maximumSize, (key, value) -> 1, evictionPolicy);
+    }
+
+    /**
+     * Суммарный вес элементов не больше maximumWeight, вес элемента считает weigher, он должен быть неотрицательным
+     */
+    public BoundedDictionary(long maximumWeight, ToIntBiFunction<? super K, ? super V> weigher,
+                             EvictionPolicy evictionPolicy) {
+        this(maximumWeight, weigher, evictionPolicy, (key, value) -> {
+        });
+    }
+
+    /**
+     * evictionListener получает каждый вытесненный элемент уже после его удаления; менять этот словарь он не должен
+     */
+    public BoundedDictionary(long maximumWeight, ToIntBiFunction<? super K, ? super V> weigher,
+                             EvictionPolicy evictionPolicy, BiConsumer<? super K, ? super V> evictionListener) {
+        if (maximumWeight < 0) {
+            throw new IllegalArgumentException("Maximum weight must be non-negative: " + maximumWeight);
+        }
+        this.maximumWeight = maximumWeight;
+        this.weigher = Objects.requireNonNull(weigher);
+        this.evictionListener = Objects.requireNonNull(evictionListener);
+        switch (evictionPolicy) {
+            case LRU:
+                policy = new LruPolicy<>();
+                break;
+            case CLOCK:
+                policy = new ClockPolicy<>();
+                break;
+            default:
+                policy = new WindowTinyLfuPolicy<>(maximumWeight);
+        }
+    }
+
+    private int weigh(K key, V value) {
+        int weight = weigher.applyAsInt(key, value);
+        if (weight < 0) {
+            throw new IllegalArgumentException("Weight must be non-negative: " + weight);
+        }
+        return weight;
+    }
+
+    private void evict() {
+        while (totalWeight > maximumWeight && !index.isEmpty()) {
+            var victim = policy.selectVictim();
+            removeNode(victim);
+            evictionCount++;
+            evictionWeight += victim.weight;
+            evictionListener.accept(victim.key, victim.value);
+        }
+    }
+
+    // новое значение и вес элемента без обращения и вытеснения; удалённый элемент словарь уже не учитывает
+    private V setNodeValue(Node<K, V> node, V value) {
+        int weight = weigh(node.key, value);
+        V previous = node.value;
+        node.value = value;
+        if (node.list != null) {
+            totalWeight += weight - node.weight;
+            node.list.weight += weight - node.weight;
+        }
+        node.weight = weight;
+        return previous;
+    }
+
+    private void removeNode(Node<K, V> node) {
+        index.remove(node.key);
+        policy.onRemove(node);
+        totalWeight -= node.weight;
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public long getTotalWeight() {
+        return totalWeight;
+    }
+
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * Доля успешных get(), 1 -- если get() ещё не вызывался
+     */
+    public double getHitRate() {
+        long lookups = hitCount + missCount;
+        return lookups == 0 ? 1 : (double) hitCount / lookups;
+    }
+
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    public long getEvictionWeight() {
+        return evictionWeight;
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return index.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return index.containsKey(key);
+    }
+
+    @Override
+    public V get(Object key) {
+        var node = index.get(key);
+        if (node == null) {
+            missCount++;
+            return null;
+        }
+        hitCount++;
+        policy.onAccess(node);
+        return node.value;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        var node = index.get(key);
+        if (node != null) {
+            V previous = setNodeValue(node, value);
+            policy.onAccess(node);
+            evict();
+            return previous;
+        }
+        node = new Node<>(key, value, weigh(key, value));
+        index.put(key, node);
+        totalWeight += node.weight;
+        policy.onInsert(node);
+        evict();
+        return null;
+    }
+
+    /**
+     * Заменить все значения и вытеснить лишнее один раз в конце; замена обращением не считается
+     */
+    @Override
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        Objects.requireNonNull(function);
+        for (var node : index.values()) {
+            setNodeValue(node, function.apply(node.key, node.value));
+        }
+        evict();
+    }
+
+    @Override
+    public V remove(Object key) {
+        var node = index.get(key);
+        if (node == null) {
+            return null;
+        }
+        removeNode(node);
+        return node.value;
+    }
+
+    @Override
+    public void clear() {
+        index.clear();
+        policy.clear();
+        totalWeight = 0;
+    }
+
+    private enum Type{
+        ENTRY, KEY, VALUE
+    }
+
+    // обход элементов в порядке таблицы, политика вытеснения про него не знает
+    private class MapIterator<I> implements Iterator<I> {
+        final Type type;
+        final Iterator<Node<K, V>> iterator = index.values().iterator();
+        Node<K, V> current;
+
+        MapIterator(Type type) {
+            this.type = type;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return iterator.hasNext();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public I next() {
+            current = iterator.next();
+            if (type == Type.KEY) {
+                return (I) current.key;
+            }
+            if (type == Type.VALUE) {
+                return (I) current.value;
+            }
+            return (I) new MapEntry(current);
+        }
+
+        @Override
+        public void remove() {
+            if (current == null) {
+                throw new IllegalStateException();
+            }
+            iterator.remove();
+            policy.onRemove(current);
+            totalWeight -= current.weight;
+            current = null;
+        }
+    }
+
+    @Override
+    @NotNull
+    public Set<K> keySet() {
+        return new AbstractSet<>() {
+            @Override
+            public @NotNull Iterator<K> iterator() {
+                return new MapIterator<>(Type.KEY);
+            }
+
+            @Override
+            public int size() {
+                return BoundedDictionary.this.size();
+            }
+        };
+    }
+
+    @Override
+    @NotNull
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public @NotNull Iterator<V> iterator() {
+                return new MapIterator<>(Type.VALUE);
+            }
+
+            @Override
+            public int size() {
+                return BoundedDictionary.this.size();
+            }
+        };
+    }
+
+    @Override
+    @NotNull
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public @NotNull Iterator<Entry<K, V>> iterator() {
+                return new MapIterator<>(Type.ENTRY);
+            }
+
+            @Override
+            public int size() {
+                return BoundedDictionary.this.size();
+            }
+        };
+    }
+}
@@ -0,0 +1,184 @@
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Общая часть обёрток, через которые словари на примитивах (IntIntDictionary и т.п.) выглядят как Dictionary
+ * Ключи и значения упаковываются только при обращении через обёртку
+ * Ячейки таблицы занумерованы от 0 до slotCount() - 1, удаление сдвигает элементы назад, как в
+ *   линейном пробировании без "надгробий"
+ */
+abstract class BoxedDictionaryView<K, V> extends AbstractMap<K, V> implements Dictionary<K, V> {
+    abstract int slotCount();
+
+    abstract boolean isUsed(int slot);
+
+    abstract K keyAt(int slot);
+
+    abstract V valueAt(int slot);
+
+    // ячейка ключа key, либо -1, если его нет или у него не тот тип
+    abstract int slotOf(Object key);
+
+    /**
+     * Удалить элемент из ячейки slot
+     * Ключи элементов, которые при сдвиге переехали из ячейки с меньшим номером в ячейку с большим,
+     *   складываются в wrapped, если он не null
+     */
+    abstract void removeAt(int slot, List<K> wrapped);
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return slotOf(key) >= 0;
+    }
+
+    @Override
+    public V get(Object key) {
+        int slot = slotOf(key);
+        return slot < 0 ? null : valueAt(slot);
+    }
+
+    @Override
+    public V remove(Object key) {
+        int slot = slotOf(key);
+        if (slot < 0) {
+            return null;
+        }
+        V lastValue = valueAt(slot);
+        removeAt(slot, null);
+        return lastValue;
+    }
+
+    private enum Type {
+        ENTRY, KEY, VALUE
+    }
+
+    private class MapEntry extends AbstractMap.SimpleEntry<K, V> {
+        public MapEntry(K key, V value) {
+            super(key, value);
+        }
+
+        @Override
+        public V setValue(V value) {
+            super.setValue(value);
+            return put(getKey(), value);
+        }
+    }
+
+    /*
+     * Итератор идёт от последней ячейки к первой, поэтому сдвиг при remove() двигает только уже
+     *   просмотренные элементы, кроме тех, что перешли через конец таблицы -- их отдаём в конце
+     */
+    private class MapIterator<I> implements Iterator<I> {
+        final Type type;
+        int position = slotCount();
+        int lastSlot = -1;
+        K lastKey;
+        List<K> wrapped;
+        int wrappedPosition = -1;
+
+        public MapIterator(Type type) {
+            this.type = type;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (position > 0 && !isUsed(position - 1)) {
+                position--;
+            }
+            return position > 0 || (wrapped != null && wrappedPosition + 1 < wrapped.size());
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public I next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            if (position > 0) {
+                lastSlot = --position;
+                lastKey = keyAt(lastSlot);
+            } else {
+                lastSlot = -1;
+                lastKey = wrapped.get(++wrappedPosition);
+            }
+            switch (type) {
+                case KEY:
+                    return (I) lastKey;
+                case VALUE:
+                    return (I) (lastSlot >= 0 ? valueAt(lastSlot) : get(lastKey));
+                default:
+                    return (I) new MapEntry(lastKey, lastSlot >= 0 ? valueAt(lastSlot) : get(lastKey));
+            }
+        }
+
+        @Override
+        public void remove() {
+            if (lastKey == null) {
+                throw new IllegalStateException();
+            }
+            if (lastSlot >= 0) {
+                if (wrapped == null) {
+                    wrapped = new ArrayList<>();
+                }
+                removeAt(lastSlot, wrapped);
+            } else {
+                BoxedDictionaryView.this.remove(lastKey);
+            }
+            lastKey = null;
+        }
+    }
+
+    @Override
+    @NotNull
+    public Set<K> keySet() {
+        return new AbstractSet<>() {
+            @Override
+            public @NotNull Iterator<K> iterator() {
+                return new MapIterator<>(Type.KEY);
+            }
+
+            @Override
+            public int size() {
+                return BoxedDictionaryView.this.size();
+            }
+        };
+    }
+
+    @Override
+    @NotNull
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public @NotNull Iterator<V> iterator() {
+                return new MapIterator<>(Type.VALUE);
+            }
+
+            @Override
+            public int size() {
+                return BoxedDictionaryView.this.size();
+            }
+        };
+    }
+
+    @Override
+    @NotNull
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public @NotNull Iterator<Entry<K, V>> iterator() {
+                return new MapIterator<>(Type.ENTRY);
+            }
+
+            @Override
+            public int size() {
+                return BoxedDictionaryView.this.size();
+            }
+        };
+    }
+}
@@ -0,0 +1,533 @@
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Потокобезопасная хеш-таблица со списками в корзинах
+ * Чтение не берёт блокировок: корзины лежат в AtomicReferenceArray, поля узлов volatile
+ * Запись блокирует только свою корзину (монитор первого узла), в пустую корзину узел кладётся через CAS
+ * Рехеширование совместное: потоки, пишущие во время него, забирают себе по TRANSFER_STRIDE корзин
+ *   и переносят их; перенесённая корзина заменяется ForwardingNode, который ведёт в новую таблицу
+ * Количество элементов считается в LongAdder, поэтому put() из разных потоков не спорят за один счётчик
+ * Ключи и значения не могут быть null
+ * Итераторы видов слабо согласованы: не бросают ConcurrentModificationException и могут
+ *   не увидеть изменения, сделанные после своего создания
+ */
+public class ConcurrentDictionary<K, V> extends AbstractMap<K, V> implements Dictionary<K, V>, ConcurrentMap<K, V> {
+    private final static double DEFAULT_LOAD_FACTOR = 0.75;
+    private final static int INITIAL_CAPACITY = 128;
+    private final static int MAXIMUM_CAPACITY = 1 << 30;
+    private final static int TRANSFER_STRIDE = 16;
+    // хеш ForwardingNode, у обычных узлов хеш неотрицательный
+    private final static int MOVED = -1;
+    private final static int HASH_BITS = 0x7fffffff;
+
+    private final double loadFactor;
+    private final LongAdder countOfElements = new LongAdder();
+    private volatile AtomicReferenceArray<Node<K, V>> memory;
+    private volatile int threshold;
+    // текущий перенос в новую таблицу, null, если рехеширование не идёт
+    private volatile Transfer<K, V> transfer;
+    // начало и конец рехеширования (но не перенос корзин) идут под этой блокировкой
+    private final Object resizeLock = new Object();
+
+    private static class Node<K, V> {
+        final int hash;
+        final K key;
+        volatile V value;
+        volatile Node<K, V> next;
+
+        Node(int hash, K key, V value, Node<K, V> next) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+            this.next = next;
+        }
+    }
+
+    private static final class ForwardingNode<K, V> extends Node<K, V> {
+        final AtomicReferenceArray<Node<K, V>> nextMemory;
+
+        ForwardingNode(AtomicReferenceArray<Node<K, V>> nextMemory) {
+            super(MOVED, null, null, null);
+            this.nextMemory = nextMemory;
+        }
+    }
+
+    private static final class Transfer<K, V> {
+        final AtomicReferenceArray<Node<K, V>> oldMemory;
+        final AtomicReferenceArray<Node<K, V>> newMemory;
+        final ForwardingNode<K, V> forwardingNode;
+        // корзины с индексами меньше nextIndex ещё никто не забрал
+        final AtomicInteger nextIndex;
+        // сколько корзин ещё не перенесено
+        final AtomicInteger remaining;
+
+        Transfer(AtomicReferenceArray<Node<K, V>> oldMemory, AtomicReferenceArray<Node<K, V>> newMemory) {
+            this.oldMemory = oldMemory;
+            this.newMemory = newMemory;
+            this.forwardingNode = new ForwardingNode<>(newMemory);
+            this.nextIndex = new AtomicInteger(oldMemory.length());
+            this.remaining = new AtomicInteger(oldMemory.length());
+        }
+    }
+
+    public ConcurrentDictionary() {
+        this(DEFAULT_LOAD_FACTOR, INITIAL_CAPACITY);
+    }
+
+    public ConcurrentDictionary(int capacity) {
+        this(DEFAULT_LOAD_FACTOR, capacity);
+    }
+
+    public ConcurrentDictionary(double loadFactor, int capacity) {
+        if (!(loadFactor > 0)) {
+            throw new IllegalArgumentException("Load factor must be positive: " + loadFactor);
+        }
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must be non-negative: " + capacity);
+        }
+        this.loadFactor = loadFactor;
+        int tableSize = tableSizeFor(capacity);
+        memory = new AtomicReferenceArray<>(tableSize);
+        threshold = thresholdFor(tableSize);
+    }
+
+    private static int tableSizeFor(int capacity) {
+        if (capacity >= MAXIMUM_CAPACITY) {
+            return MAXIMUM_CAPACITY;
+        }
+        return Math.max(2, Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1);
+    }
+
+    private int thresholdFor(int tableSize) {
+        return tableSize == MAXIMUM_CAPACITY ? Integer.MAX_VALUE : (int) Math.min(Integer.MAX_VALUE, tableSize * loadFactor);
+    }
+
+    private static int hashFunction(Object key) {
+        return Hashing.mix(key.hashCode()) & HASH_BITS;
+    }
+
+    private static int indexFor(int hash, AtomicReferenceArray<?> memory) {
+        return hash & (memory.length() - 1);
+    }
+
+    private Node<K, V> findNode(Object key) {
+        int hash = hashFunction(key);
+        AtomicReferenceArray<Node<K, V>> tab = memory;
+        while (true) {
+            Node<K, V> node = tab.get(indexFor(hash, tab));
+            if (node instanceof ForwardingNode) {
+                tab = ((ForwardingNode<K, V>) node).nextMemory;
+                continue;
+            }
+            for (; node != null; node = node.next) {
+                if (node.hash == hash && (node.key == key || node.key.equals(key))) {
+                    return node;
+                }
+            }
+            return null;
+        }
+    }
+
+    @Override
+    public int size() {
+        return (int) Math.max(0, Math.min(countOfElements.sum(), Integer.MAX_VALUE));
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return findNode(key) != null;
+    }
+
+    @Override
+    public V get(Object key) {
+        Node<K, V> node = findNode(key);
+        return node == null ? null : node.value;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        return putValue(key, value, false);
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        return putValue(key, value, true);
+    }
+
+    private V putValue(K key, V value, boolean onlyIfAbsent) {
+        if (key == null || value == null) {
+            throw new NullPointerException();
+        }
+        int hash = hashFunction(key);
+        AtomicReferenceArray<Node<K, V>> tab = memory;
+        while (true) {
+            int index = indexFor(hash, tab);
+            Node<K, V> first = tab.get(index);
+            if (first == null) {
+                if (tab.compareAndSet(index, null, new Node<>(hash, key, value, null))) {
+                    break;
+                }
+                continue;
+            }
+            if (first instanceof ForwardingNode) {
+                tab = helpTransfer((ForwardingNode<K, V>) first);
+                continue;
+            }
+            synchronized (first) {
+                if (tab.get(index) != first) {
+                    continue;
+                }
+                Node<K, V> node = first;
+                while (true) {
+                    if (node.hash == hash && (node.key == key || node.key.equals(key))) {
+                        V lastValue = node.value;
+                        if (!onlyIfAbsent) {
+                            node.value = value;
+                        }
+                        return lastValue;
+                    }
+                    if (node.next == null) {
+                        node.next = new Node<>(hash, key, value, null);
+                        break;
+                    }
+                    node = node.next;
+                }
+            }
+            break;
+        }
+        countOfElements.increment();
+        resize();
+        return null;
+    }
+
+    @Override
+    public V remove(Object key) {
+        return replaceNode(key, null, null);
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        return value != null && replaceNode(key, null, value) != null;
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        if (value == null) {
+            throw new NullPointerException();
+        }
+        return replaceNode(key, value, null);
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        if (oldValue == null || newValue == null) {
+            throw new NullPointerException();
+        }
+        return replaceNode(key, newValue, oldValue) != null;
+    }
+
+    /**
+     * Заменить значение по ключу key на value, либо удалить ключ, если value == null
+     * Если expected != null, то только если сейчас там лежит expected
+     * Возвращает прежнее значение или null, если ничего не изменилось
+     */
+    private V replaceNode(Object key, V value, Object expected) {
+        int hash = hashFunction(key);
+        AtomicReferenceArray<Node<K, V>> tab = memory;
+        while (true) {
+            int index = indexFor(hash, tab);
+            Node<K, V> first = tab.get(index);
+            if (first == null) {
+                return null;
+            }
+            if (first instanceof ForwardingNode) {
+                tab = helpTransfer((ForwardingNode<K, V>) first);
+                continue;
+            }
+            synchronized (first) {
+                if (tab.get(index) != first) {
+                    continue;
+                }
+                Node<K, V> previous = null;
+                for (Node<K, V> node = first; node != null; previous = node, node = node.next) {
+                    if (node.hash == hash && (node.key == key || node.key.equals(key))) {
+                        V lastValue = node.value;
+                        if (expected != null && !expected.equals(lastValue)) {
+                            return null;
+                        }
+                        if (value != null) {
+                            node.value = value;
+                        } else {
+                            if (previous == null) {
+                                tab.set(index, node.next);
+                            } else {
+                                previous.next = node.next;
+                            }
+                            countOfElements.decrement();
+                        }
+                        return lastValue;
+                    }
+                }
+                return null;
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        AtomicReferenceArray<Node<K, V>> tab = memory;
+        int index = 0;
+        while (index < tab.length()) {
+            Node<K, V> first = tab.get(index);
+            if (first == null) {
+                index++;
+                continue;
+            }
+            if (first instanceof ForwardingNode) {
+                tab = helpTransfer((ForwardingNode<K, V>) first);
+                index = 0;
+                continue;
+            }
+            synchronized (first) {
+                if (tab.get(index) != first) {
+                    continue;
+                }
+                int removed = 0;
+                for (Node<K, V> node = first; node != null; node = node.next) {
+                    removed++;
+                }
+                tab.set(index, null);
+                countOfElements.add(-removed);
+            }
+            index++;
+        }
+    }
+
+    private void resize() {
+        AtomicReferenceArray<Node<K, V>> tab = memory;
+        if (countOfElements.sum() < threshold || tab.length() >= MAXIMUM_CAPACITY) {
+            return;
+        }
+        Transfer<K, V> current = transfer;
+        if (current == null) {
+            synchronized (resizeLock) {
+                // таблицу могли успеть заменить, пока мы ждали блокировку
+                if (memory == tab && transfer == null) {
+                    transfer = new Transfer<>(tab, new AtomicReferenceArray<>(tab.length() << 1));
+                }
+                current = transfer;
+            }
+        }
+        if (current != null) {
+            transferBuckets(current);
+        }
+    }
+
+    private AtomicReferenceArray<Node<K, V>> helpTransfer(ForwardingNode<K, V> forwardingNode) {
+        Transfer<K, V> current = transfer;
+        if (current != null && current.newMemory == forwardingNode.nextMemory) {
+            transferBuckets(current);
+        }
+        return forwardingNode.nextMemory;
+    }
+
+    // забирать и переносить корзины, пока они не кончатся
+    private void transferBuckets(Transfer<K, V> current) {
+        while (true) {
+            int end = current.nextIndex.getAndAdd(-TRANSFER_STRIDE);
+            if (end <= 0) {
+                return;
+            }
+            int start = Math.max(0, end - TRANSFER_STRIDE);
+            for (int index = start; index < end; index++) {
+                moveBucket(current, index);
+            }
+            if (current.remaining.addAndGet(start - end) == 0) {
+                synchronized (resizeLock) {
+                    threshold = thresholdFor(current.newMemory.length());
+                    memory = current.newMemory;
+                    transfer = null;
+                }
+                return;
+            }
+        }
+    }
+
+    /*
+     * Узлы не перевешиваются, а копируются: поток, который сейчас без блокировки читает старую корзину,
+     *   дочитает её до конца
+     */
+    private void moveBucket(Transfer<K, V> current, int index) {
+        AtomicReferenceArray<Node<K, V>> oldMemory = current.oldMemory;
+        AtomicReferenceArray<Node<K, V>> newMemory = current.newMemory;
+        while (true) {
+            Node<K, V> first = oldMemory.get(index);
+            if (first == null) {
+                if (oldMemory.compareAndSet(index, null, current.forwardingNode)) {
+                    return;
+                }
+                continue;
+            }
+            synchronized (first) {
+                if (oldMemory.get(index) != first) {
+                    continue;
+                }
+                Node<K, V> low = null;
+                Node<K, V> high = null;
+                int bit = oldMemory.length();
+                for (Node<K, V> node = first; node != null; node = node.next) {
+                    if ((node.hash & bit) == 0) {
+                        low = new Node<>(node.hash, node.key, node.value, low);
+                    } else {
+                        high = new Node<>(node.hash, node.key, node.value, high);
+                    }
+                }
+                newMemory.set(index, low);
+                newMemory.set(index + bit, high);
+                oldMemory.set(index, current.forwardingNode);
+                return;
+            }
+        }
+    }
+
+    private enum Type {
+        ENTRY, KEY, VALUE
+    }
+
+    private class MapEntry extends AbstractMap.SimpleEntry<K, V> {
+        public MapEntry(K key, V value) {
+            super(key, value);
+        }
+
+        @Override
+        public V setValue(V value) {
+            super.setValue(value);
+            return put(getKey(), value);
+        }
+    }
+
+    // узлы корзины index таблицы tab с учётом того, что корзина могла переехать в следующую таблицу
+    private void collectBucket(AtomicReferenceArray<Node<K, V>> tab, int index, List<Node<K, V>> nodes) {
+        Node<K, V> node = tab.get(index);
+        if (node instanceof ForwardingNode) {
+            AtomicReferenceArray<Node<K, V>> next = ((ForwardingNode<K, V>) node).nextMemory;
+            collectBucket(next, index, nodes);
+            collectBucket(next, index + tab.length(), nodes);
+            return;
+        }
+        for (; node != null; node = node.next) {
+            nodes.add(node);
+        }
+    }
+
+    private class MapIterator<I> implements Iterator<I> {
+        final Type type;
+        final AtomicReferenceArray<Node<K, V>> tab = memory;
+        final List<Node<K, V>> bucket = new ArrayList<>();
+        int bucketIndex = 0;
+        int positionInBucket = 0;
+        Node<K, V> last;
+
+        public MapIterator(Type type) {
+            this.type = type;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (positionInBucket == bucket.size()) {
+                if (bucketIndex == tab.length()) {
+                    return false;
+                }
+                bucket.clear();
+                positionInBucket = 0;
+                collectBucket(tab, bucketIndex++, bucket);
+            }
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public I next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            last = bucket.get(positionInBucket++);
+            switch (type) {
+                case KEY:
+                    return (I) last.key;
+                case VALUE:
+                    return (I) last.value;
+                default:
+                    return (I) new MapEntry(last.key, last.value);
+            }
+        }
+
+        @Override
+        public void remove() {
+            if (last == null) {
+                throw new IllegalStateException();
+            }
+            ConcurrentDictionary.this.remove(last.key);
+            last = null;
+        }
+    }
+
+    @Override
+    @NotNull
+    public Set<K> keySet() {
+        return new AbstractSet<>() {
+            @Override
+            public @NotNull Iterator<K> iterator() {
+                return new MapIterator<>(Type.KEY);
+            }
+
+            @Override
+            public int size() {
+                return ConcurrentDictionary.this.size();
+            }
+        };
+    }
+
+    @Override
+    @NotNull
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public @NotNull Iterator<V> iterator() {
+                return new MapIterator<>(Type.VALUE);
+            }
+
+            @Override
+            public int size() {
+                return ConcurrentDictionary.this.size();
+            }
+        };
+    }
+
+    @Override
+    @NotNull
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public @NotNull Iterator<Entry<K, V>> iterator() {
+                return new MapIterator<>(Type.ENTRY);
+            }
+
+            @Override
+            public int size() {
+                return ConcurrentDictionary.this.size();
+            }
+        };
+    }
+}
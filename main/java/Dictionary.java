@@ -46,6 +46,14 @@ public interface Dictionary<K, V> extends Map<K, V> {
     @Override
     void clear();
 
+    /**
+     * Неизменяемая копия словаря, поиск в которой делает ровно одну пробу
+     * Для данных, которые после построения только читаются
+     */
+    default Dictionary<K, V> freeze() {
+        return FrozenDictionary.copyOf(this);
+    }
+
     /*
      * Все коллекции из трёх методов ниже должны поддерживать только те методы коллекции/множества,
      *   которые не меняют исходную коллекцию.
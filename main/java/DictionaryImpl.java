@@ -1,21 +1,210 @@
 import org.jetbrains.annotations.NotNull;
 
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
 import java.util.*;
+import java.util.function.*;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
-import static java.lang.Math.abs;
-
+/**
+ * Хеш-таблица со списками в корзинах
+ * Размер таблицы всегда степень двойки, корзина выбирается по младшим битам перемешанного хеша
+ */
 public class DictionaryImpl<K, V> extends AbstractMap<K, V> implements Dictionary<K,V> {
     private int countOfElements = 0;
     private int capacity;
     private final double loadFactor;
+    // если заполненность упала ниже shrinkLoadFactor, таблица уменьшается; 0 -- не уменьшать
+    private final double shrinkLoadFactor;
+    // ниже этой ёмкости таблица сама не уменьшается
+    private final int minCapacity;
     private final static double DEFAULT_LOAD_FACTOR = 0.85;
     private final static int INITIAL_CAPACITY = 128;
     private final static int CAPACITY_MULTIPLIER = 2;
-    private List<List<MapEntry<K, V>>> memory;
+    private final static int MAXIMUM_CAPACITY = 1 << 30;
+    private final static int REHASH_BUCKETS_PER_STEP = 16;
+    // корзина длиннее TREEIFY_THRESHOLD превращается в дерево, дерево из UNTREEIFY_THRESHOLD элементов -- обратно в список
+    private final static int TREEIFY_THRESHOLD = 8;
+    private final static int UNTREEIFY_THRESHOLD = 6;
+    //   дерево упорядочено по compareTo(), которое ничего не знает о стратегии хеширования, поэтому со стратегией
+    //   корзины всегда остаются списками
+    // меньшие коллекции parallelCopyOf() складывает в одном потоке
+    private final static int PARALLEL_BUILD_THRESHOLD = 1 << 14;
+    // null, пока в словарь ничего не клали: пустой словарь не занимает памяти под таблицу
+    // корзина создаётся при первом добавлении в неё, до этого в таблице null
+    private List<Collection<MapEntry<K, V>>> memory;
+    // битовая карта и счётчики ещё не созданной таблицы: обход по ним сразу заканчивается
+    private final static long[] NO_OCCUPANCY = new long[0];
+    private final static int[] NO_BLOCK_COUNTS = new int[0];
+    // бит i установлен, если корзина i непуста: обход пропускает пустые корзины по 64 за раз
+    private long[] occupancy;
+    // сколько элементов в каждом блоке из 64 корзин: по ним Spliterator знает точные размеры своих частей
+    private int[] blockCounts;
+    private final boolean incrementalResize;
+    // пока идёт постепенное рехеширование, здесь лежит старая таблица, иначе null
+    private List<Collection<MapEntry<K, V>>> oldMemory;
+    private long[] oldOccupancy;
+    private int[] oldBlockCounts;
+    private int oldCapacity;
+    // корзины старой таблицы с индексом меньше rehashIndex уже перенесены в memory
+    private int rehashIndex;
+    // null -- хеш и равенство ключей берутся из hashCode() и equals(), и горячий путь платит только за проверку на null
+    private final HashingStrategy<? super K> hashingStrategy;
+    // null -- статистика выключена и горячий путь платит только за проверку на null
+    private DictionaryStatsRecorder stats;
+    // меняется при каждом добавлении, удалении и переносе корзин: так compute() и merge() замечают,
+    //   что функция изменила словарь, и найденная до её вызова корзина устарела
+    private int modCount = 0;
+    // виды создаются один раз
+    private Set<K> keySetView;
+    private Collection<V> valuesView;
+    private Set<Entry<K, V>> entrySetView;
 
     private static class MapEntry<K, V> extends AbstractMap.SimpleEntry<K, V> {
-        public MapEntry(K key, V value) {
+        // перемешанный хеш ключа: при рехешировании и поиске hashCode() ключа больше не вызывается
+        final int hash;
+
+        public MapEntry(int hash, K key, V value) {
             super(key, value);
+            this.hash = hash;
+        }
+    }
+
+    /**
+     * Корзина-список, ключи которой не удалось упорядочить в TreeBucket: разного класса или не сравнимые сами с собой
+     * Превратить её в дерево больше не пытаются, пока она не сократится до UNTREEIFY_THRESHOLD элементов
+     */
+    private static final class UnorderedBucket<K, V> extends ArrayList<MapEntry<K, V>> {
+        UnorderedBucket(Collection<MapEntry<K, V>> bucket) {
+            super(bucket);
+        }
+    }
+
+    /**
+     * Корзина-дерево для длинных цепочек коллизий: элементы упорядочены по сохранённому хешу,
+     *   а при равных хешах -- по compareTo() ключей, так что поиск в ней занимает O(log n)
+     *   даже при одинаковых хешах у всех ключей
+     * Все ключи в дереве одного класса C, реализующего Comparable<C>, и никакие два не равны по compareTo()
+     */
+    private static class TreeBucket<K, V> extends AbstractCollection<MapEntry<K, V>> {
+        private final Class<?> keyClass;
+        // ключ и значение -- одна и та же пара: get() по пробной паре возвращает сохранённую
+        private final TreeMap<MapEntry<K, V>, MapEntry<K, V>> tree = new TreeMap<>(TreeBucket::compareEntries);
+
+        private TreeBucket(Class<?> keyClass) {
+            this.keyClass = keyClass;
+        }
+
+        private static int compareEntries(MapEntry<?, ?> first, MapEntry<?, ?> second) {
+            if (first.hash != second.hash) {
+                return Integer.compare(first.hash, second.hash);
+            }
+            return compareKeys(first.getKey(), second.getKey());
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static int compareKeys(Object first, Object second) {
+            return ((Comparable) first).compareTo(second);
+        }
+
+        /**
+         * keyClass, сравнимый сам с собой, как C в Comparable<C>: только для таких классов compareKeys()
+         *   не бросает ClassCastException на двух ключах класса keyClass
+         * Класс, унаследовавший Comparable от предка, не подходит: предок сравнивает по своим правилам
+         */
+        static boolean isSelfComparable(Class<?> keyClass) {
+            return SELF_COMPARABLE.get(keyClass);
+        }
+
+        // разбор generic-интерфейсов дорог, поэтому ответ запоминается для каждого класса
+        private static final ClassValue<Boolean> SELF_COMPARABLE = new ClassValue<>() {
+            @Override
+            protected Boolean computeValue(Class<?> keyClass) {
+                return computeSelfComparable(keyClass);
+            }
+        };
+
+        private static boolean computeSelfComparable(Class<?> keyClass) {
+            if (keyClass == String.class) {
+                return true;
+            }
+            for (Type type : keyClass.getGenericInterfaces()) {
+                if (type instanceof ParameterizedType) {
+                    var parameterized = (ParameterizedType) type;
+                    Type[] arguments = parameterized.getActualTypeArguments();
+                    if (parameterized.getRawType() == Comparable.class
+                            && arguments.length == 1 && arguments[0] == keyClass) {
+                        return true;
+                    }
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Дерево из элементов корзины bucket, либо null, если их ключи нельзя упорядочить
+         */
+        static <K, V> TreeBucket<K, V> treeify(Collection<MapEntry<K, V>> bucket) {
+            Class<?> keyClass = bucket.iterator().next().getKey().getClass();
+            if (!isSelfComparable(keyClass)) {
+                return null;
+            }
+            TreeBucket<K, V> treeBucket = new TreeBucket<>(keyClass);
+            for (var pair : bucket) {
+                if (!treeBucket.add(pair)) {
+                    return null;
+                }
+            }
+            return treeBucket;
+        }
+
+        @SuppressWarnings("unchecked")
+        MapEntry<K, V> find(int hash, Object key) {
+            if (key.getClass() != keyClass) {
+                // ключ другого класса всё ещё может оказаться равным одному из наших по equals()
+                for (var pair : tree.values()) {
+                    if (pair.getKey().equals(key)) {
+                        return pair;
+                    }
+                }
+                return null;
+            }
+            var pair = tree.get(new MapEntry<>(hash, (K) key, null));
+            return pair != null && pair.getKey().equals(key) ? pair : null;
+        }
+
+        /**
+         * Положить pair, ключа которой в корзине нет
+         * Возвращает false, если этот ключ нельзя хранить в дереве, тогда корзину пора превратить обратно в список
+         */
+        @Override
+        public boolean add(MapEntry<K, V> pair) {
+            K key = pair.getKey();
+            if (key.getClass() != keyClass) {
+                return false;
+            }
+            return tree.putIfAbsent(pair, pair) == null;
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            if (!(o instanceof MapEntry)) {
+                return false;
+            }
+            Object key = ((MapEntry<?, ?>) o).getKey();
+            return key.getClass() == keyClass && tree.remove(o, o);
+        }
+
+        @Override
+        public @NotNull Iterator<MapEntry<K, V>> iterator() {
+            return tree.values().iterator();
+        }
+
+        @Override
+        public int size() {
+            return tree.size();
         }
     }
 
@@ -28,49 +217,422 @@ public class DictionaryImpl<K, V> extends AbstractMap<K, V> implements Dictionar
     }
 
     public DictionaryImpl(double loadFactor, int capacity) {
+        this(loadFactor, capacity, false);
+    }
+
+    /**
+     * incrementalResize == true -- рехеширование не переносит всю таблицу за один вызов,
+     *   а переносит по REHASH_BUCKETS_PER_STEP корзин на каждый put() и remove()
+     */
+    public DictionaryImpl(double loadFactor, int capacity, boolean incrementalResize) {
+        this(loadFactor, loadFactor / (2 * CAPACITY_MULTIPLIER), capacity, incrementalResize);
+    }
+
+    /**
+     * shrinkLoadFactor -- нижний порог заполненности, после remove() ниже него таблица уменьшается
+     *   в CAPACITY_MULTIPLIER раз, но не меньше чем до capacity. Чтобы таблица не уменьшалась и не росла
+     *   попеременно около порога, после уменьшения заполненность должна остаться меньше loadFactor,
+     *   поэтому shrinkLoadFactor * CAPACITY_MULTIPLIER < loadFactor
+     */
+    public DictionaryImpl(double loadFactor, double shrinkLoadFactor, int capacity, boolean incrementalResize) {
+        this(loadFactor, shrinkLoadFactor, capacity, incrementalResize, null);
+    }
+
+    /**
+     * Ключи сравниваются и хешируются стратегией hashingStrategy, null -- их собственными equals() и hashCode()
+     * Ключ не того класса, что ждёт стратегия, в get() и remove() приводит к ClassCastException
+     * С такой стратегией equals() и hashCode() самого словаря согласованы только со словарями с той же стратегией
+     */
+    public DictionaryImpl(HashingStrategy<? super K> hashingStrategy) {
+        this(DEFAULT_LOAD_FACTOR, DEFAULT_LOAD_FACTOR / (2 * CAPACITY_MULTIPLIER), INITIAL_CAPACITY, false,
+                hashingStrategy);
+    }
+
+    public DictionaryImpl(double loadFactor, double shrinkLoadFactor, int capacity, boolean incrementalResize,
+                          HashingStrategy<? super K> hashingStrategy) {
+        if (shrinkLoadFactor < 0 || shrinkLoadFactor * CAPACITY_MULTIPLIER >= loadFactor) {
+            throw new IllegalArgumentException("Shrink load factor must be in [0, loadFactor / "
+                    + CAPACITY_MULTIPLIER + "): " + shrinkLoadFactor);
+        }
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must be non-negative: " + capacity);
+        }
         this.loadFactor = loadFactor;
-        this.capacity = capacity;
-        memory = new ArrayList<>(capacity);
-        fillMemory(memory, capacity);
+        this.shrinkLoadFactor = shrinkLoadFactor;
+        this.capacity = tableSizeFor(capacity);
+        this.minCapacity = this.capacity;
+        this.incrementalResize = incrementalResize;
+        this.hashingStrategy = hashingStrategy;
+        occupancy = NO_OCCUPANCY;
+        blockCounts = NO_BLOCK_COUNTS;
+    }
+
+    /**
+     * Словарь, в который можно положить expectedSize элементов без рехеширования
+     */
+    public static <K, V> DictionaryImpl<K, V> withExpectedSize(int expectedSize) {
+        return withExpectedSize(expectedSize, DEFAULT_LOAD_FACTOR);
+    }
+
+    public static <K, V> DictionaryImpl<K, V> withExpectedSize(int expectedSize, double loadFactor) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("Expected size must be non-negative: " + expectedSize);
+        }
+        return new DictionaryImpl<>(loadFactor, capacityFor(expectedSize, loadFactor));
+    }
+
+    // наименьшая ёмкость, при которой count элементов помещаются без роста таблицы
+    private static int capacityFor(int count, double loadFactor) {
+        int capacity = tableSizeFor((int) Math.min(MAXIMUM_CAPACITY, Math.ceil(count / loadFactor)));
+        while (capacity < MAXIMUM_CAPACITY && (int) (capacity * loadFactor) <= count) {
+            capacity <<= 1;
+        }
+        return capacity;
+    }
+
+    // ближайшая сверху степень двойки
+    private static int tableSizeFor(int capacity) {
+        if (capacity >= MAXIMUM_CAPACITY) {
+            return MAXIMUM_CAPACITY;
+        }
+        return capacity <= 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+    }
+
+    // единственное место, где вызывается hashCode() ключа или hash() стратегии
+    @SuppressWarnings("unchecked")
+    private int hashFunction(Object key) {
+        if (hashingStrategy == null) {
+            return Hashing.mix(key.hashCode());
+        }
+        return Hashing.mix(((HashingStrategy<Object>) hashingStrategy).hash(key));
     }
 
-    private int hashFunction(Object key, int capacity) {
-        return abs(key.hashCode()) % capacity;
+    @SuppressWarnings("unchecked")
+    private boolean keyEquals(K stored, Object key) {
+        if (hashingStrategy == null) {
+            return stored.equals(key);
+        }
+        return ((HashingStrategy<Object>) hashingStrategy).equals(stored, key);
+    }
+
+    private static int indexFor(int hash, int capacity) {
+        return hash & (capacity - 1);
     }
 
-    private List<MapEntry<K, V>> getBucket(Object key) {
-        return memory.get(hashFunction(key, capacity));
+    // таблица, в которой сейчас лежит корзина хеша hash: старая, пока эту корзину не перенесли
+    private List<Collection<MapEntry<K, V>>> getTable(int hash) {
+        if (oldMemory != null && indexFor(hash, oldCapacity) >= rehashIndex) {
+            return oldMemory;
+        }
+        return memory;
+    }
+
+    private int getBucketIndex(int hash, List<Collection<MapEntry<K, V>>> table) {
+        return indexFor(hash, table == memory ? capacity : oldCapacity);
+    }
+
+    // null, если корзина ещё не создана
+    private Collection<MapEntry<K, V>> getBucket(int hash) {
+        var table = getTable(hash);
+        return table == null ? null : table.get(getBucketIndex(hash, table));
+    }
+
+    // сначала сравниваются сохранённые хеши, equals() вызывается только при их совпадении
+    private MapEntry<K, V> findEntry(Collection<MapEntry<K, V>> bucket, int hash, Object key) {
+        if (bucket == null) {
+            return null;
+        }
+        if (bucket instanceof TreeBucket) {
+            return ((TreeBucket<K, V>) bucket).find(hash, key);
+        }
+        for (var pair : bucket) {
+            if (pair.hash == hash && keyEquals(pair.getKey(), key)) {
+                return pair;
+            }
+        }
+        return null;
+    }
+
+    // удалить именно этот объект pair, не сравнивая элементы корзины через equals()
+    private void removeFromBucket(Collection<MapEntry<K, V>> bucket, MapEntry<K, V> pair) {
+        if (bucket instanceof TreeBucket) {
+            bucket.remove(pair);
+            return;
+        }
+        for (var iterator = bucket.iterator(); iterator.hasNext(); ) {
+            if (iterator.next() == pair) {
+                iterator.remove();
+                return;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Collection<MapEntry<K, V>>> newTable(int capacity) {
+        return Arrays.asList((Collection<MapEntry<K, V>>[]) new Collection<?>[capacity]);
+    }
+
+    // создать таблицу перед первым добавлением
+    private void allocateTable() {
+        memory = newTable(capacity);
+        occupancy = newOccupancy(capacity);
+        blockCounts = new int[occupancy.length];
+    }
+
+    private static long[] newOccupancy(int capacity) {
+        return new long[(capacity + Long.SIZE - 1) / Long.SIZE];
+    }
+
+    private long[] occupancyOf(List<Collection<MapEntry<K, V>>> table) {
+        return table == memory ? occupancy : oldOccupancy;
+    }
+
+    private int[] blockCountsOf(List<Collection<MapEntry<K, V>>> table) {
+        return table == memory ? blockCounts : oldBlockCounts;
+    }
+
+    private static void markOccupied(long[] occupancy, int index) {
+        occupancy[index >>> 6] |= 1L << index;
+    }
+
+    private static void markEmpty(long[] occupancy, int index) {
+        occupancy[index >>> 6] &= ~(1L << index);
+    }
+
+    // индекс первой непустой корзины, не меньший from, либо -1
+    private static int nextOccupied(long[] occupancy, int from) {
+        int word = from >>> 6;
+        if (word >= occupancy.length) {
+            return -1;
+        }
+        long bits = occupancy[word] & (-1L << from);
+        while (bits == 0) {
+            if (++word == occupancy.length) {
+                return -1;
+            }
+            bits = occupancy[word];
+        }
+        return word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+    }
+
+    // положить pair, ключа которой в корзине нет, и при необходимости перестроить корзину
+    private void addToBucket(List<Collection<MapEntry<K, V>>> table, int index, MapEntry<K, V> pair) {
+        var bucket = table.get(index);
+        if (bucket == null) {
+            bucket = new ArrayList<>();
+            table.set(index, bucket);
+        }
+        if (stats != null) {
+            stats.recordBucketResized(bucket.size(), bucket.size() + 1);
+        }
+        markOccupied(occupancyOf(table), index);
+        blockCountsOf(table)[index >>> 6]++;
+        if (!bucket.add(pair)) {
+            // дерево не принимает ключ другого класса
+            var list = new UnorderedBucket<>(bucket);
+            list.add(pair);
+            table.set(index, list);
+        } else if (bucket.size() > TREEIFY_THRESHOLD && hashingStrategy == null
+                && !(bucket instanceof TreeBucket || bucket instanceof UnorderedBucket)) {
+            var treeBucket = TreeBucket.treeify(bucket);
+            table.set(index, treeBucket != null ? treeBucket : new UnorderedBucket<>(bucket));
+        }
     }
 
     private boolean isCapacityEnough() {
         return countOfElements < (int) (capacity * loadFactor);
     }
 
+    private boolean isCapacityTooLarge() {
+        return capacity > minCapacity && countOfElements < capacity * shrinkLoadFactor;
+    }
+
+    // в начале каждого изменения словаря; таблица создаётся здесь же, поэтому remove() и computeIfPresent(),
+    //   которые ничего не добавляют, в пустой словарь сюда не доходят
     private void resize() {
-        if (isCapacityEnough()) {
-            return;
+        if (memory == null) {
+            allocateTable();
+        } else if (!isCapacityEnough()) {
+            if (capacity < MAXIMUM_CAPACITY) {
+                rehash(capacity * CAPACITY_MULTIPLIER);
+            }
+        } else if (isCapacityTooLarge()) {
+            rehash(Math.max(minCapacity, capacity / CAPACITY_MULTIPLIER));
         }
-        int newCapacity;
-        if (capacity >= Integer.MAX_VALUE / CAPACITY_MULTIPLIER) {
-            newCapacity = Integer.MAX_VALUE;
-        } else {
-            newCapacity = capacity * CAPACITY_MULTIPLIER;
+    }
+
+    /**
+     * Уменьшить таблицу до наименьшей ёмкости (степени двойки), при которой текущие элементы помещаются без роста
+     */
+    public void trimToSize() {
+        int newCapacity = capacityFor(countOfElements, loadFactor);
+        if (newCapacity < capacity) {
+            rehash(newCapacity);
         }
-        List<List<MapEntry<K, V>>> newMemory = new ArrayList<>(newCapacity);
-        fillMemory(newMemory, newCapacity);
-        for (var bucket : memory) {
-            for (var pair : bucket) {
-                newMemory.get(hashFunction(pair.getKey(), newCapacity)).add(pair);
+    }
+
+    // и рост, и уменьшение таблицы идут через перенос корзин rehashStep()
+    private void rehash(int newCapacity) {
+        // новая таблица понадобилась раньше, чем в неё переехала старая -- доделываем перенос сразу
+        long start = stats == null ? 0 : System.nanoTime();
+        finishRehash();
+        modCount++;
+        if (memory == null) {
+            // таблицы ещё нет, но enableStats() уже учёл её корзины как пустые
+            if (stats != null) {
+                stats.recordBucketsAdded(newCapacity - capacity);
+                stats.recordResize(System.nanoTime() - start);
             }
+            capacity = newCapacity;
+            return;
         }
-        memory = newMemory;
+        oldMemory = memory;
+        oldOccupancy = occupancy;
+        oldBlockCounts = blockCounts;
+        oldCapacity = capacity;
+        rehashIndex = 0;
         capacity = newCapacity;
+        allocateTable();
+        if (stats != null) {
+            stats.recordBucketsAdded(newCapacity);
+        }
+        if (!incrementalResize) {
+            finishRehash();
+        }
+        if (stats != null) {
+            stats.recordResize(System.nanoTime() - start);
+        }
     }
 
-    private void fillMemory(List<List<MapEntry<K, V>>> memory, int capacity) {
-        for (int i = 0; i < capacity; i++) {
-            memory.add(new ArrayList<>());
+    // шаг постепенного рехеширования из put() и remove()
+    private void rehashStep() {
+        if (oldMemory == null) {
+            return;
         }
+        if (stats == null) {
+            moveBuckets();
+            return;
+        }
+        long start = System.nanoTime();
+        moveBuckets();
+        stats.recordRehashWork(System.nanoTime() - start);
+    }
+
+    /**
+     * Перенести очередные REHASH_BUCKETS_PER_STEP корзин старой таблицы в новую
+     */
+    private void moveBuckets() {
+        modCount++;
+        int end = Math.min(oldCapacity, rehashIndex + REHASH_BUCKETS_PER_STEP);
+        while (rehashIndex < end) {
+            var bucket = oldMemory.get(rehashIndex);
+            int size = bucket == null ? 0 : bucket.size();
+            if (size > 0) {
+                for (var pair : bucket) {
+                    addToBucket(memory, indexFor(pair.hash, capacity), pair);
+                }
+                oldMemory.set(rehashIndex, null);
+                markEmpty(oldOccupancy, rehashIndex);
+                oldBlockCounts[rehashIndex >>> 6] -= size;
+            }
+            if (stats != null) {
+                stats.recordBucketRemoved(size);
+            }
+            rehashIndex++;
+        }
+        if (rehashIndex == oldCapacity) {
+            oldMemory = null;
+            oldOccupancy = null;
+            oldBlockCounts = null;
+        }
+    }
+
+    private void finishRehash() {
+        while (oldMemory != null) {
+            moveBuckets();
+        }
+    }
+
+    /**
+     * Сколько ещё шагов rehashStep() осталось до конца постепенного рехеширования, 0 -- если оно не идёт
+     */
+    public int pendingRehashSteps() {
+        if (oldMemory == null) {
+            return 0;
+        }
+        return (oldCapacity - rehashIndex + REHASH_BUCKETS_PER_STEP - 1) / REHASH_BUCKETS_PER_STEP;
+    }
+
+    public boolean isRehashing() {
+        return oldMemory != null;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Включить сбор статистики: пробы и попадания get(), длины корзин, число и время рехеширований
+     * Включение проходит по всем корзинам, дальше гистограмма длин корзин поддерживается на ходу
+     */
+    public void enableStats() {
+        if (stats != null) {
+            return;
+        }
+        stats = new DictionaryStatsRecorder();
+        stats.recordBucketsAdded(capacity);
+        recordBucketLengths(memory, occupancy);
+        if (oldMemory != null) {
+            stats.recordBucketsAdded(oldCapacity - rehashIndex);
+            recordBucketLengths(oldMemory, oldOccupancy);
+        }
+    }
+
+    private void recordBucketLengths(List<Collection<MapEntry<K, V>>> table, long[] occupancy) {
+        for (int index = nextOccupied(occupancy, 0); index >= 0; index = nextOccupied(occupancy, index + 1)) {
+            stats.recordBucketResized(0, table.get(index).size());
+        }
+    }
+
+    /**
+     * Выключить сбор статистики, накопленные значения теряются
+     */
+    public void disableStats() {
+        stats = null;
+    }
+
+    public boolean isStatsEnabled() {
+        return stats != null;
+    }
+
+    /**
+     * Снимок статистики, его можно брать из любого потока
+     * Бросает IllegalStateException, если статистика выключена
+     */
+    public DictionaryStats getStats() {
+        var recorder = stats;
+        if (recorder == null) {
+            throw new IllegalStateException("Stats are disabled");
+        }
+        return recorder.snapshot(countOfElements, capacity, oldMemory == null ? 0 : oldCapacity);
+    }
+
+    // сколько ключей сравнил findEntry(), для дерева -- его высота в лучшем случае
+    private static <K, V> int countProbes(Collection<MapEntry<K, V>> bucket, MapEntry<K, V> found) {
+        if (bucket == null) {
+            return 0;
+        }
+        if (bucket instanceof TreeBucket) {
+            return Integer.SIZE - Integer.numberOfLeadingZeros(bucket.size());
+        }
+        int probes = 0;
+        for (var pair : bucket) {
+            probes++;
+            if (pair == found) {
+                break;
+            }
+        }
+        return probes;
     }
 
     @Override
@@ -83,173 +645,1014 @@ public class DictionaryImpl<K, V> extends AbstractMap<K, V> implements Dictionar
         return size() == 0;
     }
 
+    // поиск без изменения таблицы: get(), containsKey(), getOrDefault()
+    private MapEntry<K, V> lookup(Object key) {
+        int hash = hashFunction(key);
+        var bucket = getBucket(hash);
+        var pair = findEntry(bucket, hash, key);
+        if (stats != null) {
+            stats.recordLookup(countProbes(bucket, pair), pair != null);
+        }
+        return pair;
+    }
+
+    private void insertEntry(List<Collection<MapEntry<K, V>>> table, int index, int hash, K key, V value) {
+        countOfElements++;
+        modCount++;
+        addToBucket(table, index, new MapEntry<>(hash, key, value));
+    }
+
+    private void removeEntry(List<Collection<MapEntry<K, V>>> table, int index, MapEntry<K, V> pair) {
+        var bucket = table.get(index);
+        removeFromBucket(bucket, pair);
+        blockCountsOf(table)[index >>> 6]--;
+        countOfElements--;
+        modCount++;
+        if (stats != null) {
+            stats.recordBucketResized(bucket.size() + 1, bucket.size());
+        }
+        if (bucket.isEmpty()) {
+            markEmpty(occupancyOf(table), index);
+        }
+        if (bucket.size() <= UNTREEIFY_THRESHOLD && (bucket instanceof TreeBucket || bucket instanceof UnorderedBucket)) {
+            table.set(index, new ArrayList<>(bucket));
+        }
+    }
+
+    private void checkNotModified(int expectedModCount) {
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    /**
+     * true, если такой ключ содержится в таблице, даже если по нему лежит null
+     */
     @Override
     public boolean containsKey(Object key) {
-        return get(key) != null;
+        return lookup(key) != null;
     }
 
     @Override
     public V get(Object key) {
-        var bucket = getBucket(key);
-        for (var pair : bucket) {
-            if (pair.getKey().equals(key)) {
-                return pair.getValue();
+        var pair = lookup(key);
+        return pair == null ? null : pair.getValue();
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+        var pair = lookup(key);
+        return pair == null ? defaultValue : pair.getValue();
+    }
+
+    /*
+     * Поиск по куску чужого буфера без создания ключа: для словарей со стратегией HashingStrategy.BYTES
+     *   или HashingStrategy.CHARS, например, при разборе входа, где ключ -- часть общего буфера
+     */
+
+    /**
+     * Значение ключа, равного buffer[offset, offset + length), либо null
+     */
+    public V get(byte[] buffer, int offset, int length) {
+        var pair = lookup(buffer, offset, length);
+        return pair == null ? null : pair.getValue();
+    }
+
+    public boolean containsKey(byte[] buffer, int offset, int length) {
+        return lookup(buffer, offset, length) != null;
+    }
+
+    /**
+     * Значение ключа, посимвольно равного sequence[start, end), либо null
+     */
+    public V get(CharSequence sequence, int start, int end) {
+        var pair = lookup(sequence, start, end);
+        return pair == null ? null : pair.getValue();
+    }
+
+    public boolean containsKey(CharSequence sequence, int start, int end) {
+        return lookup(sequence, start, end) != null;
+    }
+
+    private void checkHashingStrategy(HashingStrategy<?> expected, String name) {
+        if (hashingStrategy != expected) {
+            throw new IllegalStateException("Dictionary is not keyed by HashingStrategy." + name);
+        }
+    }
+
+    // корзины со стратегией -- всегда списки, поэтому достаточно пройти список
+    private MapEntry<K, V> lookup(byte[] buffer, int offset, int length) {
+        checkHashingStrategy(HashingStrategy.BYTES, "BYTES");
+        Objects.checkFromIndexSize(offset, length, buffer.length);
+        int hash = Hashing.mix(Hashing.hashCode(buffer, offset, length));
+        var bucket = getBucket(hash);
+        MapEntry<K, V> found = null;
+        if (bucket != null) {
+            for (var pair : bucket) {
+                byte[] key = (byte[]) pair.getKey();
+                if (pair.hash == hash && Arrays.equals(key, 0, key.length, buffer, offset, offset + length)) {
+                    found = pair;
+                    break;
+                }
             }
         }
-        return null;
+        if (stats != null) {
+            stats.recordLookup(countProbes(bucket, found), found != null);
+        }
+        return found;
+    }
+
+    private MapEntry<K, V> lookup(CharSequence sequence, int start, int end) {
+        checkHashingStrategy(HashingStrategy.CHARS, "CHARS");
+        Objects.checkFromToIndex(start, end, sequence.length());
+        int hash = Hashing.mix(Hashing.hashCode(sequence, start, end));
+        var bucket = getBucket(hash);
+        MapEntry<K, V> found = null;
+        if (bucket != null) {
+            for (var pair : bucket) {
+                if (pair.hash == hash && Hashing.contentEquals((CharSequence) pair.getKey(), sequence, start, end)) {
+                    found = pair;
+                    break;
+                }
+            }
+        }
+        if (stats != null) {
+            stats.recordLookup(countProbes(bucket, found), found != null);
+        }
+        return found;
     }
 
     @Override
     public V put(K key, V value) {
         resize();
-        var bucket = getBucket(key);
-        for (var pair : bucket) {
-            if (pair.getKey().equals(key)) {
-                return pair.setValue(value);
-            }
+        rehashStep();
+        return putHashed(hashFunction(key), key, value);
+    }
+
+    // put() с уже посчитанным хешем и без проверки размера таблицы
+    private V putHashed(int hash, K key, V value) {
+        var table = getTable(hash);
+        int index = getBucketIndex(hash, table);
+        var pair = findEntry(table.get(index), hash, key);
+        if (pair != null) {
+            return pair.setValue(value);
         }
-        countOfElements++;
-        bucket.add(new MapEntry<>(key, value));
+        insertEntry(table, index, hash, key, value);
         return null;
     }
 
     @Override
     public V remove(Object key) {
+        if (memory == null) {
+            return null;
+        }
         resize();
-        var bucket = getBucket(key);
-        for (var pair : bucket) {
-            if (pair.getKey().equals(key)) {
-                V lastValue = pair.getValue();
-                bucket.remove(pair);
-                countOfElements--;
-                return lastValue;
+        rehashStep();
+        var pair = removeHashed(hashFunction(key), key);
+        return pair == null ? null : pair.getValue();
+    }
+
+    // удалённая пара, либо null
+    private MapEntry<K, V> removeHashed(int hash, Object key) {
+        var table = getTable(hash);
+        int index = getBucketIndex(hash, table);
+        var pair = findEntry(table.get(index), hash, key);
+        if (pair != null) {
+            removeEntry(table, index, pair);
+        }
+        return pair;
+    }
+
+    /*
+     * Пакетные операции: таблица меняет размер один раз на пакет, а не по ходу, хеши всего пакета
+     *   считаются заранее, и getAll() и removeAll() обходят корзины по возрастанию индекса
+     */
+
+    /**
+     * Таблица сразу растёт так, чтобы поместились все ключи m, даже если все они новые,
+     *   вместо нескольких удвоений по ходу вставки; хеши ключей из DictionaryImpl с той же стратегией не пересчитываются
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void putAll(@NotNull Map<? extends K, ? extends V> m) {
+        if (m.isEmpty() || m == this) {
+            return;
+        }
+        int newCapacity = capacityFor((int) Math.min(MAXIMUM_CAPACITY, (long) countOfElements + m.size()), loadFactor);
+        if (newCapacity > capacity) {
+            rehash(newCapacity);
+        }
+        if (memory == null) {
+            allocateTable();
+        }
+        if (m instanceof DictionaryImpl && ((DictionaryImpl<?, ?>) m).hashingStrategy == hashingStrategy) {
+            putAllHashed((DictionaryImpl<? extends K, ? extends V>) m);
+            return;
+        }
+        for (var entry : m.entrySet()) {
+            rehashStep();
+            putHashed(hashFunction(entry.getKey()), entry.getKey(), entry.getValue());
+        }
+    }
+
+    private <L extends K, W extends V> void putAllHashed(DictionaryImpl<L, W> source) {
+        source.forEachEntry(pair -> {
+            rehashStep();
+            putHashed(pair.hash, pair.getKey(), pair.getValue());
+        });
+    }
+
+    // позиции хешей в порядке возрастания индекса корзины, в младших 32 битах; старшие -- сам индекс
+    private long[] bucketOrder(int[] hashes) {
+        long[] order = new long[hashes.length];
+        for (int i = 0; i < hashes.length; i++) {
+            order[i] = (long) indexFor(hashes[i], capacity) << 32 | i;
+        }
+        Arrays.sort(order);
+        return order;
+    }
+
+    /**
+     * Положить в out[i] значение ключа keys[i], либо null, и вернуть, сколько ключей нашлось
+     */
+    public int getAll(Object[] keys, V[] out) {
+        if (out.length < keys.length) {
+            throw new IllegalArgumentException("Output array is shorter than keys: " + out.length + " < " + keys.length);
+        }
+        int[] hashes = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            hashes[i] = hashFunction(keys[i]);
+        }
+        int found = 0;
+        for (long position : bucketOrder(hashes)) {
+            int i = (int) position;
+            var bucket = getBucket(hashes[i]);
+            var pair = findEntry(bucket, hashes[i], keys[i]);
+            if (stats != null) {
+                stats.recordLookup(countProbes(bucket, pair), pair != null);
+            }
+            out[i] = pair == null ? null : pair.getValue();
+            if (pair != null) {
+                found++;
             }
         }
-        return null;
+        return found;
+    }
+
+    /**
+     * Удалить все ключи keys и вернуть, сколько из них было в словаре
+     * Таблица уменьшается один раз после всех удалений
+     */
+    public int removeAll(Collection<?> keys) {
+        if (memory == null || keys.isEmpty()) {
+            return 0;
+        }
+        Object[] array = keys.toArray();
+        int[] hashes = new int[array.length];
+        for (int i = 0; i < array.length; i++) {
+            hashes[i] = hashFunction(array[i]);
+        }
+        int removed = 0;
+        for (long position : bucketOrder(hashes)) {
+            rehashStep();
+            int i = (int) position;
+            if (removeHashed(hashes[i], array[i]) != null) {
+                removed++;
+            }
+        }
+        if (isCapacityTooLarge()) {
+            rehash(Math.max(minCapacity, capacityFor(countOfElements, loadFactor)));
+        }
+        return removed;
+    }
+
+    /**
+     * Словарь из пар entries, построенный на всех ядрах в общем ForkJoinPool: хеши ключей считаются
+     *   параллельно, затем пары раскладываются по частям таблицы из целых блоков по 64 корзины, и каждую
+     *   часть заполняет свой поток без синхронизации. Из пар с равными ключами остаётся последняя, как при put()
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> DictionaryImpl<K, V> parallelCopyOf(Collection<? extends Entry<? extends K, ? extends V>> entries) {
+        Object[] array = entries.toArray();
+        DictionaryImpl<K, V> dictionary = withExpectedSize(array.length);
+        if (array.length < PARALLEL_BUILD_THRESHOLD) {
+            for (Object entry : array) {
+                dictionary.put(((Entry<K, V>) entry).getKey(), ((Entry<K, V>) entry).getValue());
+            }
+            return dictionary;
+        }
+        dictionary.allocateTable();
+        int capacity = dictionary.capacity;
+        int[] hashes = new int[array.length];
+        IntStream.range(0, array.length).parallel()
+                .forEach(i -> hashes[i] = dictionary.hashFunction(((Entry<K, V>) array[i]).getKey()));
+        // часть -- старшие биты индекса корзины; каждая часть не меньше блока из 64 корзин,
+        //   так что слова битовой карты и счётчики блоков у частей не общие
+        int parts = Math.min(Integer.highestOneBit(4 * Runtime.getRuntime().availableProcessors()),
+                Math.max(1, capacity / Long.SIZE));
+        int partShift = Integer.numberOfTrailingZeros(capacity) - Integer.numberOfTrailingZeros(parts);
+        int[] partStart = new int[parts + 1];
+        for (int hash : hashes) {
+            partStart[(indexFor(hash, capacity) >>> partShift) + 1]++;
+        }
+        for (int part = 0; part < parts; part++) {
+            partStart[part + 1] += partStart[part];
+        }
+        // устойчивая сортировка подсчётом: внутри части пары идут в исходном порядке
+        int[] order = new int[array.length];
+        int[] next = Arrays.copyOf(partStart, parts);
+        for (int i = 0; i < array.length; i++) {
+            order[next[indexFor(hashes[i], capacity) >>> partShift]++] = i;
+        }
+        int[] counts = new int[parts];
+        IntStream.range(0, parts).parallel().forEach(part -> {
+            int count = 0;
+            for (int j = partStart[part]; j < partStart[part + 1]; j++) {
+                int i = order[j];
+                var entry = (Entry<K, V>) array[i];
+                int index = indexFor(hashes[i], capacity);
+                var pair = dictionary.findEntry(dictionary.memory.get(index), hashes[i], entry.getKey());
+                if (pair != null) {
+                    pair.setValue(entry.getValue());
+                } else {
+                    dictionary.addToBucket(dictionary.memory, index, new MapEntry<>(hashes[i], entry.getKey(), entry.getValue()));
+                    count++;
+                }
+            }
+            counts[part] = count;
+        });
+        for (int count : counts) {
+            dictionary.countOfElements += count;
+        }
+        return dictionary;
+    }
+
+    /*
+     * Методы ниже считают хеш и ищут корзину один раз, а значение меняют прямо в найденной паре
+     * Если функция, переданная в них, сама меняет словарь, бросается ConcurrentModificationException
+     */
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        resize();
+        rehashStep();
+        int hash = hashFunction(key);
+        var table = getTable(hash);
+        int index = getBucketIndex(hash, table);
+        var pair = findEntry(table.get(index), hash, key);
+        if (pair == null) {
+            insertEntry(table, index, hash, key, value);
+            return null;
+        }
+        V oldValue = pair.getValue();
+        if (oldValue == null) {
+            pair.setValue(value);
+        }
+        return oldValue;
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        Objects.requireNonNull(mappingFunction);
+        resize();
+        rehashStep();
+        int hash = hashFunction(key);
+        var table = getTable(hash);
+        int index = getBucketIndex(hash, table);
+        var pair = findEntry(table.get(index), hash, key);
+        if (pair != null && pair.getValue() != null) {
+            return pair.getValue();
+        }
+        int expectedModCount = modCount;
+        V value = mappingFunction.apply(key);
+        checkNotModified(expectedModCount);
+        if (value == null) {
+            return null;
+        }
+        if (pair != null) {
+            pair.setValue(value);
+        } else {
+            insertEntry(table, index, hash, key, value);
+        }
+        return value;
+    }
+
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(remappingFunction);
+        if (memory == null) {
+            return null;
+        }
+        resize();
+        rehashStep();
+        int hash = hashFunction(key);
+        var table = getTable(hash);
+        int index = getBucketIndex(hash, table);
+        var pair = findEntry(table.get(index), hash, key);
+        if (pair == null || pair.getValue() == null) {
+            return null;
+        }
+        int expectedModCount = modCount;
+        V value = remappingFunction.apply(key, pair.getValue());
+        checkNotModified(expectedModCount);
+        if (value == null) {
+            removeEntry(table, index, pair);
+        } else {
+            pair.setValue(value);
+        }
+        return value;
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(remappingFunction);
+        resize();
+        rehashStep();
+        int hash = hashFunction(key);
+        var table = getTable(hash);
+        int index = getBucketIndex(hash, table);
+        var pair = findEntry(table.get(index), hash, key);
+        int expectedModCount = modCount;
+        V value = remappingFunction.apply(key, pair == null ? null : pair.getValue());
+        checkNotModified(expectedModCount);
+        if (value == null) {
+            if (pair != null) {
+                removeEntry(table, index, pair);
+            }
+        } else if (pair != null) {
+            pair.setValue(value);
+        } else {
+            insertEntry(table, index, hash, key, value);
+        }
+        return value;
+    }
+
+    /**
+     * Например, счётчик: merge(key, 1, Integer::sum) -- один вызов hashCode() и один проход по корзине
+     */
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        Objects.requireNonNull(value);
+        Objects.requireNonNull(remappingFunction);
+        resize();
+        rehashStep();
+        int hash = hashFunction(key);
+        var table = getTable(hash);
+        int index = getBucketIndex(hash, table);
+        var pair = findEntry(table.get(index), hash, key);
+        if (pair == null) {
+            insertEntry(table, index, hash, key, value);
+            return value;
+        }
+        V oldValue = pair.getValue();
+        if (oldValue == null) {
+            pair.setValue(value);
+            return value;
+        }
+        int expectedModCount = modCount;
+        V newValue = remappingFunction.apply(oldValue, value);
+        checkNotModified(expectedModCount);
+        if (newValue == null) {
+            removeEntry(table, index, pair);
+        } else {
+            pair.setValue(newValue);
+        }
+        return newValue;
     }
 
     @Override
     public void clear() {
-        memory.clear();
+        // таблица остаётся той же: очищаются только непустые корзины, найденные по битовой карте,
+        //   корзины-списки остаются на месте для следующих добавлений
+        for (int index = nextOccupied(occupancy, 0); index >= 0; index = nextOccupied(occupancy, index + 1)) {
+            var bucket = memory.get(index);
+            if (bucket instanceof TreeBucket || bucket instanceof UnorderedBucket) {
+                memory.set(index, null);
+            } else {
+                bucket.clear();
+            }
+        }
+        Arrays.fill(occupancy, 0);
+        Arrays.fill(blockCounts, 0);
+        oldMemory = null;
+        oldOccupancy = null;
+        oldBlockCounts = null;
         countOfElements = 0;
-        fillMemory(memory, capacity);
+        modCount++;
+        if (stats != null) {
+            stats.resetBuckets();
+            stats.recordBucketsAdded(capacity);
+        }
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        Objects.requireNonNull(action);
+        forEachEntry(pair -> action.accept(pair.getKey(), pair.getValue()));
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        Objects.requireNonNull(function);
+        forEachEntry(pair -> pair.setValue(function.apply(pair.getKey(), pair.getValue())));
+    }
+
+    // обход непустых корзин по битовой карте, без итераторов для корзин-списков
+    private void forEachEntry(Consumer<MapEntry<K, V>> action) {
+        int expectedModCount = modCount;
+        if (oldMemory != null) {
+            forEachEntry(oldMemory, oldOccupancy, action);
+        }
+        forEachEntry(memory, occupancy, action);
+        checkNotModified(expectedModCount);
+    }
+
+    private static <K, V> void forEachEntry(List<Collection<MapEntry<K, V>>> table, long[] occupancy,
+                                            Consumer<MapEntry<K, V>> action) {
+        for (int index = nextOccupied(occupancy, 0); index >= 0; index = nextOccupied(occupancy, index + 1)) {
+            var bucket = table.get(index);
+            if (bucket instanceof TreeBucket) {
+                bucket.forEach(action);
+                continue;
+            }
+            var list = (List<MapEntry<K, V>>) bucket;
+            for (int i = 0; i < list.size(); i++) {
+                action.accept(list.get(i));
+            }
+        }
     }
 
-    private enum Type{
-        ENTRY, KEY, VALUE
+    /**
+     * Курсор для обхода без выделения памяти
+     */
+    public Cursor cursor() {
+        return new Cursor();
     }
 
-    private class MapIterator<I> implements Iterator<I> {
-        Type type;
-        Iterator<List<MapEntry<K, V>>> iteratorOfBucket;
-        Iterator<MapEntry<K, V>> iteratorInBucket;
-        boolean canBeRemoved = false;
+    /**
+     * Обход словаря: advance() переходит к следующему элементу, key(), value(), setValue() и remove()
+     *   работают с текущим. Курсор можно переиспользовать для нового обхода, вызвав reset()
+     * Пока идёт обход, словарь можно менять только через remove() этого курсора
+     * Корзины-списки обходятся по индексу, корзина-дерево копируется в массив при входе в неё
+     */
+    public final class Cursor {
+        // сначала неперенесённые корзины старой таблицы, потом новая таблица
+        private List<Collection<MapEntry<K, V>>> table;
+        private long[] bits;
+        private int[] counts;
+        private int bucketIndex;
+        private Collection<MapEntry<K, V>> bucket;
+        private Object[] treeEntries;
+        private int position;
+        private MapEntry<K, V> current;
 
-        public MapIterator(Type type) {
-            this.type = type;
-            iteratorOfBucket = memory.iterator();
-            iteratorInBucket = iteratorOfBucket.hasNext() ? iteratorOfBucket.next().iterator() : null;
+        private Cursor() {
+            reset();
         }
 
+        /**
+         * Вернуться в начало словаря
+         */
+        public void reset() {
+            table = oldMemory != null ? oldMemory : memory;
+            bits = oldMemory != null ? oldOccupancy : occupancy;
+            counts = oldMemory != null ? oldBlockCounts : blockCounts;
+            bucketIndex = -1;
+            bucket = null;
+            treeEntries = null;
+            position = -1;
+            current = null;
+        }
 
-        @Override
-        public boolean hasNext() {
-            if (iteratorInBucket == null) {
-                return false;
+        private int bucketSize() {
+            return treeEntries != null ? treeEntries.length : bucket.size();
+        }
+
+        @SuppressWarnings("unchecked")
+        private MapEntry<K, V> entryAt(int position) {
+            if (treeEntries != null) {
+                return (MapEntry<K, V>) treeEntries[position];
             }
-            if (iteratorInBucket.hasNext()) {
+            return ((List<MapEntry<K, V>>) bucket).get(position);
+        }
+
+        // есть ли элемент после текущего; курсор не сдвигается
+        boolean hasNext() {
+            if (bucket != null && position + 1 < bucketSize()) {
                 return true;
             }
-            while (iteratorOfBucket.hasNext()) {
-                iteratorInBucket = iteratorOfBucket.next().listIterator();
-                if (iteratorInBucket.hasNext()) {
-                    return true;
+            return nextOccupied(bits, bucketIndex + 1) >= 0 || (table != memory && nextOccupied(occupancy, 0) >= 0);
+        }
+
+        /**
+         * Перейти к следующему элементу; false, если элементы кончились
+         */
+        public boolean advance() {
+            if (bucket != null && position + 1 < bucketSize()) {
+                current = entryAt(++position);
+                return true;
+            }
+            int next = nextOccupied(bits, bucketIndex + 1);
+            if (next < 0 && table != memory) {
+                table = memory;
+                bits = occupancy;
+                counts = blockCounts;
+                next = nextOccupied(bits, 0);
+            }
+            if (next < 0) {
+                bucket = null;
+                current = null;
+                return false;
+            }
+            bucketIndex = next;
+            bucket = table.get(next);
+            treeEntries = bucket instanceof TreeBucket ? bucket.toArray() : null;
+            position = 0;
+            current = entryAt(position);
+            return true;
+        }
+
+        MapEntry<K, V> entry() {
+            if (current == null) {
+                throw new IllegalStateException();
+            }
+            return current;
+        }
+
+        public K key() {
+            return entry().getKey();
+        }
+
+        public V value() {
+            return entry().getValue();
+        }
+
+        /**
+         * Заменить значение текущего элемента и вернуть прежнее
+         */
+        public V setValue(V value) {
+            return entry().setValue(value);
+        }
+
+        /**
+         * Удалить текущий элемент; следующий advance() перейдёт к элементу, который шёл за ним
+         */
+        public void remove() {
+            var pair = entry();
+            if (treeEntries != null) {
+                bucket.remove(pair);
+            } else {
+                ((List<MapEntry<K, V>>) bucket).remove(position--);
+            }
+            counts[bucketIndex >>> 6]--;
+            countOfElements--;
+            modCount++;
+            if (stats != null) {
+                stats.recordBucketResized(bucket.size() + 1, bucket.size());
+            }
+            if (bucket.isEmpty()) {
+                markEmpty(bits, bucketIndex);
+            }
+            current = null;
+        }
+    }
+
+    /**
+     * Spliterator по диапазону корзин [lo, hi) одной таблицы; делится пополам по границе блока из 64 корзин
+     * Размер каждой части точно известен из blockCounts, поэтому SIZED и SUBSIZED
+     * Пока идёт постепенное рехеширование, корневой Spliterator сначала отдаёт старую таблицу, потом rest -- новую
+     */
+    private final class TableSpliterator<T> implements Spliterator<T> {
+        private final Function<MapEntry<K, V>, T> projection;
+        private final int characteristics;
+        private List<Collection<MapEntry<K, V>>> table;
+        private long[] bits;
+        private int[] counts;
+        private int lo;
+        private int hi;
+        // сколько элементов ещё не отдано в этом диапазоне, без rest
+        private long size;
+        private TableSpliterator<T> rest;
+        private final int expectedModCount;
+        // корзина, которую сейчас отдаёт tryAdvance(): её элементы и позиция в них
+        private Object[] bucketEntries;
+        private int position;
+
+        private TableSpliterator(Function<MapEntry<K, V>, T> projection, int characteristics,
+                                 List<Collection<MapEntry<K, V>>> table, long[] bits, int[] counts,
+                                 int lo, int hi, long size, TableSpliterator<T> rest) {
+            this.projection = projection;
+            this.characteristics = characteristics;
+            this.table = table;
+            this.bits = bits;
+            this.counts = counts;
+            this.lo = lo;
+            this.hi = hi;
+            this.size = size;
+            this.rest = rest;
+            this.expectedModCount = modCount;
+        }
+
+        @Override
+        public Spliterator<T> trySplit() {
+            if (bucketEntries != null) {
+                return null;
+            }
+            if (rest != null) {
+                var prefix = new TableSpliterator<>(projection, characteristics, table, bits, counts, lo, hi, size, null);
+                switchToRest();
+                return prefix;
+            }
+            int mid = ((lo + hi) >>> 1) & -Long.SIZE;
+            if (mid <= lo || size == 0) {
+                return null;
+            }
+            long prefixSize = 0;
+            for (int block = lo >>> 6; block < mid >>> 6; block++) {
+                prefixSize += counts[block];
+            }
+            var prefix = new TableSpliterator<>(projection, characteristics, table, bits, counts, lo, mid, prefixSize, null);
+            lo = mid;
+            size -= prefixSize;
+            return prefix;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super T> action) {
+            Objects.requireNonNull(action);
+            while (bucketEntries == null || position == bucketEntries.length) {
+                int index = lo < hi ? nextOccupied(bits, lo) : -1;
+                if (index < 0 || index >= hi) {
+                    lo = hi;
+                    bucketEntries = null;
+                    if (rest == null) {
+                        return false;
+                    }
+                    switchToRest();
+                    continue;
                 }
+                bucketEntries = table.get(index).toArray();
+                position = 0;
+                lo = index + 1;
             }
-            return false;
+            @SuppressWarnings("unchecked")
+            var pair = (MapEntry<K, V>) bucketEntries[position++];
+            size--;
+            action.accept(projection.apply(pair));
+            checkNotModified(expectedModCount);
+            return true;
+        }
+
+        // старая таблица кончилась или отдана при делении, дальше этот Spliterator обходит новую
+        private void switchToRest() {
+            table = rest.table;
+            bits = rest.bits;
+            counts = rest.counts;
+            lo = rest.lo;
+            hi = rest.hi;
+            size = rest.size;
+            rest = null;
         }
 
         @Override
         @SuppressWarnings("unchecked")
-        public I next() throws NoSuchElementException {
-            if (!hasNext()) {
-                canBeRemoved = false;
-                throw new NoSuchElementException();
+        public void forEachRemaining(Consumer<? super T> action) {
+            Objects.requireNonNull(action);
+            if (bucketEntries != null) {
+                while (position < bucketEntries.length) {
+                    action.accept(projection.apply((MapEntry<K, V>) bucketEntries[position++]));
+                }
+                bucketEntries = null;
             }
-            canBeRemoved = true;
-            if (type.equals(Type.ENTRY)) {
-                return (I) iteratorInBucket.next();
+            for (int index = lo < hi ? nextOccupied(bits, lo) : -1; index >= 0 && index < hi;
+                 index = nextOccupied(bits, index + 1)) {
+                var bucket = table.get(index);
+                if (bucket instanceof TreeBucket) {
+                    for (var pair : bucket) {
+                        action.accept(projection.apply(pair));
+                    }
+                    continue;
+                }
+                var list = (List<MapEntry<K, V>>) bucket;
+                for (int i = 0; i < list.size(); i++) {
+                    action.accept(projection.apply(list.get(i)));
+                }
             }
-            if (type.equals(Type.KEY)) {
-                return (I) iteratorInBucket.next().getKey();
+            lo = hi;
+            size = 0;
+            checkNotModified(expectedModCount);
+            if (rest != null) {
+                switchToRest();
+                forEachRemaining(action);
             }
-            if (type.equals(Type.VALUE)) {
-                return (I) iteratorInBucket.next().getValue();
+        }
+
+        @Override
+        public long estimateSize() {
+            return rest == null ? size : size + rest.size;
+        }
+
+        @Override
+        public int characteristics() {
+            return characteristics | Spliterator.SIZED | Spliterator.SUBSIZED;
+        }
+    }
+
+    private <T> Spliterator<T> spliterator(Function<MapEntry<K, V>, T> projection, int characteristics) {
+        var newTable = new TableSpliterator<>(projection, characteristics, memory, occupancy, blockCounts,
+                0, capacity, countOfElements, null);
+        if (oldMemory == null) {
+            return newTable;
+        }
+        long newTableSize = 0;
+        for (int count : blockCounts) {
+            newTableSize += count;
+        }
+        newTable.size = newTableSize;
+        return new TableSpliterator<>(projection, characteristics, oldMemory, oldOccupancy, oldBlockCounts,
+                rehashIndex, oldCapacity, countOfElements - newTableSize, newTable);
+    }
+
+    /*
+     * Массовые операции в духе ConcurrentHashMap: если в словаре не меньше parallelismThreshold элементов,
+     *   они выполняются параллельно в общем ForkJoinPool, иначе в текущем потоке
+     * Во время их работы словарь нельзя менять
+     */
+
+    private Stream<MapEntry<K, V>> entryStream(long parallelismThreshold) {
+        return StreamSupport.stream(spliterator(pair -> pair, Spliterator.DISTINCT | Spliterator.NONNULL),
+                countOfElements >= parallelismThreshold);
+    }
+
+    /**
+     * Вызвать action для каждой пары; порядок и поток вызова не определены
+     */
+    public void forEach(long parallelismThreshold, BiConsumer<? super K, ? super V> action) {
+        Objects.requireNonNull(action);
+        entryStream(parallelismThreshold).forEach(pair -> action.accept(pair.getKey(), pair.getValue()));
+    }
+
+    /**
+     * Какой-нибудь не-null результат searchFunction, либо null; после первого найденного обход прекращается
+     */
+    public <U> U search(long parallelismThreshold, BiFunction<? super K, ? super V, ? extends U> searchFunction) {
+        Objects.requireNonNull(searchFunction);
+        return entryStream(parallelismThreshold)
+                .<U>map(pair -> searchFunction.apply(pair.getKey(), pair.getValue()))
+                .filter(Objects::nonNull)
+                .findAny()
+                .orElse(null);
+    }
+
+    /**
+     * Свёртка всех значений, кроме null, ассоциативной функцией reducer; null, если таких значений нет
+     */
+    public V reduceValues(long parallelismThreshold, BiFunction<? super V, ? super V, ? extends V> reducer) {
+        Objects.requireNonNull(reducer);
+        return entryStream(parallelismThreshold)
+                .map(Map.Entry::getValue)
+                .filter(Objects::nonNull)
+                .reduce((first, second) -> reducer.apply(first, second))
+                .orElse(null);
+    }
+
+    /**
+     * Свёртка transformer(key, value) по всем парам; basis -- нейтральный элемент reducer
+     */
+    public long reduceToLong(long parallelismThreshold, ToLongBiFunction<? super K, ? super V> transformer,
+                             long basis, LongBinaryOperator reducer) {
+        Objects.requireNonNull(transformer);
+        Objects.requireNonNull(reducer);
+        return entryStream(parallelismThreshold)
+                .mapToLong(pair -> transformer.applyAsLong(pair.getKey(), pair.getValue()))
+                .reduce(basis, reducer);
+    }
+
+    public long reduceValuesToLong(long parallelismThreshold, ToLongFunction<? super V> transformer,
+                                   long basis, LongBinaryOperator reducer) {
+        Objects.requireNonNull(transformer);
+        return reduceToLong(parallelismThreshold, (key, value) -> transformer.applyAsLong(value), basis, reducer);
+    }
+
+    private abstract class MapIterator<I> implements Iterator<I> {
+        private final Cursor cursor = new Cursor();
+
+        abstract I project(MapEntry<K, V> pair);
+
+        @Override
+        public boolean hasNext() {
+            return cursor.hasNext();
+        }
+
+        @Override
+        public I next() throws NoSuchElementException {
+            if (!cursor.advance()) {
+                throw new NoSuchElementException();
             }
-            canBeRemoved = false;
-            throw new NoSuchElementException();
+            return project(cursor.current);
         }
 
         @Override
         public void remove() throws IllegalStateException {
-            if (!canBeRemoved) {
-                throw new IllegalStateException();
-            }
-            canBeRemoved = false;
-            if (iteratorInBucket == null) {
-                return;
-            }
-            iteratorInBucket.remove();
-            countOfElements--;
+            cursor.remove();
+        }
+    }
+
+    private final class KeyIterator extends MapIterator<K> {
+        @Override
+        K project(MapEntry<K, V> pair) {
+            return pair.getKey();
+        }
+    }
+
+    private final class ValueIterator extends MapIterator<V> {
+        @Override
+        V project(MapEntry<K, V> pair) {
+            return pair.getValue();
+        }
+    }
+
+    private final class EntryIterator extends MapIterator<Entry<K, V>> {
+        @Override
+        Entry<K, V> project(MapEntry<K, V> pair) {
+            return pair;
         }
     }
 
     @Override
     @NotNull
     public Set<K> keySet() {
-        return new AbstractSet<>() {
-            @Override
-            public @NotNull Iterator<K> iterator() {
-                return new MapIterator<>(Type.KEY);
-            }
+        if (keySetView == null) {
+            keySetView = new AbstractSet<>() {
+                @Override
+                public @NotNull Iterator<K> iterator() {
+                    return new KeyIterator();
+                }
 
-            @Override
-            public int size() {
-                return DictionaryImpl.this.size();
-            }
-        };
+                @Override
+                public boolean contains(Object o) {
+                    return containsKey(o);
+                }
+
+                @Override
+                public Spliterator<K> spliterator() {
+                    return DictionaryImpl.this.spliterator(Map.Entry::getKey, Spliterator.DISTINCT | Spliterator.NONNULL);
+                }
+
+                @Override
+                public int size() {
+                    return DictionaryImpl.this.size();
+                }
+            };
+        }
+        return keySetView;
     }
 
     @Override
     @NotNull
     public Collection<V> values() {
-        return new AbstractCollection<>() {
-            @Override
-            public @NotNull Iterator<V> iterator() {
-                return new MapIterator<>(Type.VALUE);
-            }
+        if (valuesView == null) {
+            valuesView = new AbstractCollection<>() {
+                @Override
+                public @NotNull Iterator<V> iterator() {
+                    return new ValueIterator();
+                }
 
-            @Override
-            public int size() {
-                return DictionaryImpl.this.size();
-            }
-        };
-    }
+                @Override
+                public Spliterator<V> spliterator() {
+                    return DictionaryImpl.this.spliterator(Map.Entry::getValue, 0);
+                }
 
+                @Override
+                public int size() {
+                    return DictionaryImpl.this.size();
+                }
+            };
+        }
+        return valuesView;
+    }
 
     @Override
     @NotNull
     public Set<Entry<K, V>> entrySet() {
-        return new AbstractSet<>() {
-            @Override
-            public Iterator<Map.Entry<K, V>> iterator() {
-                return new MapIterator<>(Type.ENTRY);
-            }
+        if (entrySetView == null) {
+            entrySetView = new AbstractSet<>() {
+                @Override
+                public @NotNull Iterator<Entry<K, V>> iterator() {
+                    return new EntryIterator();
+                }
 
-            @Override
-            public int size() {
-                return DictionaryImpl.this.size();
-            }
-        };
+                @Override
+                public Spliterator<Entry<K, V>> spliterator() {
+                    return DictionaryImpl.this.spliterator(pair -> pair, Spliterator.DISTINCT | Spliterator.NONNULL);
+                }
+
+                @Override
+                public int size() {
+                    return DictionaryImpl.this.size();
+                }
+            };
+        }
+        return entrySetView;
     }
 }
@@ -0,0 +1,119 @@
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Публикация статистики DictionaryImpl как MBean
+ * Каждый атрибут читается из свежего снимка, снимок берётся за время, не зависящее от размера словаря
+ */
+public class DictionaryMetrics implements DictionaryMetricsMBean {
+    public static final String DOMAIN = "dictionary";
+
+    private final DictionaryImpl<?, ?> dictionary;
+
+    public DictionaryMetrics(DictionaryImpl<?, ?> dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    /**
+     * Включить статистику у dictionary и зарегистрировать её в платформенном MBeanServer
+     *   под именем dictionary:type=Dictionary,name=name
+     * Вызывать из потока-владельца словаря
+     */
+    public static ObjectName register(String name, DictionaryImpl<?, ?> dictionary) throws JMException {
+        ObjectName objectName = objectName(name);
+        dictionary.enableStats();
+        ManagementFactory.getPlatformMBeanServer().registerMBean(new DictionaryMetrics(dictionary), objectName);
+        return objectName;
+    }
+
+    public static void unregister(String name) throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName objectName = objectName(name);
+        if (server.isRegistered(objectName)) {
+            server.unregisterMBean(objectName);
+        }
+    }
+
+    public static ObjectName objectName(String name) throws JMException {
+        return new ObjectName(DOMAIN + ":type=Dictionary,name=" + ObjectName.quote(name));
+    }
+
+    private DictionaryStats stats() {
+        return dictionary.getStats();
+    }
+
+    @Override
+    public int getSize() {
+        return stats().getSize();
+    }
+
+    @Override
+    public int getCapacity() {
+        return stats().getCapacity();
+    }
+
+    @Override
+    public double getLoadFactor() {
+        return stats().getLoadFactor();
+    }
+
+    @Override
+    public long getHits() {
+        return stats().getHits();
+    }
+
+    @Override
+    public long getMisses() {
+        return stats().getMisses();
+    }
+
+    @Override
+    public double getHitRatio() {
+        DictionaryStats stats = stats();
+        long lookups = stats.getHits() + stats.getMisses();
+        return lookups == 0 ? 0 : (double) stats.getHits() / lookups;
+    }
+
+    @Override
+    public double getMeanProbes() {
+        return stats().getMeanProbes();
+    }
+
+    @Override
+    public long[] getProbeHistogram() {
+        return stats().getProbeHistogram();
+    }
+
+    @Override
+    public long[] getBucketLengthHistogram() {
+        return stats().getBucketLengthHistogram();
+    }
+
+    @Override
+    public long getLongestBucketBound() {
+        return stats().getLongestBucketBound();
+    }
+
+    @Override
+    public long getResizeCount() {
+        return stats().getResizeCount();
+    }
+
+    @Override
+    public long getResizeTimeMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(stats().getResizeNanos());
+    }
+
+    @Override
+    public long getMaxResizePauseMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(stats().getMaxResizePauseNanos());
+    }
+
+    @Override
+    public long getEstimatedBytes() {
+        return stats().getEstimatedBytes();
+    }
+}
@@ -0,0 +1,32 @@
+/**
+ * Атрибуты DictionaryMetrics, которые видны через JMX
+ */
+public interface DictionaryMetricsMBean {
+    int getSize();
+
+    int getCapacity();
+
+    double getLoadFactor();
+
+    long getHits();
+
+    long getMisses();
+
+    double getHitRatio();
+
+    double getMeanProbes();
+
+    long[] getProbeHistogram();
+
+    long[] getBucketLengthHistogram();
+
+    long getLongestBucketBound();
+
+    long getResizeCount();
+
+    long getResizeTimeMillis();
+
+    long getMaxResizePauseMicros();
+
+    long getEstimatedBytes();
+}
@@ -0,0 +1,228 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.Map;
+
+/**
+ * Двоичный снимок словаря на диске и его загрузка через отображение файла в память
+ * Формат (все числа big-endian):
+ *   заголовок из HEADER_SIZE байт: MAGIC, VERSION, число элементов, число ячеек индекса,
+ *     смещение и длина области данных, смещение индекса;
+ *   данные: записи [длина значения, -1 для null][байты ключа][байты значения];
+ *   индекс: таблица с открытой адресацией и линейным пробированием из ячеек по SLOT_SIZE байт
+ *     [хеш байтов ключа][длина ключа, -1 для пустой ячейки][смещение записи от начала данных]
+ * Ни одна запись не пересекает границу блока из CHUNK_SIZE байт: файл отображается такими блоками,
+ *   потому что один MappedByteBuffer не длиннее 2 ГБ
+ */
+public final class DictionarySnapshot {
+    static final int MAGIC = 0x44494354;
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 40;
+    static final int SLOT_SIZE = 16;
+    static final int CHUNK_BITS = 30;
+    static final long CHUNK_SIZE = 1L << CHUNK_BITS;
+    private static final int RECORD_HEADER_SIZE = Integer.BYTES;
+    private static final int WRITE_BUFFER_SIZE = 1 << 16;
+    private static final int MAXIMUM_CAPACITY = 1 << 30;
+    // индекс заполнен не больше чем на 3/4, чтобы цепочки пробирования оставались короткими
+    private static final int MAX_LOAD_NUMERATOR = 3;
+    private static final int MAX_LOAD_DENOMINATOR = 4;
+
+    private DictionarySnapshot() {
+    }
+
+    // хеш по байтам ключа, а не hashCode(): он одинаков в любой JVM и согласован с побайтным сравнением
+    static int hash(byte[] keyBytes) {
+        return Hashing.mix(keyBytes);
+    }
+
+    /**
+     * Записать все пары map в файл path, перезаписав его
+     * size() у map должен совпадать с числом пар при обходе
+     * Ключи null не поддерживаются, значения null сохраняются
+     */
+    public static <K, V> void write(Map<? extends K, ? extends V> map, Path path,
+                                    Serializer<K> keySerializer, Serializer<V> valueSerializer) throws IOException {
+        int count = map.size();
+        long minCapacity = (long) count * MAX_LOAD_DENOMINATOR / MAX_LOAD_NUMERATOR;
+        if (minCapacity >= MAXIMUM_CAPACITY) {
+            throw new IllegalArgumentException("Too many entries for a snapshot: " + count);
+        }
+        int capacity = Integer.highestOneBit(Math.max(1, (int) minCapacity)) << 1;
+        int[] hashes = new int[count];
+        int[] keyLengths = new int[count];
+        long[] offsets = new long[count];
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ChannelWriter writer = new ChannelWriter(channel, HEADER_SIZE);
+            // пары читаются по одной, так что map может быть ленивым видом, который не держит их все в памяти
+            int i = 0;
+            for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+                if (i == count) {
+                    throw new ConcurrentModificationException();
+                }
+                byte[] keyBytes = keySerializer.toBytes(entry.getKey());
+                byte[] valueBytes = entry.getValue() == null ? null : valueSerializer.toBytes(entry.getValue());
+                long recordSize = RECORD_HEADER_SIZE + keyBytes.length + (valueBytes == null ? 0 : valueBytes.length);
+                if (recordSize > CHUNK_SIZE) {
+                    throw new IllegalArgumentException("Entry does not fit into " + CHUNK_SIZE + " bytes: " + recordSize);
+                }
+                long offset = writer.position() - HEADER_SIZE;
+                if ((offset & (CHUNK_SIZE - 1)) + recordSize > CHUNK_SIZE) {
+                    writer.pad(CHUNK_SIZE - (offset & (CHUNK_SIZE - 1)));
+                    offset = writer.position() - HEADER_SIZE;
+                }
+                hashes[i] = hash(keyBytes);
+                keyLengths[i] = keyBytes.length;
+                offsets[i] = offset;
+                writer.putInt(valueBytes == null ? -1 : valueBytes.length);
+                writer.put(keyBytes);
+                if (valueBytes != null) {
+                    writer.put(valueBytes);
+                }
+                i++;
+            }
+            if (i != count) {
+                throw new ConcurrentModificationException();
+            }
+            long dataLength = writer.position() - HEADER_SIZE;
+            long indexOffset = writer.position();
+            int[] slots = new int[capacity];
+            Arrays.fill(slots, -1);
+            for (i = 0; i < count; i++) {
+                int slot = hashes[i] & (capacity - 1);
+                while (slots[slot] >= 0) {
+                    slot = (slot + 1) & (capacity - 1);
+                }
+                slots[slot] = i;
+            }
+            for (int entry : slots) {
+                writer.putInt(entry < 0 ? 0 : hashes[entry]);
+                writer.putInt(entry < 0 ? -1 : keyLengths[entry]);
+                writer.putLong(entry < 0 ? 0 : offsets[entry]);
+            }
+            writer.flush();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE)
+                    .putInt(MAGIC)
+                    .putInt(VERSION)
+                    .putInt(count)
+                    .putInt(capacity)
+                    .putLong(HEADER_SIZE)
+                    .putLong(dataLength)
+                    .putLong(indexOffset)
+                    .flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        }
+    }
+
+    /**
+     * Отобразить снимок в память; get() читает прямо из отображения, ничего не загружая заранее
+     * Бросает IOException, если файл не снимок, обрезан или записан другой версией формата
+     */
+    public static <K, V> MappedDictionary<K, V> load(Path path, Serializer<K> keySerializer,
+                                                     Serializer<V> valueSerializer) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Not a dictionary snapshot: " + path);
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            if (header.getInt(0) != MAGIC) {
+                throw new IOException("Not a dictionary snapshot: " + path);
+            }
+            int version = header.getInt(4);
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + ": " + path);
+            }
+            int count = header.getInt(8);
+            int capacity = header.getInt(12);
+            long dataOffset = header.getLong(16);
+            long dataLength = header.getLong(24);
+            long indexOffset = header.getLong(32);
+            long indexLength = (long) capacity * SLOT_SIZE;
+            if (capacity <= 0 || Integer.bitCount(capacity) != 1 || count >= capacity
+                    || dataOffset + dataLength > indexOffset || indexOffset + indexLength > channel.size()) {
+                throw new IOException("Corrupted or truncated snapshot: " + path);
+            }
+            return new MappedDictionary<>(count, capacity, map(channel, indexOffset, indexLength),
+                    map(channel, dataOffset, dataLength), keySerializer, valueSerializer);
+        }
+    }
+
+    // отображение области файла блоками по CHUNK_SIZE байт; оно остаётся валидным после закрытия канала
+    private static MappedByteBuffer[] map(FileChannel channel, long offset, long length) throws IOException {
+        MappedByteBuffer[] chunks = new MappedByteBuffer[(int) ((length + CHUNK_SIZE - 1) >>> CHUNK_BITS)];
+        for (int i = 0; i < chunks.length; i++) {
+            long start = (long) i << CHUNK_BITS;
+            chunks[i] = channel.map(FileChannel.MapMode.READ_ONLY, offset + start, Math.min(CHUNK_SIZE, length - start));
+        }
+        return chunks;
+    }
+
+    /**
+     * Последовательная запись в канал через буфер с подсчётом позиции
+     */
+    private static final class ChannelWriter {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+        private long position;
+
+        ChannelWriter(FileChannel channel, long position) {
+            this.channel = channel;
+            this.position = position;
+        }
+
+        long position() {
+            return position + buffer.position();
+        }
+
+        void putInt(int value) throws IOException {
+            ensureRemaining(Integer.BYTES);
+            buffer.putInt(value);
+        }
+
+        void putLong(long value) throws IOException {
+            ensureRemaining(Long.BYTES);
+            buffer.putLong(value);
+        }
+
+        void put(byte[] bytes) throws IOException {
+            if (bytes.length > buffer.capacity()) {
+                flush();
+                write(ByteBuffer.wrap(bytes));
+                return;
+            }
+            ensureRemaining(bytes.length);
+            buffer.put(bytes);
+        }
+
+        void pad(long count) throws IOException {
+            flush();
+            position += count;
+        }
+
+        private void ensureRemaining(int count) throws IOException {
+            if (buffer.remaining() < count) {
+                flush();
+            }
+        }
+
+        void flush() throws IOException {
+            buffer.flip();
+            write(buffer);
+            buffer.clear();
+        }
+
+        private void write(ByteBuffer source) throws IOException {
+            while (source.hasRemaining()) {
+                position += channel.write(source, position);
+            }
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/**
+ * Снимок статистики DictionaryImpl
+ * Гистограммы логарифмические: histogram[0] -- сколько раз встретилось значение 0,
+ *   histogram[i] при i > 0 -- значения из (upperBound(i - 1), upperBound(i)], где upperBound(i) = 2^(i-1)
+ */
+public final class DictionaryStats {
+    // оценка размеров объектов для 64-битной JVM со сжатыми ссылками
+    private static final int REFERENCE_BYTES = 4;
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int ARRAY_LIST_BYTES = 24;
+    private static final int ARRAY_LIST_DEFAULT_CAPACITY = 10;
+    private static final int ENTRY_BYTES = 24;
+
+    private final int size;
+    private final int capacity;
+    private final int oldCapacity;
+    private final long hits;
+    private final long misses;
+    private final long[] probeHistogram;
+    private final long[] bucketLengthHistogram;
+    private final long resizeCount;
+    private final long resizeNanos;
+    private final long maxResizePauseNanos;
+
+    DictionaryStats(int size, int capacity, int oldCapacity, long hits, long misses,
+                    long[] probeHistogram, long[] bucketLengthHistogram,
+                    long resizeCount, long resizeNanos, long maxResizePauseNanos) {
+        this.size = size;
+        this.capacity = capacity;
+        this.oldCapacity = oldCapacity;
+        this.hits = hits;
+        this.misses = misses;
+        this.probeHistogram = probeHistogram;
+        this.bucketLengthHistogram = bucketLengthHistogram;
+        this.resizeCount = resizeCount;
+        this.resizeNanos = resizeNanos;
+        this.maxResizePauseNanos = maxResizePauseNanos;
+    }
+
+    /**
+     * Верхняя граница значений, попадающих в ячейку index гистограммы
+     */
+    public static long upperBound(int index) {
+        return index == 0 ? 0 : 1L << (index - 1);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public double getLoadFactor() {
+        return (double) size / capacity;
+    }
+
+    /**
+     * Количество успешных и неуспешных get(), getOrDefault() и containsKey() с момента включения статистики
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Сколько ключей сравнивалось при одном get(), для корзины-дерева -- оценка по её высоте
+     */
+    public long[] getProbeHistogram() {
+        return probeHistogram.clone();
+    }
+
+    public double getMeanProbes() {
+        return mean(probeHistogram);
+    }
+
+    /**
+     * Длины корзин, включая пустые и ещё не перенесённые корзины старой таблицы
+     */
+    public long[] getBucketLengthHistogram() {
+        return bucketLengthHistogram.clone();
+    }
+
+    /**
+     * Верхняя граница длины самой длинной корзины
+     */
+    public long getLongestBucketBound() {
+        for (int i = bucketLengthHistogram.length - 1; i > 0; i--) {
+            if (bucketLengthHistogram[i] > 0) {
+                return upperBound(i);
+            }
+        }
+        return 0;
+    }
+
+    public long getResizeCount() {
+        return resizeCount;
+    }
+
+    /**
+     * Суммарное время рехеширований, включая шаги постепенного рехеширования
+     */
+    public long getResizeNanos() {
+        return resizeNanos;
+    }
+
+    /**
+     * Самая долгая задержка одной операции из-за рехеширования
+     */
+    public long getMaxResizePauseNanos() {
+        return maxResizePauseNanos;
+    }
+
+    /**
+     * Приблизительный объём памяти самой таблицы и её элементов, без ключей и значений
+     */
+    public long getEstimatedBytes() {
+        long buckets = 0;
+        for (long count : bucketLengthHistogram) {
+            buckets += count;
+        }
+        long nonEmptyBuckets = buckets - bucketLengthHistogram[0];
+        long tables = (long) (ARRAY_LIST_BYTES + ARRAY_HEADER_BYTES) * (oldCapacity == 0 ? 1 : 2)
+                + (long) REFERENCE_BYTES * (capacity + oldCapacity);
+        // пустая корзина -- только ссылка в таблице, у непустой свой список
+        //   с массивом на ARRAY_LIST_DEFAULT_CAPACITY ссылок, длинные корзины редки
+        long bucketLists = nonEmptyBuckets
+                * (ARRAY_LIST_BYTES + ARRAY_HEADER_BYTES + REFERENCE_BYTES * ARRAY_LIST_DEFAULT_CAPACITY);
+        return tables + bucketLists + (long) ENTRY_BYTES * size;
+    }
+
+    // среднее по серединам ячеек гистограммы
+    private static double mean(long[] histogram) {
+        double sum = 0;
+        long count = 0;
+        for (int i = 0; i < histogram.length; i++) {
+            sum += histogram[i] * (i <= 1 ? upperBound(i) : (upperBound(i - 1) + 1 + upperBound(i)) / 2.0);
+            count += histogram[i];
+        }
+        return count == 0 ? 0 : sum / count;
+    }
+
+    @Override
+    public String toString() {
+        return "DictionaryStats{size=" + size + ", capacity=" + capacity
+                + ", loadFactor=" + getLoadFactor() + ", hits=" + hits + ", misses=" + misses
+                + ", meanProbes=" + getMeanProbes() + ", longestBucket<=" + getLongestBucketBound()
+                + ", resizeCount=" + resizeCount + ", resizeNanos=" + resizeNanos
+                + ", estimatedBytes=" + getEstimatedBytes() + "}";
+    }
+}
@@ -0,0 +1,70 @@
+import java.util.Arrays;
+
+/**
+ * Счётчики DictionaryImpl, которые обновляются на горячем пути, пока статистика включена
+ * Пишет в них только поток-владелец словаря, снимок можно брать из любого потока:
+ *   он читает обычные поля без синхронизации и может немного отставать или быть несогласованным
+ */
+final class DictionaryStatsRecorder {
+    // histogram[0] -- значение 0, histogram[i] -- значения из (2^(i-2), 2^(i-1)]
+    static final int HISTOGRAM_SIZE = 33;
+
+    private final long[] probes = new long[HISTOGRAM_SIZE];
+    private final long[] bucketLengths = new long[HISTOGRAM_SIZE];
+    private long hits;
+    private long misses;
+    private long resizeCount;
+    private long resizeNanos;
+    private long maxResizePauseNanos;
+
+    static int histogramIndex(int value) {
+        return value == 0 ? 0 : Integer.SIZE + 1 - Integer.numberOfLeadingZeros(value - 1);
+    }
+
+    void recordLookup(int probeCount, boolean hit) {
+        probes[histogramIndex(probeCount)]++;
+        if (hit) {
+            hits++;
+        } else {
+            misses++;
+        }
+    }
+
+    void recordBucketsAdded(int count) {
+        bucketLengths[0] += count;
+    }
+
+    void recordBucketRemoved(int length) {
+        bucketLengths[histogramIndex(length)]--;
+    }
+
+    void recordBucketResized(int oldLength, int newLength) {
+        int oldIndex = histogramIndex(oldLength);
+        int newIndex = histogramIndex(newLength);
+        if (oldIndex != newIndex) {
+            bucketLengths[oldIndex]--;
+            bucketLengths[newIndex]++;
+        }
+    }
+
+    void resetBuckets() {
+        Arrays.fill(bucketLengths, 0);
+    }
+
+    // начало нового рехеширования, pauseNanos -- сколько длился вызов rehash()
+    void recordResize(long pauseNanos) {
+        resizeCount++;
+        recordRehashWork(pauseNanos);
+    }
+
+    // шаг постепенного рехеширования внутри put() или remove()
+    void recordRehashWork(long pauseNanos) {
+        resizeNanos += pauseNanos;
+        maxResizePauseNanos = Math.max(maxResizePauseNanos, pauseNanos);
+    }
+
+    DictionaryStats snapshot(int size, int capacity, int oldCapacity) {
+        return new DictionaryStats(size, capacity, oldCapacity, hits, misses, probes.clone(),
+                bucketLengths.clone(), resizeCount, resizeNanos, maxResizePauseNanos);
+    }
+}
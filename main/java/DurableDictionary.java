@@ -0,0 +1,759 @@
+import org.jetbrains.annotations.NotNull;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Словарь, изменения которого переживают падение процесса
+ * Каждое изменение дописывается в журнал (write-ahead log) каталога, а put(), remove() и clear() возвращаются,
+ *   только когда запись журнала сброшена на диск через fsync
+ * Сброс общий для всех ожидающих потоков (group commit): первый ожидающий поток становится ведущим,
+ *   ждёт до commitWindow, пока допишутся записи других потоков, и сбрасывает их одним fsync;
+ *   окно 0 -- минимальная задержка, большее окно -- больше записей на один fsync
+ * Когда журнал вырастает больше compactionThresholdBytes, словарь записывается снимком DictionarySnapshot
+ *   и журнал начинается заново
+ * Файлы каталога: snapshot-N.dat -- снимок поколения N, wal-N.log -- изменения после него
+ * Запись журнала: [длина][CRC32][операция][длина ключа][ключ][длина значения, -1 для null][значение];
+ *   запись, оборванная падением или с неверной суммой, и всё после неё при открытии отбрасывается
+ * Методы потокобезопасны; обход видов, как и у DictionaryImpl, нельзя совмещать с изменениями из других потоков
+ * Изменение видно другим потокам сразу, ещё до fsync
+ */
+public class DurableDictionary<K, V> extends AbstractMap<K, V> implements Dictionary<K, V>, Closeable {
+    private static final long DEFAULT_COMMIT_WINDOW_NANOS = 0;
+    private static final long DEFAULT_COMPACTION_THRESHOLD = 64L << 20;
+    private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+    private static final byte PUT = 1;
+    private static final byte REMOVE = 2;
+    private static final byte CLEAR = 3;
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".dat";
+    private static final String LOG_PREFIX = "wal-";
+    private static final String LOG_SUFFIX = ".log";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+
+    private final Path directory;
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+    private final long commitWindowNanos;
+    private final long compactionThresholdBytes;
+    private final DictionaryImpl<K, V> dictionary;
+    private long generation;
+    private FileChannel log;
+    // записи, которые ещё не записаны в журнал; под this
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    // сколько байт журнала дописано за всё время и сколько из них уже на диске; не сбрасываются при сжатии
+    private long appendedPosition;
+    private long durablePosition;
+    private long logSize;
+    // под commitLock: идёт ли сброс журнала или сжатие, и ошибка записи, после которой словарь непригоден
+    private final Object commitLock = new Object();
+    private boolean committing;
+    private IOException failure;
+    private volatile boolean closed;
+    private long syncCount;
+    // для тестов: вызывается в точках сжатия, где падение процесса оставляет каталог в промежуточном состоянии
+    Consumer<String> crashPoint = point -> {
+    };
+
+    private DurableDictionary(Path directory, Serializer<K> keySerializer, Serializer<V> valueSerializer,
+                              long commitWindowNanos, long compactionThresholdBytes, DictionaryImpl<K, V> dictionary,
+                              long generation, FileChannel log) throws IOException {
+        this.directory = directory;
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        this.commitWindowNanos = commitWindowNanos;
+        this.compactionThresholdBytes = compactionThresholdBytes;
+        this.dictionary = dictionary;
+        this.generation = generation;
+        this.log = log;
+        logSize = log.size();
+    }
+
+    public static <K, V> DurableDictionary<K, V> open(Path directory, Serializer<K> keySerializer,
+                                                      Serializer<V> valueSerializer) throws IOException {
+        return open(directory, keySerializer, valueSerializer, DEFAULT_COMMIT_WINDOW_NANOS, TimeUnit.NANOSECONDS,
+                DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Открыть словарь в каталоге directory, восстановив его из последнего снимка и журнала после него
+     * Снимок и журнал читаются параллельно; каталог создаётся, если его нет
+     */
+    public static <K, V> DurableDictionary<K, V> open(Path directory, Serializer<K> keySerializer,
+                                                      Serializer<V> valueSerializer, long commitWindow, TimeUnit unit,
+                                                      long compactionThresholdBytes) throws IOException {
+        if (commitWindow < 0) {
+            throw new IllegalArgumentException("Commit window must be non-negative: " + commitWindow);
+        }
+        if (compactionThresholdBytes <= 0) {
+            throw new IllegalArgumentException("Compaction threshold must be positive: " + compactionThresholdBytes);
+        }
+        Files.createDirectories(directory);
+        long generation = latestSnapshotGeneration(directory);
+        Path logPath = directory.resolve(LOG_PREFIX + generation + LOG_SUFFIX);
+        CompletableFuture<LogTail<K, V>> tail = CompletableFuture.supplyAsync(() -> {
+            try {
+                return readLog(logPath, keySerializer, valueSerializer);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        DictionaryImpl<K, V> dictionary;
+        Path snapshotPath = directory.resolve(SNAPSHOT_PREFIX + generation + SNAPSHOT_SUFFIX);
+        if (Files.exists(snapshotPath)) {
+            MappedDictionary<K, V> snapshot = DictionarySnapshot.load(snapshotPath, keySerializer, valueSerializer);
+            dictionary = DictionaryImpl.withExpectedSize(snapshot.size());
+            snapshot.forEach(dictionary::put);
+        } else {
+            dictionary = new DictionaryImpl<>();
+        }
+        LogTail<K, V> records;
+        try {
+            records = tail.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw e;
+        }
+        for (LogRecord<K, V> record : records.records) {
+            switch (record.operation) {
+                case PUT:
+                    dictionary.put(record.key, record.value);
+                    break;
+                case REMOVE:
+                    dictionary.remove(record.key);
+                    break;
+                default:
+                    dictionary.clear();
+                    break;
+            }
+        }
+        FileChannel log = FileChannel.open(logPath, StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+        // оборванный падением хвост журнала отрезается, чтобы новые записи шли сразу за последней целой
+        log.truncate(records.validLength);
+        log.position(records.validLength);
+        log.force(true);
+        syncDirectory(directory);
+        deleteOtherGenerations(directory, generation);
+        return new DurableDictionary<>(directory, keySerializer, valueSerializer, unit.toNanos(commitWindow),
+                compactionThresholdBytes, dictionary, generation, log);
+    }
+
+    // --- файлы каталога ---
+
+    // поколение последнего полностью записанного снимка, 0 если снимков нет
+    private static long latestSnapshotGeneration(Path directory) throws IOException {
+        long generation = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, SNAPSHOT_PREFIX + "*" + SNAPSHOT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                try {
+                    generation = Math.max(generation, Long.parseLong(
+                            name.substring(SNAPSHOT_PREFIX.length(), name.length() - SNAPSHOT_SUFFIX.length())));
+                } catch (NumberFormatException e) {
+                    // чужой файл
+                }
+            }
+        }
+        return generation;
+    }
+
+    // удалить снимки и журналы других поколений и недописанные временные файлы
+    private static void deleteOtherGenerations(Path directory, long generation) throws IOException {
+        Set<String> current = Set.of(SNAPSHOT_PREFIX + generation + SNAPSHOT_SUFFIX, LOG_PREFIX + generation + LOG_SUFFIX);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                boolean ours = name.startsWith(SNAPSHOT_PREFIX) || name.startsWith(LOG_PREFIX);
+                if (ours && !current.contains(name)) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+    }
+
+    // fsync каталога, чтобы переименование и создание файлов тоже пережили падение; не везде поддерживается
+    private static void syncDirectory(Path directory) {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException e) {
+            // на некоторых системах каталог нельзя открыть как файл, там переименование и так атомарно
+        }
+    }
+
+    private static final class LogRecord<K, V> {
+        final byte operation;
+        final K key;
+        final V value;
+
+        LogRecord(byte operation, K key, V value) {
+            this.operation = operation;
+            this.key = key;
+            this.value = value;
+        }
+    }
+
+    private static final class LogTail<K, V> {
+        final List<LogRecord<K, V>> records;
+        // длина целой части журнала
+        final long validLength;
+
+        LogTail(List<LogRecord<K, V>> records, long validLength) {
+            this.records = records;
+            this.validLength = validLength;
+        }
+    }
+
+    // целые записи журнала по порядку; чтение останавливается на первой оборванной или испорченной
+    private static <K, V> LogTail<K, V> readLog(Path path, Serializer<K> keySerializer,
+                                                Serializer<V> valueSerializer) throws IOException {
+        List<LogRecord<K, V>> records = new ArrayList<>();
+        if (!Files.exists(path)) {
+            return new LogTail<>(records, 0);
+        }
+        long validLength = 0;
+        long fileSize = Files.size(path);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+            while (true) {
+                int length;
+                int checksum;
+                byte[] payload;
+                try {
+                    length = in.readInt();
+                    checksum = in.readInt();
+                    if (length <= 0 || length > fileSize) {
+                        break;
+                    }
+                    payload = in.readNBytes(length);
+                } catch (EOFException e) {
+                    break;
+                }
+                if (payload.length < length || checksum(payload) != checksum) {
+                    break;
+                }
+                records.add(decode(ByteBuffer.wrap(payload), keySerializer, valueSerializer));
+                validLength += RECORD_HEADER_SIZE + length;
+            }
+        }
+        return new LogTail<>(records, validLength);
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    private static <K, V> LogRecord<K, V> decode(ByteBuffer payload, Serializer<K> keySerializer,
+                                                 Serializer<V> valueSerializer) {
+        byte operation = payload.get(0);
+        if (operation == CLEAR) {
+            return new LogRecord<>(CLEAR, null, null);
+        }
+        int keyLength = payload.getInt(1);
+        K key = keySerializer.fromBytes(payload, 1 + Integer.BYTES, keyLength);
+        if (operation == REMOVE) {
+            return new LogRecord<>(REMOVE, key, null);
+        }
+        int valuePosition = 1 + Integer.BYTES + keyLength;
+        int valueLength = payload.getInt(valuePosition);
+        V value = valueLength < 0 ? null
+                : valueSerializer.fromBytes(payload, valuePosition + Integer.BYTES, valueLength);
+        return new LogRecord<>(PUT, key, value);
+    }
+
+    // --- журнал ---
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Dictionary is closed");
+        }
+        synchronized (commitLock) {
+            if (failure != null) {
+                throw new IllegalStateException("Write-ahead log failed", failure);
+            }
+        }
+    }
+
+    /**
+     * Дописать запись в буфер журнала и вернуть позицию её конца; вызывается под this
+     */
+    private long append(byte operation, byte[] keyBytes, byte[] valueBytes) {
+        int length = 1;
+        if (operation != CLEAR) {
+            length += Integer.BYTES + keyBytes.length;
+        }
+        if (operation == PUT) {
+            length += Integer.BYTES + (valueBytes == null ? 0 : valueBytes.length);
+        }
+        ByteBuffer payload = ByteBuffer.allocate(length).put(operation);
+        if (operation != CLEAR) {
+            payload.putInt(keyBytes.length).put(keyBytes);
+        }
+        if (operation == PUT) {
+            payload.putInt(valueBytes == null ? -1 : valueBytes.length);
+            if (valueBytes != null) {
+                payload.put(valueBytes);
+            }
+        }
+        byte[] record = ByteBuffer.allocate(RECORD_HEADER_SIZE + length)
+                .putInt(length)
+                .putInt(checksum(payload.array()))
+                .put(payload.array())
+                .array();
+        pending.writeBytes(record);
+        appendedPosition += record.length;
+        return appendedPosition;
+    }
+
+    // стать ведущим: дождаться, пока никто не пишет в журнал; false, если position уже на диске
+    private boolean acquireCommit(long position) {
+        synchronized (commitLock) {
+            while (true) {
+                if (failure != null) {
+                    throw new UncheckedIOException(failure);
+                }
+                if (durablePosition >= position) {
+                    return false;
+                }
+                if (!committing) {
+                    committing = true;
+                    return true;
+                }
+                try {
+                    commitLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the write-ahead log", e);
+                }
+            }
+        }
+    }
+
+    private void releaseCommit(long durable, IOException error) {
+        synchronized (commitLock) {
+            durablePosition = Math.max(durablePosition, durable);
+            if (error != null && failure == null) {
+                failure = error;
+            }
+            committing = false;
+            commitLock.notifyAll();
+        }
+    }
+
+    /**
+     * Вернуться, когда журнал до позиции position сброшен на диск
+     * Ведущий поток сбрасывает всё накопленное другими потоками к этому моменту
+     */
+    private void awaitDurable(long position) {
+        if (!acquireCommit(position)) {
+            return;
+        }
+        if (commitWindowNanos > 0) {
+            LockSupport.parkNanos(commitWindowNanos);
+        }
+        long durable = durablePosition;
+        IOException error = null;
+        try {
+            durable = flushPending();
+        } catch (IOException e) {
+            error = e;
+        } catch (RuntimeException | Error e) {
+            error = new IOException("Write-ahead log flush failed", e);
+            throw e;
+        } finally {
+            releaseCommit(durable, error);
+        }
+        if (error != null) {
+            throw new UncheckedIOException(error);
+        }
+        if (logSize >= compactionThresholdBytes) {
+            compact(false);
+        }
+    }
+
+    // записать буфер в журнал и сделать fsync; вызывает только ведущий, который освобождает журнал в finally,
+    //   так что любое исключение отсюда делает словарь непригодным, а не оставляет журнал занятым навсегда
+    private long flushPending() throws IOException {
+        byte[] batch;
+        long end;
+        synchronized (this) {
+            batch = pending.toByteArray();
+            pending.reset();
+            end = appendedPosition;
+        }
+        if (batch.length > 0) {
+            ByteBuffer buffer = ByteBuffer.wrap(batch);
+            while (buffer.hasRemaining()) {
+                log.write(buffer);
+            }
+            log.force(false);
+            logSize += batch.length;
+            syncCount++;
+        }
+        return end;
+    }
+
+    /**
+     * Записать словарь снимком и начать журнал заново; изменения на это время блокируются
+     */
+    public void compact() {
+        checkOpen();
+        compact(true);
+    }
+
+    // дождаться, пока ведущий закончит сброс, и занять журнал; ошибку записи проверяет вызывающий
+    private void acquireExclusive() {
+        synchronized (commitLock) {
+            while (committing) {
+                try {
+                    commitLock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IllegalStateException("Interrupted while waiting for the write-ahead log", e);
+                }
+            }
+            committing = true;
+        }
+    }
+
+    private void compact(boolean force) {
+        acquireExclusive();
+        synchronized (commitLock) {
+            if (failure != null || closed || !force && logSize < compactionThresholdBytes) {
+                committing = false;
+                commitLock.notifyAll();
+                if (failure != null) {
+                    throw new UncheckedIOException(failure);
+                }
+                return;
+            }
+        }
+        long durable = durablePosition;
+        IOException error = null;
+        long next = generation + 1;
+        Path temporary = directory.resolve(SNAPSHOT_PREFIX + next + SNAPSHOT_SUFFIX + TEMPORARY_SUFFIX);
+        FileChannel nextLog = null;
+        try {
+            synchronized (this) {
+                durable = flushPending();
+                Path snapshot = directory.resolve(SNAPSHOT_PREFIX + next + SNAPSHOT_SUFFIX);
+                DictionarySnapshot.write(dictionary, temporary, keySerializer, valueSerializer);
+                try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE)) {
+                    channel.force(true);
+                }
+                crashPoint.accept("snapshot-written");
+                Files.move(temporary, snapshot, StandardCopyOption.ATOMIC_MOVE);
+                syncDirectory(directory);
+                crashPoint.accept("snapshot-renamed");
+                nextLog = FileChannel.open(directory.resolve(LOG_PREFIX + next + LOG_SUFFIX),
+                        StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+                nextLog.force(true);
+                syncDirectory(directory);
+                crashPoint.accept("log-created");
+                log.close();
+                log = nextLog;
+                logSize = 0;
+                generation = next;
+                deleteOtherGenerations(directory, generation);
+                crashPoint.accept("old-generation-deleted");
+            }
+        } catch (IOException e) {
+            error = e;
+        } catch (RuntimeException | Error e) {
+            // например, ConcurrentModificationException из записи снимка: после неё на диске промежуточное
+            //   состояние, поэтому словарь непригоден так же, как после ошибки записи
+            error = new IOException("Compaction failed", e);
+            throw e;
+        } finally {
+            if (error != null) {
+                discardCompaction(temporary, nextLog);
+            }
+            releaseCommit(durable, error);
+        }
+        if (error != null) {
+            throw new UncheckedIOException(error);
+        }
+    }
+
+    // убрать недописанный снимок и незанятый журнал прерванного сжатия; восстановление их и так не возьмёт
+    private void discardCompaction(Path temporary, FileChannel nextLog) {
+        try {
+            Files.deleteIfExists(temporary);
+            if (nextLog != null && nextLog != log) {
+                nextLog.close();
+            }
+        } catch (IOException ignored) {
+            // исходная ошибка важнее
+        }
+    }
+
+    /**
+     * Сколько раз журнал сбрасывался на диск через fsync; при group commit меньше числа изменений
+     */
+    public long getSyncCount() {
+        synchronized (commitLock) {
+            return syncCount;
+        }
+    }
+
+    /**
+     * Сбросить журнал и закрыть файлы; повторный вызов ничего не делает
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        acquireExclusive();
+        long durable = durablePosition;
+        IOException error = null;
+        try {
+            if (failure == null) {
+                durable = flushPending();
+            }
+        } catch (IOException e) {
+            error = e;
+        } finally {
+            closed = true;
+            try {
+                log.close();
+            } catch (IOException e) {
+                if (error == null) {
+                    error = e;
+                }
+            }
+            releaseCommit(durable, error);
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    // --- Dictionary ---
+
+    // байты ключа, либо null, если сериализатор не принимает объекты такого класса
+    @SuppressWarnings("unchecked")
+    private byte[] keyBytes(Object key) {
+        try {
+            return keySerializer.toBytes((K) key);
+        } catch (ClassCastException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized int size() {
+        checkOpen();
+        return dictionary.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object key) {
+        checkOpen();
+        return dictionary.containsKey(key);
+    }
+
+    @Override
+    public synchronized V get(Object key) {
+        checkOpen();
+        return dictionary.get(key);
+    }
+
+    @Override
+    public V put(K key, V value) {
+        byte[] keyBytes = keySerializer.toBytes(key);
+        byte[] valueBytes = value == null ? null : valueSerializer.toBytes(value);
+        V lastValue;
+        long position;
+        synchronized (this) {
+            checkOpen();
+            lastValue = dictionary.put(key, value);
+            position = append(PUT, keyBytes, valueBytes);
+        }
+        awaitDurable(position);
+        return lastValue;
+    }
+
+    /**
+     * Все пары m сбрасываются на диск одним fsync
+     */
+    @Override
+    public void putAll(@NotNull Map<? extends K, ? extends V> m) {
+        long position;
+        synchronized (this) {
+            checkOpen();
+            for (Entry<? extends K, ? extends V> entry : m.entrySet()) {
+                byte[] keyBytes = keySerializer.toBytes(entry.getKey());
+                byte[] valueBytes = entry.getValue() == null ? null : valueSerializer.toBytes(entry.getValue());
+                dictionary.put(entry.getKey(), entry.getValue());
+                append(PUT, keyBytes, valueBytes);
+            }
+            position = appendedPosition;
+        }
+        awaitDurable(position);
+    }
+
+    @Override
+    public V remove(Object key) {
+        byte[] keyBytes = keyBytes(key);
+        if (keyBytes == null) {
+            return null;
+        }
+        V lastValue;
+        long position;
+        synchronized (this) {
+            checkOpen();
+            if (!dictionary.containsKey(key)) {
+                return null;
+            }
+            lastValue = dictionary.remove(key);
+            position = append(REMOVE, keyBytes, null);
+        }
+        awaitDurable(position);
+        return lastValue;
+    }
+
+    @Override
+    public void clear() {
+        long position;
+        synchronized (this) {
+            checkOpen();
+            if (dictionary.isEmpty()) {
+                return;
+            }
+            dictionary.clear();
+            position = append(CLEAR, null, null);
+        }
+        awaitDurable(position);
+    }
+
+    private enum Type {
+        ENTRY, KEY, VALUE
+    }
+
+    private class MapEntry extends AbstractMap.SimpleEntry<K, V> {
+        public MapEntry(K key, V value) {
+            super(key, value);
+        }
+
+        @Override
+        public V setValue(V value) {
+            super.setValue(value);
+            return put(getKey(), value);
+        }
+    }
+
+    // обход словаря в памяти; remove() итератора тоже пишется в журнал
+    private class MapIterator<I> implements Iterator<I> {
+        private final Iterator<Entry<K, V>> iterator = dictionary.entrySet().iterator();
+        private final Type type;
+        private K lastKey;
+
+        MapIterator(Type type) {
+            this.type = type;
+        }
+
+        @Override
+        public boolean hasNext() {
+            synchronized (DurableDictionary.this) {
+                checkOpen();
+                return iterator.hasNext();
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public I next() {
+            Entry<K, V> entry;
+            synchronized (DurableDictionary.this) {
+                checkOpen();
+                entry = iterator.next();
+            }
+            lastKey = entry.getKey();
+            if (type == Type.ENTRY) {
+                return (I) new MapEntry(entry.getKey(), entry.getValue());
+            }
+            return (I) (type == Type.KEY ? entry.getKey() : entry.getValue());
+        }
+
+        @Override
+        public void remove() {
+            long position;
+            synchronized (DurableDictionary.this) {
+                checkOpen();
+                iterator.remove();
+                position = append(REMOVE, keySerializer.toBytes(lastKey), null);
+            }
+            awaitDurable(position);
+        }
+    }
+
+    @Override
+    @NotNull
+    public Set<K> keySet() {
+        return new AbstractSet<>() {
+            @Override
+            public @NotNull Iterator<K> iterator() {
+                return new MapIterator<>(Type.KEY);
+            }
+
+            @Override
+            public int size() {
+                return DurableDictionary.this.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+        };
+    }
+
+    @Override
+    @NotNull
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public @NotNull Iterator<V> iterator() {
+                return new MapIterator<>(Type.VALUE);
+            }
+
+            @Override
+            public int size() {
+                return DurableDictionary.this.size();
+            }
+        };
+    }
+
+    @Override
+    @NotNull
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public @NotNull Iterator<Entry<K, V>> iterator() {
+                return new MapIterator<>(Type.ENTRY);
+            }
+
+            @Override
+            public int size() {
+                return DurableDictionary.this.size();
+            }
+        };
+    }
+}
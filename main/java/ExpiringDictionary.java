@@ -0,0 +1,570 @@
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Словарь, элементы которого истекают через заданное время (TTL) после последнего put()
+ * Истёкший элемент не возвращают get() и containsKey() и не показывает обход видов
+ * Сами истёкшие элементы удаляются иерархическим колесом таймеров: put(), get() и remove()
+ *   сдвигают колесо и разбирают не больше EXPIRE_BATCH_SIZE элементов из наступивших корзин,
+ *   поэтому одновременное истечение миллионов ключей не вызывает долгой операции
+ * size() -- верхняя оценка: он тоже разбирает не больше EXPIRE_BATCH_SIZE элементов и может учитывать
+ *   истёкшие, но ещё не удалённые; точное число за O(n) -- countLive() и size() видов keySet(), values(), entrySet()
+ * equals() сравнивает по точному числу элементов
+ * Любое изменение, в том числе удаление истёкших элементов при get(), ломает идущий обход видов:
+ *   следующий next() бросит ConcurrentModificationException
+ */
+public class ExpiringDictionary<K, V> extends AbstractMap<K, V> implements Dictionary<K, V> {
+    // элемент с таким сроком не истекает и лежит не в колесе, а в списке eternal
+    private static final long NEVER = Long.MAX_VALUE;
+    private static final int EXPIRE_BATCH_SIZE = 16;
+    // у каждого уровня колеса по WHEEL_BUCKETS корзин, корзина уровня i покрывает 2^SHIFTS[i] нс:
+    //   около 1 с, 1 мин, 1 ч и 3 суток; более дальние сроки лежат на последнем уровне
+    //   и перекладываются при каждом его обороте
+    private static final int WHEEL_BUCKETS = 64;
+    private static final int[] SHIFTS = {30, 36, 42, 48};
+
+    private final DictionaryImpl<K, Node<K, V>> index = new DictionaryImpl<>();
+    private final long defaultTtlNanos;
+    private final Ticker ticker;
+    private final NodeList<K, V>[][] wheel;
+    // элементы из наступивших корзин, которые ещё не проверены
+    private final NodeList<K, V> pending = new NodeList<>();
+    private final NodeList<K, V> eternal = new NodeList<>();
+    // время, до которого колесо уже сдвинуто
+    private long wheelNanos;
+    // меняется при каждом изменении списков: добавлении, удалении и сдвиге колеса
+    private int modCount = 0;
+
+    private static final class Node<K, V> implements Map.Entry<K, V> {
+        final K key;
+        V value;
+        long expirationTime;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, V value, long expirationTime) {
+            this.key = key;
+            this.value = value;
+            this.expirationTime = expirationTime;
+        }
+
+        boolean isExpired(long now) {
+            return expirationTime <= now;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        // срок элемента не меняется
+        @Override
+        public V setValue(V value) {
+            V previous = this.value;
+            this.value = value;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            var entry = (Map.Entry<?, ?>) o;
+            return key.equals(entry.getKey()) && Objects.equals(value, entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ Objects.hashCode(value);
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    /**
+     * Двусвязный кольцевой список со сторожем; перенос всех элементов в другой список за O(1)
+     */
+    private static final class NodeList<K, V> {
+        final Node<K, V> sentinel = new Node<>(null, null, NEVER);
+
+        NodeList() {
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+        }
+
+        boolean isEmpty() {
+            return sentinel.next == sentinel;
+        }
+
+        void addLast(Node<K, V> node) {
+            node.prev = sentinel.prev;
+            node.next = sentinel;
+            sentinel.prev.next = node;
+            sentinel.prev = node;
+        }
+
+        Node<K, V> pollFirst() {
+            if (isEmpty()) {
+                return null;
+            }
+            var node = sentinel.next;
+            unlink(node);
+            return node;
+        }
+
+        // переложить все элементы в конец other, этот список становится пустым
+        void moveAllTo(NodeList<K, V> other) {
+            if (isEmpty()) {
+                return;
+            }
+            var first = sentinel.next;
+            var last = sentinel.prev;
+            first.prev = other.sentinel.prev;
+            last.next = other.sentinel;
+            other.sentinel.prev.next = first;
+            other.sentinel.prev = last;
+            clear();
+        }
+
+        void clear() {
+            sentinel.prev = sentinel;
+            sentinel.next = sentinel;
+        }
+
+        static <K, V> void unlink(Node<K, V> node) {
+            if (node.prev == null) {
+                return;
+            }
+            node.prev.next = node.next;
+            node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+        }
+    }
+
+    public ExpiringDictionary(long defaultTtl, TimeUnit unit) {
+        this(defaultTtl, unit, Ticker.systemTicker());
+    }
+
+    /**
+     * defaultTtl -- срок элементов, положенных через put(key, value)
+     */
+    @SuppressWarnings("unchecked")
+    public ExpiringDictionary(long defaultTtl, TimeUnit unit, Ticker ticker) {
+        this.defaultTtlNanos = ttlToNanos(defaultTtl, unit);
+        this.ticker = Objects.requireNonNull(ticker);
+        wheel = (NodeList<K, V>[][]) new NodeList<?, ?>[SHIFTS.length][WHEEL_BUCKETS];
+        for (var level : wheel) {
+            for (int i = 0; i < WHEEL_BUCKETS; i++) {
+                level[i] = new NodeList<>();
+            }
+        }
+        wheelNanos = ticker.read();
+    }
+
+    private static long ttlToNanos(long ttl, TimeUnit unit) {
+        if (ttl <= 0) {
+            throw new IllegalArgumentException("TTL must be positive: " + ttl);
+        }
+        return unit.toNanos(ttl);
+    }
+
+    // срок истечения, если положить элемент сейчас; переполнение -- элемент не истекает
+    private static long expirationTime(long now, long ttlNanos) {
+        long time = now + ttlNanos;
+        return ttlNanos == NEVER || ((now ^ time) & (ttlNanos ^ time)) < 0 ? NEVER : time;
+    }
+
+    /**
+     * Положить элемент на время ttl; ttl, равный Long.MAX_VALUE наносекунд и больше, -- навсегда
+     */
+    public V put(K key, V value, long ttl, TimeUnit unit) {
+        long ttlNanos = ttlToNanos(ttl, unit);
+        long now = ticker.read();
+        expireEntries(now);
+        var node = index.get(key);
+        V previous = null;
+        if (node == null) {
+            node = new Node<>(key, value, expirationTime(now, ttlNanos));
+            index.put(key, node);
+        } else {
+            NodeList.unlink(node);
+            previous = node.isExpired(now) ? null : node.value;
+            node.value = value;
+            node.expirationTime = expirationTime(now, ttlNanos);
+        }
+        schedule(node);
+        modCount++;
+        return previous;
+    }
+
+    /**
+     * Сколько осталось жить элементу key в единицах unit, либо -1, если его нет
+     * Для элемента, положенного навсегда, -- Long.MAX_VALUE
+     */
+    public long getRemainingTtl(Object key, TimeUnit unit) {
+        long now = ticker.read();
+        var node = index.get(key);
+        if (node == null || node.isExpired(now)) {
+            return -1;
+        }
+        if (node.expirationTime == NEVER) {
+            return Long.MAX_VALUE;
+        }
+        return unit.convert(node.expirationTime - now, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Удалить все истёкшие элементы сразу; время работы пропорционально их числу
+     */
+    public void cleanUp() {
+        expireAll(ticker.read());
+    }
+
+    /**
+     * Кроме наступивших корзин, истёкшие элементы могут лежать только в текущей корзине нижнего уровня:
+     *   она уходит в pending в начале своего тика, а не истёкшие к тому моменту элементы возвращаются в неё же
+     */
+    private void expireAll(long now) {
+        advanceWheel(now);
+        drainPending(now, Integer.MAX_VALUE);
+        var bucket = wheel[0][(int) ((wheelNanos >> SHIFTS[0]) & (WHEEL_BUCKETS - 1))];
+        for (var node = bucket.sentinel.next; node != bucket.sentinel; ) {
+            var next = node.next;
+            if (node.isExpired(now)) {
+                removeNode(node);
+            }
+            node = next;
+        }
+    }
+
+    // разобрать не больше EXPIRE_BATCH_SIZE элементов из наступивших корзин
+    private void expireEntries(long now) {
+        advanceWheel(now);
+        drainPending(now, EXPIRE_BATCH_SIZE);
+    }
+
+    /**
+     * Сдвинуть колесо до now: корзины каждого уровня, тики которых прошли, целиком уходят в pending
+     * Уровень i сдвигается, только если сдвинулся тик уровня i - 1
+     */
+    private void advanceWheel(long now) {
+        long previous = wheelNanos;
+        if (now <= previous) {
+            return;
+        }
+        wheelNanos = now;
+        for (int level = 0; level < SHIFTS.length; level++) {
+            long previousTicks = previous >> SHIFTS[level];
+            long currentTicks = now >> SHIFTS[level];
+            if (currentTicks == previousTicks) {
+                break;
+            }
+            // текущая корзина тоже: в ней могут быть элементы, истёкшие с начала тика
+            int steps = (int) Math.min(currentTicks - previousTicks + 1, WHEEL_BUCKETS);
+            for (int step = 0; step < steps; step++) {
+                var bucket = wheel[level][(int) ((previousTicks + step) & (WHEEL_BUCKETS - 1))];
+                if (!bucket.isEmpty()) {
+                    bucket.moveAllTo(pending);
+                    modCount++;
+                }
+            }
+        }
+    }
+
+    // истёкшие элементы удаляются, остальные кладутся в колесо заново, уже на более мелкий уровень
+    private void drainPending(long now, int limit) {
+        for (int i = 0; i < limit; i++) {
+            var node = pending.pollFirst();
+            if (node == null) {
+                return;
+            }
+            modCount++;
+            if (node.isExpired(now)) {
+                index.remove(node.key);
+            } else {
+                schedule(node);
+            }
+        }
+    }
+
+    private void schedule(Node<K, V> node) {
+        if (node.expirationTime == NEVER) {
+            eternal.addLast(node);
+            return;
+        }
+        long duration = node.expirationTime - wheelNanos;
+        int level = 0;
+        while (level < SHIFTS.length - 1 && duration >= 1L << (SHIFTS[level + 1])) {
+            level++;
+        }
+        long ticks = Math.max(node.expirationTime, wheelNanos) >> SHIFTS[level];
+        wheel[level][(int) (ticks & (WHEEL_BUCKETS - 1))].addLast(node);
+    }
+
+    private void removeNode(Node<K, V> node) {
+        NodeList.unlink(node);
+        index.remove(node.key);
+        modCount++;
+    }
+
+    @Override
+    public int size() {
+        expireEntries(ticker.read());
+        return index.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        var node = index.get(key);
+        return node != null && !node.isExpired(ticker.read());
+    }
+
+    @Override
+    public V get(Object key) {
+        long now = ticker.read();
+        expireEntries(now);
+        var node = index.get(key);
+        if (node == null) {
+            return null;
+        }
+        if (node.isExpired(now)) {
+            removeNode(node);
+            return null;
+        }
+        return node.value;
+    }
+
+    /**
+     * Положить элемент со сроком по умолчанию
+     */
+    @Override
+    public V put(K key, V value) {
+        return put(key, value, defaultTtlNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public V remove(Object key) {
+        long now = ticker.read();
+        expireEntries(now);
+        var node = index.get(key);
+        if (node == null) {
+            return null;
+        }
+        removeNode(node);
+        return node.isExpired(now) ? null : node.value;
+    }
+
+    @Override
+    public void clear() {
+        index.clear();
+        pending.clear();
+        eternal.clear();
+        for (var level : wheel) {
+            for (var bucket : level) {
+                bucket.clear();
+            }
+        }
+        modCount++;
+    }
+
+    // как AbstractMap.equals(), но size() здесь только оценка
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof Map)) {
+            return false;
+        }
+        var map = (Map<?, ?>) o;
+        if (map.size() != countLive()) {
+            return false;
+        }
+        for (var entry : entrySet()) {
+            V value = entry.getValue();
+            if (value == null ? map.get(entry.getKey()) != null || !map.containsKey(entry.getKey())
+                    : !value.equals(map.get(entry.getKey()))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // AbstractMap.hashCode() и так обходит только неистёкшие элементы
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+    private enum Type{
+        ENTRY, KEY, VALUE
+    }
+
+    /**
+     * Точное число неистёкших элементов обходом за O(n), в отличие от size(); истёкшие элементы не удаляет
+     */
+    public int countLive() {
+        int count = 0;
+        for (var iterator = new MapIterator<>(Type.KEY); iterator.hasNext(); iterator.next()) {
+            count++;
+        }
+        return count;
+    }
+
+    // списки, в которых лежат все элементы: pending, eternal и корзины колеса
+    private NodeList<K, V> listAt(int listIndex) {
+        if (listIndex == 0) {
+            return pending;
+        }
+        if (listIndex == 1) {
+            return eternal;
+        }
+        return wheel[(listIndex - 2) / WHEEL_BUCKETS][(listIndex - 2) % WHEEL_BUCKETS];
+    }
+
+    /**
+     * Обход идёт по спискам колеса, а не по таблице index, поэтому remove() удаляет элемент
+     *   из index напрямую, не ломая обход
+     * Пропускает элементы, истёкшие к моменту создания итератора
+     * Любое изменение словаря, кроме remove() самого итератора, переставляет элементы между списками,
+     *   поэтому после него обход бросает ConcurrentModificationException
+     */
+    private class MapIterator<I> implements Iterator<I> {
+        final Type type;
+        final long now = ticker.read();
+        final int listCount = 2 + SHIFTS.length * WHEEL_BUCKETS;
+        int listIndex = -1;
+        NodeList<K, V> list;
+        Node<K, V> nextNode;
+        Node<K, V> current;
+        int expectedModCount = modCount;
+
+        MapIterator(Type type) {
+            this.type = type;
+            findNext(null);
+        }
+
+        // первый неистёкший элемент после node, либо с начала следующего списка, если node == null
+        private void findNext(Node<K, V> node) {
+            node = node == null ? null : node.next;
+            while (true) {
+                if (node == null || node == list.sentinel) {
+                    if (++listIndex == listCount) {
+                        nextNode = null;
+                        return;
+                    }
+                    list = listAt(listIndex);
+                    node = list.sentinel.next;
+                } else if (node.isExpired(now)) {
+                    node = node.next;
+                } else {
+                    nextNode = node;
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextNode != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public I next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (nextNode == null) {
+                throw new NoSuchElementException();
+            }
+            current = nextNode;
+            findNext(current);
+            if (type == Type.KEY) {
+                return (I) current.key;
+            }
+            if (type == Type.VALUE) {
+                return (I) current.value;
+            }
+            return (I) current;
+        }
+
+        @Override
+        public void remove() {
+            if (current == null) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            removeNode(current);
+            expectedModCount = modCount;
+            current = null;
+        }
+    }
+
+    @Override
+    @NotNull
+    public Set<K> keySet() {
+        return new AbstractSet<>() {
+            @Override
+            public @NotNull Iterator<K> iterator() {
+                return new MapIterator<>(Type.KEY);
+            }
+
+            @Override
+            public int size() {
+                return countLive();
+            }
+        };
+    }
+
+    @Override
+    @NotNull
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public @NotNull Iterator<V> iterator() {
+                return new MapIterator<>(Type.VALUE);
+            }
+
+            @Override
+            public int size() {
+                return countLive();
+            }
+        };
+    }
+
+    @Override
+    @NotNull
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public @NotNull Iterator<Entry<K, V>> iterator() {
+                return new MapIterator<>(Type.ENTRY);
+            }
+
+            @Override
+            public int size() {
+                return countLive();
+            }
+        };
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * Count-Min Sketch с 4-битными счётчиками: приблизительная частота обращений к ключам
+ * Каждый long хранит 16 счётчиков, ключ попадает в 4 счётчика по разным хешам, частота -- минимум из них
+ * Когда добавлений становится в SAMPLE_MULTIPLIER раз больше ширины, все счётчики делятся пополам,
+ *   поэтому старые обращения со временем забываются
+ */
+final class FrequencySketch {
+    private static final int SAMPLE_MULTIPLIER = 10;
+    private static final int MAX_COUNT = 15;
+    private static final long RESET_MASK = 0x7777_7777_7777_7777L;
+    private static final int[] SEEDS = {0x97CB3127, 0xB4C4C8B1, 0x85EBCA77, 0xC2B2AE3D};
+
+    private long[] table;
+    private int sampleSize;
+    private int additions;
+
+    FrequencySketch(int expectedSize) {
+        ensureCapacity(expectedSize);
+    }
+
+    /**
+     * Расширить таблицу под expectedSize ключей; при расширении накопленные частоты теряются
+     */
+    void ensureCapacity(int expectedSize) {
+        int width = Integer.highestOneBit(Math.max(16, Math.min(expectedSize, 1 << 26)) - 1) << 1;
+        if (table != null && table.length >= width) {
+            return;
+        }
+        table = new long[width];
+        sampleSize = SAMPLE_MULTIPLIER * width;
+        additions = 0;
+    }
+
+    int frequency(Object key) {
+        int hash = Hashing.mix(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < SEEDS.length; row++) {
+            int counter = counterIndex(hash, row);
+            frequency = Math.min(frequency, (int) (table[counter >>> 4] >>> ((counter & 15) << 2)) & MAX_COUNT);
+        }
+        return frequency;
+    }
+
+    void increment(Object key) {
+        int hash = Hashing.mix(key.hashCode());
+        boolean added = false;
+        for (int row = 0; row < SEEDS.length; row++) {
+            int counter = counterIndex(hash, row);
+            int shift = (counter & 15) << 2;
+            if (((table[counter >>> 4] >>> shift) & MAX_COUNT) < MAX_COUNT) {
+                table[counter >>> 4] += 1L << shift;
+                added = true;
+            }
+        }
+        if (added && ++additions == sampleSize) {
+            reset();
+        }
+    }
+
+    private int counterIndex(int hash, int row) {
+        int h = (hash ^ SEEDS[row]) * SEEDS[row];
+        return (h ^ (h >>> 15)) & ((table.length << 4) - 1);
+    }
+
+    private void reset() {
+        for (int i = 0; i < table.length; i++) {
+            table[i] = (table[i] >>> 1) & RESET_MASK;
+        }
+        additions /= 2;
+    }
+}
@@ -0,0 +1,319 @@
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.IntFunction;
+
+/**
+ * Неизменяемый словарь для данных, которые строятся один раз и потом только читаются
+ * Ключи, значения и хеши лежат в плоских массивах ровно по числу элементов, номер ячейки ключа
+ *   даёт минимальная совершенная хеш-функция (CHD, "hash and displace"), поэтому поиск делает ровно одну пробу
+ * Ключи, у которых hashCode() совпадает с hashCode() другого ключа, совершенная функция различить не может,
+ *   такие ключи лежат в отдельном DictionaryImpl и ищутся в нём, только если в основной ячейке не тот ключ
+ */
+public final class FrozenDictionary<K, V> extends ImmutableDictionary<K, V> {
+    // среднее число ключей в группе: чем больше, тем меньше массив смещений, но дольше построение
+    private final static int KEYS_PER_GROUP = 3;
+    private final static int MAX_SEED = 1 << 24;
+
+    private final Object[] keys;
+    private final Object[] values;
+    private final int[] hashes;
+    // для каждой группы ключей: seed >= 0, с которым ключи группы разошлись по свободным ячейкам,
+    //   либо -(slot + 1) для группы из одного ключа, положенного прямо в ячейку slot
+    private final int[] displacements;
+    // ключи с повторяющимся hashCode(), обычно null
+    private final DictionaryImpl<K, V> overflow;
+
+    private FrozenDictionary(Object[] keys, Object[] values, int[] hashes, int[] displacements,
+                             DictionaryImpl<K, V> overflow) {
+        this.keys = keys;
+        this.values = values;
+        this.hashes = hashes;
+        this.displacements = displacements;
+        this.overflow = overflow;
+    }
+
+    /**
+     * Неизменяемая копия map; построение занимает O(n) в среднем
+     * Бросает NullPointerException, если среди ключей есть null
+     */
+    @SuppressWarnings("unchecked")
+    public static <K, V> FrozenDictionary<K, V> copyOf(Map<? extends K, ? extends V> map) {
+        if (map instanceof FrozenDictionary) {
+            return (FrozenDictionary<K, V>) map;
+        }
+        Object[] entries = map.entrySet().toArray();
+        // сортировка пар (хеш, номер) ставит рядом ключи с одинаковым hashCode()
+        long[] hashAndIndex = new long[entries.length];
+        for (int i = 0; i < entries.length; i++) {
+            Object key = Objects.requireNonNull(((Entry<?, ?>) entries[i]).getKey(), "Null keys are not supported");
+            hashAndIndex[i] = (long) key.hashCode() << 32 | i;
+        }
+        Arrays.sort(hashAndIndex);
+        int count = 0;
+        DictionaryImpl<K, V> overflow = null;
+        for (int i = 0; i < hashAndIndex.length; i++) {
+            if (i > 0 && (int) (hashAndIndex[i] >>> 32) == (int) (hashAndIndex[i - 1] >>> 32)) {
+                if (overflow == null) {
+                    overflow = new DictionaryImpl<>();
+                }
+                var entry = (Entry<K, V>) entries[(int) hashAndIndex[i]];
+                overflow.put(entry.getKey(), entry.getValue());
+            } else {
+                hashAndIndex[count++] = hashAndIndex[i];
+            }
+        }
+        int[] hashes = new int[count];
+        for (int i = 0; i < count; i++) {
+            hashes[i] = (int) (hashAndIndex[i] >>> 32);
+        }
+        int[] displacements = new int[Math.max(1, (count + KEYS_PER_GROUP - 1) / KEYS_PER_GROUP)];
+        int[] slots = place(hashes, displacements);
+        Object[] keys = new Object[count];
+        Object[] values = new Object[count];
+        int[] slotHashes = new int[count];
+        for (int i = 0; i < count; i++) {
+            var entry = (Entry<?, ?>) entries[(int) hashAndIndex[i]];
+            keys[slots[i]] = entry.getKey();
+            values[slots[i]] = entry.getValue();
+            slotHashes[slots[i]] = hashes[i];
+        }
+        return new FrozenDictionary<>(keys, values, slotHashes, displacements, overflow);
+    }
+
+    private static int groupFor(int hash, int groupCount) {
+        return Hashing.reduce(Hashing.mix(hash), groupCount);
+    }
+
+    private static int slotFor(int hash, int seed, int slotCount) {
+        return Hashing.reduce((int) (Hashing.mix64((long) seed << 32 | (hash & 0xFFFFFFFFL)) >>> 32), slotCount);
+    }
+
+    /**
+     * Подобрать смещения групп так, чтобы все хеши попали в разные ячейки, и вернуть ячейку каждого хеша
+     * Группы раскладываются от больших к меньшим: большим проще найти место, пока таблица пустая,
+     *   а группы из одного ключа просто занимают оставшиеся свободные ячейки по порядку
+     */
+    private static int[] place(int[] hashes, int[] displacements) {
+        int count = hashes.length;
+        int groupCount = displacements.length;
+        // ключи, упорядоченные по группам: ключи группы g -- members[groupStart[g]..groupStart[g + 1])
+        int[] groupStart = new int[groupCount + 1];
+        for (int hash : hashes) {
+            groupStart[groupFor(hash, groupCount) + 1]++;
+        }
+        int maxGroupSize = 0;
+        for (int g = 0; g < groupCount; g++) {
+            maxGroupSize = Math.max(maxGroupSize, groupStart[g + 1]);
+            groupStart[g + 1] += groupStart[g];
+        }
+        int[] members = new int[count];
+        int[] filled = Arrays.copyOf(groupStart, groupCount);
+        for (int i = 0; i < count; i++) {
+            members[filled[groupFor(hashes[i], groupCount)]++] = i;
+        }
+        // группы, упорядоченные по убыванию размера, сортировкой подсчётом
+        int[] sizeStart = new int[maxGroupSize + 2];
+        for (int g = 0; g < groupCount; g++) {
+            sizeStart[maxGroupSize - (groupStart[g + 1] - groupStart[g]) + 1]++;
+        }
+        for (int size = 0; size <= maxGroupSize; size++) {
+            sizeStart[size + 1] += sizeStart[size];
+        }
+        int[] groupsBySize = new int[groupCount];
+        for (int g = 0; g < groupCount; g++) {
+            groupsBySize[sizeStart[maxGroupSize - (groupStart[g + 1] - groupStart[g])]++] = g;
+        }
+
+        int[] slots = new int[count];
+        boolean[] taken = new boolean[count];
+        int nextFree = 0;
+        for (int group : groupsBySize) {
+            int from = groupStart[group];
+            int to = groupStart[group + 1];
+            if (to - from == 1) {
+                while (taken[nextFree]) {
+                    nextFree++;
+                }
+                taken[nextFree] = true;
+                slots[members[from]] = nextFree;
+                displacements[group] = -(nextFree + 1);
+                continue;
+            }
+            if (to == from) {
+                continue;
+            }
+            for (int seed = 0; ; seed++) {
+                if (seed == MAX_SEED) {
+                    throw new IllegalStateException("Failed to build a perfect hash function for " + count + " keys");
+                }
+                int placed = from;
+                while (placed < to) {
+                    int slot = slotFor(hashes[members[placed]], seed, count);
+                    if (taken[slot]) {
+                        break;
+                    }
+                    taken[slot] = true;
+                    slots[members[placed]] = slot;
+                    placed++;
+                }
+                if (placed == to) {
+                    displacements[group] = seed;
+                    break;
+                }
+                for (int i = from; i < placed; i++) {
+                    taken[slots[members[i]]] = false;
+                }
+            }
+        }
+        return slots;
+    }
+
+    // ячейка ключа key в основных массивах, либо -1
+    private int slotOf(Object key) {
+        if (keys.length == 0) {
+            return -1;
+        }
+        int hash = key.hashCode();
+        int displacement = displacements[groupFor(hash, displacements.length)];
+        int slot = displacement < 0 ? -displacement - 1 : slotFor(hash, displacement, keys.length);
+        return hashes[slot] == hash && keys[slot].equals(key) ? slot : -1;
+    }
+
+    @Override
+    public int size() {
+        return overflow == null ? keys.length : keys.length + overflow.size();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return slotOf(key) >= 0 || overflow != null && overflow.containsKey(key);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        int slot = slotOf(key);
+        if (slot >= 0) {
+            return (V) values[slot];
+        }
+        return overflow == null ? null : overflow.get(key);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(Object key, V defaultValue) {
+        int slot = slotOf(key);
+        if (slot >= 0) {
+            return (V) values[slot];
+        }
+        return overflow == null ? defaultValue : overflow.getOrDefault(key, defaultValue);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        Objects.requireNonNull(action);
+        for (int slot = 0; slot < keys.length; slot++) {
+            action.accept((K) keys[slot], (V) values[slot]);
+        }
+        if (overflow != null) {
+            overflow.forEach(action);
+        }
+    }
+
+    /**
+     * Уже неизменяемый словарь возвращает сам себя
+     */
+    @Override
+    public FrozenDictionary<K, V> freeze() {
+        return this;
+    }
+
+    // сначала ячейки основных массивов по порядку, потом ключи с повторяющимися хешами
+    private final class FrozenIterator<T> implements Iterator<T> {
+        private final IntFunction<T> fromSlot;
+        private final Function<Entry<K, V>, T> fromOverflow;
+        private final Iterator<Entry<K, V>> overflowIterator =
+                overflow == null ? Collections.emptyIterator() : overflow.entrySet().iterator();
+        private int slot = 0;
+
+        private FrozenIterator(IntFunction<T> fromSlot, Function<Entry<K, V>, T> fromOverflow) {
+            this.fromSlot = fromSlot;
+            this.fromOverflow = fromOverflow;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return slot < keys.length || overflowIterator.hasNext();
+        }
+
+        @Override
+        public T next() {
+            if (slot < keys.length) {
+                return fromSlot.apply(slot++);
+            }
+            return fromOverflow.apply(overflowIterator.next());
+        }
+    }
+
+    @Override
+    @NotNull
+    @SuppressWarnings("unchecked")
+    public Set<K> keySet() {
+        return new AbstractSet<>() {
+            @Override
+            public @NotNull Iterator<K> iterator() {
+                return new FrozenIterator<>(slot -> (K) keys[slot], Entry::getKey);
+            }
+
+            @Override
+            public int size() {
+                return FrozenDictionary.this.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+        };
+    }
+
+    @Override
+    @NotNull
+    @SuppressWarnings("unchecked")
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public @NotNull Iterator<V> iterator() {
+                return new FrozenIterator<>(slot -> (V) values[slot], Entry::getValue);
+            }
+
+            @Override
+            public int size() {
+                return FrozenDictionary.this.size();
+            }
+        };
+    }
+
+    @Override
+    @NotNull
+    @SuppressWarnings("unchecked")
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public @NotNull Iterator<Entry<K, V>> iterator() {
+                return new FrozenIterator<>(
+                        slot -> new SimpleImmutableEntry<>((K) keys[slot], (V) values[slot]),
+                        entry -> new SimpleImmutableEntry<>(entry.getKey(), entry.getValue()));
+            }
+
+            @Override
+            public int size() {
+                return FrozenDictionary.this.size();
+            }
+        };
+    }
+}
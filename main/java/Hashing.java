@@ -0,0 +1,70 @@
+import java.util.Arrays;
+
+/**
+ * Перемешивание битов хеша, чтобы таблицы со степенью двойки в размере брали номер ячейки
+ *   из младших битов, не страдая от слабых hashCode()
+ */
+final class Hashing {
+    // 2^32 / золотое сечение
+    private static final int INT_PHI = 0x9E3779B9;
+
+    private Hashing() {
+    }
+
+    static int mix(int x) {
+        int h = x * INT_PHI;
+        return h ^ (h >>> 16);
+    }
+
+    static int mix(long x) {
+        return mix((int) (x ^ (x >>> 32)));
+    }
+
+    // финальное перемешивание MurmurHash3: биекция, каждый бит входа влияет на все биты выхода
+    static long mix64(long x) {
+        x = (x ^ (x >>> 33)) * 0xFF51AFD7ED558CCDL;
+        x = (x ^ (x >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return x ^ (x >>> 33);
+    }
+
+    // хеш содержимого массива: одинаков в любой JVM, в отличие от hashCode() многих ключей
+    static int mix(byte[] bytes) {
+        return mix(Arrays.hashCode(bytes));
+    }
+
+    // Arrays.hashCode() куска bytes[offset, offset + length) без копирования
+    static int hashCode(byte[] bytes, int offset, int length) {
+        int h = 1;
+        for (int i = offset; i < offset + length; i++) {
+            h = 31 * h + bytes[i];
+        }
+        return h;
+    }
+
+    // String.hashCode() куска sequence[start, end) без создания строки
+    static int hashCode(CharSequence sequence, int start, int end) {
+        int h = 0;
+        for (int i = start; i < end; i++) {
+            h = 31 * h + sequence.charAt(i);
+        }
+        return h;
+    }
+
+    // key совпадает с куском sequence[start, end) посимвольно
+    static boolean contentEquals(CharSequence key, CharSequence sequence, int start, int end) {
+        if (key.length() != end - start) {
+            return false;
+        }
+        for (int i = 0; i < key.length(); i++) {
+            if (key.charAt(i) != sequence.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // равномерно отобразить 32-битный хеш в [0, range) без деления
+    static int reduce(int hash, int range) {
+        return (int) (((hash & 0xFFFFFFFFL) * range) >>> 32);
+    }
+}
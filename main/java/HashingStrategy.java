@@ -0,0 +1,48 @@
+import java.util.Arrays;
+
+/**
+ * Хеш и равенство ключей словаря вместо hashCode() и equals() самих ключей
+ * Равные по equals() ключи должны иметь одинаковый hash()
+ * Ключ, который уже лежит в словаре, нельзя менять так, чтобы менялись его hash() и equals()
+ */
+public interface HashingStrategy<K> {
+    int hash(K key);
+
+    boolean equals(K first, K second);
+
+    /**
+     * Массивы байт сравниваются по содержимому, hash() совпадает с Arrays.hashCode()
+     * Словарь с этой стратегией ищет и по куску чужого буфера: DictionaryImpl.get(buffer, offset, length)
+     */
+    HashingStrategy<byte[]> BYTES = new HashingStrategy<>() {
+        @Override
+        public int hash(byte[] key) {
+            return Hashing.hashCode(key, 0, key.length);
+        }
+
+        @Override
+        public boolean equals(byte[] first, byte[] second) {
+            return Arrays.equals(first, second);
+        }
+    };
+
+    /**
+     * Последовательности символов сравниваются по содержимому, независимо от класса, hash() совпадает с String.hashCode()
+     * Словарь с этой стратегией ищет и по куску чужой последовательности: DictionaryImpl.get(sequence, start, end)
+     */
+    HashingStrategy<CharSequence> CHARS = new HashingStrategy<>() {
+        @Override
+        public int hash(CharSequence key) {
+            // у строки хеш уже посчитан и закеширован
+            return key instanceof String ? key.hashCode() : Hashing.hashCode(key, 0, key.length());
+        }
+
+        @Override
+        public boolean equals(CharSequence first, CharSequence second) {
+            if (first instanceof String && second instanceof String) {
+                return first.equals(second);
+            }
+            return Hashing.contentEquals(first, second, 0, second.length());
+        }
+    };
+}
@@ -0,0 +1,87 @@
+import org.jetbrains.annotations.NotNull;
+
+import java.util.AbstractMap;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Общая часть неизменяемых словарей (FrozenDictionary, MappedDictionary)
+ * Все изменяющие методы, в том числе remove() у итераторов видов, бросают UnsupportedOperationException,
+ *   даже если изменение ничего бы не поменяло
+ */
+abstract class ImmutableDictionary<K, V> extends AbstractMap<K, V> implements Dictionary<K, V> {
+    private static UnsupportedOperationException immutable() {
+        return new UnsupportedOperationException("Dictionary is immutable");
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        throw immutable();
+    }
+
+    @Override
+    public V remove(Object key) {
+        throw immutable();
+    }
+
+    @Override
+    public void putAll(@NotNull Map<? extends K, ? extends V> m) {
+        throw immutable();
+    }
+
+    @Override
+    public void clear() {
+        throw immutable();
+    }
+
+    @Override
+    public V putIfAbsent(K key, V value) {
+        throw immutable();
+    }
+
+    @Override
+    public boolean remove(Object key, Object value) {
+        throw immutable();
+    }
+
+    @Override
+    public boolean replace(K key, V oldValue, V newValue) {
+        throw immutable();
+    }
+
+    @Override
+    public V replace(K key, V value) {
+        throw immutable();
+    }
+
+    @Override
+    public void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        throw immutable();
+    }
+
+    @Override
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> mappingFunction) {
+        throw immutable();
+    }
+
+    @Override
+    public V computeIfPresent(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        throw immutable();
+    }
+
+    @Override
+    public V compute(K key, BiFunction<? super K, ? super V, ? extends V> remappingFunction) {
+        throw immutable();
+    }
+
+    @Override
+    public V merge(K key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+        throw immutable();
+    }
+}
@@ -0,0 +1,292 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Словарь из int в int без упаковки
+ * Ключи и значения лежат в двух плоских массивах, коллизии разрешаются линейным пробированием,
+ *   при удалении элементы сдвигаются назад
+ * Вместо null при отсутствии ключа возвращается defaultReturnValue()
+ * Как Dictionary (с упаковкой) словарь виден только через asDictionary()
+ * Файл сгенерирован из codegen/PrimitiveDictionary.template, правки вносятся в шаблон
+ */
+public class IntIntDictionary {
+    private int countOfElements = 0;
+    private int capacity;
+    private int mask;
+    private final double loadFactor;
+    private final static double DEFAULT_LOAD_FACTOR = 0.75;
+    private final static int INITIAL_CAPACITY = 128;
+    private final static int MAXIMUM_CAPACITY = 1 << 30;
+    // ключ 0 не отличить от пустой ячейки, поэтому он лежит отдельно, в ячейке с номером capacity
+    private int[] keys;
+    private boolean containsZeroKey;
+    private int[] values;
+    private int defaultReturnValue = 0;
+    private BoxedView boxedView;
+
+    public IntIntDictionary() {
+        this(DEFAULT_LOAD_FACTOR, INITIAL_CAPACITY);
+    }
+
+    public IntIntDictionary(int capacity) {
+        this(DEFAULT_LOAD_FACTOR, capacity);
+    }
+
+    public IntIntDictionary(double loadFactor, int capacity) {
+        if (!(loadFactor > 0 && loadFactor < 1)) {
+            throw new IllegalArgumentException("Load factor must be in (0, 1): " + loadFactor);
+        }
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must be non-negative: " + capacity);
+        }
+        this.loadFactor = loadFactor;
+        allocate(tableSizeFor(capacity));
+    }
+
+    private static int tableSizeFor(int capacity) {
+        if (capacity >= MAXIMUM_CAPACITY) {
+            return MAXIMUM_CAPACITY;
+        }
+        return Math.max(2, Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1);
+    }
+
+    private void allocate(int capacity) {
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        keys = new int[capacity + 1];
+        values = new int[capacity + 1];
+    }
+
+    private static int hashFunction(int key) {
+        return Hashing.mix(key);
+    }
+
+    private boolean isCapacityEnough() {
+        return countOfElements < (int) (capacity * loadFactor) || capacity == MAXIMUM_CAPACITY;
+    }
+
+    private void resize() {
+        if (isCapacityEnough()) {
+            return;
+        }
+        int[] oldKeys = keys;
+        int[] oldValues = values;
+        int oldCapacity = capacity;
+        allocate(capacity << 1);
+        for (int i = 0; i < oldCapacity; i++) {
+            if (oldKeys[i] != 0) {
+                int index = hashFunction(oldKeys[i]) & mask;
+                while (keys[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+        keys[capacity] = 0;
+        values[capacity] = oldValues[oldCapacity];
+    }
+
+    /**
+     * Ячейка, в которой лежит key, либо -1
+     */
+    private int findSlot(int key) {
+        if (key == 0) {
+            return containsZeroKey ? capacity : -1;
+        }
+        int index = hashFunction(key) & mask;
+        int current;
+        while ((current = keys[index]) != 0) {
+            if (current == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    // положить ключ, которого точно нет в таблице
+    private void insert(int key, int value) {
+        if (key == 0) {
+            containsZeroKey = true;
+            values[capacity] = value;
+        } else {
+            int index = hashFunction(key) & mask;
+            while (keys[index] != 0) {
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            values[index] = value;
+        }
+        countOfElements++;
+        resize();
+    }
+
+    /**
+     * Удалить элемент из ячейки slot и сдвинуть назад элементы, которые без него стали бы недостижимы
+     * Ключи элементов, переехавших через конец таблицы, складываются в wrapped, если он не null
+     */
+    private void removeAt(int slot, List<Integer> wrapped) {
+        countOfElements--;
+        if (slot == capacity) {
+            containsZeroKey = false;
+            return;
+        }
+        int last = slot;
+        int index = (slot + 1) & mask;
+        int current;
+        while ((current = keys[index]) != 0) {
+            int home = hashFunction(current) & mask;
+            // элемент можно сдвинуть в last, если его домашняя ячейка не лежит строго между last и index
+            if (last <= index ? home <= last || home > index : home <= last && home > index) {
+                if (wrapped != null && index < last) {
+                    wrapped.add(current);
+                }
+                keys[last] = current;
+                values[last] = values[index];
+                last = index;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[last] = 0;
+    }
+
+    public int size() {
+        return countOfElements;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Что возвращают get и remove, если ключа нет, по умолчанию 0
+     */
+    public int defaultReturnValue() {
+        return defaultReturnValue;
+    }
+
+    public void defaultReturnValue(int defaultReturnValue) {
+        this.defaultReturnValue = defaultReturnValue;
+    }
+
+    public boolean containsKey(int key) {
+        return findSlot(key) >= 0;
+    }
+
+    /**
+     * Значение по ключу key, либо defaultReturnValue(), если такого ключа нет
+     */
+    public int getInt(int key) {
+        int slot = findSlot(key);
+        return slot < 0 ? defaultReturnValue : values[slot];
+    }
+
+    /**
+     * Положить по ключу key значение value и вернуть ранее хранимое, либо defaultReturnValue()
+     */
+    public int put(int key, int value) {
+        int slot = findSlot(key);
+        if (slot >= 0) {
+            int lastValue = values[slot];
+            values[slot] = value;
+            return lastValue;
+        }
+        insert(key, value);
+        return defaultReturnValue;
+    }
+
+    /**
+     * Прибавить increment к значению по ключу key (отсутствующему ключу соответствует defaultReturnValue())
+     *   и вернуть прежнее значение
+     */
+    public int addTo(int key, int increment) {
+        int slot = findSlot(key);
+        if (slot >= 0) {
+            int lastValue = values[slot];
+            values[slot] += increment;
+            return lastValue;
+        }
+        insert(key, defaultReturnValue + increment);
+        return defaultReturnValue;
+    }
+
+    /**
+     * Забыть ключ key и вернуть его значение, либо defaultReturnValue(), если такого ключа не было
+     */
+    public int removeInt(int key) {
+        int slot = findSlot(key);
+        if (slot < 0) {
+            return defaultReturnValue;
+        }
+        int lastValue = values[slot];
+        removeAt(slot, null);
+        return lastValue;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0);
+        containsZeroKey = false;
+        countOfElements = 0;
+    }
+
+    /**
+     * Этот же словарь как Dictionary<Integer, Integer>: изменения видны в обе стороны
+     */
+    public Dictionary<Integer, Integer> asDictionary() {
+        if (boxedView == null) {
+            boxedView = new BoxedView();
+        }
+        return boxedView;
+    }
+
+    private class BoxedView extends BoxedDictionaryView<Integer, Integer> {
+        @Override
+        int slotCount() {
+            return capacity + 1;
+        }
+
+        @Override
+        boolean isUsed(int slot) {
+            return slot == capacity ? containsZeroKey : keys[slot] != 0;
+        }
+
+        @Override
+        Integer keyAt(int slot) {
+            return slot == capacity ? 0 : keys[slot];
+        }
+
+        @Override
+        Integer valueAt(int slot) {
+            return values[slot];
+        }
+
+        @Override
+        int slotOf(Object key) {
+            return key instanceof Integer ? findSlot((Integer) key) : -1;
+        }
+
+        @Override
+        void removeAt(int slot, List<Integer> wrapped) {
+            IntIntDictionary.this.removeAt(slot, wrapped);
+        }
+
+        @Override
+        public int size() {
+            return IntIntDictionary.this.size();
+        }
+
+        @Override
+        public Integer put(Integer key, Integer value) {
+            int slot = findSlot(key);
+            Integer lastValue = slot < 0 ? null : values[slot];
+            IntIntDictionary.this.put(key, value);
+            return lastValue;
+        }
+
+        @Override
+        public void clear() {
+            IntIntDictionary.this.clear();
+        }
+    }
+}
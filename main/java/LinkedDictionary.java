@@ -0,0 +1,379 @@
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Словарь с порядком: элементы связаны в двусвязный список в порядке вставки,
+ *   а при accessOrder == true -- в порядке обращений, и get()/put() существующего ключа переносят его в конец
+ * Поиск идёт через DictionaryImpl, а обход видов keySet(), values(), entrySet() -- по списку,
+ *   поэтому стоит O(size()), а не O(ёмкости таблицы), даже если из большой таблицы почти всё удалили
+ * Повторный put() существующего ключа в порядке вставки его место не меняет
+ * В порядке обращений get() -- изменение словаря: идущий обход после него бросит ConcurrentModificationException
+ */
+public class LinkedDictionary<K, V> extends AbstractMap<K, V> implements Dictionary<K, V> {
+    private final DictionaryImpl<K, Node<K, V>> index = new DictionaryImpl<>();
+    private final boolean accessOrder;
+    // сторож кольцевого списка: sentinel.next -- первый элемент, sentinel.prev -- последний
+    private final Node<K, V> sentinel = new Node<>(null, null);
+    private int modCount = 0;
+
+    private static final class Node<K, V> implements Map.Entry<K, V> {
+        final K key;
+        V value;
+        Node<K, V> prev;
+        Node<K, V> next;
+
+        Node(K key, V value) {
+            this.key = key;
+            this.value = value;
+        }
+
+        @Override
+        public K getKey() {
+            return key;
+        }
+
+        @Override
+        public V getValue() {
+            return value;
+        }
+
+        @Override
+        public V setValue(V value) {
+            V previous = this.value;
+            this.value = value;
+            return previous;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            var entry = (Map.Entry<?, ?>) o;
+            return Objects.equals(key, entry.getKey()) && Objects.equals(value, entry.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(key) ^ Objects.hashCode(value);
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    public LinkedDictionary() {
+        this(false);
+    }
+
+    /**
+     * accessOrder == false -- порядок вставки, true -- порядок обращений, от давних к недавним
+     */
+    public LinkedDictionary(boolean accessOrder) {
+        this.accessOrder = accessOrder;
+        sentinel.prev = sentinel;
+        sentinel.next = sentinel;
+    }
+
+    private void linkLast(Node<K, V> node) {
+        node.prev = sentinel.prev;
+        node.next = sentinel;
+        sentinel.prev.next = node;
+        sentinel.prev = node;
+    }
+
+    private void unlink(Node<K, V> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+    }
+
+    private void onAccess(Node<K, V> node) {
+        if (accessOrder && sentinel.prev != node) {
+            unlink(node);
+            linkLast(node);
+            modCount++;
+        }
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return index.isEmpty();
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return index.containsKey(key);
+    }
+
+    @Override
+    public V get(Object key) {
+        var node = index.get(key);
+        if (node == null) {
+            return null;
+        }
+        onAccess(node);
+        return node.value;
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+        var node = index.get(key);
+        if (node == null) {
+            return defaultValue;
+        }
+        onAccess(node);
+        return node.value;
+    }
+
+    @Override
+    public V put(K key, V value) {
+        var node = index.get(key);
+        if (node != null) {
+            V previous = node.value;
+            node.value = value;
+            onAccess(node);
+            return previous;
+        }
+        node = new Node<>(key, value);
+        index.put(key, node);
+        linkLast(node);
+        modCount++;
+        return null;
+    }
+
+    @Override
+    public V remove(Object key) {
+        var node = index.remove(key);
+        if (node == null) {
+            return null;
+        }
+        unlink(node);
+        modCount++;
+        return node.value;
+    }
+
+    @Override
+    public void clear() {
+        index.clear();
+        sentinel.prev = sentinel;
+        sentinel.next = sentinel;
+        modCount++;
+    }
+
+    // удалить node и вернуть копию его пары, не связанную со словарём
+    private Map.Entry<K, V> poll(Node<K, V> node) {
+        if (node == sentinel) {
+            return null;
+        }
+        index.remove(node.key);
+        unlink(node);
+        modCount++;
+        return new SimpleImmutableEntry<>(node.key, node.value);
+    }
+
+    /**
+     * Удалить и вернуть первую пару (самую старую по порядку словаря), либо null, если словарь пуст
+     */
+    public Map.Entry<K, V> pollFirst() {
+        return poll(sentinel.next);
+    }
+
+    /**
+     * Удалить и вернуть последнюю пару, либо null, если словарь пуст
+     */
+    public Map.Entry<K, V> pollLast() {
+        return poll(sentinel.prev);
+    }
+
+    /**
+     * Вид словаря с обратным порядком обхода; изменения вида и словаря видны друг в друге
+     */
+    public Dictionary<K, V> reversed() {
+        return new ReversedView();
+    }
+
+    private enum Type {
+        ENTRY, KEY, VALUE
+    }
+
+    // обход списка от первого элемента к последнему или, если descending, наоборот
+    private class MapIterator<I> implements Iterator<I> {
+        private final Type type;
+        private final boolean descending;
+        private Node<K, V> next;
+        private Node<K, V> current;
+        private int expectedModCount = modCount;
+
+        MapIterator(Type type, boolean descending) {
+            this.type = type;
+            this.descending = descending;
+            next = descending ? sentinel.prev : sentinel.next;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != sentinel;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public I next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            current = next;
+            next = descending ? current.prev : current.next;
+            if (type == Type.KEY) {
+                return (I) current.key;
+            }
+            if (type == Type.VALUE) {
+                return (I) current.value;
+            }
+            return (I) current;
+        }
+
+        @Override
+        public void remove() {
+            if (current == null) {
+                throw new IllegalStateException();
+            }
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            index.remove(current.key);
+            unlink(current);
+            modCount++;
+            expectedModCount = modCount;
+            current = null;
+        }
+    }
+
+    private Set<K> keySet(boolean descending) {
+        return new AbstractSet<>() {
+            @Override
+            public @NotNull Iterator<K> iterator() {
+                return new MapIterator<>(Type.KEY, descending);
+            }
+
+            @Override
+            public int size() {
+                return LinkedDictionary.this.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+        };
+    }
+
+    private Collection<V> values(boolean descending) {
+        return new AbstractCollection<>() {
+            @Override
+            public @NotNull Iterator<V> iterator() {
+                return new MapIterator<>(Type.VALUE, descending);
+            }
+
+            @Override
+            public int size() {
+                return LinkedDictionary.this.size();
+            }
+        };
+    }
+
+    private Set<Entry<K, V>> entrySet(boolean descending) {
+        return new AbstractSet<>() {
+            @Override
+            public @NotNull Iterator<Entry<K, V>> iterator() {
+                return new MapIterator<>(Type.ENTRY, descending);
+            }
+
+            @Override
+            public int size() {
+                return LinkedDictionary.this.size();
+            }
+        };
+    }
+
+    @Override
+    @NotNull
+    public Set<K> keySet() {
+        return keySet(false);
+    }
+
+    @Override
+    @NotNull
+    public Collection<V> values() {
+        return values(false);
+    }
+
+    @Override
+    @NotNull
+    public Set<Entry<K, V>> entrySet() {
+        return entrySet(false);
+    }
+
+    // все методы, кроме обхода, передаются словарю
+    private final class ReversedView extends AbstractMap<K, V> implements Dictionary<K, V> {
+        @Override
+        public int size() {
+            return LinkedDictionary.this.size();
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return LinkedDictionary.this.containsKey(key);
+        }
+
+        @Override
+        public V get(Object key) {
+            return LinkedDictionary.this.get(key);
+        }
+
+        @Override
+        public V put(K key, V value) {
+            return LinkedDictionary.this.put(key, value);
+        }
+
+        @Override
+        public V remove(Object key) {
+            return LinkedDictionary.this.remove(key);
+        }
+
+        @Override
+        public void clear() {
+            LinkedDictionary.this.clear();
+        }
+
+        @Override
+        @NotNull
+        public Set<K> keySet() {
+            return LinkedDictionary.this.keySet(true);
+        }
+
+        @Override
+        @NotNull
+        public Collection<V> values() {
+            return LinkedDictionary.this.values(true);
+        }
+
+        @Override
+        @NotNull
+        public Set<Entry<K, V>> entrySet() {
+            return LinkedDictionary.this.entrySet(true);
+        }
+    }
+}
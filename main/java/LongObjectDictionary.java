@@ -0,0 +1,268 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Словарь из long в объекты без упаковки ключей
+ * Ключи и значения лежат в двух плоских массивах, коллизии разрешаются линейным пробированием,
+ *   при удалении элементы сдвигаются назад
+ * Как Dictionary (с упаковкой) словарь виден только через asDictionary()
+ * Файл сгенерирован из codegen/PrimitiveDictionary.template, правки вносятся в шаблон
+ */
+public class LongObjectDictionary<V> {
+    private int countOfElements = 0;
+    private int capacity;
+    private int mask;
+    private final double loadFactor;
+    private final static double DEFAULT_LOAD_FACTOR = 0.75;
+    private final static int INITIAL_CAPACITY = 128;
+    private final static int MAXIMUM_CAPACITY = 1 << 30;
+    // ключ 0 не отличить от пустой ячейки, поэтому он лежит отдельно, в ячейке с номером capacity
+    private long[] keys;
+    private boolean containsZeroKey;
+    private Object[] values;
+    private BoxedView boxedView;
+
+    public LongObjectDictionary() {
+        this(DEFAULT_LOAD_FACTOR, INITIAL_CAPACITY);
+    }
+
+    public LongObjectDictionary(int capacity) {
+        this(DEFAULT_LOAD_FACTOR, capacity);
+    }
+
+    public LongObjectDictionary(double loadFactor, int capacity) {
+        if (!(loadFactor > 0 && loadFactor < 1)) {
+            throw new IllegalArgumentException("Load factor must be in (0, 1): " + loadFactor);
+        }
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must be non-negative: " + capacity);
+        }
+        this.loadFactor = loadFactor;
+        allocate(tableSizeFor(capacity));
+    }
+
+    private static int tableSizeFor(int capacity) {
+        if (capacity >= MAXIMUM_CAPACITY) {
+            return MAXIMUM_CAPACITY;
+        }
+        return Math.max(2, Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1);
+    }
+
+    private void allocate(int capacity) {
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        keys = new long[capacity + 1];
+        values = new Object[capacity + 1];
+    }
+
+    private static int hashFunction(long key) {
+        return Hashing.mix(key);
+    }
+
+    private boolean isCapacityEnough() {
+        return countOfElements < (int) (capacity * loadFactor) || capacity == MAXIMUM_CAPACITY;
+    }
+
+    private void resize() {
+        if (isCapacityEnough()) {
+            return;
+        }
+        long[] oldKeys = keys;
+        Object[] oldValues = values;
+        int oldCapacity = capacity;
+        allocate(capacity << 1);
+        for (int i = 0; i < oldCapacity; i++) {
+            if (oldKeys[i] != 0) {
+                int index = hashFunction(oldKeys[i]) & mask;
+                while (keys[index] != 0) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+        keys[capacity] = 0;
+        values[capacity] = oldValues[oldCapacity];
+    }
+
+    /**
+     * Ячейка, в которой лежит key, либо -1
+     */
+    private int findSlot(long key) {
+        if (key == 0) {
+            return containsZeroKey ? capacity : -1;
+        }
+        int index = hashFunction(key) & mask;
+        long current;
+        while ((current = keys[index]) != 0) {
+            if (current == key) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    // положить ключ, которого точно нет в таблице
+    private void insert(long key, V value) {
+        if (key == 0) {
+            containsZeroKey = true;
+            values[capacity] = value;
+        } else {
+            int index = hashFunction(key) & mask;
+            while (keys[index] != 0) {
+                index = (index + 1) & mask;
+            }
+            keys[index] = key;
+            values[index] = value;
+        }
+        countOfElements++;
+        resize();
+    }
+
+    /**
+     * Удалить элемент из ячейки slot и сдвинуть назад элементы, которые без него стали бы недостижимы
+     * Ключи элементов, переехавших через конец таблицы, складываются в wrapped, если он не null
+     */
+    private void removeAt(int slot, List<Long> wrapped) {
+        countOfElements--;
+        if (slot == capacity) {
+            containsZeroKey = false;
+            values[capacity] = null;
+            return;
+        }
+        int last = slot;
+        int index = (slot + 1) & mask;
+        long current;
+        while ((current = keys[index]) != 0) {
+            int home = hashFunction(current) & mask;
+            // элемент можно сдвинуть в last, если его домашняя ячейка не лежит строго между last и index
+            if (last <= index ? home <= last || home > index : home <= last && home > index) {
+                if (wrapped != null && index < last) {
+                    wrapped.add(current);
+                }
+                keys[last] = current;
+                values[last] = values[index];
+                last = index;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[last] = 0;
+        values[last] = null;
+    }
+
+    public int size() {
+        return countOfElements;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public boolean containsKey(long key) {
+        return findSlot(key) >= 0;
+    }
+
+    /**
+     * Значение по ключу key, либо null, если такого ключа нет
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        int slot = findSlot(key);
+        return slot < 0 ? null : (V) values[slot];
+    }
+
+    /**
+     * Положить по ключу key значение value и вернуть ранее хранимое, либо null
+     */
+    @SuppressWarnings("unchecked")
+    public V put(long key, V value) {
+        int slot = findSlot(key);
+        if (slot >= 0) {
+            V lastValue = (V) values[slot];
+            values[slot] = value;
+            return lastValue;
+        }
+        insert(key, value);
+        return null;
+    }
+
+    /**
+     * Забыть ключ key и вернуть его значение, либо null, если такого ключа не было
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(long key) {
+        int slot = findSlot(key);
+        if (slot < 0) {
+            return null;
+        }
+        V lastValue = (V) values[slot];
+        removeAt(slot, null);
+        return lastValue;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, 0L);
+        Arrays.fill(values, null);
+        containsZeroKey = false;
+        countOfElements = 0;
+    }
+
+    /**
+     * Этот же словарь как Dictionary<Long, V>: изменения видны в обе стороны
+     */
+    public Dictionary<Long, V> asDictionary() {
+        if (boxedView == null) {
+            boxedView = new BoxedView();
+        }
+        return boxedView;
+    }
+
+    private class BoxedView extends BoxedDictionaryView<Long, V> {
+        @Override
+        int slotCount() {
+            return capacity + 1;
+        }
+
+        @Override
+        boolean isUsed(int slot) {
+            return slot == capacity ? containsZeroKey : keys[slot] != 0;
+        }
+
+        @Override
+        Long keyAt(int slot) {
+            return slot == capacity ? 0L : keys[slot];
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        V valueAt(int slot) {
+            return (V) values[slot];
+        }
+
+        @Override
+        int slotOf(Object key) {
+            return key instanceof Long ? findSlot((Long) key) : -1;
+        }
+
+        @Override
+        void removeAt(int slot, List<Long> wrapped) {
+            LongObjectDictionary.this.removeAt(slot, wrapped);
+        }
+
+        @Override
+        public int size() {
+            return LongObjectDictionary.this.size();
+        }
+
+        @Override
+        public V put(Long key, V value) {
+            return LongObjectDictionary.this.put(key, value);
+        }
+
+        @Override
+        public void clear() {
+            LongObjectDictionary.this.clear();
+        }
+    }
+}
@@ -0,0 +1,217 @@
+import org.jetbrains.annotations.NotNull;
+
+import java.nio.ByteBuffer;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.function.IntFunction;
+
+/**
+ * Неизменяемый словарь, который читает снимок DictionarySnapshot прямо из отображённого в память файла
+ * get() сериализует искомый ключ, находит его ячейку в индексе и сравнивает байты ключа в файле,
+ *   десериализуется только найденное значение; страницы файла подгружает операционная система по мере обращений
+ * Читать словарь можно из нескольких потоков одновременно
+ */
+public final class MappedDictionary<K, V> extends ImmutableDictionary<K, V> {
+    private final int countOfElements;
+    private final int capacity;
+    private final ByteBuffer[] index;
+    private final ByteBuffer[] data;
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+
+    MappedDictionary(int countOfElements, int capacity, ByteBuffer[] index, ByteBuffer[] data,
+                     Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        this.countOfElements = countOfElements;
+        this.capacity = capacity;
+        this.index = index;
+        this.data = data;
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+    }
+
+    private ByteBuffer indexChunk(int slot) {
+        return index[(int) (((long) slot * DictionarySnapshot.SLOT_SIZE) >>> DictionarySnapshot.CHUNK_BITS)];
+    }
+
+    private static int offsetInChunk(long position) {
+        return (int) (position & (DictionarySnapshot.CHUNK_SIZE - 1));
+    }
+
+    private int keyLengthAt(int slot) {
+        return indexChunk(slot).getInt(offsetInChunk((long) slot * DictionarySnapshot.SLOT_SIZE) + Integer.BYTES);
+    }
+
+    private long recordOffsetAt(int slot) {
+        return indexChunk(slot).getLong(offsetInChunk((long) slot * DictionarySnapshot.SLOT_SIZE) + 2 * Integer.BYTES);
+    }
+
+    // ячейка индекса с ключом key, либо -1
+    @SuppressWarnings("unchecked")
+    private int slotOf(Object key) {
+        byte[] keyBytes;
+        try {
+            keyBytes = keySerializer.toBytes((K) key);
+        } catch (ClassCastException e) {
+            return -1;
+        }
+        int hash = DictionarySnapshot.hash(keyBytes);
+        for (int slot = hash & (capacity - 1); ; slot = (slot + 1) & (capacity - 1)) {
+            ByteBuffer chunk = indexChunk(slot);
+            int position = offsetInChunk((long) slot * DictionarySnapshot.SLOT_SIZE);
+            int keyLength = chunk.getInt(position + Integer.BYTES);
+            if (keyLength < 0) {
+                return -1;
+            }
+            if (chunk.getInt(position) == hash && keyLength == keyBytes.length
+                    && keyEquals(chunk.getLong(position + 2 * Integer.BYTES), keyBytes)) {
+                return slot;
+            }
+        }
+    }
+
+    private boolean keyEquals(long recordOffset, byte[] keyBytes) {
+        ByteBuffer chunk = data[(int) (recordOffset >>> DictionarySnapshot.CHUNK_BITS)];
+        int position = offsetInChunk(recordOffset) + Integer.BYTES;
+        for (int i = 0; i < keyBytes.length; i++) {
+            if (chunk.get(position + i) != keyBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private K keyAt(int slot) {
+        long recordOffset = recordOffsetAt(slot);
+        return keySerializer.fromBytes(data[(int) (recordOffset >>> DictionarySnapshot.CHUNK_BITS)],
+                offsetInChunk(recordOffset) + Integer.BYTES, keyLengthAt(slot));
+    }
+
+    // значение из ячейки slot, null хранится как длина -1
+    private V valueAt(int slot) {
+        long recordOffset = recordOffsetAt(slot);
+        ByteBuffer chunk = data[(int) (recordOffset >>> DictionarySnapshot.CHUNK_BITS)];
+        int position = offsetInChunk(recordOffset);
+        int valueLength = chunk.getInt(position);
+        if (valueLength < 0) {
+            return null;
+        }
+        return valueSerializer.fromBytes(chunk, position + Integer.BYTES + keyLengthAt(slot), valueLength);
+    }
+
+    @Override
+    public int size() {
+        return countOfElements;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return slotOf(key) >= 0;
+    }
+
+    @Override
+    public V get(Object key) {
+        int slot = slotOf(key);
+        return slot < 0 ? null : valueAt(slot);
+    }
+
+    @Override
+    public V getOrDefault(Object key, V defaultValue) {
+        int slot = slotOf(key);
+        return slot < 0 ? defaultValue : valueAt(slot);
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        Objects.requireNonNull(action);
+        for (int slot = 0; slot < capacity; slot++) {
+            if (keyLengthAt(slot) >= 0) {
+                action.accept(keyAt(slot), valueAt(slot));
+            }
+        }
+    }
+
+    // ячейки индекса по порядку, пустые пропускаются
+    private final class SlotIterator<T> implements Iterator<T> {
+        private final IntFunction<T> fromSlot;
+        private int slot = -1;
+
+        private SlotIterator(IntFunction<T> fromSlot) {
+            this.fromSlot = fromSlot;
+            advance();
+        }
+
+        private void advance() {
+            do {
+                slot++;
+            } while (slot < capacity && keyLengthAt(slot) < 0);
+        }
+
+        @Override
+        public boolean hasNext() {
+            return slot < capacity;
+        }
+
+        @Override
+        public T next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            T result = fromSlot.apply(slot);
+            advance();
+            return result;
+        }
+    }
+
+    @Override
+    @NotNull
+    public Set<K> keySet() {
+        return new AbstractSet<>() {
+            @Override
+            public @NotNull Iterator<K> iterator() {
+                return new SlotIterator<>(MappedDictionary.this::keyAt);
+            }
+
+            @Override
+            public int size() {
+                return MappedDictionary.this.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+        };
+    }
+
+    @Override
+    @NotNull
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public @NotNull Iterator<V> iterator() {
+                return new SlotIterator<>(MappedDictionary.this::valueAt);
+            }
+
+            @Override
+            public int size() {
+                return MappedDictionary.this.size();
+            }
+        };
+    }
+
+    @Override
+    @NotNull
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public @NotNull Iterator<Entry<K, V>> iterator() {
+                return new SlotIterator<>(slot -> new SimpleImmutableEntry<>(keyAt(slot), valueAt(slot)));
+            }
+
+            @Override
+            public int size() {
+                return MappedDictionary.this.size();
+            }
+        };
+    }
+}
@@ -0,0 +1,277 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Словарь из объектов в int без упаковки значений
+ * Ключи и значения лежат в двух плоских массивах, коллизии разрешаются линейным пробированием,
+ *   при удалении элементы сдвигаются назад
+ * Вместо null при отсутствии ключа возвращается defaultReturnValue()
+ * Как Dictionary (с упаковкой) словарь виден только через asDictionary()
+ * Файл сгенерирован из codegen/PrimitiveDictionary.template, правки вносятся в шаблон
+ */
+public class ObjectIntDictionary<K> {
+    private int countOfElements = 0;
+    private int capacity;
+    private int mask;
+    private final double loadFactor;
+    private final static double DEFAULT_LOAD_FACTOR = 0.75;
+    private final static int INITIAL_CAPACITY = 128;
+    private final static int MAXIMUM_CAPACITY = 1 << 30;
+    private Object[] keys;
+    private int[] values;
+    private int defaultReturnValue = 0;
+    private BoxedView boxedView;
+
+    public ObjectIntDictionary() {
+        this(DEFAULT_LOAD_FACTOR, INITIAL_CAPACITY);
+    }
+
+    public ObjectIntDictionary(int capacity) {
+        this(DEFAULT_LOAD_FACTOR, capacity);
+    }
+
+    public ObjectIntDictionary(double loadFactor, int capacity) {
+        if (!(loadFactor > 0 && loadFactor < 1)) {
+            throw new IllegalArgumentException("Load factor must be in (0, 1): " + loadFactor);
+        }
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must be non-negative: " + capacity);
+        }
+        this.loadFactor = loadFactor;
+        allocate(tableSizeFor(capacity));
+    }
+
+    private static int tableSizeFor(int capacity) {
+        if (capacity >= MAXIMUM_CAPACITY) {
+            return MAXIMUM_CAPACITY;
+        }
+        return Math.max(2, Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1);
+    }
+
+    private void allocate(int capacity) {
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        keys = new Object[capacity];
+        values = new int[capacity];
+    }
+
+    private static int hashFunction(Object key) {
+        return Hashing.mix(key.hashCode());
+    }
+
+    private boolean isCapacityEnough() {
+        return countOfElements < (int) (capacity * loadFactor) || capacity == MAXIMUM_CAPACITY;
+    }
+
+    private void resize() {
+        if (isCapacityEnough()) {
+            return;
+        }
+        Object[] oldKeys = keys;
+        int[] oldValues = values;
+        int oldCapacity = capacity;
+        allocate(capacity << 1);
+        for (int i = 0; i < oldCapacity; i++) {
+            if (oldKeys[i] != null) {
+                int index = hashFunction(oldKeys[i]) & mask;
+                while (keys[index] != null) {
+                    index = (index + 1) & mask;
+                }
+                keys[index] = oldKeys[i];
+                values[index] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Ячейка, в которой лежит key, либо -1
+     */
+    private int findSlot(Object key) {
+        int index = hashFunction(key) & mask;
+        Object current;
+        while ((current = keys[index]) != null) {
+            if (current == key || current.equals(key)) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+        return -1;
+    }
+
+    // положить ключ, которого точно нет в таблице
+    private void insert(K key, int value) {
+        int index = hashFunction(key) & mask;
+        while (keys[index] != null) {
+            index = (index + 1) & mask;
+        }
+        keys[index] = key;
+        values[index] = value;
+        countOfElements++;
+        resize();
+    }
+
+    /**
+     * Удалить элемент из ячейки slot и сдвинуть назад элементы, которые без него стали бы недостижимы
+     * Ключи элементов, переехавших через конец таблицы, складываются в wrapped, если он не null
+     */
+    @SuppressWarnings("unchecked")
+    private void removeAt(int slot, List<K> wrapped) {
+        countOfElements--;
+        int last = slot;
+        int index = (slot + 1) & mask;
+        Object current;
+        while ((current = keys[index]) != null) {
+            int home = hashFunction(current) & mask;
+            // элемент можно сдвинуть в last, если его домашняя ячейка не лежит строго между last и index
+            if (last <= index ? home <= last || home > index : home <= last && home > index) {
+                if (wrapped != null && index < last) {
+                    wrapped.add((K) current);
+                }
+                keys[last] = current;
+                values[last] = values[index];
+                last = index;
+            }
+            index = (index + 1) & mask;
+        }
+        keys[last] = null;
+    }
+
+    public int size() {
+        return countOfElements;
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    /**
+     * Что возвращают get и remove, если ключа нет, по умолчанию 0
+     */
+    public int defaultReturnValue() {
+        return defaultReturnValue;
+    }
+
+    public void defaultReturnValue(int defaultReturnValue) {
+        this.defaultReturnValue = defaultReturnValue;
+    }
+
+    public boolean containsKey(Object key) {
+        return findSlot(key) >= 0;
+    }
+
+    /**
+     * Значение по ключу key, либо defaultReturnValue(), если такого ключа нет
+     */
+    public int getInt(Object key) {
+        int slot = findSlot(key);
+        return slot < 0 ? defaultReturnValue : values[slot];
+    }
+
+    /**
+     * Положить по ключу key значение value и вернуть ранее хранимое, либо defaultReturnValue()
+     */
+    public int put(K key, int value) {
+        int slot = findSlot(key);
+        if (slot >= 0) {
+            int lastValue = values[slot];
+            values[slot] = value;
+            return lastValue;
+        }
+        insert(key, value);
+        return defaultReturnValue;
+    }
+
+    /**
+     * Прибавить increment к значению по ключу key (отсутствующему ключу соответствует defaultReturnValue())
+     *   и вернуть прежнее значение
+     */
+    public int addTo(K key, int increment) {
+        int slot = findSlot(key);
+        if (slot >= 0) {
+            int lastValue = values[slot];
+            values[slot] += increment;
+            return lastValue;
+        }
+        insert(key, defaultReturnValue + increment);
+        return defaultReturnValue;
+    }
+
+    /**
+     * Забыть ключ key и вернуть его значение, либо defaultReturnValue(), если такого ключа не было
+     */
+    public int removeInt(Object key) {
+        int slot = findSlot(key);
+        if (slot < 0) {
+            return defaultReturnValue;
+        }
+        int lastValue = values[slot];
+        removeAt(slot, null);
+        return lastValue;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, null);
+        countOfElements = 0;
+    }
+
+    /**
+     * Этот же словарь как Dictionary<K, Integer>: изменения видны в обе стороны
+     */
+    public Dictionary<K, Integer> asDictionary() {
+        if (boxedView == null) {
+            boxedView = new BoxedView();
+        }
+        return boxedView;
+    }
+
+    private class BoxedView extends BoxedDictionaryView<K, Integer> {
+        @Override
+        int slotCount() {
+            return capacity;
+        }
+
+        @Override
+        boolean isUsed(int slot) {
+            return keys[slot] != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        K keyAt(int slot) {
+            return (K) keys[slot];
+        }
+
+        @Override
+        Integer valueAt(int slot) {
+            return values[slot];
+        }
+
+        @Override
+        int slotOf(Object key) {
+            return key == null ? -1 : findSlot(key);
+        }
+
+        @Override
+        void removeAt(int slot, List<K> wrapped) {
+            ObjectIntDictionary.this.removeAt(slot, wrapped);
+        }
+
+        @Override
+        public int size() {
+            return ObjectIntDictionary.this.size();
+        }
+
+        @Override
+        public Integer put(K key, Integer value) {
+            int slot = findSlot(key);
+            Integer lastValue = slot < 0 ? null : values[slot];
+            ObjectIntDictionary.this.put(key, value);
+            return lastValue;
+        }
+
+        @Override
+        public void clear() {
+            ObjectIntDictionary.this.clear();
+        }
+    }
+}
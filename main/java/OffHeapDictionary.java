@@ -0,0 +1,592 @@
+import org.jetbrains.annotations.NotNull;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.util.*;
+
+/**
+ * Словарь, который хранит ключи и значения вне кучи, чтобы большие таблицы не замедляли сборку мусора
+ * Пары сериализуются в арену из direct-буферов (слэбов) записями [длина ключа][длина значения][ключ][значение],
+ *   индекс -- тоже вне кучи: открытая адресация с линейным пробированием и удалением сдвигом назад,
+ *   ячейка хранит адрес записи, хеш байтов ключа и длину ключа
+ * Ключи сравниваются по байтам, так что равные ключи должны сериализоваться одинаково
+ * Старые записи после put() и remove() становятся мусором; когда мусора больше половины арены,
+ *   живые записи переписываются в новые слэбы
+ * Объекты в куче создаются только при чтении: get() создаёт значение, обход видов -- ключи и значения
+ * close() сразу освобождает всю память; после него любые методы бросают IllegalStateException
+ * Словарь не потокобезопасен
+ */
+public class OffHeapDictionary<K, V> extends AbstractMap<K, V> implements Dictionary<K, V>, AutoCloseable {
+    private final static int DEFAULT_SLAB_SIZE = 1 << 24;
+    private final static int INITIAL_CAPACITY = 1024;
+    private final static int MAXIMUM_CAPACITY = 1 << 30;
+    private final static double LOAD_FACTOR = 0.75;
+    private final static int SLOT_SIZE = 16;
+    // индекс разбит на сегменты по 2^SEGMENT_BITS ячеек: один буфер не длиннее 2 ГБ
+    private final static int SEGMENT_BITS = 26;
+    private final static int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+    // Unsafe.invokeCleaner(), если он доступен: освобождает память direct-буфера, не дожидаясь сборки мусора
+    private final static Object UNSAFE;
+    private final static Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            var field = unsafeClass.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            unsafe = null;
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+    private final int slabSize;
+    private List<ByteBuffer> slabs = new ArrayList<>();
+    // сколько байт занято в последнем слэбе
+    private int slabPosition;
+    private long usedBytes;
+    private long garbageBytes;
+    private ByteBuffer[] index;
+    private int capacity;
+    private int countOfElements;
+    private int modCount;
+    private boolean closed;
+
+    public OffHeapDictionary(Serializer<K> keySerializer, Serializer<V> valueSerializer) {
+        this(keySerializer, valueSerializer, DEFAULT_SLAB_SIZE);
+    }
+
+    /**
+     * slabSize -- размер одного direct-буфера арены; записи длиннее получают отдельный буфер
+     */
+    public OffHeapDictionary(Serializer<K> keySerializer, Serializer<V> valueSerializer, int slabSize) {
+        if (slabSize <= RECORD_HEADER_SIZE) {
+            throw new IllegalArgumentException("Slab size must be greater than " + RECORD_HEADER_SIZE + ": " + slabSize);
+        }
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        this.slabSize = slabSize;
+        index = newIndex(INITIAL_CAPACITY);
+        capacity = INITIAL_CAPACITY;
+    }
+
+    private static void free(ByteBuffer buffer) {
+        if (INVOKE_CLEANER == null) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException e) {
+            // память освободит сборщик мусора вместе с буфером
+        }
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Dictionary is closed");
+        }
+    }
+
+    // --- индекс ---
+
+    private static ByteBuffer[] newIndex(int capacity) {
+        int segmentSlots = Math.min(capacity, 1 << SEGMENT_BITS);
+        ByteBuffer[] index = new ByteBuffer[capacity / segmentSlots];
+        for (int i = 0; i < index.length; i++) {
+            index[i] = ByteBuffer.allocateDirect(segmentSlots * SLOT_SIZE);
+        }
+        return index;
+    }
+
+    private static ByteBuffer segment(ByteBuffer[] index, int slot) {
+        return index[slot >>> SEGMENT_BITS];
+    }
+
+    private static int slotPosition(int slot) {
+        return (slot & ((1 << SEGMENT_BITS) - 1)) * SLOT_SIZE;
+    }
+
+    // адрес записи в ячейке slot, -1 для пустой ячейки
+    private static long addressAt(ByteBuffer[] index, int slot) {
+        return segment(index, slot).getLong(slotPosition(slot)) - 1;
+    }
+
+    private static int hashAt(ByteBuffer[] index, int slot) {
+        return segment(index, slot).getInt(slotPosition(slot) + Long.BYTES);
+    }
+
+    private static int keyLengthAt(ByteBuffer[] index, int slot) {
+        return segment(index, slot).getInt(slotPosition(slot) + Long.BYTES + Integer.BYTES);
+    }
+
+    private static void setSlot(ByteBuffer[] index, int slot, long address, int hash, int keyLength) {
+        ByteBuffer segment = segment(index, slot);
+        int position = slotPosition(slot);
+        segment.putLong(position, address + 1);
+        segment.putInt(position + Long.BYTES, hash);
+        segment.putInt(position + Long.BYTES + Integer.BYTES, keyLength);
+    }
+
+    /**
+     * Ячейка ключа, либо -(ячейка для вставки) - 1
+     */
+    private int findSlot(byte[] keyBytes, int hash) {
+        int mask = capacity - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            long address = addressAt(index, slot);
+            if (address < 0) {
+                return -slot - 1;
+            }
+            if (hashAt(index, slot) == hash && keyLengthAt(index, slot) == keyBytes.length
+                    && keyEquals(address, keyBytes)) {
+                return slot;
+            }
+        }
+    }
+
+    private void resize() {
+        if (countOfElements < (int) (capacity * LOAD_FACTOR) || capacity == MAXIMUM_CAPACITY) {
+            return;
+        }
+        int newCapacity = capacity * 2;
+        ByteBuffer[] newIndex = newIndex(newCapacity);
+        for (int slot = 0; slot < capacity; slot++) {
+            long address = addressAt(index, slot);
+            if (address < 0) {
+                continue;
+            }
+            int hash = hashAt(index, slot);
+            int newSlot = hash & (newCapacity - 1);
+            while (addressAt(newIndex, newSlot) >= 0) {
+                newSlot = (newSlot + 1) & (newCapacity - 1);
+            }
+            setSlot(newIndex, newSlot, address, hash, keyLengthAt(index, slot));
+        }
+        for (ByteBuffer segment : index) {
+            free(segment);
+        }
+        index = newIndex;
+        capacity = newCapacity;
+    }
+
+    /**
+     * Освободить ячейку slot, сдвинув назад следующие за ней элементы цепочки
+     * Адреса элементов, которые при этом переехали из начала таблицы в её конец, складываются в wrapped
+     */
+    private void removeAt(int slot, List<Long> wrapped) {
+        int mask = capacity - 1;
+        long address = addressAt(index, slot);
+        garbageBytes += recordSize(address);
+        int hole = slot;
+        for (int next = (hole + 1) & mask; ; next = (next + 1) & mask) {
+            long nextAddress = addressAt(index, next);
+            if (nextAddress < 0) {
+                break;
+            }
+            int home = hashAt(index, next) & mask;
+            // элемент можно поставить в дыру, если дыра лежит между его домашней ячейкой и текущей
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                setSlot(index, hole, nextAddress, hashAt(index, next), keyLengthAt(index, next));
+                if (wrapped != null && next < hole) {
+                    wrapped.add(nextAddress);
+                }
+                hole = next;
+            }
+        }
+        segment(index, hole).putLong(slotPosition(hole), 0);
+        countOfElements--;
+        modCount++;
+    }
+
+    // --- арена ---
+
+    private ByteBuffer slabOf(long address) {
+        return slabs.get((int) (address >>> 32));
+    }
+
+    private int recordSize(long address) {
+        ByteBuffer slab = slabOf(address);
+        int offset = (int) address;
+        return RECORD_HEADER_SIZE + slab.getInt(offset) + Math.max(0, slab.getInt(offset + Integer.BYTES));
+    }
+
+    private long allocate(int size) {
+        ByteBuffer slab = slabs.isEmpty() ? null : slabs.get(slabs.size() - 1);
+        if (slab == null || slab.capacity() - slabPosition < size) {
+            slab = ByteBuffer.allocateDirect(Math.max(slabSize, size));
+            slabs.add(slab);
+            slabPosition = 0;
+        }
+        long address = (long) (slabs.size() - 1) << 32 | slabPosition;
+        slabPosition += size;
+        usedBytes += size;
+        return address;
+    }
+
+    private long writeRecord(byte[] keyBytes, byte[] valueBytes) {
+        long address = allocate(RECORD_HEADER_SIZE + keyBytes.length + (valueBytes == null ? 0 : valueBytes.length));
+        ByteBuffer slab = slabOf(address);
+        int offset = (int) address;
+        slab.putInt(offset, keyBytes.length);
+        slab.putInt(offset + Integer.BYTES, valueBytes == null ? -1 : valueBytes.length);
+        slab.put(offset + RECORD_HEADER_SIZE, keyBytes);
+        if (valueBytes != null) {
+            slab.put(offset + RECORD_HEADER_SIZE + keyBytes.length, valueBytes);
+        }
+        return address;
+    }
+
+    private boolean keyEquals(long address, byte[] keyBytes) {
+        ByteBuffer slab = slabOf(address);
+        int position = (int) address + RECORD_HEADER_SIZE;
+        for (int i = 0; i < keyBytes.length; i++) {
+            if (slab.get(position + i) != keyBytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private K keyAt(long address) {
+        ByteBuffer slab = slabOf(address);
+        int offset = (int) address;
+        return keySerializer.fromBytes(slab, offset + RECORD_HEADER_SIZE, slab.getInt(offset));
+    }
+
+    private V valueAt(long address) {
+        ByteBuffer slab = slabOf(address);
+        int offset = (int) address;
+        int valueLength = slab.getInt(offset + Integer.BYTES);
+        if (valueLength < 0) {
+            return null;
+        }
+        return valueSerializer.fromBytes(slab, offset + RECORD_HEADER_SIZE + slab.getInt(offset), valueLength);
+    }
+
+    // переписать живые записи в новые слэбы, если больше половины арены -- мусор
+    private void compactIfNeeded() {
+        if (garbageBytes < slabSize || garbageBytes * 2 < usedBytes) {
+            return;
+        }
+        List<ByteBuffer> oldSlabs = slabs;
+        slabs = new ArrayList<>();
+        slabPosition = 0;
+        usedBytes = 0;
+        garbageBytes = 0;
+        for (int slot = 0; slot < capacity; slot++) {
+            long address = addressAt(index, slot);
+            if (address < 0) {
+                continue;
+            }
+            ByteBuffer oldSlab = oldSlabs.get((int) (address >>> 32));
+            int offset = (int) address;
+            int size = RECORD_HEADER_SIZE + oldSlab.getInt(offset) + Math.max(0, oldSlab.getInt(offset + Integer.BYTES));
+            long newAddress = allocate(size);
+            slabOf(newAddress).put((int) newAddress, oldSlab, offset, size);
+            setSlot(index, slot, newAddress, hashAt(index, slot), keyLengthAt(index, slot));
+        }
+        for (ByteBuffer slab : oldSlabs) {
+            free(slab);
+        }
+        modCount++;
+    }
+
+    // --- Dictionary ---
+
+    // байты ключа, либо null, если сериализатор не принимает объекты такого класса
+    @SuppressWarnings("unchecked")
+    private byte[] keyBytes(Object key) {
+        try {
+            return keySerializer.toBytes((K) key);
+        } catch (ClassCastException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public int size() {
+        checkOpen();
+        return countOfElements;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        checkOpen();
+        byte[] keyBytes = keyBytes(key);
+        return keyBytes != null && findSlot(keyBytes, Hashing.mix(keyBytes)) >= 0;
+    }
+
+    @Override
+    public V get(Object key) {
+        checkOpen();
+        byte[] keyBytes = keyBytes(key);
+        if (keyBytes == null) {
+            return null;
+        }
+        int slot = findSlot(keyBytes, Hashing.mix(keyBytes));
+        return slot < 0 ? null : valueAt(addressAt(index, slot));
+    }
+
+    @Override
+    public V put(K key, V value) {
+        checkOpen();
+        byte[] keyBytes = keySerializer.toBytes(key);
+        byte[] valueBytes = value == null ? null : valueSerializer.toBytes(value);
+        int hash = Hashing.mix(keyBytes);
+        int slot = findSlot(keyBytes, hash);
+        V lastValue = null;
+        if (slot >= 0) {
+            long address = addressAt(index, slot);
+            lastValue = valueAt(address);
+            garbageBytes += recordSize(address);
+            setSlot(index, slot, writeRecord(keyBytes, valueBytes), hash, keyBytes.length);
+        } else {
+            setSlot(index, -slot - 1, writeRecord(keyBytes, valueBytes), hash, keyBytes.length);
+            countOfElements++;
+            resize();
+        }
+        modCount++;
+        compactIfNeeded();
+        return lastValue;
+    }
+
+    // новая запись для существующего ключа без сжатия арены: адреса записей не меняются, обход не сбивается
+    private void replaceValue(K key, V value) {
+        checkOpen();
+        byte[] keyBytes = keySerializer.toBytes(key);
+        int hash = Hashing.mix(keyBytes);
+        int slot = findSlot(keyBytes, hash);
+        if (slot >= 0) {
+            garbageBytes += recordSize(addressAt(index, slot));
+            setSlot(index, slot, writeRecord(keyBytes, value == null ? null : valueSerializer.toBytes(value)),
+                    hash, keyBytes.length);
+        }
+    }
+
+    @Override
+    public V remove(Object key) {
+        checkOpen();
+        byte[] keyBytes = keyBytes(key);
+        if (keyBytes == null) {
+            return null;
+        }
+        int slot = findSlot(keyBytes, Hashing.mix(keyBytes));
+        if (slot < 0) {
+            return null;
+        }
+        V lastValue = valueAt(addressAt(index, slot));
+        removeAt(slot, null);
+        return lastValue;
+    }
+
+    @Override
+    public void clear() {
+        checkOpen();
+        for (ByteBuffer slab : slabs) {
+            free(slab);
+        }
+        slabs = new ArrayList<>();
+        slabPosition = 0;
+        usedBytes = 0;
+        garbageBytes = 0;
+        for (ByteBuffer segment : index) {
+            free(segment);
+        }
+        index = newIndex(INITIAL_CAPACITY);
+        capacity = INITIAL_CAPACITY;
+        countOfElements = 0;
+        modCount++;
+    }
+
+    /**
+     * Сколько байт вне кучи занимают арена и индекс
+     */
+    public long getOffHeapBytes() {
+        checkOpen();
+        long bytes = (long) capacity * SLOT_SIZE;
+        for (ByteBuffer slab : slabs) {
+            bytes += slab.capacity();
+        }
+        return bytes;
+    }
+
+    /**
+     * Освободить всю память вне кучи; повторный вызов ничего не делает
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        for (ByteBuffer slab : slabs) {
+            free(slab);
+        }
+        for (ByteBuffer segment : index) {
+            free(segment);
+        }
+        slabs = null;
+        index = null;
+    }
+
+    private enum Type {
+        ENTRY, KEY, VALUE
+    }
+
+    private class MapEntry extends AbstractMap.SimpleEntry<K, V> {
+        public MapEntry(K key, V value) {
+            super(key, value);
+        }
+
+        @Override
+        public V setValue(V value) {
+            V lastValue = super.setValue(value);
+            replaceValue(getKey(), value);
+            return lastValue;
+        }
+    }
+
+    /*
+     * Итератор идёт от последней ячейки к первой, как в OpenAddressingDictionary: тогда сдвиг назад при remove()
+     *   двигает только уже просмотренные элементы, кроме переехавших из начала таблицы в конец,
+     *   их адреса выдаются в конце
+     */
+    private class MapIterator<I> implements Iterator<I> {
+        private final Type type;
+        private int position = capacity;
+        private int lastSlot = -1;
+        private K lastKey;
+        private boolean canRemove = false;
+        private final List<Long> wrapped = new ArrayList<>();
+        private int wrappedPosition = 0;
+        private int expectedModCount = modCount;
+
+        public MapIterator(Type type) {
+            this.type = type;
+        }
+
+        @Override
+        public boolean hasNext() {
+            checkOpen();
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            while (position > 0 && addressAt(index, position - 1) < 0) {
+                position--;
+            }
+            return position > 0 || wrappedPosition < wrapped.size();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public I next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            long address;
+            if (position > 0) {
+                lastSlot = --position;
+                address = addressAt(index, lastSlot);
+            } else {
+                lastSlot = -1;
+                address = wrapped.get(wrappedPosition++);
+            }
+            canRemove = true;
+            if (type == Type.VALUE) {
+                lastKey = null;
+                return (I) valueAt(address);
+            }
+            lastKey = keyAt(address);
+            if (type == Type.KEY) {
+                return (I) lastKey;
+            }
+            return (I) new MapEntry(lastKey, valueAt(address));
+        }
+
+        @Override
+        public void remove() {
+            if (!canRemove) {
+                throw new IllegalStateException();
+            }
+            checkOpen();
+            // после чужого изменения lastSlot может указывать на другой элемент или на пустую ячейку
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (lastSlot >= 0) {
+                removeAt(lastSlot, wrapped);
+            } else {
+                // элемент уже переехал в просмотренную часть таблицы, ищем его по ключу
+                OffHeapDictionary.this.remove(lastKey == null ? keyAt(wrapped.get(wrappedPosition - 1)) : lastKey);
+            }
+            expectedModCount = modCount;
+            canRemove = false;
+        }
+    }
+
+    @Override
+    @NotNull
+    public Set<K> keySet() {
+        return new AbstractSet<>() {
+            @Override
+            public @NotNull Iterator<K> iterator() {
+                return new MapIterator<>(Type.KEY);
+            }
+
+            @Override
+            public int size() {
+                return OffHeapDictionary.this.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+        };
+    }
+
+    @Override
+    @NotNull
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public @NotNull Iterator<V> iterator() {
+                return new MapIterator<>(Type.VALUE);
+            }
+
+            @Override
+            public int size() {
+                return OffHeapDictionary.this.size();
+            }
+        };
+    }
+
+    @Override
+    @NotNull
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public @NotNull Iterator<Entry<K, V>> iterator() {
+                return new MapIterator<>(Type.ENTRY);
+            }
+
+            @Override
+            public int size() {
+                return OffHeapDictionary.this.size();
+            }
+        };
+    }
+}
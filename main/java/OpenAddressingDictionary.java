@@ -0,0 +1,364 @@
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+
+/**
+ * Хеш-таблица с открытой адресацией (Robin Hood hashing)
+ * Ключи, значения и хеши лежат в трёх плоских массивах, коллизии разрешаются линейным пробированием,
+ *   при удалении элементы сдвигаются назад (backward-shift deletion), поэтому "надгробий" нет
+ * Поиск по ключу не создаёт ни одного объекта
+ */
+public class OpenAddressingDictionary<K, V> extends AbstractMap<K, V> implements Dictionary<K, V> {
+    private int countOfElements = 0;
+    private int capacity;
+    private int mask;
+    private final double loadFactor;
+    private final static double DEFAULT_LOAD_FACTOR = 0.75;
+    private final static int INITIAL_CAPACITY = 128;
+    private final static int MAXIMUM_CAPACITY = 1 << 30;
+    private Object[] keys;
+    private Object[] values;
+    private int[] hashes;
+
+    public OpenAddressingDictionary() {
+        this(DEFAULT_LOAD_FACTOR, INITIAL_CAPACITY);
+    }
+
+    public OpenAddressingDictionary(int capacity) {
+        this(DEFAULT_LOAD_FACTOR, capacity);
+    }
+
+    public OpenAddressingDictionary(double loadFactor, int capacity) {
+        if (!(loadFactor > 0 && loadFactor < 1)) {
+            throw new IllegalArgumentException("Load factor must be in (0, 1): " + loadFactor);
+        }
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must be non-negative: " + capacity);
+        }
+        this.loadFactor = loadFactor;
+        allocate(tableSizeFor(capacity));
+    }
+
+    private static int tableSizeFor(int capacity) {
+        if (capacity >= MAXIMUM_CAPACITY) {
+            return MAXIMUM_CAPACITY;
+        }
+        return Math.max(2, Integer.highestOneBit(Math.max(capacity - 1, 1)) << 1);
+    }
+
+    private void allocate(int capacity) {
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        keys = new Object[capacity];
+        values = new Object[capacity];
+        hashes = new int[capacity];
+    }
+
+    private static int hashFunction(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    // на каком расстоянии от своей "домашней" ячейки стоит элемент из ячейки index
+    private int probeDistance(int index) {
+        return (index - (hashes[index] & mask)) & mask;
+    }
+
+    private boolean isCapacityEnough() {
+        return countOfElements < (int) (capacity * loadFactor) || capacity == MAXIMUM_CAPACITY;
+    }
+
+    /**
+     * Индекс ячейки, в которой лежит key, либо -1
+     */
+    private int findIndex(Object key) {
+        int hash = hashFunction(key);
+        int index = hash & mask;
+        for (int distance = 0; ; distance++) {
+            Object current = keys[index];
+            // в Robin Hood ключ не может стоять дальше от дома, чем первый встреченный "более бедный" элемент
+            if (current == null || probeDistance(index) < distance) {
+                return -1;
+            }
+            if (hashes[index] == hash && (current == key || current.equals(key))) {
+                return index;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    private void resize() {
+        if (isCapacityEnough()) {
+            return;
+        }
+        Object[] oldKeys = keys;
+        Object[] oldValues = values;
+        int[] oldHashes = hashes;
+        allocate(capacity << 1);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                insert(oldHashes[i], oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    // вставка ключа, которого точно нет в таблице
+    private void insert(int hash, Object key, Object value) {
+        int index = hash & mask;
+        int distance = 0;
+        while (true) {
+            if (keys[index] == null) {
+                keys[index] = key;
+                values[index] = value;
+                hashes[index] = hash;
+                return;
+            }
+            int currentDistance = probeDistance(index);
+            if (currentDistance < distance) {
+                // забираем ячейку у "более богатого" элемента и дальше вставляем его
+                Object swappedKey = keys[index];
+                Object swappedValue = values[index];
+                int swappedHash = hashes[index];
+                keys[index] = key;
+                values[index] = value;
+                hashes[index] = hash;
+                key = swappedKey;
+                value = swappedValue;
+                hash = swappedHash;
+                distance = currentDistance;
+            }
+            index = (index + 1) & mask;
+            distance++;
+        }
+    }
+
+    /**
+     * Удалить элемент из ячейки index, сдвинув назад следующие за ним элементы кластера
+     * Возвращает true, если элемент из ячейки 0 переехал в последнюю ячейку
+     */
+    private boolean removeAt(int index) {
+        boolean wrapped = false;
+        int next = (index + 1) & mask;
+        while (keys[next] != null && probeDistance(next) != 0) {
+            keys[index] = keys[next];
+            values[index] = values[next];
+            hashes[index] = hashes[next];
+            if (next == 0) {
+                wrapped = true;
+            }
+            index = next;
+            next = (next + 1) & mask;
+        }
+        keys[index] = null;
+        values[index] = null;
+        hashes[index] = 0;
+        countOfElements--;
+        return wrapped;
+    }
+
+    @Override
+    public int size() {
+        return countOfElements;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return findIndex(key) >= 0;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        int index = findIndex(key);
+        return index < 0 ? null : (V) values[index];
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        int index = findIndex(key);
+        if (index >= 0) {
+            V lastValue = (V) values[index];
+            values[index] = value;
+            return lastValue;
+        }
+        countOfElements++;
+        resize();
+        insert(hashFunction(key), key, value);
+        return null;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        int index = findIndex(key);
+        if (index < 0) {
+            return null;
+        }
+        V lastValue = (V) values[index];
+        removeAt(index);
+        return lastValue;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(keys, null);
+        Arrays.fill(values, null);
+        Arrays.fill(hashes, 0);
+        countOfElements = 0;
+    }
+
+    private enum Type {
+        ENTRY, KEY, VALUE
+    }
+
+    private class MapEntry extends AbstractMap.SimpleEntry<K, V> {
+        public MapEntry(K key, V value) {
+            super(key, value);
+        }
+
+        @Override
+        public V setValue(V value) {
+            V lastValue = super.setValue(value);
+            int index = findIndex(getKey());
+            if (index >= 0) {
+                values[index] = value;
+            }
+            return lastValue;
+        }
+    }
+
+    /*
+     * Итератор идёт от последней ячейки к первой: тогда сдвиг назад при remove() двигает
+     *   только уже просмотренные элементы. Единственное исключение -- элемент, переехавший
+     *   из ячейки 0 в последнюю, такие элементы складываются в wrapped и выдаются в конце
+     */
+    private class MapIterator<I> implements Iterator<I> {
+        final Type type;
+        int position = capacity;
+        int lastIndex = -1;
+        K lastKey;
+        ArrayList<K> wrapped;
+        int wrappedPosition = -1;
+
+        public MapIterator(Type type) {
+            this.type = type;
+        }
+
+        @Override
+        public boolean hasNext() {
+            if (position > 0) {
+                int index = position - 1;
+                while (index >= 0 && keys[index] == null) {
+                    index--;
+                }
+                position = index + 1;
+                if (position > 0) {
+                    return true;
+                }
+            }
+            return wrapped != null && wrappedPosition + 1 < wrapped.size();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public I next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            K key;
+            V value;
+            if (position > 0) {
+                lastIndex = --position;
+                key = (K) keys[lastIndex];
+                value = (V) values[lastIndex];
+            } else {
+                lastIndex = -1;
+                key = wrapped.get(++wrappedPosition);
+                value = get(key);
+            }
+            lastKey = key;
+            switch (type) {
+                case KEY:
+                    return (I) key;
+                case VALUE:
+                    return (I) value;
+                default:
+                    return (I) new MapEntry(key, value);
+            }
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public void remove() {
+            if (lastKey == null) {
+                throw new IllegalStateException();
+            }
+            if (lastIndex >= 0) {
+                K movedKey = (K) keys[0];
+                if (removeAt(lastIndex)) {
+                    if (wrapped == null) {
+                        wrapped = new ArrayList<>();
+                    }
+                    wrapped.add(movedKey);
+                }
+            } else {
+                OpenAddressingDictionary.this.remove(lastKey);
+            }
+            lastKey = null;
+        }
+    }
+
+    @Override
+    @NotNull
+    public Set<K> keySet() {
+        return new AbstractSet<>() {
+            @Override
+            public @NotNull Iterator<K> iterator() {
+                return new MapIterator<>(Type.KEY);
+            }
+
+            @Override
+            public int size() {
+                return OpenAddressingDictionary.this.size();
+            }
+        };
+    }
+
+    @Override
+    @NotNull
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public @NotNull Iterator<V> iterator() {
+                return new MapIterator<>(Type.VALUE);
+            }
+
+            @Override
+            public int size() {
+                return OpenAddressingDictionary.this.size();
+            }
+        };
+    }
+
+    @Override
+    @NotNull
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public @NotNull Iterator<Entry<K, V>> iterator() {
+                return new MapIterator<>(Type.ENTRY);
+            }
+
+            @Override
+            public int size() {
+                return OpenAddressingDictionary.this.size();
+            }
+        };
+    }
+}
@@ -0,0 +1,636 @@
+import org.jetbrains.annotations.NotNull;
+
+import java.util.*;
+import java.util.function.BiConsumer;
+
+/**
+ * Словарь на префиксном дереве хешей (HAMT): каждый уровень дерева разбирает 5 бит хеша,
+ *   узел хранит 32-битные маски занятых позиций и плотный массив только из занятых
+ * snapshot() за O(1) возвращает независимую копию, которая делит с этим словарём все узлы;
+ *   после него изменения любой из копий копируют только путь от корня до изменённого узла
+ * Между вызовами snapshot() словарь работает как "transient": узлы, созданные после последнего снимка,
+ *   меняются на месте, поэтому серия put() не копирует пути заново на каждой вставке
+ * Итераторы видов обходят словарь таким, каким он был при их создании, и не бросают
+ *   ConcurrentModificationException
+ * Словарь не потокобезопасен, но снимок, безопасно переданный другому потоку, можно читать,
+ *   пока исходный словарь меняется
+ */
+public class PersistentDictionary<K, V> extends AbstractMap<K, V> implements Dictionary<K, V> {
+    private final static int BITS_PER_LEVEL = 5;
+    private final static int LEVEL_MASK = (1 << BITS_PER_LEVEL) - 1;
+    private final static Object NOT_FOUND = new Object();
+    private final static BitmapNode EMPTY = new BitmapNode(null, 0, 0, new Object[0], new int[0]);
+
+    private Node root;
+    private int countOfElements;
+    // метка узлов, которые принадлежат только этому словарю и которые можно менять на месте
+    private Object edit = new Object();
+    // прежнее значение по ключу после put() и remove(), NOT_FOUND -- ключа не было
+    private Object previous;
+
+    public PersistentDictionary() {
+        this(EMPTY, 0);
+    }
+
+    private PersistentDictionary(Node root, int countOfElements) {
+        this.root = root;
+        this.countOfElements = countOfElements;
+    }
+
+    /**
+     * Независимая копия словаря за O(1)
+     */
+    public PersistentDictionary<K, V> snapshot() {
+        // узлы, которые были нашими, теперь общие: дальше их можно только копировать
+        edit = new Object();
+        return new PersistentDictionary<>(root, countOfElements);
+    }
+
+    private static int hashFunction(Object key) {
+        return Hashing.mix(key.hashCode());
+    }
+
+    private static int bitFor(int hash, int shift) {
+        return 1 << ((hash >>> shift) & LEVEL_MASK);
+    }
+
+    private static int indexFor(int map, int bit) {
+        return Integer.bitCount(map & (bit - 1));
+    }
+
+    private abstract static class Node {
+        // edit словаря, которому принадлежит узел, null у общих узлов
+        Object edit;
+
+        Node(Object edit) {
+            this.edit = edit;
+        }
+
+        // значение по ключу, либо NOT_FOUND
+        abstract Object find(Object key, int hash, int shift);
+
+        /**
+         * Узел после put(); если ничего не поменялось -- сам этот узел
+         * Прежнее значение записывается в owner.previous
+         */
+        abstract Node put(Object edit, Object key, int hash, Object value, int shift,
+                          PersistentDictionary<?, ?> owner);
+
+        abstract Node remove(Object edit, Object key, int hash, int shift, PersistentDictionary<?, ?> owner);
+
+        abstract int entryCount();
+
+        abstract Object keyAt(int index);
+
+        abstract Object valueAt(int index);
+
+        abstract int hashAt(int index);
+
+        abstract int childCount();
+
+        abstract Node childAt(int index);
+    }
+
+    /**
+     * Узел уровня shift: dataMap -- позиции, где лежит сам элемент, nodeMap -- позиции поддеревьев
+     * content -- сначала пары ключ-значение в порядке позиций, потом поддеревья в порядке позиций
+     */
+    private static final class BitmapNode extends Node {
+        int dataMap;
+        int nodeMap;
+        Object[] content;
+        // хеши ключей из content, чтобы при опускании элемента на уровень ниже не вызывать hashCode()
+        int[] hashes;
+
+        BitmapNode(Object edit, int dataMap, int nodeMap, Object[] content, int[] hashes) {
+            super(edit);
+            this.dataMap = dataMap;
+            this.nodeMap = nodeMap;
+            this.content = content;
+            this.hashes = hashes;
+        }
+
+        // узел из двух элементов с разными ключами, начиная с уровня shift
+        static Node pair(Object edit, Object firstKey, Object firstValue, int firstHash,
+                         Object secondKey, Object secondValue, int secondHash, int shift) {
+            if (shift >= Integer.SIZE) {
+                return new CollisionNode(edit, firstHash, new Object[]{firstKey, firstValue, secondKey, secondValue});
+            }
+            int firstBit = bitFor(firstHash, shift);
+            int secondBit = bitFor(secondHash, shift);
+            if (firstBit == secondBit) {
+                Node child = pair(edit, firstKey, firstValue, firstHash, secondKey, secondValue, secondHash,
+                        shift + BITS_PER_LEVEL);
+                return new BitmapNode(edit, 0, firstBit, new Object[]{child}, new int[0]);
+            }
+            if (Integer.compareUnsigned(firstBit, secondBit) < 0) {
+                return new BitmapNode(edit, firstBit | secondBit, 0,
+                        new Object[]{firstKey, firstValue, secondKey, secondValue}, new int[]{firstHash, secondHash});
+            }
+            return new BitmapNode(edit, firstBit | secondBit, 0,
+                    new Object[]{secondKey, secondValue, firstKey, firstValue}, new int[]{secondHash, firstHash});
+        }
+
+        private int childIndex(int bit) {
+            return 2 * Integer.bitCount(dataMap) + indexFor(nodeMap, bit);
+        }
+
+        private BitmapNode editable(Object edit) {
+            if (this.edit == edit) {
+                return this;
+            }
+            return new BitmapNode(edit, dataMap, nodeMap, content.clone(), hashes.clone());
+        }
+
+        // узел с новыми массивами: свой меняется на месте, общий копируется
+        private BitmapNode with(Object edit, int dataMap, int nodeMap, Object[] content, int[] hashes) {
+            if (this.edit != edit) {
+                return new BitmapNode(edit, dataMap, nodeMap, content, hashes);
+            }
+            this.dataMap = dataMap;
+            this.nodeMap = nodeMap;
+            this.content = content;
+            this.hashes = hashes;
+            return this;
+        }
+
+        @Override
+        Object find(Object key, int hash, int shift) {
+            int bit = bitFor(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int index = indexFor(dataMap, bit);
+                return hashes[index] == hash && content[2 * index].equals(key) ? content[2 * index + 1] : NOT_FOUND;
+            }
+            if ((nodeMap & bit) != 0) {
+                return ((Node) content[childIndex(bit)]).find(key, hash, shift + BITS_PER_LEVEL);
+            }
+            return NOT_FOUND;
+        }
+
+        @Override
+        Node put(Object edit, Object key, int hash, Object value, int shift, PersistentDictionary<?, ?> owner) {
+            int bit = bitFor(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int index = indexFor(dataMap, bit);
+                Object currentKey = content[2 * index];
+                if (hashes[index] == hash && currentKey.equals(key)) {
+                    owner.previous = content[2 * index + 1];
+                    if (owner.previous == value) {
+                        return this;
+                    }
+                    BitmapNode node = editable(edit);
+                    node.content[2 * index + 1] = value;
+                    return node;
+                }
+                owner.previous = NOT_FOUND;
+                Node child = pair(edit, currentKey, content[2 * index + 1], hashes[index], key, value, hash,
+                        shift + BITS_PER_LEVEL);
+                return moveToChild(edit, bit, index, child);
+            }
+            if ((nodeMap & bit) != 0) {
+                int childIndex = childIndex(bit);
+                Node child = (Node) content[childIndex];
+                Node newChild = child.put(edit, key, hash, value, shift + BITS_PER_LEVEL, owner);
+                if (newChild == child) {
+                    return this;
+                }
+                BitmapNode node = editable(edit);
+                node.content[childIndex] = newChild;
+                return node;
+            }
+            owner.previous = NOT_FOUND;
+            int index = indexFor(dataMap, bit);
+            Object[] newContent = new Object[content.length + 2];
+            System.arraycopy(content, 0, newContent, 0, 2 * index);
+            newContent[2 * index] = key;
+            newContent[2 * index + 1] = value;
+            System.arraycopy(content, 2 * index, newContent, 2 * index + 2, content.length - 2 * index);
+            int[] newHashes = new int[hashes.length + 1];
+            System.arraycopy(hashes, 0, newHashes, 0, index);
+            newHashes[index] = hash;
+            System.arraycopy(hashes, index, newHashes, index + 1, hashes.length - index);
+            return with(edit, dataMap | bit, nodeMap, newContent, newHashes);
+        }
+
+        // элемент index с позиции bit опускается в поддерево child
+        private Node moveToChild(Object edit, int bit, int index, Node child) {
+            int newDataMap = dataMap ^ bit;
+            int newNodeMap = nodeMap | bit;
+            int dataLength = 2 * Integer.bitCount(newDataMap);
+            int newChildIndex = dataLength + indexFor(newNodeMap, bit);
+            Object[] newContent = new Object[content.length - 1];
+            System.arraycopy(content, 0, newContent, 0, 2 * index);
+            System.arraycopy(content, 2 * index + 2, newContent, 2 * index, newChildIndex - 2 * index);
+            newContent[newChildIndex] = child;
+            System.arraycopy(content, newChildIndex + 2, newContent, newChildIndex + 1,
+                    content.length - newChildIndex - 2);
+            return with(edit, newDataMap, newNodeMap, newContent, removeHash(index));
+        }
+
+        // поддерево на позиции bit, в котором остался один элемент, заменяется самим элементом
+        private Node moveToData(Object edit, int bit, Object key, Object value, int hash) {
+            int oldChildIndex = childIndex(bit);
+            int newDataMap = dataMap | bit;
+            int index = indexFor(newDataMap, bit);
+            Object[] newContent = new Object[content.length + 1];
+            System.arraycopy(content, 0, newContent, 0, 2 * index);
+            newContent[2 * index] = key;
+            newContent[2 * index + 1] = value;
+            System.arraycopy(content, 2 * index, newContent, 2 * index + 2, oldChildIndex - 2 * index);
+            System.arraycopy(content, oldChildIndex + 1, newContent, oldChildIndex + 2,
+                    content.length - oldChildIndex - 1);
+            int[] newHashes = new int[hashes.length + 1];
+            System.arraycopy(hashes, 0, newHashes, 0, index);
+            newHashes[index] = hash;
+            System.arraycopy(hashes, index, newHashes, index + 1, hashes.length - index);
+            return with(edit, newDataMap, nodeMap ^ bit, newContent, newHashes);
+        }
+
+        private int[] removeHash(int index) {
+            int[] newHashes = new int[hashes.length - 1];
+            System.arraycopy(hashes, 0, newHashes, 0, index);
+            System.arraycopy(hashes, index + 1, newHashes, index, hashes.length - index - 1);
+            return newHashes;
+        }
+
+        @Override
+        Node remove(Object edit, Object key, int hash, int shift, PersistentDictionary<?, ?> owner) {
+            int bit = bitFor(hash, shift);
+            if ((dataMap & bit) != 0) {
+                int index = indexFor(dataMap, bit);
+                if (hashes[index] != hash || !content[2 * index].equals(key)) {
+                    return this;
+                }
+                owner.previous = content[2 * index + 1];
+                Object[] newContent = new Object[content.length - 2];
+                System.arraycopy(content, 0, newContent, 0, 2 * index);
+                System.arraycopy(content, 2 * index + 2, newContent, 2 * index, content.length - 2 * index - 2);
+                return with(edit, dataMap ^ bit, nodeMap, newContent, removeHash(index));
+            }
+            if ((nodeMap & bit) != 0) {
+                int childIndex = childIndex(bit);
+                Node child = (Node) content[childIndex];
+                Node newChild = child.remove(edit, key, hash, shift + BITS_PER_LEVEL, owner);
+                if (newChild == child) {
+                    return this;
+                }
+                if (newChild.childCount() == 0 && newChild.entryCount() == 1) {
+                    return moveToData(edit, bit, newChild.keyAt(0), newChild.valueAt(0), newChild.hashAt(0));
+                }
+                BitmapNode node = editable(edit);
+                node.content[childIndex] = newChild;
+                return node;
+            }
+            return this;
+        }
+
+        @Override
+        int entryCount() {
+            return hashes.length;
+        }
+
+        @Override
+        Object keyAt(int index) {
+            return content[2 * index];
+        }
+
+        @Override
+        Object valueAt(int index) {
+            return content[2 * index + 1];
+        }
+
+        @Override
+        int hashAt(int index) {
+            return hashes[index];
+        }
+
+        @Override
+        int childCount() {
+            return Integer.bitCount(nodeMap);
+        }
+
+        @Override
+        Node childAt(int index) {
+            return (Node) content[2 * hashes.length + index];
+        }
+    }
+
+    /**
+     * Ключи, у которых совпали все 32 бита хеша: хранятся парами ключ-значение подряд
+     */
+    private static final class CollisionNode extends Node {
+        final int hash;
+        Object[] content;
+
+        CollisionNode(Object edit, int hash, Object[] content) {
+            super(edit);
+            this.hash = hash;
+            this.content = content;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < content.length; i += 2) {
+                if (content[i].equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        private Node with(Object edit, Object[] content) {
+            if (this.edit != edit) {
+                return new CollisionNode(edit, hash, content);
+            }
+            this.content = content;
+            return this;
+        }
+
+        @Override
+        Object find(Object key, int hash, int shift) {
+            int index = indexOf(key);
+            return index < 0 ? NOT_FOUND : content[index + 1];
+        }
+
+        @Override
+        Node put(Object edit, Object key, int hash, Object value, int shift, PersistentDictionary<?, ?> owner) {
+            int index = indexOf(key);
+            if (index >= 0) {
+                owner.previous = content[index + 1];
+                if (owner.previous == value) {
+                    return this;
+                }
+                Object[] newContent = this.edit == edit ? content : content.clone();
+                newContent[index + 1] = value;
+                return with(edit, newContent);
+            }
+            owner.previous = NOT_FOUND;
+            Object[] newContent = Arrays.copyOf(content, content.length + 2);
+            newContent[content.length] = key;
+            newContent[content.length + 1] = value;
+            return with(edit, newContent);
+        }
+
+        @Override
+        Node remove(Object edit, Object key, int hash, int shift, PersistentDictionary<?, ?> owner) {
+            int index = indexOf(key);
+            if (index < 0) {
+                return this;
+            }
+            owner.previous = content[index + 1];
+            Object[] newContent = new Object[content.length - 2];
+            System.arraycopy(content, 0, newContent, 0, index);
+            System.arraycopy(content, index + 2, newContent, index, content.length - index - 2);
+            return with(edit, newContent);
+        }
+
+        @Override
+        int entryCount() {
+            return content.length / 2;
+        }
+
+        @Override
+        Object keyAt(int index) {
+            return content[2 * index];
+        }
+
+        @Override
+        Object valueAt(int index) {
+            return content[2 * index + 1];
+        }
+
+        @Override
+        int hashAt(int index) {
+            return hash;
+        }
+
+        @Override
+        int childCount() {
+            return 0;
+        }
+
+        @Override
+        Node childAt(int index) {
+            throw new IndexOutOfBoundsException(index);
+        }
+    }
+
+    @Override
+    public int size() {
+        return countOfElements;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return root.find(key, hashFunction(key), 0) != NOT_FOUND;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V get(Object key) {
+        Object value = root.find(key, hashFunction(key), 0);
+        return value == NOT_FOUND ? null : (V) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V getOrDefault(Object key, V defaultValue) {
+        Object value = root.find(key, hashFunction(key), 0);
+        return value == NOT_FOUND ? defaultValue : (V) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V put(K key, V value) {
+        previous = NOT_FOUND;
+        root = root.put(edit, key, hashFunction(key), value, 0, this);
+        Object lastValue = previous;
+        previous = null;
+        if (lastValue == NOT_FOUND) {
+            countOfElements++;
+            return null;
+        }
+        return (V) lastValue;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public V remove(Object key) {
+        previous = NOT_FOUND;
+        root = root.remove(edit, key, hashFunction(key), 0, this);
+        Object lastValue = previous;
+        previous = null;
+        if (lastValue == NOT_FOUND) {
+            return null;
+        }
+        countOfElements--;
+        return (V) lastValue;
+    }
+
+    @Override
+    public void clear() {
+        root = EMPTY;
+        countOfElements = 0;
+    }
+
+    @Override
+    public void forEach(BiConsumer<? super K, ? super V> action) {
+        Objects.requireNonNull(action);
+        forEach(root, action);
+    }
+
+    @SuppressWarnings("unchecked")
+    private void forEach(Node node, BiConsumer<? super K, ? super V> action) {
+        for (int i = 0; i < node.entryCount(); i++) {
+            action.accept((K) node.keyAt(i), (V) node.valueAt(i));
+        }
+        for (int i = 0; i < node.childCount(); i++) {
+            forEach(node.childAt(i), action);
+        }
+    }
+
+    private enum Type {
+        ENTRY, KEY, VALUE
+    }
+
+    private class MapEntry extends AbstractMap.SimpleEntry<K, V> {
+        public MapEntry(K key, V value) {
+            super(key, value);
+        }
+
+        @Override
+        public V setValue(V value) {
+            V lastValue = super.setValue(value);
+            if (containsKey(getKey())) {
+                put(getKey(), value);
+            }
+            return lastValue;
+        }
+    }
+
+    /*
+     * Итератор обходит дерево, каким оно было при создании итератора: узлы этого дерева с этого момента
+     *   общие, и изменения словаря, в том числе через remove() итератора, их копируют, а не меняют
+     */
+    private class MapIterator<I> implements Iterator<I> {
+        private final Type type;
+        private final ArrayDeque<Node> pending = new ArrayDeque<>();
+        private Node current;
+        private int index = 0;
+        private K lastKey;
+        private boolean canRemove = false;
+
+        public MapIterator(Type type) {
+            this.type = type;
+            edit = new Object();
+            current = root;
+            pushChildren(current);
+        }
+
+        private void pushChildren(Node node) {
+            for (int i = 0; i < node.childCount(); i++) {
+                pending.push(node.childAt(i));
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (index == current.entryCount()) {
+                if (pending.isEmpty()) {
+                    return false;
+                }
+                current = pending.pop();
+                index = 0;
+                pushChildren(current);
+            }
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public I next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            K key = (K) current.keyAt(index);
+            V value = (V) current.valueAt(index);
+            index++;
+            lastKey = key;
+            canRemove = true;
+            switch (type) {
+                case KEY:
+                    return (I) key;
+                case VALUE:
+                    return (I) value;
+                default:
+                    return (I) new MapEntry(key, value);
+            }
+        }
+
+        @Override
+        public void remove() {
+            if (!canRemove) {
+                throw new IllegalStateException();
+            }
+            PersistentDictionary.this.remove(lastKey);
+            canRemove = false;
+        }
+    }
+
+    @Override
+    @NotNull
+    public Set<K> keySet() {
+        return new AbstractSet<>() {
+            @Override
+            public @NotNull Iterator<K> iterator() {
+                return new MapIterator<>(Type.KEY);
+            }
+
+            @Override
+            public int size() {
+                return PersistentDictionary.this.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+        };
+    }
+
+    @Override
+    @NotNull
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public @NotNull Iterator<V> iterator() {
+                return new MapIterator<>(Type.VALUE);
+            }
+
+            @Override
+            public int size() {
+                return PersistentDictionary.this.size();
+            }
+        };
+    }
+
+    @Override
+    @NotNull
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public @NotNull Iterator<Entry<K, V>> iterator() {
+                return new MapIterator<>(Type.ENTRY);
+            }
+
+            @Override
+            public int size() {
+                return PersistentDictionary.this.size();
+            }
+        };
+    }
+}
@@ -0,0 +1,68 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Перевод ключей и значений в байты для снимков словаря на диске
+ * Равные объекты должны давать одинаковые байты: в отображённом снимке ключи сравниваются побайтно
+ */
+public interface Serializer<T> {
+    byte[] toBytes(T value);
+
+    /**
+     * Прочитать объект из length байт buffer, начиная с offset; позиция buffer не меняется
+     */
+    T fromBytes(ByteBuffer buffer, int offset, int length);
+
+    Serializer<String> STRING = new Serializer<>() {
+        @Override
+        public byte[] toBytes(String value) {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String fromBytes(ByteBuffer buffer, int offset, int length) {
+            byte[] bytes = new byte[length];
+            buffer.get(offset, bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    };
+
+    // ключи byte[] в словарях на сериализации сравниваются по содержимому
+    Serializer<byte[]> BYTES = new Serializer<>() {
+        @Override
+        public byte[] toBytes(byte[] value) {
+            return value;
+        }
+
+        @Override
+        public byte[] fromBytes(ByteBuffer buffer, int offset, int length) {
+            byte[] bytes = new byte[length];
+            buffer.get(offset, bytes);
+            return bytes;
+        }
+    };
+
+    Serializer<Integer> INTEGER = new Serializer<>() {
+        @Override
+        public byte[] toBytes(Integer value) {
+            return ByteBuffer.allocate(Integer.BYTES).putInt(value).array();
+        }
+
+        @Override
+        public Integer fromBytes(ByteBuffer buffer, int offset, int length) {
+            return buffer.getInt(offset);
+        }
+    };
+
+    Serializer<Long> LONG = new Serializer<>() {
+        @Override
+        public byte[] toBytes(Long value) {
+            return ByteBuffer.allocate(Long.BYTES).putLong(value).array();
+        }
+
+        @Override
+        public Long fromBytes(ByteBuffer buffer, int offset, int length) {
+            return buffer.getLong(offset);
+        }
+    };
+}
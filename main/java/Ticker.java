@@ -0,0 +1,12 @@
+/**
+ * Источник времени в наносекундах; в тестах подменяется, чтобы проверять истечение срока без ожидания
+ * Значения сравниваются только между собой, начало отсчёта может быть любым
+ */
+@FunctionalInterface
+public interface Ticker {
+    long read();
+
+    static Ticker systemTicker() {
+        return System::nanoTime;
+    }
+}
@@ -0,0 +1,706 @@
+import org.jetbrains.annotations.NotNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * Словарь из двух уровней: горячие элементы в памяти, холодные -- в сегментах на диске
+ * Горячий уровень -- BoundedDictionary с политикой LRU, вес элемента -- оценка его размера в куче;
+ *   вместе с буфером записи он укладывается в maxHeapBytes
+ * Вытесненные элементы копятся в буфере записи и сбрасываются в каталог неизменяемыми сегментами
+ *   формата DictionarySnapshot; удаление ключа, лежащего на диске, пишет в буфер надгробие
+ * У каждого сегмента в памяти фильтр Блума, поэтому get() отсутствующего ключа почти никогда не читает диск
+ * get() найденного на диске ключа возвращает его в горячий уровень
+ * Когда сегментов становится COMPACTION_TRIGGER, фоновый поток сливает их в один, отбрасывая
+ *   перезаписанные значения и надгробия
+ * Обход видов идёт сначала по памяти, потом по сегментам, не загружая их целиком
+ * Сегменты -- временные файлы: close() удаляет их. Методы синхронизированы
+ */
+public class TieredDictionary<K, V> extends AbstractMap<K, V> implements Dictionary<K, V>, Closeable {
+    // оценка накладных расходов кучи на элемент: узел списка вытеснения, запись в таблице, заголовки объектов
+    private static final int ENTRY_OVERHEAD = 96;
+    private static final int COMPACTION_TRIGGER = 4;
+    // доля бюджета кучи под буфер записи
+    private static final int WRITE_BUFFER_SHARE = 8;
+    private static final String SEGMENT_PREFIX = "segment-";
+    private static final String SEGMENT_SUFFIX = ".dat";
+    // надгробие удалённого ключа в буфере и сегментах
+    private static final Object TOMBSTONE = new Object();
+    // ключа нет на этом уровне, надо смотреть в более старых
+    private static final Object ABSENT = new Object();
+
+    private static final class Segment<K> {
+        final Path path;
+        final MappedDictionary<K, Object> data;
+        final BloomFilter bloomFilter;
+
+        Segment(Path path, MappedDictionary<K, Object> data, BloomFilter bloomFilter) {
+            this.path = path;
+            this.data = data;
+            this.bloomFilter = bloomFilter;
+        }
+
+        // значение, TOMBSTONE или ABSENT
+        Object get(Object key) {
+            return bloomFilter.mightContain(key) ? data.getOrDefault(key, ABSENT) : ABSENT;
+        }
+    }
+
+    private final Path directory;
+    private final Serializer<K> keySerializer;
+    private final Serializer<V> valueSerializer;
+    // значения сегментов: пустой массив для надгробия, иначе байт 1 и байты значения
+    private final Serializer<Object> segmentSerializer;
+    private final long writeBufferBytes;
+    private final BoundedDictionary<K, V> hot;
+    private DictionaryImpl<K, Object> writeBuffer = new DictionaryImpl<>();
+    private long writeBufferWeight;
+    // сегменты от новых к старым; список не меняется, при изменениях заменяется целиком
+    private List<Segment<K>> segments = List.of();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "tiered-dictionary-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private boolean compacting;
+    private long nextSegmentId;
+    private int countOfElements;
+    private int modCount;
+    private boolean closed;
+
+    /**
+     * directory -- каталог для сегментов, создаётся, если его нет
+     */
+    public TieredDictionary(Path directory, Serializer<K> keySerializer, Serializer<V> valueSerializer,
+                            long maxHeapBytes) throws IOException {
+        if (maxHeapBytes <= 0) {
+            throw new IllegalArgumentException("Heap budget must be positive: " + maxHeapBytes);
+        }
+        Files.createDirectories(directory);
+        this.directory = directory;
+        this.keySerializer = keySerializer;
+        this.valueSerializer = valueSerializer;
+        segmentSerializer = new Serializer<>() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public byte[] toBytes(Object value) {
+                if (value == TOMBSTONE) {
+                    return new byte[0];
+                }
+                byte[] bytes = valueSerializer.toBytes((V) value);
+                return ByteBuffer.allocate(1 + bytes.length).put((byte) 1).put(bytes).array();
+            }
+
+            @Override
+            public Object fromBytes(ByteBuffer buffer, int offset, int length) {
+                return length == 0 ? TOMBSTONE : valueSerializer.fromBytes(buffer, offset + 1, length - 1);
+            }
+        };
+        writeBufferBytes = Math.max(1, maxHeapBytes / WRITE_BUFFER_SHARE);
+        hot = new BoundedDictionary<>(maxHeapBytes - writeBufferBytes, this::weigh,
+                BoundedDictionary.EvictionPolicy.LRU, this::spill);
+    }
+
+    private int weigh(K key, V value) {
+        return ENTRY_OVERHEAD + keySerializer.toBytes(key).length
+                + (value == null ? 0 : valueSerializer.toBytes(value).length);
+    }
+
+    private void checkOpen() {
+        if (closed) {
+            throw new IllegalStateException("Dictionary is closed");
+        }
+    }
+
+    // --- холодный уровень ---
+
+    // значение ключа на диске с учётом буфера записи: TOMBSTONE, если ключа там нет или он удалён
+    private Object coldGet(Object key) {
+        Object value = writeBuffer.getOrDefault(key, ABSENT);
+        for (int i = 0; value == ABSENT && i < segments.size(); i++) {
+            value = segments.get(i).get(key);
+        }
+        return value == ABSENT ? TOMBSTONE : value;
+    }
+
+    // вытесненный из памяти элемент или надгробие
+    @SuppressWarnings("unchecked")
+    private void spill(K key, Object value) {
+        writeBuffer.put(key, value);
+        writeBufferWeight += value == TOMBSTONE ? weigh(key, null) : weigh(key, (V) value);
+        if (writeBufferWeight >= writeBufferBytes) {
+            flush();
+        }
+    }
+
+    private Path nextSegmentPath() {
+        return directory.resolve(SEGMENT_PREFIX + nextSegmentId++ + SEGMENT_SUFFIX);
+    }
+
+    private Segment<K> writeSegment(Path path, Map<K, Object> entries) throws IOException {
+        DictionarySnapshot.write(entries, path, keySerializer, segmentSerializer);
+        BloomFilter bloomFilter = new BloomFilter(entries.size());
+        for (K key : entries.keySet()) {
+            bloomFilter.add(key);
+        }
+        return new Segment<>(path, DictionarySnapshot.load(path, keySerializer, segmentSerializer), bloomFilter);
+    }
+
+    // сбросить буфер записи новым сегментом
+    private void flush() {
+        if (writeBuffer.isEmpty()) {
+            return;
+        }
+        Segment<K> segment;
+        try {
+            segment = writeSegment(nextSegmentPath(), writeBuffer);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        List<Segment<K>> next = new ArrayList<>(segments.size() + 1);
+        next.add(segment);
+        next.addAll(segments);
+        segments = List.copyOf(next);
+        writeBuffer = new DictionaryImpl<>();
+        writeBufferWeight = 0;
+        scheduleCompaction();
+    }
+
+    private void scheduleCompaction() {
+        if (segments.size() >= COMPACTION_TRIGGER && !compacting && !closed) {
+            compacting = true;
+            List<Segment<K>> inputs = segments;
+            Path path = nextSegmentPath();
+            compactor.execute(() -> compact(inputs, path));
+        }
+    }
+
+    /*
+     * Слияние всех сегментов inputs в один файл path в фоновом потоке
+     * Элемент сегмента жив, если он не надгробие и ключа нет в более новых сегментах; надгробия можно
+     *   отбросить, потому что сливаются все сегменты вплоть до самого старого
+     * Пока идёт слияние, новые сегменты добавляются в начало списка и затеняют результат, как и входные сегменты
+     */
+    private void compact(List<Segment<K>> inputs, Path path) {
+        Segment<K> merged = null;
+        try {
+            int count = 0;
+            for (int i = 0; i < inputs.size(); i++) {
+                for (Entry<K, Object> entry : inputs.get(i).data.entrySet()) {
+                    if (isLive(inputs, i, entry)) {
+                        count++;
+                    }
+                }
+            }
+            if (count > 0) {
+                merged = writeSegment(path, new MergedView<>(inputs, count));
+            }
+        } catch (IOException | UncheckedIOException e) {
+            // сегменты остаются как были, следующий сброс буфера попробует снова
+            deleteQuietly(path);
+            synchronized (this) {
+                compacting = false;
+                notifyAll();
+            }
+            return;
+        }
+        synchronized (this) {
+            compacting = false;
+            if (closed || !segments.containsAll(inputs)) {
+                // clear() или close() уже выбросили входные сегменты
+                deleteQuietly(path);
+                notifyAll();
+                return;
+            }
+            List<Segment<K>> next = new ArrayList<>(segments);
+            next.removeAll(inputs);
+            if (merged != null) {
+                next.add(merged);
+            }
+            segments = List.copyOf(next);
+            for (Segment<K> input : inputs) {
+                deleteQuietly(input.path);
+            }
+            // за время слияния могло набраться ещё COMPACTION_TRIGGER сегментов
+            scheduleCompaction();
+            notifyAll();
+        }
+    }
+
+    private static <K> boolean isLive(List<Segment<K>> levels, int level, Entry<K, Object> entry) {
+        if (entry.getValue() == TOMBSTONE) {
+            return false;
+        }
+        for (int i = 0; i < level; i++) {
+            if (levels.get(i).get(entry.getKey()) != ABSENT) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // живые элементы сливаемых сегментов без загрузки в память; DictionarySnapshot.write обходит его один раз
+    private static final class MergedView<K> extends AbstractMap<K, Object> {
+        private final List<Segment<K>> inputs;
+        private final int count;
+
+        MergedView(List<Segment<K>> inputs, int count) {
+            this.inputs = inputs;
+            this.count = count;
+        }
+
+        @Override
+        @NotNull
+        public Set<Entry<K, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public @NotNull Iterator<Entry<K, Object>> iterator() {
+                    return new LevelIterator<>(inputs.size(), i -> inputs.get(i).data.entrySet().iterator(),
+                            (i, entry) -> isLive(inputs, i, entry));
+                }
+
+                @Override
+                public int size() {
+                    return count;
+                }
+            };
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            // временный файл в каталоге сегментов, его удалит следующий close()
+        }
+    }
+
+    /**
+     * Дождаться окончания фонового слияния сегментов
+     */
+    synchronized void awaitCompaction() throws InterruptedException {
+        while (compacting) {
+            wait();
+        }
+    }
+
+    int getSegmentCount() {
+        synchronized (this) {
+            return segments.size();
+        }
+    }
+
+    // --- Dictionary ---
+
+    @Override
+    public synchronized int size() {
+        checkOpen();
+        return countOfElements;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    @Override
+    public synchronized boolean containsKey(Object key) {
+        checkOpen();
+        return hot.containsKey(key) || coldGet(key) != TOMBSTONE;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized V get(Object key) {
+        checkOpen();
+        V value = hot.get(key);
+        if (value != null || hot.containsKey(key)) {
+            return value;
+        }
+        Object cold = coldGet(key);
+        if (cold == TOMBSTONE) {
+            return null;
+        }
+        // копия на диске остаётся, горячий уровень её затеняет
+        hot.put((K) key, (V) cold);
+        modCount++;
+        return (V) cold;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized V put(K key, V value) {
+        checkOpen();
+        V lastValue;
+        if (hot.containsKey(key)) {
+            lastValue = hot.put(key, value);
+        } else {
+            Object cold = coldGet(key);
+            if (cold == TOMBSTONE) {
+                lastValue = null;
+                countOfElements++;
+            } else {
+                lastValue = (V) cold;
+            }
+            hot.put(key, value);
+        }
+        modCount++;
+        return lastValue;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public synchronized V remove(Object key) {
+        checkOpen();
+        boolean inHot = hot.containsKey(key);
+        V hotValue = inHot ? hot.remove(key) : null;
+        Object cold = coldGet(key);
+        if (cold != TOMBSTONE) {
+            spill((K) key, TOMBSTONE);
+        } else if (!inHot) {
+            return null;
+        }
+        countOfElements--;
+        modCount++;
+        return inHot ? hotValue : (V) cold;
+    }
+
+    /**
+     * Заменить все значения: элементы с диска получают новые значения через буфер записи, не поднимаясь в память,
+     *   горячий уровень заменяется целиком с одним вытеснением в конце
+     */
+    @Override
+    public synchronized void replaceAll(BiFunction<? super K, ? super V, ? extends V> function) {
+        checkOpen();
+        Objects.requireNonNull(function);
+        // холодный уровень первым: буфер записи обход не затрагивает, а горячий уровень до конца обхода не меняется
+        EntryIterator iterator = new EntryIterator();
+        while (iterator.hasNext()) {
+            Entry<K, V> entry = iterator.next();
+            if (!iterator.lastFromHot) {
+                spill(entry.getKey(), function.apply(entry.getKey(), entry.getValue()));
+            }
+        }
+        hot.replaceAll(function);
+        modCount++;
+    }
+
+    @Override
+    public synchronized void clear() {
+        checkOpen();
+        hot.clear();
+        writeBuffer = new DictionaryImpl<>();
+        writeBufferWeight = 0;
+        for (Segment<K> segment : segments) {
+            deleteQuietly(segment.path);
+        }
+        segments = List.of();
+        countOfElements = 0;
+        modCount++;
+    }
+
+    /**
+     * Остановить фоновое слияние и удалить сегменты; повторный вызов ничего не делает
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+        }
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        synchronized (this) {
+            for (Segment<K> segment : segments) {
+                deleteQuietly(segment.path);
+            }
+            segments = List.of();
+            writeBuffer = new DictionaryImpl<>();
+            hot.clear();
+        }
+    }
+
+    // --- обход ---
+
+    private interface LevelSource<K> {
+        Iterator<Entry<K, Object>> iterator(int level);
+    }
+
+    private interface LevelFilter<K> {
+        boolean accept(int level, Entry<K, Object> entry);
+    }
+
+    // элементы уровней 0, 1, ..., levelCount - 1 по порядку, которые пропустил filter
+    private static final class LevelIterator<K> implements Iterator<Entry<K, Object>> {
+        private final int levelCount;
+        private final LevelSource<K> source;
+        private final LevelFilter<K> filter;
+        private int level = -1;
+        private Iterator<Entry<K, Object>> iterator = Collections.emptyIterator();
+        private Entry<K, Object> next;
+
+        LevelIterator(int levelCount, LevelSource<K> source, LevelFilter<K> filter) {
+            this.levelCount = levelCount;
+            this.source = source;
+            this.filter = filter;
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null) {
+                if (iterator.hasNext()) {
+                    Entry<K, Object> entry = iterator.next();
+                    if (filter.accept(level, entry)) {
+                        next = entry;
+                    }
+                } else if (level + 1 < levelCount) {
+                    iterator = source.iterator(++level);
+                } else {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public Entry<K, Object> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Entry<K, Object> result = next;
+            next = null;
+            return result;
+        }
+    }
+
+    /*
+     * Пара из обхода entrySet(): пока словарь не менялся, setValue() пишет прямо в уровень, откуда пара взята, --
+     *   в узел горячего уровня или новым значением в буфер записи, -- не меняя modCount, и обход продолжается
+     * После изменения словаря setValue() -- обычный put()
+     */
+    private class MapEntry extends AbstractMap.SimpleEntry<K, V> {
+        // пара горячего уровня, либо null для элемента с диска
+        private final Entry<K, V> hotEntry;
+        private final int expectedModCount = modCount;
+
+        MapEntry(K key, V value, Entry<K, V> hotEntry) {
+            super(key, value);
+            this.hotEntry = hotEntry;
+        }
+
+        @Override
+        public V setValue(V value) {
+            synchronized (TieredDictionary.this) {
+                checkOpen();
+                V lastValue = super.setValue(value);
+                if (modCount != expectedModCount) {
+                    return put(getKey(), value);
+                }
+                if (hotEntry != null) {
+                    hotEntry.setValue(value);
+                } else {
+                    spill(getKey(), value);
+                }
+                return lastValue;
+            }
+        }
+    }
+
+    /*
+     * Сначала горячий уровень, потом холодный: копия буфера записи и сегменты, которые были в момент перехода
+     *   к холодному уровню. Элемент холодного уровня пропускается, если ключ есть в памяти или в более новом
+     *   уровне, так что каждый ключ выдаётся один раз, а с диска читается по одному элементу
+     */
+    private class EntryIterator implements Iterator<Entry<K, V>> {
+        private final Iterator<Entry<K, V>> hotIterator = hot.entrySet().iterator();
+        private LevelIterator<K> coldIterator;
+        private DictionaryImpl<K, Object> coldBuffer;
+        private List<Segment<K>> coldSegments;
+        private K lastKey;
+        private boolean lastFromHot;
+        private boolean canRemove = false;
+        private int expectedModCount = modCount;
+
+        private void checkModCount() {
+            checkOpen();
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            synchronized (TieredDictionary.this) {
+                checkModCount();
+                if (coldIterator == null && hotIterator.hasNext()) {
+                    return true;
+                }
+                if (coldIterator == null) {
+                    coldBuffer = new DictionaryImpl<>();
+                    coldBuffer.putAll(writeBuffer);
+                    coldSegments = segments;
+                    coldIterator = new LevelIterator<>(coldSegments.size() + 1, i -> i == 0
+                            ? coldBuffer.entrySet().iterator()
+                            : coldSegments.get(i - 1).data.entrySet().iterator(), this::isVisible);
+                }
+                return coldIterator.hasNext();
+            }
+        }
+
+        private boolean isVisible(int level, Entry<K, Object> entry) {
+            K key = entry.getKey();
+            if (entry.getValue() == TOMBSTONE || hot.containsKey(key) || level > 0 && coldBuffer.containsKey(key)) {
+                return false;
+            }
+            for (int i = 0; i < level - 1; i++) {
+                if (coldSegments.get(i).get(key) != ABSENT) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Entry<K, V> next() {
+            synchronized (TieredDictionary.this) {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                canRemove = true;
+                if (coldIterator == null) {
+                    Entry<K, V> entry = hotIterator.next();
+                    lastKey = entry.getKey();
+                    lastFromHot = true;
+                    return new MapEntry(entry.getKey(), entry.getValue(), entry);
+                }
+                Entry<K, Object> entry = coldIterator.next();
+                lastKey = entry.getKey();
+                lastFromHot = false;
+                return new MapEntry(entry.getKey(), (V) entry.getValue(), null);
+            }
+        }
+
+        @Override
+        public void remove() {
+            synchronized (TieredDictionary.this) {
+                if (!canRemove) {
+                    throw new IllegalStateException();
+                }
+                checkModCount();
+                if (lastFromHot) {
+                    hotIterator.remove();
+                    if (coldGet(lastKey) != TOMBSTONE) {
+                        spill(lastKey, TOMBSTONE);
+                    }
+                    countOfElements--;
+                    modCount++;
+                } else {
+                    TieredDictionary.this.remove(lastKey);
+                }
+                expectedModCount = modCount;
+                canRemove = false;
+            }
+        }
+    }
+
+    @Override
+    @NotNull
+    public Set<K> keySet() {
+        return new AbstractSet<>() {
+            @Override
+            public @NotNull Iterator<K> iterator() {
+                Iterator<Entry<K, V>> iterator = new EntryIterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public K next() {
+                        return iterator.next().getKey();
+                    }
+
+                    @Override
+                    public void remove() {
+                        iterator.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return TieredDictionary.this.size();
+            }
+
+            @Override
+            public boolean contains(Object o) {
+                return containsKey(o);
+            }
+        };
+    }
+
+    @Override
+    @NotNull
+    public Collection<V> values() {
+        return new AbstractCollection<>() {
+            @Override
+            public @NotNull Iterator<V> iterator() {
+                Iterator<Entry<K, V>> iterator = new EntryIterator();
+                return new Iterator<>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iterator.hasNext();
+                    }
+
+                    @Override
+                    public V next() {
+                        return iterator.next().getValue();
+                    }
+
+                    @Override
+                    public void remove() {
+                        iterator.remove();
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return TieredDictionary.this.size();
+            }
+        };
+    }
+
+    @Override
+    @NotNull
+    public Set<Entry<K, V>> entrySet() {
+        return new AbstractSet<>() {
+            @Override
+            public @NotNull Iterator<Entry<K, V>> iterator() {
+                return new EntryIterator();
+            }
+
+            @Override
+            public int size() {
+                return TieredDictionary.this.size();
+            }
+        };
+    }
+}
@@ -0,0 +1,488 @@
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Сценарии, которые должна проходить любая реализация Dictionary: наследник только создаёт словарь
+ */
+public abstract class AbstractDictionaryTest {
+    private static final int sizeOfTestInput = 100;
+
+    protected abstract <K, V> Dictionary<K, V> create();
+
+    protected abstract <K, V> Dictionary<K, V> create(int capacity);
+
+    protected abstract <K, V> Dictionary<K, V> create(double loadFactor, int capacity);
+
+    /* testing size() */
+
+    @Test
+    public void testSizeAfterCreating() {
+        assertEquals((this.<Integer, Integer>create()).size(), 0);
+    }
+
+    @Test
+    public void testSizeAfterSimplePut() {
+        Dictionary<Integer, Integer> dict = create();
+        dict.put(1, 2);
+        assertEquals(dict.size(), 1);
+    }
+
+    @Test
+    public void testSizeAfterPuttingNewKeys() {
+        Dictionary<Integer, Integer> d = create();
+        for (int i = 1; i < sizeOfTestInput; i++) {
+            assertNull(d.put(i, i));
+            assertEquals(d.size(), i);
+        }
+    }
+
+    @Test
+    public void testSizeAfterPuttingSameKey() {
+        Dictionary<Integer, Integer> d = create();
+        for (int i = 1; i < sizeOfTestInput; i++) {
+            d.put(0, i);
+            assertEquals(d.size(), 1);
+        }
+    }
+
+    @Test
+    public void testSizeAfterRemove() {
+        Dictionary<Integer, Integer> d = create();
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            d.put(i, i);
+            assertEquals(d.size(), i + 1);
+        }
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            d.remove(i);
+            assertEquals(d.size(), sizeOfTestInput - i - 1);
+        }
+    }
+
+    @Test
+    public void testSizeAfterClear() {
+        Dictionary<Integer, Integer> d = create();
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            d.put(i, i);
+            assertEquals(d.size(), i + 1);
+        }
+        d.clear();
+        assertEquals(d.size(), 0);
+    }
+
+    /* testing containsKey() */
+    @Test
+    public void testContainsKeyForExisted() {
+        Dictionary<Integer, Integer> d = create();
+        for (int i = 1; i < sizeOfTestInput; i++) {
+            d.put(i, i);
+            assertTrue(d.containsKey(i));
+        }
+    }
+
+    @Test
+    public void testContainsKeyForNonExisted() {
+        Dictionary<Integer, Integer> d = create();
+        for (int i = 1; i < sizeOfTestInput; i++) {
+            d.put(i, i);
+            assertTrue(d.containsKey(i));
+            assertFalse(d.containsKey(i + 1));
+        }
+    }
+
+    @Test
+    public void testContainsKeyInEmptyDictionary() {
+        Dictionary<Integer, Integer> d = create();
+        d.put(0, 0);
+        d.remove(0);
+        for (int i = 1; i < sizeOfTestInput; i++) {
+            assertFalse(d.containsKey(i));
+        }
+    }
+
+    @Test
+    public void testContainsKeyAfterRemove() {
+        Dictionary<Integer, Integer> d = create();
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            d.put(i, i);
+        }
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            d.remove(i);
+            assertFalse(d.containsKey(i));
+        }
+    }
+
+    /* test get */
+
+    @Test
+    public void testGetAfterPuttingNewKeys() {
+        Dictionary<Integer, Integer> d = create();
+        for (int i = 1; i < sizeOfTestInput; i++) {
+            d.put(i, i);
+            assertEquals(d.get(i), i);
+        }
+    }
+
+    @Test
+    public void testGetAfterUpdatingValue() {
+        Dictionary<Integer, Integer> d = create();
+        for (int i = 1; i < sizeOfTestInput; i++) {
+            d.put(0, i);
+            assertEquals(d.get(0), i);
+        }
+    }
+
+    @Test
+    public void testGetAfterResize() {
+        Dictionary<Integer, Integer> d = create(0.3, sizeOfTestInput);
+        for (int i = 1; i < sizeOfTestInput; i++) {
+            d.put(i, i);
+            assertEquals(d.get(i), i);
+        }
+    }
+
+    @Test
+    public void testGetAfterRemove() {
+        Dictionary<Integer, Integer> d = create();
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            d.put(i, i);
+        }
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            d.remove(i);
+            assertNull(d.get(i));
+        }
+    }
+
+    @Test
+    public void testGetInEmptyDictionary() {
+        Dictionary<Integer, Integer> d = create();
+        d.put(0, 0);
+        d.remove(0);
+        for (int i = 1; i < sizeOfTestInput; i++) {
+            assertNull(d.get(i));
+        }
+    }
+
+    @Test
+    public void testGetForNonExistedKeys() {
+        Dictionary<Integer, Integer> d = create();
+        for (int i = 1; i < sizeOfTestInput; i++) {
+            d.put(i, i);
+            assertNull(d.get(i + 1));
+        }
+    }
+
+    /* test put */
+
+    @Test
+    public void testPutNewKeysSimple() {
+        Dictionary<Integer, Integer> d = create();
+        assertNull(d.put(0, 2));
+        assertNull(d.put(-1, 2));
+        assertNull(d.put(30248923, 2));
+        assertEquals(d.size(), 3);
+
+        Dictionary<String, Integer> d2 = create();
+        assertNull(d2.put("one", 2));
+        assertNull(d2.put("two", 2));
+        assertNull(d2.put("three", 2));
+        assertEquals(d2.size(), 3);
+
+        Dictionary<ArrayList<Integer>, Integer> d3 = create();
+        var v1 = new ArrayList<Integer>();
+        v1.add(0);
+        var v2 = new ArrayList<Integer>();
+        v2.add(1);
+        var v3 = new ArrayList<Integer>();
+        v3.add(2);
+        assertNull(d3.put(v1, 2));
+        assertNull(d3.put(v2, 2));
+        assertNull(d3.put(v3, 2));
+        assertEquals(d2.size(), 3);
+    }
+
+    @Test
+    public void testPutSameKeySimple() {
+        Dictionary<Integer, Integer> d = create();
+        assertNull(d.put(0, 2));
+        assertNull(d.put(-1, 2));
+        assertNull(d.put(30248923, 2));
+        assertEquals(d.put(0, 3), 2);
+        assertEquals(d.size(), 3);
+
+        Dictionary<String, Integer> d2 = create();
+        String s1 = "string";
+        String s2 = "string"; // кеширование
+        String s3 = "pip";
+        assertNull(d2.put(s1, 2));
+        assertEquals(d2.put(s2, 3), 2);
+        assertNull(d2.put(s3, 2));
+    }
+
+    @Test
+    public void testPutAfterRemove() {
+        Dictionary<Integer, Integer> d = create();
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertNull(d.put(i, i));
+            assertEquals(d.remove(i), i);
+            assertNull(d.put(i, i));
+        }
+    }
+
+    @Test
+    public void testPutAfterClear() {
+        Dictionary<Integer, Integer> d = create();
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertNull(d.put(i, i));
+        }
+        d.clear();
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertNull(d.put(i, i));
+        }
+    }
+
+    @Test
+    public void testPutAfterResize() {
+        Dictionary<Integer, Integer> d = create(0.2, sizeOfTestInput);
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertNull(d.put(i, i));
+        }
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertEquals(d.put(i, i), i);
+        }
+    }
+
+    @Test
+    public void testPutStress() {
+        Dictionary<Integer, Integer> d = create();
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertNull(d.put(i, i));
+        }
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertEquals(d.put(i, i + 1), i);
+        }
+
+        Dictionary<String, Integer> d2 = create();
+        String s = "a".repeat(sizeOfTestInput);
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertNull(d2.put(s.substring(i), i));
+        }
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertEquals(d2.put(s.substring(i), i + 1), i);
+        }
+    }
+
+    /* test remove */
+    @Test
+    public void testRemoveNewKeysSimple() {
+        Dictionary<Integer, Integer> d = create();
+        assertNull(d.put(0, 2));
+        assertNull(d.put(-1, 2));
+        assertNull(d.put(30248923, 2));
+        assertEquals(d.remove(0), 2);
+        assertEquals(d.remove(-1), 2);
+        assertEquals(d.remove(30248923), 2);
+        assertEquals(d.size(), 0);
+
+        Dictionary<String, Integer> d2 = create();
+        assertNull(d2.put("one", 2));
+        assertNull(d2.put("two", 2));
+        assertNull(d2.put("three", 2));
+        assertEquals(d2.remove("one"), 2);
+        assertEquals(d2.remove("two"), 2);
+        assertEquals(d2.remove("three"), 2);
+        assertEquals(d2.size(), 0);
+
+        Dictionary<ArrayList<Integer>, Integer> d3 = create();
+        var v1 = new ArrayList<Integer>();
+        v1.add(0);
+        var v2 = new ArrayList<Integer>();
+        v2.add(1);
+        var v3 = new ArrayList<Integer>();
+        v3.add(2);
+        assertNull(d3.put(v1, 2));
+        assertNull(d3.put(v2, 2));
+        assertNull(d3.put(v3, 2));
+        assertEquals(d3.remove(v1), 2);
+        assertEquals(d3.remove(v2), 2);
+        assertEquals(d3.remove(v3), 2);
+        assertEquals(d2.size(), 0);
+    }
+
+    @Test
+    public void testRemoveNonExisted() {
+        Dictionary<Integer, Integer> d = create();
+        assertNull(d.put(-1, 0));
+        assertNull(d.remove(0));
+        assertEquals(d.size(), 1);
+        assertEquals(d.remove(-1), 0);
+        assertEquals(d.size(), 0);
+        assertNull(d.remove(-1));
+        assertEquals(d.size(), 0);
+    }
+
+    @Test
+    public void testRemoveAfterResize() {
+        Dictionary<Integer, Integer> d = create(sizeOfTestInput / 10);
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertNull(d.put(i, i));
+        }
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertEquals(d.remove(i), i);
+            assertEquals(d.size(), sizeOfTestInput - i - 1);
+        }
+    }
+
+    @Test
+    public void testRemoveAfterClear() {
+        Dictionary<Integer, Integer> d = create(sizeOfTestInput);
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertNull(d.put(i, i));
+        }
+        d.clear();
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertNull(d.remove(i));
+            assertEquals(d.size(), 0);
+        }
+    }
+
+    @Test
+    public void testRemoveCheckValue() {
+        Dictionary<Integer, Integer> d = create(sizeOfTestInput);
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertNull(d.put(i, i));
+            assertEquals(d.remove(i), i);
+            assertNull(d.put(i, i));
+            assertEquals(d.put(i, i + 1), i);
+            assertEquals(d.remove(i), i + 1);
+        }
+    }
+
+    @Test
+    public void testClear() {
+        Dictionary<Integer, Integer> d = create(sizeOfTestInput);
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertNull(d.put(i, i));
+        }
+        assertEquals(d.size(), sizeOfTestInput);
+        d.clear();
+        assertEquals(d.size(), 0);
+    }
+
+    @Test
+    public void testKeySetElements() {
+        Dictionary<Integer, Integer> d = create(sizeOfTestInput);
+        Set<Integer> s = new HashSet<>();
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertNull(d.put(i, i));
+            s.add(i);
+        }
+        assertEquals(s, d.keySet());
+    }
+
+    @Test
+    public void testKeySetIteratorNext() {
+        Dictionary<Integer, Integer> d = create(sizeOfTestInput);
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertNull(d.put(i, i));
+        }
+        for (Integer key : d.keySet()) {
+            assertTrue(d.containsKey(key));
+        }
+    }
+
+    @Test
+    public void testKeySetIteratorRemove() {
+        Dictionary<Integer, Integer> d = create();
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertNull(d.put(i, i));
+        }
+        for (var iterator = d.keySet().iterator(); iterator.hasNext(); ) {
+            var key = iterator.next();
+            iterator.remove();
+            assertNull(d.get(key));
+        }
+        assertEquals(d.size(), 0);
+    }
+
+    @Test
+    public void testValueCollectionElements() {
+        Dictionary<Integer, Integer> d = create(sizeOfTestInput);
+        Collection<Integer> c = new ArrayList<>();
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertNull(d.put(i, i));
+            c.add(i);
+        }
+        assertTrue(c.containsAll(d.values()));
+        assertEquals(c.size(), d.size());
+    }
+
+    @Test
+    public void testValueCollectionIteratorNext() {
+        Dictionary<Integer, Integer> d = create(sizeOfTestInput);
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertNull(d.put(i, i));
+        }
+        for (Integer val : d.values()) {
+            assertTrue(d.containsKey(val));
+        }
+    }
+
+    @Test
+    public void testValueCollectionIteratorRemove() {
+        Dictionary<Integer, Integer> d = create();
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertNull(d.put(i, i));
+        }
+        for (var iterator = d.values().iterator(); iterator.hasNext(); ) {
+            iterator.next();
+            iterator.remove();
+        }
+        assertEquals(d.size(), 0);
+    }
+
+    @Test
+    public void testEntrySetElements() {
+        Dictionary<Integer, Integer> d = create(sizeOfTestInput);
+        Set<Map.Entry<Integer, Integer>> s = new HashSet<>();
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertNull(d.put(i, i));
+            s.add(new AbstractMap.SimpleEntry<>(i, i));
+        }
+        assertEquals(s, d.entrySet());
+    }
+
+    @Test
+    public void testEntrySetIteratorNext() {
+        Dictionary<Integer, Integer> d = create(sizeOfTestInput);
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertNull(d.put(i, i));
+        }
+        for (Map.Entry<Integer, Integer> entry : d.entrySet()) {
+            assertEquals(d.get(entry.getKey()), entry.getValue());
+        }
+    }
+
+    @Test
+    public void testEntrySetIteratorRemove() {
+        Dictionary<Integer, Integer> d = create();
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertNull(d.put(i, i));
+        }
+        for (var iterator = d.entrySet().iterator(); iterator.hasNext(); ) {
+            var entry = iterator.next();
+            iterator.remove();
+            assertNull(d.get(entry.getKey()));
+        }
+        assertEquals(d.size(), 0);
+    }
+
+    @Test
+    public void testNegativeHash() {
+        Dictionary<Integer, Integer> d = create();
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertNull(d.put(-i, i));
+            assertEquals(d.get(-i), i);
+        }
+    }
+}
@@ -0,0 +1,206 @@
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class BoundedDictionaryTest {
+    private static final int sizeOfTestInput = 100;
+
+    @Test
+    public void testSizeNeverExceedsMaximum() {
+        for (var policy : BoundedDictionary.EvictionPolicy.values()) {
+            BoundedDictionary<Integer, Integer> d = new BoundedDictionary<>(sizeOfTestInput / 10, policy);
+            for (int i = 0; i < sizeOfTestInput; i++) {
+                assertNull(d.put(i, i));
+                assertTrue(d.size() <= sizeOfTestInput / 10);
+                assertEquals(d.get(i), i);
+            }
+            assertEquals(d.size(), sizeOfTestInput / 10);
+            assertEquals(d.getEvictionCount(), sizeOfTestInput - sizeOfTestInput / 10);
+            for (var entry : d.entrySet()) {
+                assertEquals(entry.getKey(), entry.getValue());
+            }
+        }
+    }
+
+    @Test
+    public void testLruEvictsLeastRecentlyUsed() {
+        BoundedDictionary<Integer, Integer> d = new BoundedDictionary<>(3, BoundedDictionary.EvictionPolicy.LRU);
+        d.put(1, 1);
+        d.put(2, 2);
+        d.put(3, 3);
+        d.get(1);
+        d.put(4, 4);
+        assertFalse(d.containsKey(2));
+        assertEquals(d.keySet(), Set.of(1, 3, 4));
+    }
+
+    @Test
+    public void testClockSparesReferenced() {
+        BoundedDictionary<Integer, Integer> d = new BoundedDictionary<>(3, BoundedDictionary.EvictionPolicy.CLOCK);
+        d.put(1, 1);
+        d.put(2, 2);
+        d.put(3, 3);
+        // обращались ко всем, стрелка снимает биты по кругу и вытесняет самый старый
+        d.put(4, 4);
+        assertEquals(d.keySet(), Set.of(2, 3, 4));
+        d.get(3);
+        d.put(5, 5);
+        assertEquals(d.keySet(), Set.of(3, 4, 5));
+        d.put(6, 6);
+        assertEquals(d.keySet(), Set.of(3, 5, 6));
+    }
+
+    @Test
+    public void testTinyLfuResistsScan() {
+        BoundedDictionary<Integer, Integer> d = new BoundedDictionary<>(sizeOfTestInput,
+                BoundedDictionary.EvictionPolicy.W_TINY_LFU);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < sizeOfTestInput / 2; i++) {
+                if (d.get(i) == null) {
+                    d.put(i, i);
+                }
+            }
+        }
+        // ключи, которые встречаются по одному разу, не должны вытеснить часто используемые
+        for (int i = sizeOfTestInput; i < sizeOfTestInput * 10; i++) {
+            d.put(i, i);
+        }
+        int kept = 0;
+        for (int i = 0; i < sizeOfTestInput / 2; i++) {
+            if (d.containsKey(i)) {
+                kept++;
+            }
+        }
+        assertTrue(kept >= sizeOfTestInput / 2 * 9 / 10);
+    }
+
+    @Test
+    public void testIterationIsNotAccess() {
+        BoundedDictionary<Integer, Integer> d = new BoundedDictionary<>(3, BoundedDictionary.EvictionPolicy.LRU);
+        d.put(1, 1);
+        d.put(2, 2);
+        d.put(3, 3);
+        for (Integer value : d.values()) {
+            assertNotNull(value);
+        }
+        assertTrue(d.keySet().contains(1));
+        assertTrue(d.containsKey(1));
+        d.put(4, 4);
+        assertFalse(d.containsKey(1));
+        assertEquals(d.getHitCount(), 0);
+    }
+
+    @Test
+    public void testWeights() {
+        BoundedDictionary<String, String> d = new BoundedDictionary<>(10, (key, value) -> value.length(),
+                BoundedDictionary.EvictionPolicy.LRU);
+        d.put("a", "aaaa");
+        d.put("b", "bbbb");
+        assertEquals(d.getTotalWeight(), 8);
+        d.put("c", "cc");
+        assertEquals(d.size(), 3);
+        d.put("a", "aaaaaa");
+        assertFalse(d.containsKey("b"));
+        assertEquals(d.getTotalWeight(), 8);
+        assertEquals(d.getEvictionWeight(), 4);
+        assertThrows(IllegalArgumentException.class,
+                () -> new BoundedDictionary<String, String>(10, (key, value) -> -1,
+                        BoundedDictionary.EvictionPolicy.LRU).put("a", "a"));
+    }
+
+    @Test
+    public void testSetValueAndReplaceAll() {
+        BoundedDictionary<String, String> d = new BoundedDictionary<>(10, (key, value) -> value.length(),
+                BoundedDictionary.EvictionPolicy.LRU);
+        d.put("a", "a");
+        d.put("b", "b");
+        d.put("c", "c");
+        for (var entry : d.entrySet()) {
+            assertEquals(entry.setValue(entry.getValue() + entry.getValue()), entry.getKey());
+            assertEquals(entry.getValue(), entry.getKey() + entry.getKey());
+        }
+        assertEquals(d, Map.of("a", "aa", "b", "bb", "c", "cc"));
+        assertEquals(d.getTotalWeight(), 6);
+        d.replaceAll((key, value) -> value + "-");
+        assertEquals(d, Map.of("a", "aa-", "b", "bb-", "c", "cc-"));
+        assertEquals(d.getTotalWeight(), 9);
+        // замена не обращение: вытесняется самый давний по put()
+        d.replaceAll((key, value) -> value + value);
+        assertEquals(d.getTotalWeight(), 6);
+        assertEquals(d, Map.of("c", "cc-cc-"));
+        assertEquals(d.getEvictionCount(), 2);
+        var entry = d.entrySet().iterator().next();
+        d.remove("c");
+        entry.setValue("x");
+        assertTrue(d.isEmpty());
+        assertEquals(d.getTotalWeight(), 0);
+    }
+
+    @Test
+    public void testCounters() {
+        BoundedDictionary<Integer, Integer> d = new BoundedDictionary<>(sizeOfTestInput);
+        assertEquals(d.getHitRate(), 1.0);
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            d.put(i, i);
+        }
+        for (int i = 0; i < sizeOfTestInput * 2; i++) {
+            d.get(i);
+        }
+        assertEquals(d.getHitCount(), sizeOfTestInput);
+        assertEquals(d.getMissCount(), sizeOfTestInput);
+        assertEquals(d.getHitRate(), 0.5);
+    }
+
+    @Test
+    public void testRemoveAndIteratorRemove() {
+        for (var policy : BoundedDictionary.EvictionPolicy.values()) {
+            BoundedDictionary<Integer, Integer> d = new BoundedDictionary<>(sizeOfTestInput, policy);
+            for (int i = 0; i < sizeOfTestInput; i++) {
+                d.put(i, i);
+            }
+            for (int i = 0; i < sizeOfTestInput; i += 2) {
+                assertEquals(d.remove(i), i);
+                assertNull(d.remove(i));
+            }
+            for (var iterator = d.keySet().iterator(); iterator.hasNext(); ) {
+                if (iterator.next() % 3 == 0) {
+                    iterator.remove();
+                }
+            }
+            assertEquals(d.getTotalWeight(), d.size());
+            // после удалений место освободилось, и вытеснять ничего не нужно
+            int size = d.size();
+            for (int i = sizeOfTestInput; i < sizeOfTestInput * 2 - size; i++) {
+                d.put(i, i);
+            }
+            assertEquals(d.size(), sizeOfTestInput);
+            assertEquals(d.getEvictionCount(), 0);
+            d.clear();
+            assertEquals(d.size(), 0);
+            for (int i = 0; i < sizeOfTestInput * 2; i++) {
+                d.put(i, i);
+            }
+            assertEquals(d.size(), sizeOfTestInput);
+        }
+    }
+
+    @Test
+    public void testEvictionListener() {
+        Map<Integer, Integer> evicted = new HashMap<>();
+        BoundedDictionary<Integer, Integer> d = new BoundedDictionary<>(sizeOfTestInput, (key, value) -> 1,
+                BoundedDictionary.EvictionPolicy.LRU, (key, value) -> {
+                    assertNull(evicted.put(key, value));
+                });
+        for (int i = 0; i < sizeOfTestInput * 2; i++) {
+            d.put(i, -i);
+        }
+        assertEquals(evicted.size(), sizeOfTestInput);
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertEquals(evicted.get(i), -i);
+            assertFalse(d.containsKey(i));
+        }
+        d.remove(sizeOfTestInput);
+        d.clear();
+        assertEquals(evicted.size(), sizeOfTestInput);
+    }
+}
@@ -0,0 +1,27 @@
+/**
+ * Ключ с управляемым хешем для тестов коллизий: равны ключи с одинаковым id, а hashCode() -- заданный hash,
+ *   поэтому разные ключи могут иметь полностью совпадающие хеши
+ */
+final class CollidingKey {
+    private final int id;
+    private final int hash;
+
+    CollidingKey(int id, int hash) {
+        this.id = id;
+        this.hash = hash;
+    }
+
+    int id() {
+        return id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof CollidingKey && ((CollidingKey) o).id == id;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
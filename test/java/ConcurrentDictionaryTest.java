@@ -0,0 +1,188 @@
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrentDictionaryTest extends AbstractDictionaryTest {
+    private static final int sizeOfTestInput = 100;
+    private static final int countOfThreads = 8;
+    private static final int sizeOfStressInput = 20_000;
+
+    @Override
+    protected <K, V> Dictionary<K, V> create() {
+        return new ConcurrentDictionary<>();
+    }
+
+    @Override
+    protected <K, V> Dictionary<K, V> create(int capacity) {
+        return new ConcurrentDictionary<>(capacity);
+    }
+
+    @Override
+    protected <K, V> Dictionary<K, V> create(double loadFactor, int capacity) {
+        return new ConcurrentDictionary<>(loadFactor, capacity);
+    }
+
+    // запустить task(номер потока) одновременно во всех потоках и дождаться их
+    private static void runConcurrently(ThrowingTask task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(countOfThreads);
+        CyclicBarrier start = new CyclicBarrier(countOfThreads);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < countOfThreads; t++) {
+                int thread = t;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    task.run(thread);
+                    return null;
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface ThrowingTask {
+        void run(int thread) throws Exception;
+    }
+
+    /* атомарные операции ConcurrentMap и запрет null */
+
+    @Test
+    public void testAtomicOperations() {
+        ConcurrentDictionary<String, Integer> d = new ConcurrentDictionary<>();
+        assertNull(d.putIfAbsent("a", 1));
+        assertEquals(d.putIfAbsent("a", 2), 1);
+        assertFalse(d.replace("a", 2, 3));
+        assertTrue(d.replace("a", 1, 3));
+        assertEquals(d.replace("a", 4), 3);
+        assertNull(d.replace("b", 4));
+        assertFalse(d.remove("a", 3));
+        assertTrue(d.remove("a", 4));
+        assertTrue(d.isEmpty());
+    }
+
+    @Test
+    public void testNullsRejected() {
+        ConcurrentDictionary<String, Integer> d = new ConcurrentDictionary<>();
+        assertThrows(NullPointerException.class, () -> d.put(null, 1));
+        assertThrows(NullPointerException.class, () -> d.put("a", null));
+    }
+
+    /* многопоточные сценарии */
+
+    @Test
+    public void testConcurrentPutDisjointKeys() throws Exception {
+        ConcurrentDictionary<Integer, Integer> d = new ConcurrentDictionary<>(2);
+        runConcurrently(thread -> {
+            for (int i = thread; i < sizeOfStressInput; i += countOfThreads) {
+                assertNull(d.put(i, i));
+            }
+        });
+        assertEquals(d.size(), sizeOfStressInput);
+        for (int i = 0; i < sizeOfStressInput; i++) {
+            assertEquals(d.get(i), i);
+        }
+    }
+
+    @Test
+    public void testConcurrentPutSameKeys() throws Exception {
+        ConcurrentDictionary<Integer, Integer> d = new ConcurrentDictionary<>(2);
+        runConcurrently(thread -> {
+            for (int i = 0; i < sizeOfStressInput; i++) {
+                d.put(i, i);
+            }
+        });
+        assertEquals(d.size(), sizeOfStressInput);
+        assertEquals(d.keySet().size(), sizeOfStressInput);
+    }
+
+    @Test
+    public void testConcurrentPutAndRemove() throws Exception {
+        ConcurrentDictionary<Integer, Integer> d = new ConcurrentDictionary<>(2);
+        runConcurrently(thread -> {
+            for (int i = thread; i < sizeOfStressInput; i += countOfThreads) {
+                assertNull(d.put(i, i));
+                if (i % 2 == 0) {
+                    assertEquals(d.remove(i), i);
+                }
+            }
+        });
+        assertEquals(d.size(), sizeOfStressInput / 2);
+        for (int i = 0; i < sizeOfStressInput; i++) {
+            assertEquals(d.containsKey(i), i % 2 == 1);
+        }
+    }
+
+    @Test
+    public void testReadersDuringResize() throws Exception {
+        ConcurrentDictionary<Integer, Integer> d = new ConcurrentDictionary<>(2);
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            d.put(-i - 1, i);
+        }
+        AtomicBoolean failed = new AtomicBoolean();
+        runConcurrently(thread -> {
+            if (thread % 2 == 0) {
+                for (int i = thread; i < sizeOfStressInput; i += countOfThreads) {
+                    d.put(i, i);
+                }
+            } else {
+                for (int round = 0; round < 50; round++) {
+                    // ключи, положенные до старта, должны быть видны на протяжении всех рехеширований
+                    for (int i = 0; i < sizeOfTestInput; i++) {
+                        if (!Integer.valueOf(i).equals(d.get(-i - 1))) {
+                            failed.set(true);
+                        }
+                    }
+                }
+            }
+        });
+        assertFalse(failed.get());
+        assertEquals(d.size(), sizeOfTestInput + sizeOfStressInput / 2);
+    }
+
+    @Test
+    public void testConcurrentCounters() throws Exception {
+        ConcurrentDictionary<Integer, Integer> d = new ConcurrentDictionary<>();
+        runConcurrently(thread -> {
+            for (int i = 0; i < sizeOfStressInput; i++) {
+                d.merge(i % sizeOfTestInput, 1, Integer::sum);
+            }
+        });
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertEquals(d.get(i), countOfThreads * sizeOfStressInput / sizeOfTestInput);
+        }
+    }
+
+    @Test
+    public void testIterationDuringModification() throws Exception {
+        ConcurrentDictionary<Integer, Integer> d = new ConcurrentDictionary<>(2);
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            d.put(i, i);
+        }
+        runConcurrently(thread -> {
+            if (thread == 0) {
+                for (int round = 0; round < 20; round++) {
+                    Set<Integer> seen = new HashSet<>();
+                    for (Integer key : d.keySet()) {
+                        seen.add(key);
+                    }
+                    // ключи, которые никто не трогает, итератор обязан увидеть
+                    for (int i = 0; i < sizeOfTestInput; i++) {
+                        assertTrue(seen.contains(i));
+                    }
+                }
+            } else {
+                for (int i = sizeOfTestInput + countOfThreads + thread; i < sizeOfStressInput; i += countOfThreads) {
+                    d.put(i, i);
+                    d.remove(i - countOfThreads);
+                }
+            }
+        });
+    }
+}
@@ -0,0 +1,94 @@
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DictionarySnapshotTest {
+    private static final int sizeOfTestInput = 100;
+
+    private static Path tempFile() throws IOException {
+        Path path = Files.createTempFile("dictionary", ".snapshot");
+        path.toFile().deleteOnExit();
+        return path;
+    }
+
+    @Test
+    public void testWriteAndLoad() throws IOException {
+        DictionaryImpl<String, Long> d = new DictionaryImpl<>();
+        for (int i = 0; i < sizeOfTestInput * 100; i++) {
+            d.put("key" + i, (long) i * i);
+        }
+        d.put("null", null);
+        Path path = tempFile();
+        DictionarySnapshot.write(d, path, Serializer.STRING, Serializer.LONG);
+        MappedDictionary<String, Long> mapped = DictionarySnapshot.load(path, Serializer.STRING, Serializer.LONG);
+        assertEquals(mapped.size(), d.size());
+        for (int i = 0; i < sizeOfTestInput * 100; i++) {
+            assertEquals(mapped.get("key" + i), (long) i * i);
+            assertNull(mapped.get("missing" + i));
+        }
+        assertTrue(mapped.containsKey("null"));
+        assertNull(mapped.get("null"));
+        assertFalse(mapped.containsKey(1));
+        assertEquals(mapped, d);
+        assertEquals(d, mapped);
+        assertEquals(mapped.keySet(), d.keySet());
+        int[] count = {0};
+        mapped.forEach((key, value) -> count[0]++);
+        assertEquals(count[0], d.size());
+        assertThrows(UnsupportedOperationException.class, () -> mapped.put("a", 1L));
+    }
+
+    @Test
+    public void testEmptyAndCustomSerializer() throws IOException {
+        Path path = tempFile();
+        DictionarySnapshot.write(new DictionaryImpl<Integer, Integer>(), path, Serializer.INTEGER, Serializer.INTEGER);
+        assertTrue(DictionarySnapshot.load(path, Serializer.INTEGER, Serializer.INTEGER).isEmpty());
+
+        Serializer<int[]> intArray = new Serializer<>() {
+            @Override
+            public byte[] toBytes(int[] value) {
+                ByteBuffer buffer = ByteBuffer.allocate(value.length * Integer.BYTES);
+                buffer.asIntBuffer().put(value);
+                return buffer.array();
+            }
+
+            @Override
+            public int[] fromBytes(ByteBuffer buffer, int offset, int length) {
+                int[] value = new int[length / Integer.BYTES];
+                for (int i = 0; i < value.length; i++) {
+                    value[i] = buffer.getInt(offset + i * Integer.BYTES);
+                }
+                return value;
+            }
+        };
+        Map<Integer, int[]> source = new HashMap<>();
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            source.put(i, new int[i]);
+        }
+        DictionarySnapshot.write(source, path, Serializer.INTEGER, intArray);
+        MappedDictionary<Integer, int[]> mapped = DictionarySnapshot.load(path, Serializer.INTEGER, intArray);
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertEquals(mapped.get(i).length, i);
+        }
+    }
+
+    @Test
+    public void testRejectsForeignFiles() throws IOException {
+        Path path = tempFile();
+        Files.write(path, new byte[]{1, 2, 3});
+        assertThrows(IOException.class, () -> DictionarySnapshot.load(path, Serializer.INTEGER, Serializer.INTEGER));
+        DictionarySnapshot.write(Map.of(1, 1), path, Serializer.INTEGER, Serializer.INTEGER);
+        byte[] bytes = Files.readAllBytes(path);
+        // номер версии формата -- второе число заголовка
+        bytes[7] = 99;
+        Files.write(path, bytes);
+        assertThrows(IOException.class, () -> DictionarySnapshot.load(path, Serializer.INTEGER, Serializer.INTEGER));
+        bytes[7] = 1;
+        Files.write(path, Arrays.copyOf(bytes, bytes.length / 2));
+        assertThrows(IOException.class, () -> DictionarySnapshot.load(path, Serializer.INTEGER, Serializer.INTEGER));
+    }
+}
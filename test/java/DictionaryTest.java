@@ -1,480 +1,935 @@
 import org.junit.jupiter.api.Test;
 import ru.hse.fmcs.DictionaryImpl;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import static org.junit.jupiter.api.Assertions.*;
 
-public class DictionaryTest {
+public class DictionaryTest extends AbstractDictionaryTest {
     private static final int sizeOfTestInput = 100;
 
-    /* testing size() */
+    @Override
+    protected <K, V> Dictionary<K, V> create() {
+        return new DictionaryImpl<>();
+    }
 
-    @Test
-    public void testSizeAfterCreating() {
-        assertEquals((new DictionaryImpl<Integer, Integer>()).size(), 0);
+    @Override
+    protected <K, V> Dictionary<K, V> create(int capacity) {
+        return new DictionaryImpl<>(capacity);
     }
 
-    @Test
-    public void testSizeAfterSimplePut() {
-        DictionaryImpl<Integer, Integer> dict = new DictionaryImpl<>();
-        dict.put(1, 2);
-        assertEquals(dict.size(), 1);
+    @Override
+    protected <K, V> Dictionary<K, V> create(double loadFactor, int capacity) {
+        return new DictionaryImpl<>(loadFactor, capacity);
     }
 
+    /* test incremental resize */
+
     @Test
-    public void testSizeAfterPuttingNewKeys() {
-        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>();
-        for (int i = 1; i < sizeOfTestInput; i++) {
+    public void testIncrementalResizeKeepsAllKeys() {
+        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>(0.75, 16, true);
+        for (int i = 0; i < sizeOfTestInput * 10; i++) {
             assertNull(d.put(i, i));
-            assertEquals(d.size(), i);
+            for (int j = 0; j <= i; j += 37) {
+                assertEquals(d.get(j), j);
+            }
         }
-    }
-
-    @Test
-    public void testSizeAfterPuttingSameKey() {
-        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>();
-        for (int i = 1; i < sizeOfTestInput; i++) {
-            d.put(0, i);
-            assertEquals(d.size(), 1);
+        assertEquals(d.size(), sizeOfTestInput * 10);
+        for (int i = 0; i < sizeOfTestInput * 10; i++) {
+            assertEquals(d.remove(i), i);
         }
+        assertEquals(d.size(), 0);
     }
 
     @Test
-    public void testSizeAfterRemove() {
-        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>();
-        for (int i = 0; i < sizeOfTestInput; i++) {
+    public void testIncrementalResizeMovesBucketsStepByStep() {
+        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>(0.75, 1024, true);
+        int i = 0;
+        while (!d.isRehashing()) {
             d.put(i, i);
-            assertEquals(d.size(), i + 1);
+            i++;
         }
-        for (int i = 0; i < sizeOfTestInput; i++) {
-            d.remove(i);
-            assertEquals(d.size(), sizeOfTestInput - i - 1);
+        int pending = d.pendingRehashSteps();
+        assertTrue(pending > 1);
+        d.put(i, i);
+        assertEquals(d.pendingRehashSteps(), pending - 1);
+        while (d.isRehashing()) {
+            d.remove(-1);
+        }
+        assertEquals(d.pendingRehashSteps(), 0);
+        for (int j = 0; j <= i; j++) {
+            assertEquals(d.get(j), j);
         }
     }
 
     @Test
-    public void testSizeAfterClear() {
-        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>();
-        for (int i = 0; i < sizeOfTestInput; i++) {
+    public void testIterationDuringIncrementalResize() {
+        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>(0.75, 1024, true);
+        int i = 0;
+        while (!d.isRehashing()) {
             d.put(i, i);
-            assertEquals(d.size(), i + 1);
+            i++;
+        }
+        Set<Integer> s = new HashSet<>();
+        for (int j = 0; j < i; j++) {
+            s.add(j);
+        }
+        assertEquals(d.keySet(), s);
+        for (var iterator = d.keySet().iterator(); iterator.hasNext(); ) {
+            iterator.next();
+            iterator.remove();
         }
-        d.clear();
         assertEquals(d.size(), 0);
     }
 
-    /* testing containsKey() */
+    /* test shrink */
+
     @Test
-    public void testContainsKeyForExisted() {
-        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>();
-        for (int i = 1; i < sizeOfTestInput; i++) {
-            d.put(i, i);
-            assertTrue(d.containsKey(i));
+    public void testShrinkAfterBulkRemove() {
+        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>(16);
+        for (int i = 0; i < sizeOfTestInput * 10; i++) {
+            assertNull(d.put(i, i));
+        }
+        int grownCapacity = d.getCapacity();
+        for (int i = 0; i < sizeOfTestInput * 10; i++) {
+            assertEquals(d.remove(i), i);
         }
+        assertTrue(d.getCapacity() < grownCapacity);
+        assertEquals(d.getCapacity(), 16);
     }
 
     @Test
-    public void testContainsKeyForNonExisted() {
-        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>();
-        for (int i = 1; i < sizeOfTestInput; i++) {
+    public void testNoThrashingNearThreshold() {
+        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>(0.75, 16);
+        int i = 0;
+        while (d.getCapacity() == 16) {
             d.put(i, i);
-            assertTrue(d.containsKey(i));
-            assertFalse(d.containsKey(i + 1));
+            i++;
+        }
+        int capacity = d.getCapacity();
+        for (int j = 0; j < sizeOfTestInput; j++) {
+            d.remove(i - 1);
+            d.put(i - 1, i - 1);
+            assertEquals(d.getCapacity(), capacity);
         }
     }
 
     @Test
-    public void testContainsKeyInEmptyDictionary() {
-        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>();
-        d.put(0, 0);
-        d.remove(0);
-        for (int i = 1; i < sizeOfTestInput; i++) {
-            assertFalse(d.containsKey(i));
+    public void testTrimToSize() {
+        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>(0.5, 0, 1024, false);
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertNull(d.put(i, i));
         }
+        d.trimToSize();
+        assertEquals(d.getCapacity(), 256);
+        assertEquals(d.size(), sizeOfTestInput);
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertEquals(d.get(i), i);
+        }
+        assertNull(d.put(sizeOfTestInput, sizeOfTestInput));
+        assertEquals(d.get(sizeOfTestInput), sizeOfTestInput);
     }
 
     @Test
-    public void testContainsKeyAfterRemove() {
-        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>();
-        for (int i = 0; i < sizeOfTestInput; i++) {
-            d.put(i, i);
+    public void testShrinkDuringIncrementalResize() {
+        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>(0.75, 0.1, 16, true);
+        for (int i = 0; i < sizeOfTestInput * 10; i++) {
+            assertNull(d.put(i, i));
         }
-        for (int i = 0; i < sizeOfTestInput; i++) {
-            d.remove(i);
-            assertFalse(d.containsKey(i));
+        for (int i = 0; i < sizeOfTestInput * 10 - 1; i++) {
+            assertEquals(d.remove(i), i);
         }
+        assertEquals(d.get(sizeOfTestInput * 10 - 1), sizeOfTestInput * 10 - 1);
+        assertTrue(d.getCapacity() < 64);
     }
 
-    /* test get */
+    @Test
+    public void testIllegalShrinkLoadFactor() {
+        assertThrows(IllegalArgumentException.class, () -> new DictionaryImpl<Integer, Integer>(0.75, 0.5, 16, false));
+        assertThrows(IllegalArgumentException.class, () -> new DictionaryImpl<Integer, Integer>(0.75, -0.1, 16, false));
+    }
+
+    /* test tree buckets */
+
+    // 2^bits разных строк с одинаковым hashCode(): "Aa" и "BB" имеют один хеш
+    private static List<String> sameHashStrings(int bits) {
+        List<String> strings = new ArrayList<>();
+        for (int mask = 0; mask < (1 << bits); mask++) {
+            StringBuilder builder = new StringBuilder();
+            for (int bit = 0; bit < bits; bit++) {
+                builder.append((mask >> bit & 1) == 0 ? "Aa" : "BB");
+            }
+            strings.add(builder.toString());
+        }
+        return strings;
+    }
 
     @Test
-    public void testGetAfterPuttingNewKeys() {
-        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>();
-        for (int i = 1; i < sizeOfTestInput; i++) {
-            d.put(i, i);
-            assertEquals(d.get(i), i);
+    public void testSameHashStrings() {
+        List<String> keys = sameHashStrings(10);
+        DictionaryImpl<String, Integer> d = new DictionaryImpl<>();
+        for (int i = 0; i < keys.size(); i++) {
+            assertNull(d.put(keys.get(i), i));
+        }
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(d.get(keys.get(i)), i);
+            assertEquals(d.put(keys.get(i), i + 1), i);
         }
+        assertNull(d.get("AaAa"));
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(d.remove(keys.get(i)), i + 1);
+            assertNull(d.get(keys.get(i)));
+        }
+        assertEquals(d.size(), 0);
     }
 
     @Test
-    public void testGetAfterUpdatingValue() {
-        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>();
-        for (int i = 1; i < sizeOfTestInput; i++) {
-            d.put(0, i);
-            assertEquals(d.get(0), i);
+    public void testSameHashMixedKeyClasses() {
+        List<String> keys = sameHashStrings(5);
+        DictionaryImpl<Object, Integer> d = new DictionaryImpl<>();
+        for (int i = 0; i < keys.size(); i++) {
+            assertNull(d.put(keys.get(i), i));
+        }
+        // Integer с тем же хешем, что и строки, попадает в ту же корзину
+        Integer intruder = keys.get(0).hashCode();
+        assertNull(d.put(intruder, -1));
+        assertEquals(d.get(intruder), -1);
+        for (int i = 0; i < keys.size(); i++) {
+            assertEquals(d.get(keys.get(i)), i);
         }
+        assertEquals(d.remove(intruder), -1);
+        assertEquals(d.size(), keys.size());
     }
 
     @Test
-    public void testGetAfterResize() {
-        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>(0.3, sizeOfTestInput);
-        for (int i = 1; i < sizeOfTestInput; i++) {
-            d.put(i, i);
-            assertEquals(d.get(i), i);
+    public void testTreeBucketIteratorRemove() {
+        List<String> keys = sameHashStrings(6);
+        DictionaryImpl<String, Integer> d = new DictionaryImpl<>(0.5, 4);
+        for (int i = 0; i < keys.size(); i++) {
+            assertNull(d.put(keys.get(i), i));
+        }
+        assertEquals(d.keySet(), new HashSet<>(keys));
+        for (var iterator = d.keySet().iterator(); iterator.hasNext(); ) {
+            var key = iterator.next();
+            iterator.remove();
+            assertNull(d.get(key));
+        }
+        assertEquals(d.size(), 0);
+    }
+
+    // Comparable, но не сам с собой: compareTo() принимает только строки
+    private static final class StringComparableKey implements Comparable<String> {
+        private final int id;
+
+        StringComparableKey(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public int compareTo(String other) {
+            return Integer.toString(id).compareTo(other);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof StringComparableKey && ((StringComparableKey) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 42;
         }
     }
 
     @Test
-    public void testGetAfterRemove() {
-        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>();
+    public void testKeysComparableToAnotherClass() {
+        DictionaryImpl<StringComparableKey, Integer> d = new DictionaryImpl<>();
         for (int i = 0; i < sizeOfTestInput; i++) {
-            d.put(i, i);
+            assertNull(d.put(new StringComparableKey(i), i));
         }
         for (int i = 0; i < sizeOfTestInput; i++) {
-            d.remove(i);
-            assertNull(d.get(i));
+            assertEquals(d.get(new StringComparableKey(i)), i);
         }
+        assertEquals(d.remove(new StringComparableKey(0)), 0);
+        assertEquals(d.size(), sizeOfTestInput - 1);
     }
 
     @Test
-    public void testGetInEmptyDictionary() {
-        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>();
-        d.put(0, 0);
-        d.remove(0);
-        for (int i = 1; i < sizeOfTestInput; i++) {
-            assertNull(d.get(i));
+    public void testSameHashKeysOfMixedClasses() {
+        // строки из "Aa" и "BB" имеют одинаковый хеш, и у Integer с этим значением он тот же
+        List<Object> keys = new ArrayList<>();
+        for (int mask = 0; mask < 32; mask++) {
+            StringBuilder key = new StringBuilder();
+            for (int bit = 0; bit < 5; bit++) {
+                key.append((mask >> bit & 1) == 0 ? "Aa" : "BB");
+            }
+            keys.add(key.toString());
+        }
+        Integer number = keys.get(0).hashCode();
+        keys.add(keys.size() / 2, number);
+        DictionaryImpl<Object, Integer> d = new DictionaryImpl<>();
+        Map<Object, Integer> expected = new HashMap<>();
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < keys.size(); i++) {
+                assertEquals(d.put(keys.get(i), i + round), expected.put(keys.get(i), i + round));
+                assertEquals(d.get(number), expected.get(number));
+            }
+            for (var key : keys) {
+                assertEquals(d.get(key), expected.get(key));
+            }
+            // без ключа другого класса корзину снова можно превратить в дерево
+            assertEquals(d.remove(number), expected.remove(number));
+            for (int i = 0; i < keys.size() - 3; i += 2) {
+                assertEquals(d.remove(keys.get(i)), expected.remove(keys.get(i)));
+            }
+            assertEquals(d, expected);
+        }
+    }
+
+    /* test power-of-two sizing */
+
+    @Test
+    public void testCapacityIsPowerOfTwo() {
+        assertEquals(new DictionaryImpl<Integer, Integer>(100).getCapacity(), 128);
+        assertEquals(new DictionaryImpl<Integer, Integer>(128).getCapacity(), 128);
+        assertEquals(new DictionaryImpl<Integer, Integer>(0).getCapacity(), 1);
+        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>(0.75, 3);
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            d.put(i, i);
+            assertEquals(Integer.bitCount(d.getCapacity()), 1);
         }
     }
 
     @Test
-    public void testGetForNonExistedKeys() {
+    public void testMinValueKey() {
         DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>();
-        for (int i = 1; i < sizeOfTestInput; i++) {
+        assertNull(d.put(Integer.MIN_VALUE, 1));
+        assertEquals(d.get(Integer.MIN_VALUE), 1);
+        assertEquals(d.remove(Integer.MIN_VALUE), 1);
+    }
+
+    @Test
+    public void testWithExpectedSize() {
+        DictionaryImpl<Integer, Integer> d = DictionaryImpl.withExpectedSize(sizeOfTestInput * 10);
+        int capacity = d.getCapacity();
+        for (int i = 0; i < sizeOfTestInput * 10; i++) {
             d.put(i, i);
-            assertNull(d.get(i + 1));
         }
+        assertEquals(d.getCapacity(), capacity);
+        assertEquals(DictionaryImpl.<Integer, Integer>withExpectedSize(0).size(), 0);
+        assertThrows(IllegalArgumentException.class, () -> DictionaryImpl.withExpectedSize(-1));
     }
 
-    /* test put */
+    /* test cached hashes */
+
+    private static final class CountingKey {
+        private static int hashCodeCalls = 0;
+        private final int id;
+
+        CountingKey(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof CountingKey && ((CountingKey) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            hashCodeCalls++;
+            return id;
+        }
+    }
 
     @Test
-    public void testPutNewKeysSimple() {
-        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>();
-        assertNull(d.put(0, 2));
-        assertNull(d.put(-1, 2));
-        assertNull(d.put(30248923, 2));
-        assertEquals(d.size(), 3);
-
-        DictionaryImpl<String, Integer> d2 = new DictionaryImpl<>();
-        assertNull(d2.put("one", 2));
-        assertNull(d2.put("two", 2));
-        assertNull(d2.put("three", 2));
-        assertEquals(d2.size(), 3);
-
-        DictionaryImpl<ArrayList<Integer>, Integer> d3 = new DictionaryImpl<>();
-        var v1 = new ArrayList<Integer>();
-        v1.add(0);
-        var v2 = new ArrayList<Integer>();
-        v2.add(1);
-        var v3 = new ArrayList<Integer>();
-        v3.add(2);
-        assertNull(d3.put(v1, 2));
-        assertNull(d3.put(v2, 2));
-        assertNull(d3.put(v3, 2));
-        assertEquals(d2.size(), 3);
-    }
-
-    @Test
-    public void testPutSameKeySimple() {
-        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>();
-        assertNull(d.put(0, 2));
-        assertNull(d.put(-1, 2));
-        assertNull(d.put(30248923, 2));
-        assertEquals(d.put(0, 3), 2);
-        assertEquals(d.size(), 3);
+    public void testResizeDoesNotCallHashCode() {
+        DictionaryImpl<CountingKey, Integer> d = new DictionaryImpl<>(0.75, 2);
+        CountingKey.hashCodeCalls = 0;
+        for (int i = 0; i < sizeOfTestInput * 10; i++) {
+            d.put(new CountingKey(i), i);
+        }
+        assertEquals(CountingKey.hashCodeCalls, sizeOfTestInput * 10);
+        for (int i = 0; i < sizeOfTestInput * 10; i++) {
+            assertEquals(d.remove(new CountingKey(i)), i);
+        }
+        assertEquals(CountingKey.hashCodeCalls, sizeOfTestInput * 20);
+    }
 
-        DictionaryImpl<String, Integer> d2 = new DictionaryImpl<>();
-        String s1 = "string";
-        String s2 = "string"; // кеширование
-        String s3 = "pip";
-        assertNull(d2.put(s1, 2));
-        assertEquals(d2.put(s2, 3), 2);
-        assertNull(d2.put(s3, 2));
+    /* test stats */
+
+    private static long sum(long[] histogram) {
+        long sum = 0;
+        for (long count : histogram) {
+            sum += count;
+        }
+        return sum;
     }
 
     @Test
-    public void testPutAfterRemove() {
+    public void testStatsDisabledByDefault() {
         DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>();
-        for (int i = 0; i < sizeOfTestInput; i++) {
-            assertNull(d.put(i, i));
-            assertEquals(d.remove(i), i);
-            assertNull(d.put(i, i));
-        }
+        assertFalse(d.isStatsEnabled());
+        assertThrows(IllegalStateException.class, d::getStats);
     }
 
     @Test
-    public void testPutAfterClear() {
+    public void testStatsCountHitsAndMisses() {
         DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>();
+        d.enableStats();
         for (int i = 0; i < sizeOfTestInput; i++) {
-            assertNull(d.put(i, i));
+            d.put(i, i);
         }
-        d.clear();
-        for (int i = 0; i < sizeOfTestInput; i++) {
-            assertNull(d.put(i, i));
+        for (int i = 0; i < sizeOfTestInput * 2; i++) {
+            d.get(i);
         }
+        var stats = d.getStats();
+        assertEquals(stats.getHits(), sizeOfTestInput);
+        assertEquals(stats.getMisses(), sizeOfTestInput);
+        assertEquals(sum(stats.getProbeHistogram()), sizeOfTestInput * 2);
+        assertTrue(stats.getMeanProbes() <= 2);
+        assertEquals(stats.getSize(), sizeOfTestInput);
+        assertEquals(stats.getLoadFactor(), (double) sizeOfTestInput / d.getCapacity());
     }
 
     @Test
-    public void testPutAfterResize() {
-        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>(0.2, sizeOfTestInput);
+    public void testStatsBucketLengths() {
+        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>(0.75, 0.1, 2, true);
         for (int i = 0; i < sizeOfTestInput; i++) {
-            assertNull(d.put(i, i));
+            d.put(i, i);
         }
-        for (int i = 0; i < sizeOfTestInput; i++) {
-            assertEquals(d.put(i, i), i);
+        d.enableStats();
+        for (int i = sizeOfTestInput; i < sizeOfTestInput * 10; i++) {
+            d.put(i, i);
+        }
+        for (var iterator = d.keySet().iterator(); iterator.hasNext(); ) {
+            if (iterator.next() % 3 == 0) {
+                iterator.remove();
+            }
+        }
+        for (int i = 1; i < sizeOfTestInput * 10; i += 3) {
+            d.remove(i);
         }
+        var stats = d.getStats();
+        // гистограмма длин, которая ведётся на ходу, совпадает с пересчитанной заново
+        d.disableStats();
+        d.enableStats();
+        var recounted = d.getStats();
+        assertArrayEquals(stats.getBucketLengthHistogram(), recounted.getBucketLengthHistogram());
+        assertTrue(stats.getResizeCount() > 0);
+        assertTrue(stats.getResizeNanos() >= stats.getMaxResizePauseNanos());
+        assertTrue(stats.getEstimatedBytes() > 0);
+        d.clear();
+        assertEquals(d.getStats().getBucketLengthHistogram()[0], d.getCapacity());
     }
 
     @Test
-    public void testPutStress() {
-        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>();
-        for (int i = 0; i < sizeOfTestInput; i++) {
-            assertNull(d.put(i, i));
+    public void testStatsBeforeTableAllocated() {
+        Map<Integer, Integer> source = new HashMap<>();
+        for (int i = 0; i < sizeOfTestInput * 10; i++) {
+            source.put(i, i);
         }
-        for (int i = 0; i < sizeOfTestInput; i++) {
-            assertEquals(d.put(i, i + 1), i);
+        for (boolean incrementalResize : new boolean[]{false, true}) {
+            DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>(0.75, 2, incrementalResize);
+            d.enableStats();
+            d.putAll(source);
+            var stats = d.getStats();
+            assertEquals(stats.getResizeCount(), 1L);
+            d.disableStats();
+            d.enableStats();
+            assertArrayEquals(stats.getBucketLengthHistogram(), d.getStats().getBucketLengthHistogram());
+            // trimToSize() пустого словаря тоже меняет ёмкость ещё не созданной таблицы
+            DictionaryImpl<Integer, Integer> empty = new DictionaryImpl<>(sizeOfTestInput * 10);
+            empty.enableStats();
+            empty.trimToSize();
+            assertEquals(empty.getStats().getBucketLengthHistogram()[0], empty.getCapacity());
         }
+    }
 
-        DictionaryImpl<String, Integer> d2 = new DictionaryImpl<>();
-        String s = "a".repeat(sizeOfTestInput);
-        for (int i = 0; i < sizeOfTestInput; i++) {
-            assertNull(d2.put(s.substring(i), i));
-        }
-        for (int i = 0; i < sizeOfTestInput; i++) {
-            assertEquals(d2.put(s.substring(i), i + 1), i);
+    @Test
+    public void testStatsSameHashKeys() {
+        DictionaryImpl<String, Integer> d = new DictionaryImpl<>();
+        d.enableStats();
+        for (String key : sameHashStrings(6)) {
+            d.put(key, 1);
         }
+        assertEquals(d.getStats().getLongestBucketBound(), 64);
     }
 
-    /* test remove */
     @Test
-    public void testRemoveNewKeysSimple() {
+    public void testMetricsMBean() throws Exception {
         DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>();
-        assertNull(d.put(0, 2));
-        assertNull(d.put(-1, 2));
-        assertNull(d.put(30248923, 2));
-        assertEquals(d.remove(0), 2);
-        assertEquals(d.remove(-1), 2);
-        assertEquals(d.remove(30248923), 2);
-        assertEquals(d.size(), 0);
+        var name = DictionaryMetrics.register("test", d);
+        try {
+            d.put(1, 1);
+            d.get(1);
+            d.get(2);
+            var server = java.lang.management.ManagementFactory.getPlatformMBeanServer();
+            assertEquals(server.getAttribute(name, "Size"), 1);
+            assertEquals(server.getAttribute(name, "Hits"), 1L);
+            assertEquals(server.getAttribute(name, "HitRatio"), 0.5);
+        } finally {
+            DictionaryMetrics.unregister("test");
+        }
+    }
 
-        DictionaryImpl<String, Integer> d2 = new DictionaryImpl<>();
-        assertNull(d2.put("one", 2));
-        assertNull(d2.put("two", 2));
-        assertNull(d2.put("three", 2));
-        assertEquals(d2.remove("one"), 2);
-        assertEquals(d2.remove("two"), 2);
-        assertEquals(d2.remove("three"), 2);
-        assertEquals(d2.size(), 0);
-
-        DictionaryImpl<ArrayList<Integer>, Integer> d3 = new DictionaryImpl<>();
-        var v1 = new ArrayList<Integer>();
-        v1.add(0);
-        var v2 = new ArrayList<Integer>();
-        v2.add(1);
-        var v3 = new ArrayList<Integer>();
-        v3.add(2);
-        assertNull(d3.put(v1, 2));
-        assertNull(d3.put(v2, 2));
-        assertNull(d3.put(v3, 2));
-        assertEquals(d3.remove(v1), 2);
-        assertEquals(d3.remove(v2), 2);
-        assertEquals(d3.remove(v3), 2);
-        assertEquals(d2.size(), 0);
-    }
-
-    @Test
-    public void testRemoveNonExisted() {
+    /* test compute and merge */
+
+    @Test
+    public void testContainsKeyWithNullValue() {
         DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>();
-        assertNull(d.put(-1, 0));
-        assertNull(d.remove(0));
-        assertEquals(d.size(), 1);
-        assertEquals(d.remove(-1), 0);
-        assertEquals(d.size(), 0);
-        assertNull(d.remove(-1));
-        assertEquals(d.size(), 0);
+        d.put(1, null);
+        assertTrue(d.containsKey(1));
+        assertFalse(d.containsKey(2));
+        assertNull(d.getOrDefault(1, 5));
+        assertEquals(d.getOrDefault(2, 5), 5);
     }
 
     @Test
-    public void testRemoveAfterResize() {
-        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>(sizeOfTestInput / 10);
-        for (int i = 0; i < sizeOfTestInput; i++) {
-            assertNull(d.put(i, i));
+    public void testMergeCounts() {
+        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>(0.75, 2);
+        for (int i = 0; i < sizeOfTestInput * 10; i++) {
+            d.merge(i % sizeOfTestInput, 1, Integer::sum);
         }
+        assertEquals(d.size(), sizeOfTestInput);
         for (int i = 0; i < sizeOfTestInput; i++) {
-            assertEquals(d.remove(i), i);
-            assertEquals(d.size(), sizeOfTestInput - i - 1);
+            assertEquals(d.get(i), 10);
         }
+        assertNull(d.merge(0, 1, (a, b) -> null));
+        assertFalse(d.containsKey(0));
+        assertEquals(d.size(), sizeOfTestInput - 1);
     }
 
     @Test
-    public void testRemoveAfterClear() {
-        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>(sizeOfTestInput);
-        for (int i = 0; i < sizeOfTestInput; i++) {
-            assertNull(d.put(i, i));
-        }
-        d.clear();
-        for (int i = 0; i < sizeOfTestInput; i++) {
-            assertNull(d.remove(i));
-            assertEquals(d.size(), 0);
-        }
+    public void testComputeFamily() {
+        DictionaryImpl<String, Integer> d = new DictionaryImpl<>();
+        assertNull(d.putIfAbsent("a", 1));
+        assertEquals(d.putIfAbsent("a", 2), 1);
+        assertEquals(d.computeIfAbsent("a", k -> 3), 1);
+        assertEquals(d.computeIfAbsent("b", k -> 3), 3);
+        assertNull(d.computeIfAbsent("c", k -> null));
+        assertFalse(d.containsKey("c"));
+        assertEquals(d.computeIfPresent("b", (k, v) -> v + 1), 4);
+        assertNull(d.computeIfPresent("c", (k, v) -> 1));
+        assertNull(d.computeIfPresent("b", (k, v) -> null));
+        assertFalse(d.containsKey("b"));
+        assertEquals(d.compute("a", (k, v) -> v == null ? 0 : v * 10), 10);
+        assertEquals(d.compute("d", (k, v) -> v == null ? 0 : v * 10), 0);
+        assertNull(d.compute("d", (k, v) -> null));
+        assertEquals(d, Map.of("a", 10));
+        d.put("n", null);
+        assertNull(d.putIfAbsent("n", 1));
+        assertEquals(d.merge("n", 2, Integer::sum), 3);
     }
 
     @Test
-    public void testRemoveCheckValue() {
-        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>(sizeOfTestInput);
+    public void testComputeDetectsModification() {
+        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>();
+        assertThrows(ConcurrentModificationException.class, () -> d.computeIfAbsent(1, k -> d.put(2, 2)));
+        assertThrows(ConcurrentModificationException.class, () -> d.compute(3, (k, v) -> d.remove(2)));
+    }
+
+    @Test
+    public void testMergeCallsHashCodeOnce() {
+        DictionaryImpl<CountingKey, Integer> d = new DictionaryImpl<>();
+        CountingKey.hashCodeCalls = 0;
         for (int i = 0; i < sizeOfTestInput; i++) {
-            assertNull(d.put(i, i));
-            assertEquals(d.remove(i), i);
-            assertNull(d.put(i, i));
-            assertEquals(d.put(i, i + 1), i);
-            assertEquals(d.remove(i), i + 1);
+            d.merge(new CountingKey(i % 10), 1, Integer::sum);
+            d.computeIfAbsent(new CountingKey(i % 10), k -> 0);
         }
+        assertEquals(CountingKey.hashCodeCalls, sizeOfTestInput * 2);
     }
 
+    /* test cursor and bulk operations */
+
     @Test
-    public void testClear() {
-        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>(sizeOfTestInput);
+    public void testCursor() {
+        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>();
         for (int i = 0; i < sizeOfTestInput; i++) {
-            assertNull(d.put(i, i));
+            d.put(i, i);
         }
-        assertEquals(d.size(), sizeOfTestInput);
-        d.clear();
-        assertEquals(d.size(), 0);
+        var cursor = d.cursor();
+        Set<Integer> seen = new HashSet<>();
+        while (cursor.advance()) {
+            assertEquals(cursor.key(), cursor.value());
+            seen.add(cursor.key());
+            if (cursor.key() % 2 == 0) {
+                cursor.remove();
+                assertThrows(IllegalStateException.class, cursor::value);
+            } else {
+                assertEquals(cursor.setValue(-cursor.key()), cursor.key());
+            }
+        }
+        assertFalse(cursor.advance());
+        assertEquals(seen.size(), sizeOfTestInput);
+        assertEquals(d.size(), sizeOfTestInput / 2);
+        cursor.reset();
+        int count = 0;
+        while (cursor.advance()) {
+            assertEquals(cursor.value(), -cursor.key());
+            count++;
+        }
+        assertEquals(count, sizeOfTestInput / 2);
     }
 
     @Test
-    public void testKeySetElements() {
-        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>(sizeOfTestInput);
-        Set<Integer> s = new HashSet<>();
-        for (int i = 0; i < sizeOfTestInput; i++) {
-            assertNull(d.put(i, i));
-            s.add(i);
+    public void testCursorDuringIncrementalRehashAndInTrees() {
+        DictionaryImpl<String, Integer> d = new DictionaryImpl<>(0.75, 4, true);
+        List<String> keys = sameHashStrings(6);
+        for (int i = 0; i < keys.size(); i++) {
+            d.put(keys.get(i), i);
+        }
+        int added = 0;
+        while (added < sizeOfTestInput || !d.isRehashing()) {
+            d.put("key" + added, added);
+            added++;
         }
-        assertEquals(s, d.keySet());
+        var cursor = d.cursor();
+        int count = 0;
+        while (cursor.advance()) {
+            count++;
+            cursor.remove();
+        }
+        assertEquals(count, keys.size() + added);
+        assertTrue(d.isEmpty());
+        assertFalse(d.keySet().iterator().hasNext());
     }
 
     @Test
-    public void testKeySetIteratorNext() {
-        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>(sizeOfTestInput);
+    public void testSparseTableIteration() {
+        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>(0.75, 0, 1 << 16, false);
         for (int i = 0; i < sizeOfTestInput; i++) {
-            assertNull(d.put(i, i));
+            d.put(i * 7919, i);
         }
+        Set<Integer> keys = new HashSet<>();
         for (Integer key : d.keySet()) {
-            assertTrue(d.containsKey(key));
+            keys.add(key);
         }
+        assertEquals(keys.size(), sizeOfTestInput);
+        assertEquals(keys, d.keySet());
     }
 
     @Test
-    public void testKeySetIteratorRemove() {
+    public void testIteratorRemoveAfterHasNext() {
         DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>();
         for (int i = 0; i < sizeOfTestInput; i++) {
-            assertNull(d.put(i, i));
+            d.put(i, i);
         }
-        for (var iterator = d.keySet().iterator(); iterator.hasNext(); ) {
-            var key = iterator.next();
+        for (var iterator = d.values().iterator(); iterator.hasNext(); ) {
+            iterator.next();
+            iterator.hasNext();
             iterator.remove();
-            assertNull(d.get(key));
         }
-        assertEquals(d.size(), 0);
+        assertTrue(d.isEmpty());
     }
 
     @Test
-    public void testValueCollectionElements() {
-        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>(sizeOfTestInput);
-        Collection<Integer> c = new ArrayList<>();
+    public void testForEachAndReplaceAll() {
+        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>(0.75, 2, true);
         for (int i = 0; i < sizeOfTestInput; i++) {
-            assertNull(d.put(i, i));
-            c.add(i);
+            d.put(i, i);
         }
-        assertTrue(c.containsAll(d.values()));
-        assertEquals(c.size(), d.size());
+        d.replaceAll((k, v) -> v * 2);
+        int[] sum = {0};
+        d.forEach((k, v) -> {
+            assertEquals(v, k * 2);
+            sum[0] += v;
+        });
+        assertEquals(sum[0], sizeOfTestInput * (sizeOfTestInput - 1));
+        assertThrows(ConcurrentModificationException.class, () -> d.forEach((k, v) -> d.remove(k)));
     }
 
     @Test
-    public void testValueCollectionIteratorNext() {
-        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>(sizeOfTestInput);
-        for (int i = 0; i < sizeOfTestInput; i++) {
-            assertNull(d.put(i, i));
-        }
-        for (Integer val : d.values()) {
-            assertTrue(d.containsKey(val));
+    public void testViewsAreCached() {
+        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>();
+        assertSame(d.keySet(), d.keySet());
+        assertSame(d.values(), d.values());
+        assertSame(d.entrySet(), d.entrySet());
+        d.put(1, 1);
+        assertTrue(d.keySet().contains(1));
+        assertEquals(d.entrySet().size(), 1);
+    }
+
+    // делит Spliterator до упора и проверяет, что части не пересекаются, покрывают всё и знают свой размер
+    private static void splitAndCollect(Spliterator<Integer> spliterator, List<Integer> seen) {
+        long size = spliterator.estimateSize();
+        Spliterator<Integer> prefix = spliterator.trySplit();
+        if (prefix != null) {
+            assertEquals(prefix.estimateSize() + spliterator.estimateSize(), size);
+            splitAndCollect(prefix, seen);
+            splitAndCollect(spliterator, seen);
+            return;
         }
+        int before = seen.size();
+        spliterator.forEachRemaining(seen::add);
+        assertEquals((long) (seen.size() - before), size);
     }
 
     @Test
-    public void testValueCollectionIteratorRemove() {
+    public void testSpliteratorSplitsExactly() {
         DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>();
-        for (int i = 0; i < sizeOfTestInput; i++) {
-            assertNull(d.put(i, i));
-        }
-        for (var iterator = d.values().iterator(); iterator.hasNext(); ) {
-            iterator.next();
-            iterator.remove();
+        for (int i = 0; i < sizeOfTestInput * 10; i++) {
+            d.put(i, i);
         }
-        assertEquals(d.size(), 0);
+        Spliterator<Integer> spliterator = d.keySet().spliterator();
+        assertTrue(spliterator.hasCharacteristics(Spliterator.SIZED | Spliterator.SUBSIZED | Spliterator.DISTINCT));
+        List<Integer> seen = new ArrayList<>();
+        splitAndCollect(spliterator, seen);
+        assertEquals(seen.size(), sizeOfTestInput * 10);
+        assertEquals(new HashSet<>(seen), d.keySet());
     }
 
     @Test
-    public void testEntrySetElements() {
-        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>(sizeOfTestInput);
-        Set<Map.Entry<Integer, Integer>> s = new HashSet<>();
-        for (int i = 0; i < sizeOfTestInput; i++) {
-            assertNull(d.put(i, i));
-            s.add(new AbstractMap.SimpleEntry<>(i, i));
+    public void testSpliteratorDuringIncrementalRehash() {
+        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>(0.75, 2, true);
+        int count = 0;
+        while (!d.isRehashing() || count < sizeOfTestInput) {
+            d.put(count, count);
+            count++;
+        }
+        List<Integer> seen = new ArrayList<>();
+        splitAndCollect(d.keySet().spliterator(), seen);
+        assertEquals(new HashSet<>(seen), d.keySet());
+        assertEquals(seen.size(), count);
+        List<Integer> advanced = new ArrayList<>();
+        Spliterator<Integer> spliterator = d.values().spliterator();
+        while (spliterator.tryAdvance(advanced::add)) {
+            assertEquals(spliterator.estimateSize(), (long) (count - advanced.size()));
         }
-        assertEquals(s, d.entrySet());
+        assertEquals(new HashSet<>(advanced), d.keySet());
     }
 
     @Test
-    public void testEntrySetIteratorNext() {
-        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>(sizeOfTestInput);
-        for (int i = 0; i < sizeOfTestInput; i++) {
-            assertNull(d.put(i, i));
-        }
-        for (Map.Entry<Integer, Integer> entry : d.entrySet()) {
-            assertEquals(d.get(entry.getKey()), entry.getValue());
+    public void testParallelStream() {
+        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>();
+        for (int i = 0; i < sizeOfTestInput * 10; i++) {
+            d.put(i, i);
         }
+        assertEquals(d.values().parallelStream().mapToLong(Integer::longValue).sum(),
+                (long) sizeOfTestInput * 10 * (sizeOfTestInput * 10 - 1) / 2);
+        assertEquals(d.entrySet().parallelStream().filter(e -> e.getKey() % 2 == 0).count(), sizeOfTestInput * 5L);
     }
 
     @Test
-    public void testEntrySetIteratorRemove() {
+    public void testBulkOperations() {
         DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>();
         for (int i = 0; i < sizeOfTestInput; i++) {
-            assertNull(d.put(i, i));
-        }
-        for (var iterator = d.entrySet().iterator(); iterator.hasNext(); ) {
-            var entry = iterator.next();
-            iterator.remove();
-            assertNull(d.get(entry.getKey()));
+            d.put(i, i == 0 ? null : i);
+        }
+        for (long threshold : new long[]{1, Long.MAX_VALUE}) {
+            Set<Integer> keys = Collections.synchronizedSet(new HashSet<>());
+            d.forEach(threshold, (k, v) -> keys.add(k));
+            assertEquals(keys, d.keySet());
+            Integer found = d.search(threshold, (k, v) -> k == sizeOfTestInput / 2 ? v : null);
+            assertEquals(found, sizeOfTestInput / 2);
+            assertNull(d.search(threshold, (k, v) -> null));
+            assertEquals(d.reduceValues(threshold, Math::max), sizeOfTestInput - 1);
+            assertEquals(d.reduceToLong(threshold, (k, v) -> k, 0, Long::sum),
+                    (long) sizeOfTestInput * (sizeOfTestInput - 1) / 2);
+            assertEquals(d.reduceValuesToLong(threshold, v -> v == null ? 1 : 0, 0, Long::sum), 1);
+        }
+        assertNull(new DictionaryImpl<Integer, Integer>().reduceValues(1, Integer::sum));
+    }
+
+    @Test
+    public void testEmptyDictionaryAllocatesNoTable() {
+        // таблица на 2^30 корзин не поместилась бы в память, но до первого put() её нет
+        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>(1 << 30);
+        assertNull(d.get(1));
+        assertFalse(d.containsKey(1));
+        assertNull(d.remove(1));
+        assertFalse(d.entrySet().iterator().hasNext());
+        assertEquals(d.keySet().spliterator().estimateSize(), 0);
+        d.trimToSize();
+        assertTrue(d.getCapacity() <= 2);
+        d.clear();
+        d.put(1, 1);
+        assertEquals(d.get(1), 1);
+    }
+
+    @Test
+    public void testClearKeepsTable() {
+        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>(0.75, 2, true);
+        d.enableStats();
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < sizeOfTestInput; i++) {
+                assertNull(d.put(i, i));
+            }
+            int capacity = d.getCapacity();
+            d.clear();
+            assertTrue(d.isEmpty());
+            assertFalse(d.isRehashing());
+            assertEquals(d.getCapacity(), capacity);
+            assertFalse(d.keySet().iterator().hasNext());
+            assertEquals(d.getStats().getBucketLengthHistogram()[0], (long) capacity);
         }
-        assertEquals(d.size(), 0);
     }
 
     @Test
-    public void testNegativeHash() {
-        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>();
-        for (int i = 0; i < sizeOfTestInput; i++) {
-            assertNull(d.put(-i, i));
-            assertEquals(d.get(-i), i);
+    public void testPutAllGrowsOnce() {
+        Map<Integer, Integer> source = new HashMap<>();
+        for (int i = 0; i < sizeOfTestInput * 100; i++) {
+            source.put(i, -i);
         }
+        DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>();
+        d.enableStats();
+        d.put(-2, 2);
+        d.putAll(source);
+        assertEquals(d.getStats().getResizeCount(), 1L);
+        source.put(-2, 2);
+        assertEquals(d, source);
+        int capacity = d.getCapacity();
+        // таблица под размер пакета не уменьшается от следующего изменения
+        d.put(-1, 1);
+        assertEquals(d.getCapacity(), capacity);
+        DictionaryImpl<Integer, Integer> copy = new DictionaryImpl<>(0.75, 2, true);
+        copy.putAll(d);
+        copy.putAll(copy);
+        assertEquals(copy, d);
+        for (int i = -1; i < sizeOfTestInput * 100; i++) {
+            assertEquals(copy.get(i), d.get(i));
+        }
+    }
+
+    @Test
+    public void testGetAllAndRemoveAll() {
+        for (boolean incrementalResize : new boolean[]{false, true}) {
+            DictionaryImpl<Integer, Integer> d = new DictionaryImpl<>(0.75, 2, incrementalResize);
+            Map<Integer, Integer> expected = new HashMap<>();
+            for (int i = 0; i < sizeOfTestInput * 10; i++) {
+                d.put(i * 3, i);
+                expected.put(i * 3, i);
+            }
+            Object[] keys = new Object[sizeOfTestInput * 30];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = keys.length - i;
+            }
+            keys[0] = "not an integer";
+            Integer[] out = new Integer[keys.length];
+            assertEquals(d.getAll(keys, out), sizeOfTestInput * 10 - 1);
+            for (int i = 0; i < keys.length; i++) {
+                assertEquals(out[i], expected.get(keys[i]));
+            }
+            List<Object> toRemove = new ArrayList<>();
+            for (int i = 0; i < sizeOfTestInput * 20; i++) {
+                toRemove.add(i);
+            }
+            int removed = d.removeAll(toRemove);
+            assertTrue(expected.keySet().removeAll(toRemove));
+            assertEquals(removed, sizeOfTestInput * 10 - expected.size());
+            assertEquals(d, expected);
+            assertEquals(d.removeAll(toRemove), 0);
+            assertEquals(new DictionaryImpl<Integer, Integer>().removeAll(toRemove), 0);
+        }
+    }
+
+    @Test
+    public void testParallelCopyOf() {
+        Random random = new Random(23);
+        List<Map.Entry<Integer, Integer>> entries = new ArrayList<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < sizeOfTestInput * 1000; i++) {
+            int key = random.nextInt(sizeOfTestInput * 500);
+            entries.add(Map.entry(key, i));
+            expected.put(key, i);
+        }
+        DictionaryImpl<Integer, Integer> d = DictionaryImpl.parallelCopyOf(entries);
+        assertEquals(d.size(), expected.size());
+        assertEquals(d, expected);
+        assertEquals(expected, d);
+        d.put(-1, -1);
+        assertEquals(d.remove(-1), -1);
+        Map<Integer, Integer> small = new HashMap<>();
+        for (var entry : entries.subList(0, sizeOfTestInput)) {
+            small.put(entry.getKey(), entry.getValue());
+        }
+        assertEquals(DictionaryImpl.parallelCopyOf(entries.subList(0, sizeOfTestInput)), small);
+    }
+
+    @Test
+    public void testByteArrayKeys() {
+        Random random = new Random(25);
+        DictionaryImpl<byte[], Integer> d = new DictionaryImpl<>(HashingStrategy.BYTES);
+        Map<String, Integer> expected = new HashMap<>();
+        for (int i = 0; i < sizeOfTestInput * 100; i++) {
+            String key = "key" + random.nextInt(sizeOfTestInput * 2);
+            // каждый раз новый массив: ключи равны только по содержимому
+            byte[] bytes = key.getBytes(StandardCharsets.UTF_8);
+            if (random.nextInt(3) == 0) {
+                assertEquals(d.remove(bytes), expected.remove(key));
+            } else {
+                assertEquals(d.put(bytes, i), expected.put(key, i));
+            }
+            assertEquals(d.size(), expected.size());
+        }
+        byte[] buffer = "__key17__key1__".getBytes(StandardCharsets.UTF_8);
+        assertEquals(d.get(buffer, 2, 5), expected.get("key17"));
+        assertEquals(d.containsKey(buffer, 2, 5), expected.containsKey("key17"));
+        assertEquals(d.get(buffer, 9, 4), expected.get("key1"));
+        assertNull(d.get(buffer, 0, 0));
+        assertFalse(d.containsKey(buffer, 1, 5));
+        assertThrows(IndexOutOfBoundsException.class, () -> d.get(buffer, 12, 4));
+        assertThrows(IllegalStateException.class, () -> d.get("key1", 0, 4));
+        assertThrows(IllegalStateException.class, () -> new DictionaryImpl<byte[], Integer>().get(buffer, 0, 4));
+        for (var entry : expected.entrySet()) {
+            assertEquals(d.get(entry.getKey().getBytes(StandardCharsets.UTF_8)), entry.getValue());
+        }
+    }
+
+    @Test
+    public void testCharSequenceKeys() {
+        DictionaryImpl<CharSequence, Integer> d = new DictionaryImpl<>(HashingStrategy.CHARS);
+        for (int i = 0; i < sizeOfTestInput * 10; i++) {
+            d.put(i % 2 == 0 ? "key" + i : new StringBuilder("key").append(i), i);
+        }
+        assertEquals(d.size(), sizeOfTestInput * 10);
+        StringBuilder buffer = new StringBuilder();
+        for (int i = 0; i < sizeOfTestInput * 10; i++) {
+            int start = buffer.length();
+            buffer.append("key").append(i);
+            assertEquals(d.get(buffer, start, buffer.length()), i);
+            assertEquals(d.get(buffer.substring(start)), i);
+            assertEquals(d.get(new StringBuilder(buffer.substring(start))), i);
+            buffer.append(',');
+        }
+        assertNull(d.get(buffer, 0, 2));
+        assertFalse(d.containsKey("key"));
+        assertEquals(d.put(new StringBuilder("key0"), -1), 0);
+        assertEquals(d.remove("key1"), 1);
+        assertEquals(d.size(), sizeOfTestInput * 10 - 1);
+        assertEquals(HashingStrategy.CHARS.hash(new StringBuilder("text")), "text".hashCode());
+    }
+
+    @Test
+    public void testStrategyWithCollisions() {
+        // сравнение без учёта регистра и хеш с одинаковым значением у многих ключей: корзины длинные,
+        //   но не превращаются в деревья, которые сравнивали бы ключи через compareTo()
+        HashingStrategy<String> caseInsensitive = new HashingStrategy<>() {
+            @Override
+            public int hash(String key) {
+                return key.length();
+            }
+
+            @Override
+            public boolean equals(String first, String second) {
+                return first.equalsIgnoreCase(second);
+            }
+        };
+        DictionaryImpl<String, Integer> d = new DictionaryImpl<>(caseInsensitive);
+        for (int i = 0; i < sizeOfTestInput * 10; i++) {
+            d.put("Key" + i, i);
+        }
+        DictionaryImpl<String, Integer> copy = new DictionaryImpl<>(caseInsensitive);
+        copy.putAll(d);
+        for (int i = 0; i < sizeOfTestInput * 10; i++) {
+            assertEquals(d.get("KEY" + i), i);
+            assertEquals(copy.get("key" + i), i);
+        }
+        assertEquals(d.put("kEy5", -5), 5);
+        assertEquals(d.remove("key6"), 6);
+        assertEquals(d.size(), sizeOfTestInput * 10 - 1);
+        DictionaryImpl<String, Integer> plain = new DictionaryImpl<>();
+        plain.putAll(d);
+        assertNull(plain.get("key7"));
+        assertEquals(plain.get("Key7"), 7);
     }
 }
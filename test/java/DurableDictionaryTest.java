@@ -0,0 +1,216 @@
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DurableDictionaryTest {
+    private static final int sizeOfTestInput = 100;
+
+    // падение процесса в точке сжатия: словарь бросается без close()
+    private static final class SimulatedCrash extends RuntimeException {
+    }
+
+    private static Path tempDirectory() throws IOException {
+        return Files.createTempDirectory("durable");
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    private static DurableDictionary<String, Integer> open(Path directory, long compactionThreshold) throws IOException {
+        return DurableDictionary.open(directory, Serializer.STRING, Serializer.INTEGER, 0, TimeUnit.NANOSECONDS,
+                compactionThreshold);
+    }
+
+    @Test
+    public void testReopenRestoresState() throws IOException {
+        Path directory = tempDirectory();
+        try {
+            Random random = new Random(21);
+            Map<String, Integer> expected = new HashMap<>();
+            DurableDictionary<String, Integer> d = open(directory, 4096);
+            for (int i = 0; i < sizeOfTestInput * 10; i++) {
+                String key = "key" + random.nextInt(sizeOfTestInput);
+                int action = random.nextInt(10);
+                if (action < 3) {
+                    assertEquals(d.remove(key), expected.remove(key));
+                } else if (action == 3) {
+                    assertEquals(d.put(key, null), expected.put(key, null));
+                } else if (action == 4 && random.nextInt(20) == 0) {
+                    d.clear();
+                    expected.clear();
+                } else {
+                    assertEquals(d.put(key, i), expected.put(key, i));
+                }
+                if (i % 300 == 0) {
+                    // без close(): каждое изменение уже на диске
+                    d = open(directory, 4096);
+                    assertEquals(d, expected);
+                }
+            }
+            d.close();
+            DurableDictionary<String, Integer> reopened = open(directory, 4096);
+            assertEquals(reopened, expected);
+            assertEquals(expected, reopened);
+            reopened.close();
+            assertThrows(IllegalStateException.class, () -> reopened.get("key0"));
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testTornLogTailIsDiscarded() throws IOException {
+        Path directory = tempDirectory();
+        Path copy = tempDirectory();
+        try {
+            Path log = directory.resolve("wal-0.log");
+            List<Map<String, Integer>> states = new ArrayList<>();
+            List<Long> boundaries = new ArrayList<>();
+            Map<String, Integer> expected = new HashMap<>();
+            DurableDictionary<String, Integer> d = open(directory, Long.MAX_VALUE);
+            states.add(new HashMap<>(expected));
+            boundaries.add(Files.size(log));
+            for (int i = 0; i < sizeOfTestInput / 4; i++) {
+                String key = "key" + (i % 7);
+                if (i % 5 == 4) {
+                    d.remove(key);
+                    expected.remove(key);
+                } else {
+                    d.put(key, i);
+                    expected.put(key, i);
+                }
+                states.add(new HashMap<>(expected));
+                boundaries.add(Files.size(log));
+            }
+            byte[] bytes = Files.readAllBytes(log);
+            assertEquals((long) bytes.length, boundaries.get(boundaries.size() - 1));
+            // падение посреди записи в журнал: на диске любой префикс, после открытия -- последнее целое изменение
+            for (int length = 0; length <= bytes.length; length++) {
+                Files.write(copy.resolve("wal-0.log"), Arrays.copyOf(bytes, length));
+                int complete = 0;
+                while (complete + 1 < boundaries.size() && boundaries.get(complete + 1) <= length) {
+                    complete++;
+                }
+                DurableDictionary<String, Integer> recovered = open(copy, Long.MAX_VALUE);
+                assertEquals(recovered, states.get(complete));
+                recovered.put("after", length);
+                recovered.close();
+                recovered = open(copy, Long.MAX_VALUE);
+                assertEquals(recovered.get("after"), length);
+                recovered.close();
+                deleteDirectory(copy);
+                Files.createDirectory(copy);
+            }
+            // испорченный байт в середине: изменения с этого места отбрасываются
+            int middle = boundaries.get(10).intValue() + 9;
+            bytes[middle] ^= 1;
+            Files.write(copy.resolve("wal-0.log"), bytes);
+            DurableDictionary<String, Integer> recovered = open(copy, Long.MAX_VALUE);
+            assertEquals(recovered, states.get(10));
+            recovered.close();
+            d.close();
+        } finally {
+            deleteDirectory(directory);
+            deleteDirectory(copy);
+        }
+    }
+
+    @Test
+    public void testCrashDuringCompaction() throws IOException {
+        for (String point : List.of("snapshot-written", "snapshot-renamed", "log-created", "old-generation-deleted")) {
+            Path directory = tempDirectory();
+            try {
+                Map<String, Integer> expected = new HashMap<>();
+                DurableDictionary<String, Integer> d = open(directory, Long.MAX_VALUE);
+                for (int i = 0; i < sizeOfTestInput; i++) {
+                    d.put("key" + i, i);
+                    expected.put("key" + i, i);
+                }
+                d.compact();
+                d.remove("key0");
+                expected.remove("key0");
+                d.put("key1", -1);
+                expected.put("key1", -1);
+                d.crashPoint = name -> {
+                    if (name.equals(point)) {
+                        throw new SimulatedCrash();
+                    }
+                };
+                assertThrows(SimulatedCrash.class, d::compact);
+                // журнал не остаётся занятым: изменения сразу отказывают, а не ждут вечно
+                assertThrows(IllegalStateException.class, () -> d.put("key3", -3));
+                assertThrows(IllegalStateException.class, d::compact);
+                d.close();
+                try (Stream<Path> files = Files.list(directory)) {
+                    assertTrue(files.noneMatch(file -> file.toString().endsWith(".tmp")), point);
+                }
+                DurableDictionary<String, Integer> recovered = open(directory, Long.MAX_VALUE);
+                assertEquals(recovered, expected, point);
+                recovered.put("key2", -2);
+                expected.put("key2", -2);
+                recovered.compact();
+                recovered.close();
+                recovered = open(directory, Long.MAX_VALUE);
+                assertEquals(recovered, expected, point);
+                recovered.close();
+                try (Stream<Path> files = Files.list(directory)) {
+                    assertEquals(files.count(), 2L);
+                }
+            } finally {
+                deleteDirectory(directory);
+            }
+        }
+    }
+
+    @Test
+    public void testGroupCommit() throws Exception {
+        Path directory = tempDirectory();
+        try {
+            DurableDictionary<String, Integer> d = DurableDictionary.open(directory, Serializer.STRING,
+                    Serializer.INTEGER, 5, TimeUnit.MILLISECONDS, 1 << 12);
+            Map<String, Integer> batch = new HashMap<>();
+            for (int i = 0; i < sizeOfTestInput; i++) {
+                batch.put("batch" + i, i);
+            }
+            d.putAll(batch);
+            assertEquals(d.getSyncCount(), 1L);
+            Thread[] threads = new Thread[4];
+            for (int t = 0; t < threads.length; t++) {
+                int thread = t;
+                threads[t] = new Thread(() -> {
+                    for (int i = 0; i < sizeOfTestInput; i++) {
+                        d.put(thread + ":" + i, i);
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            // ведущий ждёт окно, за которое остальные потоки успевают дописать свои изменения
+            assertTrue(d.getSyncCount() < threads.length * sizeOfTestInput / 2);
+            d.close();
+            DurableDictionary<String, Integer> recovered = open(directory, 1 << 12);
+            assertEquals(recovered.size(), sizeOfTestInput * (threads.length + 1));
+            for (int t = 0; t < threads.length; t++) {
+                for (int i = 0; i < sizeOfTestInput; i++) {
+                    assertEquals(recovered.get(t + ":" + i), i);
+                }
+            }
+            recovered.close();
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+}
@@ -0,0 +1,190 @@
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ExpiringDictionaryTest {
+    private static final int sizeOfTestInput = 100;
+
+    private static final class FakeTicker implements Ticker {
+        private long nanos = 12345;
+
+        @Override
+        public long read() {
+            return nanos;
+        }
+
+        void advance(long duration, TimeUnit unit) {
+            nanos += unit.toNanos(duration);
+        }
+    }
+
+    @Test
+    public void testExpiredEntriesAreInvisible() {
+        FakeTicker ticker = new FakeTicker();
+        ExpiringDictionary<Integer, Integer> d = new ExpiringDictionary<>(10, TimeUnit.SECONDS, ticker);
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertNull(d.put(i, i));
+        }
+        ticker.advance(9, TimeUnit.SECONDS);
+        assertEquals(d.get(0), 0);
+        assertTrue(d.containsKey(1));
+        assertEquals(d.keySet().size(), sizeOfTestInput);
+        ticker.advance(1, TimeUnit.SECONDS);
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertNull(d.get(i));
+            assertFalse(d.containsKey(i));
+        }
+        assertFalse(d.entrySet().iterator().hasNext());
+        d.cleanUp();
+        assertEquals(d.size(), 0);
+    }
+
+    @Test
+    public void testPerEntryTtl() {
+        FakeTicker ticker = new FakeTicker();
+        ExpiringDictionary<Integer, Integer> d = new ExpiringDictionary<>(1, TimeUnit.MINUTES, ticker);
+        d.put(1, 1);
+        d.put(2, 2, 1, TimeUnit.SECONDS);
+        d.put(3, 3, 2, TimeUnit.HOURS);
+        d.put(4, 4, Long.MAX_VALUE, TimeUnit.DAYS);
+        assertEquals(d.getRemainingTtl(2, TimeUnit.MILLISECONDS), 1000);
+        assertEquals(d.getRemainingTtl(4, TimeUnit.DAYS), Long.MAX_VALUE);
+        ticker.advance(1, TimeUnit.SECONDS);
+        assertEquals(d.keySet(), Set.of(1, 3, 4));
+        ticker.advance(1, TimeUnit.MINUTES);
+        assertEquals(d.keySet(), Set.of(3, 4));
+        ticker.advance(2, TimeUnit.HOURS);
+        assertEquals(d.keySet(), Set.of(4));
+        ticker.advance(1000, TimeUnit.DAYS);
+        d.cleanUp();
+        assertEquals(d.size(), 1);
+        assertEquals(d.getRemainingTtl(3, TimeUnit.SECONDS), -1);
+    }
+
+    @Test
+    public void testPutRenewsTtl() {
+        FakeTicker ticker = new FakeTicker();
+        ExpiringDictionary<Integer, Integer> d = new ExpiringDictionary<>(10, TimeUnit.SECONDS, ticker);
+        d.put(1, 1);
+        ticker.advance(8, TimeUnit.SECONDS);
+        assertEquals(d.put(1, 2), 1);
+        ticker.advance(8, TimeUnit.SECONDS);
+        assertEquals(d.get(1), 2);
+        ticker.advance(2, TimeUnit.SECONDS);
+        assertNull(d.put(1, 3));
+        assertEquals(d.remove(1), 3);
+        assertNull(d.remove(1));
+    }
+
+    @Test
+    public void testWheelRemovesExpiredWithoutCleanUp() {
+        FakeTicker ticker = new FakeTicker();
+        ExpiringDictionary<Integer, Integer> d = new ExpiringDictionary<>(1, TimeUnit.HOURS, ticker);
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            d.put(i, i, 1 + i, TimeUnit.MINUTES);
+        }
+        ticker.advance(sizeOfTestInput + 1, TimeUnit.MINUTES);
+        // каждая операция разбирает ограниченное число элементов, но в итоге колесо удаляет все
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            d.get(-1);
+        }
+        assertEquals(d.size(), 0);
+    }
+
+    @Test
+    public void testIteratorRemove() {
+        FakeTicker ticker = new FakeTicker();
+        ExpiringDictionary<Integer, Integer> d = new ExpiringDictionary<>(10, TimeUnit.SECONDS, ticker);
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            d.put(i, i, 1 + i % 20, TimeUnit.SECONDS);
+        }
+        ticker.advance(10, TimeUnit.SECONDS);
+        Set<Integer> seen = new HashSet<>();
+        for (var iterator = d.entrySet().iterator(); iterator.hasNext(); ) {
+            var entry = iterator.next();
+            assertTrue(entry.getKey() % 20 >= 10);
+            seen.add(entry.getKey());
+            if (entry.getKey() % 2 == 0) {
+                iterator.remove();
+            }
+        }
+        assertEquals(seen.size(), sizeOfTestInput / 2);
+        d.cleanUp();
+        assertEquals(d.size(), sizeOfTestInput / 4);
+        d.clear();
+        assertTrue(d.isEmpty());
+    }
+
+    @Test
+    public void testInvalidTtl() {
+        assertThrows(IllegalArgumentException.class, () -> new ExpiringDictionary<Integer, Integer>(0, TimeUnit.SECONDS));
+        ExpiringDictionary<Integer, Integer> d = new ExpiringDictionary<>(1, TimeUnit.SECONDS);
+        assertThrows(IllegalArgumentException.class, () -> d.put(1, 1, -1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testModificationDuringIteration() {
+        FakeTicker ticker = new FakeTicker();
+        ExpiringDictionary<Integer, Integer> d = new ExpiringDictionary<>(5500, TimeUnit.MILLISECONDS, ticker);
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            d.put(i, i);
+        }
+        Iterator<Integer> iterator = d.keySet().iterator();
+        for (int i = 0; i < sizeOfTestInput / 5; i++) {
+            iterator.next();
+        }
+        // get() сдвигает колесо и переставляет элементы между списками
+        ticker.advance(5400, TimeUnit.MILLISECONDS);
+        assertEquals(d.get(0), 0);
+        assertThrows(ConcurrentModificationException.class, iterator::next);
+        Iterator<Integer> afterPut = d.keySet().iterator();
+        afterPut.next();
+        d.put(1, -1);
+        assertThrows(ConcurrentModificationException.class, afterPut::next);
+        Iterator<Integer> afterRemove = d.values().iterator();
+        afterRemove.next();
+        d.remove(2);
+        assertThrows(ConcurrentModificationException.class, afterRemove::next);
+        assertThrows(ConcurrentModificationException.class, afterRemove::remove);
+    }
+
+    @Test
+    public void testSizeIsBoundedEstimate() {
+        FakeTicker ticker = new FakeTicker();
+        ExpiringDictionary<Integer, Integer> d = new ExpiringDictionary<>(10, TimeUnit.SECONDS, ticker);
+        for (int i = 0; i < sizeOfTestInput * 1000; i++) {
+            d.put(i, i);
+        }
+        ticker.advance(10, TimeUnit.SECONDS);
+        // одновременное истечение всех ключей: size() разбирает лишь небольшую пачку и остаётся оценкой сверху
+        assertTrue(d.size() > sizeOfTestInput * 999);
+        assertFalse(d.isEmpty());
+        assertEquals(d.countLive(), 0);
+        assertEquals(d.keySet().size(), 0);
+        assertEquals(d, Map.of());
+        assertEquals(d.hashCode(), 0);
+        d.cleanUp();
+        assertEquals(d.size(), 0);
+        assertTrue(d.isEmpty());
+        // элементы, истёкшие внутри текущего тика колеса, не учитывают countLive() и equals()
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            d.put(i, i, 1 + i, TimeUnit.MILLISECONDS);
+        }
+        d.put(-1, -1);
+        ticker.advance(sizeOfTestInput / 2, TimeUnit.MILLISECONDS);
+        assertTrue(d.size() >= sizeOfTestInput / 2 + 1);
+        assertEquals(d.countLive(), sizeOfTestInput / 2 + 1);
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = sizeOfTestInput / 2; i < sizeOfTestInput; i++) {
+            expected.put(i, i);
+        }
+        expected.put(-1, -1);
+        assertEquals(d, expected);
+        assertEquals(d.hashCode(), expected.hashCode());
+        expected.put(-1, 1);
+        assertNotEquals(d, expected);
+        d.cleanUp();
+        assertEquals(d.size(), sizeOfTestInput / 2 + 1);
+    }
+}
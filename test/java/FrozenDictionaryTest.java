@@ -0,0 +1,86 @@
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FrozenDictionaryTest {
+    private static final int sizeOfTestInput = 100;
+
+    @Test
+    public void testLookupsAfterFreeze() {
+        for (int size : new int[]{0, 1, 2, 3, sizeOfTestInput, sizeOfTestInput * 100}) {
+            Dictionary<String, Integer> source = new DictionaryImpl<>();
+            for (int i = 0; i < size; i++) {
+                source.put("key" + i, i);
+            }
+            Dictionary<String, Integer> frozen = source.freeze();
+            assertEquals(frozen.size(), size);
+            for (int i = 0; i < size; i++) {
+                assertEquals(frozen.get("key" + i), i);
+                assertTrue(frozen.containsKey("key" + i));
+            }
+            for (int i = size; i < size * 2 + 10; i++) {
+                assertNull(frozen.get("key" + i));
+                assertFalse(frozen.containsKey("key" + i));
+                assertEquals(frozen.getOrDefault("key" + i, -1), -1);
+            }
+            assertEquals(frozen, source);
+            assertEquals(frozen.hashCode(), source.hashCode());
+            assertEquals(frozen.keySet(), source.keySet());
+            assertEquals(new HashSet<>(frozen.values()), new HashSet<>(source.values()));
+            assertEquals(frozen.entrySet(), source.entrySet());
+        }
+    }
+
+    @Test
+    public void testSameHashKeys() {
+        Map<CollidingKey, Integer> source = new HashMap<>();
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            source.put(new CollidingKey(i, i % 10), i);
+        }
+        FrozenDictionary<CollidingKey, Integer> frozen = FrozenDictionary.copyOf(source);
+        assertEquals(frozen.size(), sizeOfTestInput);
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertEquals(frozen.get(new CollidingKey(i, i % 10)), i);
+        }
+        assertNull(frozen.get(new CollidingKey(sizeOfTestInput, 0)));
+        assertEquals(frozen, source);
+        int[] count = {0};
+        frozen.forEach((key, value) -> {
+            assertEquals(key.id(), value);
+            count[0]++;
+        });
+        assertEquals(count[0], sizeOfTestInput);
+    }
+
+    @Test
+    public void testNullValues() {
+        Map<Integer, Integer> source = new HashMap<>();
+        source.put(1, null);
+        source.put(2, 2);
+        FrozenDictionary<Integer, Integer> frozen = FrozenDictionary.copyOf(source);
+        assertTrue(frozen.containsKey(1));
+        assertNull(frozen.get(1));
+        assertEquals(frozen.getOrDefault(1, 5), null);
+        assertTrue(frozen.containsValue(null));
+        assertThrows(NullPointerException.class, () -> FrozenDictionary.copyOf(Collections.singletonMap(null, 1)));
+    }
+
+    @Test
+    public void testMutatorsThrow() {
+        FrozenDictionary<Integer, Integer> frozen = FrozenDictionary.copyOf(Map.of(1, 1, 2, 2));
+        assertSame(frozen.freeze(), frozen);
+        assertSame(FrozenDictionary.copyOf(frozen), frozen);
+        assertThrows(UnsupportedOperationException.class, () -> frozen.put(3, 3));
+        assertThrows(UnsupportedOperationException.class, () -> frozen.remove(1));
+        assertThrows(UnsupportedOperationException.class, () -> frozen.remove(3));
+        assertThrows(UnsupportedOperationException.class, frozen::clear);
+        assertThrows(UnsupportedOperationException.class, () -> frozen.merge(1, 1, Integer::sum));
+        assertThrows(UnsupportedOperationException.class, () -> frozen.computeIfAbsent(1, key -> key));
+        assertThrows(UnsupportedOperationException.class, () -> frozen.putAll(Map.of()));
+        assertThrows(UnsupportedOperationException.class, () -> frozen.entrySet().iterator().next().setValue(3));
+        var iterator = frozen.keySet().iterator();
+        iterator.next();
+        assertThrows(UnsupportedOperationException.class, iterator::remove);
+        assertEquals(frozen.size(), 2);
+    }
+}
@@ -0,0 +1,135 @@
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class LinkedDictionaryTest {
+    private static final int sizeOfTestInput = 100;
+
+    @Test
+    public void testOrderAgainstLinkedHashMap() {
+        for (boolean accessOrder : new boolean[]{false, true}) {
+            Random random = new Random(24);
+            LinkedDictionary<Integer, String> d = new LinkedDictionary<>(accessOrder);
+            Map<Integer, String> expected = new LinkedHashMap<>(16, 0.75f, accessOrder);
+            for (int i = 0; i < sizeOfTestInput * 100; i++) {
+                int key = random.nextInt(sizeOfTestInput * 2);
+                int action = random.nextInt(10);
+                if (action < 3) {
+                    assertEquals(d.remove(key), expected.remove(key));
+                } else if (action < 5) {
+                    assertEquals(d.get(key), expected.get(key));
+                } else if (action == 5) {
+                    assertEquals(d.put(key, null), expected.put(key, null));
+                } else {
+                    assertEquals(d.put(key, "value" + i), expected.put(key, "value" + i));
+                }
+                assertEquals(d.size(), expected.size());
+                if (i % 100 == 0) {
+                    assertEquals(new ArrayList<>(d.entrySet()), new ArrayList<>(expected.entrySet()));
+                }
+            }
+            assertEquals(new ArrayList<>(d.keySet()), new ArrayList<>(expected.keySet()));
+            assertEquals(new ArrayList<>(d.values()), new ArrayList<>(expected.values()));
+            assertEquals(d, expected);
+            assertEquals(expected, d);
+            assertEquals(d.hashCode(), expected.hashCode());
+        }
+    }
+
+    @Test
+    public void testAccessOrder() {
+        LinkedDictionary<String, Integer> d = new LinkedDictionary<>(true);
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            d.put("key" + i, i);
+        }
+        d.get("key0");
+        d.put("key1", -1);
+        assertEquals(d.getOrDefault("key2", 0), 2);
+        assertEquals(d.getOrDefault("missing", 0), 0);
+        List<String> keys = new ArrayList<>(d.keySet());
+        assertEquals(keys.subList(sizeOfTestInput - 3, sizeOfTestInput), List.of("key0", "key1", "key2"));
+        assertEquals(keys.get(0), "key3");
+        // в порядке вставки повторный put() место не меняет
+        LinkedDictionary<String, Integer> inserted = new LinkedDictionary<>();
+        inserted.put("a", 1);
+        inserted.put("b", 2);
+        inserted.put("a", 3);
+        inserted.get("a");
+        assertEquals(new ArrayList<>(inserted.keySet()), List.of("a", "b"));
+        assertEquals(inserted.get("a"), 3);
+        // get() в порядке обращений -- изменение словаря
+        Iterator<String> iterator = d.keySet().iterator();
+        iterator.next();
+        d.get("key50");
+        assertThrows(ConcurrentModificationException.class, iterator::next);
+    }
+
+    @Test
+    public void testPollAndReversed() {
+        LinkedDictionary<Integer, Integer> d = new LinkedDictionary<>();
+        assertNull(d.pollFirst());
+        assertNull(d.pollLast());
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            d.put(i, i * i);
+        }
+        Dictionary<Integer, Integer> reversed = d.reversed();
+        List<Integer> keys = new ArrayList<>(reversed.keySet());
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertEquals(keys.get(i), sizeOfTestInput - 1 - i);
+        }
+        assertEquals(reversed, d);
+        assertEquals(d.pollFirst(), new AbstractMap.SimpleImmutableEntry<>(0, 0));
+        assertEquals(d.pollLast(), Map.entry(sizeOfTestInput - 1, (sizeOfTestInput - 1) * (sizeOfTestInput - 1)));
+        assertEquals(d.size(), sizeOfTestInput - 2);
+        assertFalse(d.containsKey(0));
+        // изменения через вид видны в словаре и наоборот
+        reversed.put(-1, 1);
+        assertEquals(d.get(-1), 1);
+        assertEquals(reversed.keySet().iterator().next(), -1);
+        reversed.remove(1);
+        assertFalse(d.containsKey(1));
+        d.put(sizeOfTestInput, 0);
+        assertEquals(reversed.entrySet().iterator().next(), Map.entry(sizeOfTestInput, 0));
+        assertEquals(reversed.size(), d.size());
+        while (d.pollLast() != null) {
+            assertEquals(reversed.size(), d.size());
+        }
+        assertTrue(reversed.isEmpty());
+    }
+
+    @Test
+    public void testIteratorRemoveAndSetValue() {
+        LinkedDictionary<Integer, Integer> d = new LinkedDictionary<>();
+        for (int i = 0; i < sizeOfTestInput * 10; i++) {
+            d.put(i, i);
+        }
+        Iterator<Map.Entry<Integer, Integer>> iterator = d.entrySet().iterator();
+        assertThrows(IllegalStateException.class, iterator::remove);
+        while (iterator.hasNext()) {
+            Map.Entry<Integer, Integer> entry = iterator.next();
+            if (entry.getKey() % 10 != 0) {
+                iterator.remove();
+            } else {
+                entry.setValue(-entry.getKey());
+            }
+        }
+        assertThrows(NoSuchElementException.class, iterator::next);
+        assertEquals(d.size(), sizeOfTestInput);
+        List<Integer> keys = new ArrayList<>(d.keySet());
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertEquals(keys.get(i), i * 10);
+            assertEquals(d.get(i * 10), -i * 10);
+        }
+        Iterator<Integer> values = d.reversed().values().iterator();
+        values.next();
+        values.remove();
+        assertFalse(d.containsKey((sizeOfTestInput - 1) * 10));
+        d.put(-5, 5);
+        assertThrows(ConcurrentModificationException.class, values::next);
+        d.clear();
+        assertTrue(d.isEmpty());
+        assertFalse(d.keySet().iterator().hasNext());
+        d.put(1, 1);
+        assertEquals(d.pollFirst(), Map.entry(1, 1));
+    }
+}
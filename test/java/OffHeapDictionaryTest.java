@@ -0,0 +1,122 @@
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OffHeapDictionaryTest {
+    private static final int sizeOfTestInput = 100;
+
+    @Test
+    public void testAgainstHashMap() {
+        Random random = new Random(20);
+        try (OffHeapDictionary<String, Integer> d = new OffHeapDictionary<>(Serializer.STRING, Serializer.INTEGER, 256)) {
+            Map<String, Integer> expected = new HashMap<>();
+            for (int i = 0; i < sizeOfTestInput * 100; i++) {
+                String key = "key" + random.nextInt(sizeOfTestInput * 20);
+                int action = random.nextInt(4);
+                if (action == 0) {
+                    assertEquals(d.remove(key), expected.remove(key));
+                } else if (action == 1) {
+                    assertEquals(d.put(key, null), expected.put(key, null));
+                } else {
+                    assertEquals(d.put(key, i), expected.put(key, i));
+                }
+                assertEquals(d.size(), expected.size());
+            }
+            assertEquals(d, expected);
+            assertEquals(expected, d);
+            for (int i = -1; i <= sizeOfTestInput * 20; i++) {
+                assertEquals(d.containsKey("key" + i), expected.containsKey("key" + i));
+                assertEquals(d.get("key" + i), expected.get("key" + i));
+            }
+            assertNull(d.get(42));
+            assertFalse(d.containsKey(42));
+        }
+    }
+
+    @Test
+    public void testByteArrayKeysCompareByContent() {
+        try (OffHeapDictionary<byte[], byte[]> d = new OffHeapDictionary<>(Serializer.BYTES, Serializer.BYTES)) {
+            for (int i = 0; i < sizeOfTestInput; i++) {
+                d.put(new byte[]{(byte) i, 1, 2}, new byte[i]);
+            }
+            assertEquals(d.size(), sizeOfTestInput);
+            for (int i = 0; i < sizeOfTestInput; i++) {
+                assertEquals(d.get(new byte[]{(byte) i, 1, 2}).length, i);
+            }
+            assertNull(d.get(new byte[]{1, 2, 3}));
+            assertEquals(d.remove(new byte[]{7, 1, 2}).length, 7);
+            assertEquals(d.size(), sizeOfTestInput - 1);
+        }
+    }
+
+    @Test
+    public void testIteratorRemoveAndSetValue() {
+        try (OffHeapDictionary<Integer, Integer> d = new OffHeapDictionary<>(Serializer.INTEGER, Serializer.INTEGER)) {
+            for (int i = 0; i < sizeOfTestInput * 10; i++) {
+                d.put(i, i);
+            }
+            Set<Integer> seen = new HashSet<>();
+            Iterator<Map.Entry<Integer, Integer>> iterator = d.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<Integer, Integer> entry = iterator.next();
+                assertTrue(seen.add(entry.getKey()));
+                if (entry.getKey() % 3 == 0) {
+                    iterator.remove();
+                } else {
+                    entry.setValue(-entry.getKey());
+                }
+            }
+            assertEquals(seen.size(), sizeOfTestInput * 10);
+            for (int i = 0; i < sizeOfTestInput * 10; i++) {
+                assertEquals(d.get(i), i % 3 == 0 ? null : -i);
+            }
+            Iterator<Integer> keys = d.keySet().iterator();
+            keys.next();
+            d.put(-1, -1);
+            assertThrows(ConcurrentModificationException.class, keys::hasNext);
+            // remove() после чужого удаления не трогает ячейку, в которую мог сдвинуться другой элемент
+            for (int i = 0; i < sizeOfTestInput * 20; i++) {
+                d.put(i, i);
+            }
+            keys = d.keySet().iterator();
+            int key = keys.next();
+            d.remove(key);
+            int size = d.size();
+            assertThrows(ConcurrentModificationException.class, keys::remove);
+            assertEquals(d.size(), size);
+            for (int i = 0; i < sizeOfTestInput * 20; i++) {
+                assertEquals(d.get(i), i == key ? null : i);
+            }
+        }
+    }
+
+    @Test
+    public void testOverwritesAreCompacted() {
+        int slabSize = 1 << 12;
+        try (OffHeapDictionary<Integer, String> d = new OffHeapDictionary<>(Serializer.INTEGER, Serializer.STRING, slabSize)) {
+            for (int round = 0; round < sizeOfTestInput; round++) {
+                for (int i = 0; i < sizeOfTestInput; i++) {
+                    d.put(i, "value" + round);
+                }
+            }
+            for (int i = 0; i < sizeOfTestInput; i++) {
+                assertEquals(d.get(i), "value" + (sizeOfTestInput - 1));
+            }
+            // живые записи занимают меньше одного слэба, мусор не копится бесконечно
+            assertTrue(d.getOffHeapBytes() <= 16L * 1024 + 4L * slabSize);
+        }
+    }
+
+    @Test
+    public void testClosedDictionaryThrows() {
+        OffHeapDictionary<String, String> d = new OffHeapDictionary<>(Serializer.STRING, Serializer.STRING);
+        d.put("a", "b");
+        Iterator<String> iterator = d.values().iterator();
+        d.close();
+        d.close();
+        assertThrows(IllegalStateException.class, () -> d.get("a"));
+        assertThrows(IllegalStateException.class, () -> d.put("a", "c"));
+        assertThrows(IllegalStateException.class, d::size);
+        assertThrows(IllegalStateException.class, iterator::hasNext);
+    }
+}
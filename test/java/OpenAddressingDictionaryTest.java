@@ -0,0 +1,135 @@
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OpenAddressingDictionaryTest extends AbstractDictionaryTest {
+    private static final int sizeOfTestInput = 100;
+
+    @Override
+    protected <K, V> Dictionary<K, V> create() {
+        return new OpenAddressingDictionary<>();
+    }
+
+    @Override
+    protected <K, V> Dictionary<K, V> create(int capacity) {
+        return new OpenAddressingDictionary<>(capacity);
+    }
+
+    @Override
+    protected <K, V> Dictionary<K, V> create(double loadFactor, int capacity) {
+        return new OpenAddressingDictionary<>(loadFactor, capacity);
+    }
+
+    @Test
+    public void testPutGetRemoveWithSameHash() {
+        OpenAddressingDictionary<CollidingKey, Integer> d = new OpenAddressingDictionary<>();
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertNull(d.put(new CollidingKey(i, 42), i));
+        }
+        assertEquals(d.size(), sizeOfTestInput);
+        for (int i = 0; i < sizeOfTestInput; i += 2) {
+            assertEquals(d.remove(new CollidingKey(i, 42)), i);
+        }
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertEquals(d.get(new CollidingKey(i, 42)), i % 2 == 0 ? null : i);
+        }
+        assertEquals(d.size(), sizeOfTestInput / 2);
+    }
+
+    @Test
+    public void testIteratorRemoveWithWrapAround() {
+        OpenAddressingDictionary<CollidingKey, Integer> d = new OpenAddressingDictionary<>(0.9, 16);
+        // все ключи стремятся в последнюю ячейку, кластер переходит через конец таблицы
+        for (int i = 0; i < 10; i++) {
+            assertNull(d.put(new CollidingKey(i, 15), i));
+        }
+        Set<Integer> seen = new HashSet<>();
+        for (var iterator = d.entrySet().iterator(); iterator.hasNext(); ) {
+            var entry = iterator.next();
+            assertTrue(seen.add(entry.getValue()));
+            iterator.remove();
+            assertNull(d.get(entry.getKey()));
+        }
+        assertEquals(seen.size(), 10);
+        assertEquals(d.size(), 0);
+    }
+
+    @Test
+    public void testIteratorRemoveEveryOtherKeepsRest() {
+        OpenAddressingDictionary<Integer, Integer> d = new OpenAddressingDictionary<>();
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertNull(d.put(i, i));
+        }
+        int visited = 0;
+        for (var iterator = d.keySet().iterator(); iterator.hasNext(); ) {
+            if (iterator.next() % 2 == 0) {
+                iterator.remove();
+            }
+            visited++;
+        }
+        assertEquals(visited, sizeOfTestInput);
+        assertEquals(d.size(), sizeOfTestInput / 2);
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertEquals(d.containsKey(i), i % 2 == 1);
+        }
+    }
+
+    @Test
+    public void testIteratorRemoveTwiceThrows() {
+        OpenAddressingDictionary<Integer, Integer> d = new OpenAddressingDictionary<>();
+        d.put(1, 1);
+        var iterator = d.keySet().iterator();
+        assertThrows(IllegalStateException.class, iterator::remove);
+        iterator.next();
+        iterator.remove();
+        assertThrows(IllegalStateException.class, iterator::remove);
+        assertThrows(NoSuchElementException.class, iterator::next);
+    }
+
+    @Test
+    public void testEntrySetValueWritesThrough() {
+        OpenAddressingDictionary<Integer, Integer> d = new OpenAddressingDictionary<>();
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertNull(d.put(i, i));
+        }
+        for (var entry : d.entrySet()) {
+            assertEquals(entry.setValue(entry.getValue() + 1), entry.getKey());
+        }
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertEquals(d.get(i), i + 1);
+        }
+    }
+
+    @Test
+    public void testContainsKeyWithNullValue() {
+        OpenAddressingDictionary<Integer, Integer> d = new OpenAddressingDictionary<>();
+        assertNull(d.put(1, null));
+        assertTrue(d.containsKey(1));
+        assertFalse(d.containsKey(2));
+        assertEquals(d.size(), 1);
+    }
+
+    @Test
+    public void testIllegalLoadFactor() {
+        assertThrows(IllegalArgumentException.class, () -> new OpenAddressingDictionary<Integer, Integer>(1.0, 16));
+        assertThrows(IllegalArgumentException.class, () -> new OpenAddressingDictionary<Integer, Integer>(0.0, 16));
+        assertThrows(IllegalArgumentException.class, () -> new OpenAddressingDictionary<Integer, Integer>(0.5, -1));
+    }
+
+    @Test
+    public void testRandomAgainstHashMap() {
+        OpenAddressingDictionary<Integer, Integer> d = new OpenAddressingDictionary<>(0.9, 2);
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(17);
+        for (int i = 0; i < 100 * sizeOfTestInput; i++) {
+            int key = random.nextInt(sizeOfTestInput * 3) - sizeOfTestInput;
+            if (random.nextBoolean()) {
+                assertEquals(d.put(key, i), expected.put(key, i));
+            } else {
+                assertEquals(d.remove(key), expected.remove(key));
+            }
+            assertEquals(d.size(), expected.size());
+        }
+        assertEquals(d, expected);
+    }
+}
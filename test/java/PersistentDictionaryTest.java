@@ -0,0 +1,113 @@
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PersistentDictionaryTest {
+    private static final int sizeOfTestInput = 100;
+
+    @Test
+    public void testAgainstHashMap() {
+        Random random = new Random(18);
+        PersistentDictionary<Integer, Integer> d = new PersistentDictionary<>();
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < sizeOfTestInput * 100; i++) {
+            int key = random.nextInt(sizeOfTestInput * 10);
+            if (random.nextInt(3) == 0) {
+                assertEquals(d.remove(key), expected.remove(key));
+            } else {
+                assertEquals(d.put(key, i), expected.put(key, i));
+            }
+            assertEquals(d.size(), expected.size());
+        }
+        assertEquals(d, expected);
+        assertEquals(expected, d);
+        for (int key = -1; key <= sizeOfTestInput * 10; key++) {
+            assertEquals(d.get(key), expected.get(key));
+        }
+    }
+
+    @Test
+    public void testSnapshotIsIndependent() {
+        PersistentDictionary<Integer, Integer> d = new PersistentDictionary<>();
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            d.put(i, i);
+        }
+        PersistentDictionary<Integer, Integer> snapshot = d.snapshot();
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            if (i % 2 == 0) {
+                d.remove(i);
+            } else {
+                d.put(i, -i);
+            }
+        }
+        d.put(sizeOfTestInput, sizeOfTestInput);
+        assertEquals(snapshot.size(), sizeOfTestInput);
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertEquals(snapshot.get(i), i);
+        }
+        snapshot.put(-1, -1);
+        assertFalse(d.containsKey(-1));
+        assertEquals(d.size(), sizeOfTestInput / 2 + 1);
+        assertEquals(d.get(1), -1);
+        d.clear();
+        assertEquals(snapshot.size(), sizeOfTestInput + 1);
+    }
+
+    @Test
+    public void testFullHashCollisions() {
+        PersistentDictionary<CollidingKey, Integer> d = new PersistentDictionary<>();
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertNull(d.put(new CollidingKey(i, i % 3), i));
+        }
+        var snapshot = d.snapshot();
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertEquals(d.get(new CollidingKey(i, i % 3)), i);
+        }
+        for (int i = 0; i < sizeOfTestInput - 1; i++) {
+            assertEquals(d.remove(new CollidingKey(i, i % 3)), i);
+            assertNull(d.get(new CollidingKey(i, i % 3)));
+        }
+        assertEquals(d.keySet(), Set.of(new CollidingKey(sizeOfTestInput - 1, 0)));
+        assertEquals(snapshot.size(), sizeOfTestInput);
+        assertEquals(snapshot.get(new CollidingKey(0, 0)), 0);
+    }
+
+    @Test
+    public void testIteratorSeesStateAtCreation() {
+        PersistentDictionary<Integer, Integer> d = new PersistentDictionary<>();
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            d.put(i, i);
+        }
+        Set<Integer> seen = new HashSet<>();
+        for (var iterator = d.entrySet().iterator(); iterator.hasNext(); ) {
+            var entry = iterator.next();
+            seen.add(entry.getKey());
+            if (entry.getKey() % 2 == 0) {
+                iterator.remove();
+            } else {
+                entry.setValue(-entry.getKey());
+            }
+            d.put(entry.getKey() + sizeOfTestInput, 0);
+        }
+        assertEquals(seen.size(), sizeOfTestInput);
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertEquals(d.get(i), i % 2 == 0 ? null : -i);
+        }
+        assertEquals(d.size(), sizeOfTestInput / 2 + sizeOfTestInput);
+        assertThrows(IllegalStateException.class, () -> d.keySet().iterator().remove());
+    }
+
+    @Test
+    public void testNullValuesAndViews() {
+        PersistentDictionary<String, Integer> d = new PersistentDictionary<>();
+        assertNull(d.put("a", null));
+        assertTrue(d.containsKey("a"));
+        assertNull(d.put("a", 1));
+        assertEquals(d.size(), 1);
+        d.put("b", 1);
+        assertEquals(d.keySet(), Set.of("a", "b"));
+        assertEquals(new ArrayList<>(d.values()), List.of(1, 1));
+        assertTrue(d.entrySet().contains(Map.entry("b", 1)));
+        assertEquals(d.getOrDefault("c", 3), 3);
+    }
+}
@@ -0,0 +1,157 @@
+import org.junit.jupiter.api.Test;
+import java.util.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class PrimitiveDictionaryTest {
+    private static final int sizeOfTestInput = 100;
+
+    @Test
+    public void testIntIntPutGetRemove() {
+        IntIntDictionary d = new IntIntDictionary();
+        for (int i = -sizeOfTestInput; i < sizeOfTestInput; i++) {
+            assertEquals(d.put(i, i * 2), 0);
+            assertEquals(d.getInt(i), i * 2);
+        }
+        assertEquals(d.size(), 2 * sizeOfTestInput);
+        assertTrue(d.containsKey(0));
+        for (int i = -sizeOfTestInput; i < sizeOfTestInput; i++) {
+            assertEquals(d.removeInt(i), i * 2);
+            assertFalse(d.containsKey(i));
+        }
+        assertEquals(d.size(), 0);
+    }
+
+    @Test
+    public void testDefaultReturnValue() {
+        LongIntDictionary d = new LongIntDictionary();
+        d.defaultReturnValue(-1);
+        assertEquals(d.getInt(5), -1);
+        assertEquals(d.removeInt(5), -1);
+        assertEquals(d.put(5, 7), -1);
+        assertEquals(d.put(5, 8), 7);
+    }
+
+    @Test
+    public void testAddTo() {
+        LongIntDictionary d = new LongIntDictionary(4);
+        for (int round = 0; round < 3; round++) {
+            for (long i = 0; i < sizeOfTestInput; i++) {
+                assertEquals(d.addTo(i * 1_000_000_007L, 1), round);
+            }
+        }
+        assertEquals(d.size(), sizeOfTestInput);
+        assertEquals(d.getInt(0), 3);
+
+        LongLongDictionary d2 = new LongLongDictionary();
+        d2.addTo(Long.MIN_VALUE, Long.MAX_VALUE);
+        d2.addTo(Long.MIN_VALUE, 1);
+        assertEquals(d2.getLong(Long.MIN_VALUE), Long.MIN_VALUE);
+    }
+
+    @Test
+    public void testLongObject() {
+        LongObjectDictionary<String> d = new LongObjectDictionary<>();
+        for (long i = 0; i < sizeOfTestInput; i++) {
+            assertNull(d.put(i << 32, "v" + i));
+        }
+        for (long i = 0; i < sizeOfTestInput; i++) {
+            assertEquals(d.get(i << 32), "v" + i);
+        }
+        assertNull(d.get(1));
+        assertEquals(d.remove(0), "v0");
+        assertNull(d.remove(0));
+        assertEquals(d.size(), sizeOfTestInput - 1);
+    }
+
+    @Test
+    public void testObjectInt() {
+        ObjectIntDictionary<String> d = new ObjectIntDictionary<>();
+        String s = "a".repeat(sizeOfTestInput);
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertEquals(d.addTo(s.substring(i), i), 0);
+        }
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertEquals(d.getInt(s.substring(i)), i);
+        }
+        assertEquals(d.removeInt("a"), sizeOfTestInput - 1);
+        assertEquals(d.getInt("a"), 0);
+        assertEquals(d.size(), sizeOfTestInput - 1);
+    }
+
+    @Test
+    public void testClear() {
+        IntIntDictionary d = new IntIntDictionary();
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            d.put(i, i);
+        }
+        d.clear();
+        assertEquals(d.size(), 0);
+        assertFalse(d.containsKey(0));
+        assertFalse(d.containsKey(1));
+    }
+
+    @Test
+    public void testAsDictionaryViews() {
+        IntIntDictionary d = new IntIntDictionary();
+        Dictionary<Integer, Integer> boxed = d.asDictionary();
+        Map<Integer, Integer> expected = new HashMap<>();
+        for (int i = 0; i < sizeOfTestInput; i++) {
+            assertNull(boxed.put(i, i));
+            expected.put(i, i);
+        }
+        assertEquals(boxed, expected);
+        assertEquals(boxed.keySet(), expected.keySet());
+        assertEquals(boxed.get(0), 0);
+        assertNull(boxed.get("0"));
+        assertNull(boxed.get(-1));
+        for (var entry : boxed.entrySet()) {
+            entry.setValue(entry.getValue() + 1);
+        }
+        assertEquals(d.getInt(0), 1);
+        assertEquals(boxed.remove(0), 1);
+        assertFalse(d.containsKey(0));
+    }
+
+    @Test
+    public void testAsDictionaryIteratorRemove() {
+        LongLongDictionary d = new LongLongDictionary(0.9, 16);
+        Random random = new Random(3);
+        Set<Long> expected = new HashSet<>();
+        for (int i = 0; i < sizeOfTestInput * 10; i++) {
+            long key = random.nextInt(sizeOfTestInput * 5);
+            d.put(key, key);
+            expected.add(key);
+        }
+        Set<Long> seen = new HashSet<>();
+        for (var iterator = d.asDictionary().keySet().iterator(); iterator.hasNext(); ) {
+            long key = iterator.next();
+            assertTrue(seen.add(key));
+            if (key % 3 != 0) {
+                iterator.remove();
+            }
+        }
+        assertEquals(seen, expected);
+        for (long key : expected) {
+            assertEquals(d.containsKey(key), key % 3 == 0);
+        }
+    }
+
+    @Test
+    public void testRandomAgainstHashMap() {
+        IntIntDictionary d = new IntIntDictionary(0.9, 2);
+        Map<Integer, Integer> expected = new HashMap<>();
+        Random random = new Random(11);
+        for (int i = 0; i < 100 * sizeOfTestInput; i++) {
+            int key = random.nextInt(sizeOfTestInput * 3) - sizeOfTestInput;
+            if (random.nextBoolean()) {
+                assertEquals(d.put(key, i), expected.getOrDefault(key, 0));
+                expected.put(key, i);
+            } else {
+                Integer last = expected.remove(key);
+                assertEquals(d.removeInt(key), last == null ? 0 : last);
+            }
+            assertEquals(d.size(), expected.size());
+        }
+        assertEquals(d.asDictionary(), expected);
+    }
+}
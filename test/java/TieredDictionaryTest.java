@@ -0,0 +1,187 @@
+import org.junit.jupiter.api.Test;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TieredDictionaryTest {
+    private static final int sizeOfTestInput = 100;
+
+    private static Path tempDirectory() throws IOException {
+        return Files.createTempDirectory("tiered");
+    }
+
+    private static void deleteDirectory(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    public void testAgainstHashMap() throws Exception {
+        Path directory = tempDirectory();
+        try (TieredDictionary<Integer, String> d = new TieredDictionary<>(directory, Serializer.INTEGER,
+                Serializer.STRING, 16 * 1024)) {
+            Random random = new Random(22);
+            Map<Integer, String> expected = new HashMap<>();
+            for (int i = 0; i < sizeOfTestInput * 100; i++) {
+                int key = random.nextInt(sizeOfTestInput * 20);
+                int action = random.nextInt(10);
+                if (action < 3) {
+                    assertEquals(d.remove(key), expected.remove(key));
+                } else if (action < 5) {
+                    assertEquals(d.get(key), expected.get(key));
+                } else if (action == 5) {
+                    assertEquals(d.put(key, null), expected.put(key, null));
+                } else {
+                    assertEquals(d.put(key, "value" + i), expected.put(key, "value" + i));
+                }
+                assertEquals(d.size(), expected.size());
+            }
+            d.awaitCompaction();
+            assertEquals(d, expected);
+            assertEquals(expected, d);
+            for (int key = -1; key <= sizeOfTestInput * 20; key++) {
+                assertEquals(d.containsKey(key), expected.containsKey(key));
+                assertEquals(d.get(key), expected.get(key));
+            }
+            assertNull(d.get("not an integer"));
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testIterationCoversBothTiers() throws Exception {
+        Path directory = tempDirectory();
+        try (TieredDictionary<String, Integer> d = new TieredDictionary<>(directory, Serializer.STRING,
+                Serializer.INTEGER, 4 * 1024)) {
+            for (int i = 0; i < sizeOfTestInput * 10; i++) {
+                d.put("key" + i, i);
+            }
+            // перезапись ключей, уже ушедших на диск: в обходе должно быть только новое значение
+            for (int i = 0; i < sizeOfTestInput; i++) {
+                d.put("key" + i, -i);
+            }
+            assertTrue(d.getSegmentCount() > 0);
+            Map<String, Integer> seen = d.entrySet().stream()
+                    .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
+            assertEquals(seen.size(), sizeOfTestInput * 10);
+            for (int i = 0; i < sizeOfTestInput * 10; i++) {
+                assertEquals(seen.get("key" + i), i < sizeOfTestInput ? -i : i);
+            }
+            Iterator<String> keys = d.keySet().iterator();
+            while (keys.hasNext()) {
+                String key = keys.next();
+                if (Integer.parseInt(key.substring(3)) % 2 == 0) {
+                    keys.remove();
+                }
+            }
+            assertEquals(d.size(), sizeOfTestInput * 5);
+            for (int i = 0; i < sizeOfTestInput * 10; i++) {
+                assertEquals(d.containsKey("key" + i), i % 2 != 0);
+            }
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testSetValueAndReplaceAll() throws Exception {
+        Path directory = tempDirectory();
+        try (TieredDictionary<Integer, String> d = new TieredDictionary<>(directory, Serializer.INTEGER,
+                Serializer.STRING, 4 * 1024)) {
+            Map<Integer, String> expected = new HashMap<>();
+            for (int i = 0; i < sizeOfTestInput * 10; i++) {
+                d.put(i, "value" + i);
+                expected.put(i, "value" + i);
+            }
+            assertTrue(d.getSegmentCount() > 0);
+            // setValue() во время обхода не прерывает его ни для элементов в памяти, ни для элементов на диске
+            int updated = 0;
+            for (Map.Entry<Integer, String> entry : d.entrySet()) {
+                if (entry.getKey() % 3 == 0) {
+                    assertEquals(entry.setValue("set" + entry.getKey()), "value" + entry.getKey());
+                    assertEquals(entry.getValue(), "set" + entry.getKey());
+                    expected.put(entry.getKey(), "set" + entry.getKey());
+                }
+                updated++;
+            }
+            assertEquals(updated, sizeOfTestInput * 10);
+            assertEquals(d, expected);
+            d.replaceAll((key, value) -> value + "!");
+            expected.replaceAll((key, value) -> value + "!");
+            assertEquals(d.size(), expected.size());
+            assertEquals(d, expected);
+            for (int i = 0; i < sizeOfTestInput * 10; i++) {
+                assertEquals(d.get(i), expected.get(i));
+            }
+            // элемент, взятый до изменения словаря, после него пишет обычным put()
+            Map.Entry<Integer, String> first = d.entrySet().iterator().next();
+            d.remove(first.getKey());
+            first.setValue("again");
+            assertEquals(d.get(first.getKey()), "again");
+            assertEquals(d.size(), sizeOfTestInput * 10);
+        } finally {
+            deleteDirectory(directory);
+        }
+        directory = tempDirectory();
+        try (TieredDictionary<Integer, String> d = new TieredDictionary<>(directory, Serializer.INTEGER,
+                Serializer.STRING, 1024 * 1024)) {
+            for (int i = 0; i < 10; i++) {
+                d.put(i, "value" + i);
+            }
+            d.replaceAll((key, value) -> value + "!");
+            for (int i = 0; i < 10; i++) {
+                assertEquals(d.get(i), "value" + i + "!");
+            }
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testCompactionMergesSegments() throws Exception {
+        Path directory = tempDirectory();
+        try (TieredDictionary<Integer, Integer> d = new TieredDictionary<>(directory, Serializer.INTEGER,
+                Serializer.INTEGER, 8 * 1024)) {
+            for (int round = 0; round < 10; round++) {
+                for (int i = 0; i < sizeOfTestInput * 5; i++) {
+                    d.put(i, round);
+                }
+                d.awaitCompaction();
+            }
+            assertTrue(d.getSegmentCount() < 4);
+            for (int i = 0; i < sizeOfTestInput * 5; i++) {
+                assertEquals(d.get(i), 9);
+            }
+            d.clear();
+            assertTrue(d.isEmpty());
+            assertNull(d.get(0));
+        } finally {
+            deleteDirectory(directory);
+        }
+    }
+
+    @Test
+    public void testBloomFilter() {
+        BloomFilter filter = new BloomFilter(sizeOfTestInput * 100);
+        for (int i = 0; i < sizeOfTestInput * 100; i++) {
+            filter.add("key" + i);
+        }
+        int falsePositives = 0;
+        for (int i = 0; i < sizeOfTestInput * 100; i++) {
+            assertTrue(filter.mightContain("key" + i));
+            if (filter.mightContain("missing" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue(falsePositives < sizeOfTestInput * 3);
+    }
+}